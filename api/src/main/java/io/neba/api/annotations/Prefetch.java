@@ -0,0 +1,75 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.api.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.ANNOTATION_TYPE;
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * <p>
+ * Declares that the subtree of a resource shall be read in a single pass before the
+ * {@link ResourceModel resource model} is mapped. Mapping a page-level model usually triggers
+ * many small reads - child lists, jcr:content properties, nested components and references - each resolved on demand.
+ * Prefetching the subtree up front reads the children and properties of the respective resources once. The mapping of the model,
+ * the mappings of the models it uses and the loading of their lazy fields then use the prefetched children and properties
+ * instead of reading them again, e.g. when several models map the same part of the content tree.
+ * </p>
+ * <p>
+ * Prefetching is opt-in and should be restricted to the part of the content tree the model actually uses, as each
+ * prefetched resource is read regardless of whether it is used. The prefetched content is retained until the outermost mapping
+ * has ended, and beyond that only by the lazy fields of the mapped models.
+ * </p>
+ *
+ * <h2>Examples</h2>
+ *
+ * Prefetch the children and grandchildren of the resource
+ * <pre>
+ * &#64;{@link ResourceModel}("some/page/type")
+ * &#64;{@link Prefetch}(depth = 2)
+ * public class Page { ... }
+ * </pre>
+ *
+ * Prefetch the "jcr:content" child of the resource and its children
+ * <pre>
+ * &#64;{@link ResourceModel}("some/page/type")
+ * &#64;{@link Prefetch}(depth = 2, names = {"jcr:content", "par", "header"})
+ * public class Page { ... }
+ * </pre>
+ *
+ * @author Olaf Otto
+ * @since 5.1.4
+ */
+@Documented
+@Target({TYPE, ANNOTATION_TYPE})
+@Retention(RUNTIME)
+public @interface Prefetch {
+    /**
+     * @return the number of levels below the resource to prefetch. A depth of 1 prefetches the
+     * children of the resource. Must be greater than zero.
+     */
+    int depth() default 1;
+
+    /**
+     * @return the names of the resources to descend into. If empty, all resources within the
+     * {@link #depth()} are prefetched.
+     */
+    String[] names() default {};
+}
@@ -0,0 +1,102 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.api.spi;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Receives notifications about the lifecycle of resource-to-model mappings, e.g. to report
+ * mapping durations to an APM system or to log the models resolved during a request.
+ * <p>
+ * OSGi services providing this interface are automatically detected by the core and notified
+ * about <em>all</em> mappings. All callbacks have empty default implementations, thus listeners
+ * only implement the callbacks they are interested in. There are no guarantees concerning the
+ * order in which listeners are notified.
+ * </p>
+ * <p>
+ * Listeners are invoked synchronously on the thread performing the mapping and must thus return quickly.
+ * Exceptions thrown by a listener are logged and do not affect the mapping. If no listener is registered,
+ * NEBA does not collect any of the information provided to listeners.
+ * </p>
+ *
+ * @author Olaf Otto
+ * @since 5.1.4
+ */
+public interface MappingListener {
+    /**
+     * Invoked after a model was instantiated and before the resource is mapped onto it.
+     *
+     * @param modelType    the type of the mapped model. Never <code>null</code>.
+     * @param resourcePath the path of the mapped resource. Never <code>null</code>.
+     * @param depth        the number of ongoing mappings including this one, i.e. 1 for a mapping that
+     *                     was not triggered by another mapping.
+     */
+    default void mappingStarted(@Nonnull Class<?> modelType, @Nonnull String resourcePath, int depth) {
+    }
+
+    /**
+     * Invoked after the resource was mapped onto the model and the model was post-processed.
+     * Not invoked if the mapping failed.
+     *
+     * @param modelType    the type of the mapped model. Never <code>null</code>.
+     * @param resourcePath the path of the mapped resource. Never <code>null</code>.
+     * @param depth        the same depth as provided to {@link #mappingStarted(Class, String, int)}.
+     * @param durationInNs the duration of the mapping, including all nested mappings.
+     */
+    default void mappingCompleted(@Nonnull Class<?> modelType, @Nonnull String resourcePath, int depth, long durationInNs) {
+    }
+
+    /**
+     * Invoked when a model is retrieved from the request-scoped model cache.
+     *
+     * @param resourcePath the path of the adapted resource. Never <code>null</code>.
+     * @param modelType    the type of the cached model, or <code>null</code> if the cache
+     *                     holds the information that there is no model for the resource.
+     */
+    default void cacheHit(@Nonnull String resourcePath, @CheckForNull Class<?> modelType) {
+    }
+
+    /**
+     * Invoked when the request-scoped model cache does not contain a model for a resource.
+     *
+     * @param resourcePath the path of the adapted resource. Never <code>null</code>.
+     */
+    default void cacheMiss(@Nonnull String resourcePath) {
+    }
+
+    /**
+     * Invoked when the models for a resource are looked up in the model registry.
+     *
+     * @param resourcePath     the path of the resource. Never <code>null</code>.
+     * @param resourceType     the type of the resource. Never <code>null</code>.
+     * @param numberOfModels   the number of models found for the resource.
+     * @param fromLookupCache  whether the result was answered from the registry's lookup cache.
+     */
+    default void modelsLookedUp(@Nonnull String resourcePath, @Nonnull String resourceType, int numberOfModels, boolean fromLookupCache) {
+    }
+
+    /**
+     * Invoked before the value of a lazy field, e.g. a {@link io.neba.api.resourcemodels.Lazy} field
+     * or a lazy-loading collection, is loaded.
+     *
+     * @param modelType    the type of the model declaring the field. Never <code>null</code>.
+     * @param fieldName    the name of the lazy field. Never <code>null</code>.
+     * @param resourcePath the path of the resource the model was mapped from. Never <code>null</code>.
+     */
+    default void lazyLoadTriggered(@Nonnull Class<?> modelType, @Nonnull String fieldName, @Nonnull String resourcePath) {
+    }
+}
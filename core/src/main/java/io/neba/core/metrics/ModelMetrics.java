@@ -0,0 +1,100 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.metrics;
+
+import io.neba.core.resourcemodels.metadata.LatencyHistogram;
+import io.neba.core.resourcemodels.metadata.ResourceModelStatistics;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The metrics of a single resource model type, or the aggregated metrics of several resource model types.
+ * Durations are provided in ms.
+ *
+ * @author Olaf Otto
+ */
+public class ModelMetrics {
+    private final String model;
+    private final ResourceModelStatistics.Snapshot statistics;
+
+    ModelMetrics(@Nonnull String model, @Nonnull ResourceModelStatistics.Snapshot statistics) {
+        this.model = model;
+        this.statistics = statistics;
+    }
+
+    /**
+     * @return the resource model type name, or {@link NebaMetrics#OTHER_MODELS} for aggregated metrics. Never <code>null</code>.
+     */
+    public String getModel() {
+        return model;
+    }
+
+    public long getInstantiations() {
+        return this.statistics.getInstantiations();
+    }
+
+    public long getSubsequentMappings() {
+        return this.statistics.getNumberOfMappings();
+    }
+
+    public long getCacheHits() {
+        return this.statistics.getCacheHits();
+    }
+
+    public long getMappings() {
+        return this.statistics.getMappingDurations().getCount();
+    }
+
+    public double getTotalMappingDuration() {
+        return this.statistics.getTotalMappingDuration();
+    }
+
+    public double getMappingDurationMedian() {
+        return this.statistics.getMappingDurationMedian();
+    }
+
+    public double getMappingDurationP90() {
+        return this.statistics.getMappingDurationPercentile(90);
+    }
+
+    public double getMappingDurationP99() {
+        return this.statistics.getMappingDurationPercentile(99);
+    }
+
+    public double getMappingDurationP999() {
+        return this.statistics.getMappingDurationPercentile(99.9);
+    }
+
+    public double getMaximumMappingDuration() {
+        return this.statistics.getMaximumMappingDuration();
+    }
+
+    /**
+     * @return the histogram of the mapping durations in ns. Deliberately not a bean property to keep it out of the JMX view.
+     */
+    LatencyHistogram.Snapshot mappingDurations() {
+        return this.statistics.getMappingDurations();
+    }
+
+    ResourceModelStatistics.Snapshot statistics() {
+        return this.statistics;
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "[" + this.model + ']';
+    }
+}
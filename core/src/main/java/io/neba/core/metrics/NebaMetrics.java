@@ -0,0 +1,194 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.metrics;
+
+import io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache;
+import io.neba.core.resourcemodels.metadata.LatencyHistogram;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
+import io.neba.core.resourcemodels.metadata.ResourceModelStatistics;
+import io.neba.core.resourcemodels.registration.ModelRegistry;
+import io.neba.core.resourcemodels.views.json.JsonViewStatistics;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.lang.Math.max;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.toList;
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+
+/**
+ * Collects NEBA's internal metrics: the {@link ResourceModelStatistics resource model statistics},
+ * the {@link ModelRegistry model registry} lookup cache, the {@link RequestScopedResourceModelCache request-scoped resource model cache}
+ * and the {@link JsonViewStatistics JSON view render durations}.
+ * <p>
+ * The metrics are published as an MXBean via the JMX whiteboard (<code>jmx.objectname</code> service property) and
+ * may additionally be exported in the Prometheus text format by the {@link PrometheusMetricsServlet}. To bound the number of
+ * reported metrics, only a {@link Configuration#topModels() limited number of resource models} are reported individually,
+ * the metrics of all other models are aggregated as {@link #OTHER_MODELS}.
+ * <p>
+ * The individually reported models are the first models reported, preferring the models with the most instantiations.
+ * Once reported individually, a model is always reported individually: Moving a model between series would make
+ * counters such as the number of instantiations decrease, which monitoring systems would interpret as a counter reset.
+ *
+ * @author Olaf Otto
+ */
+@Component(
+        service = {NebaMetrics.class, NebaMetricsMXBean.class},
+        property = {
+                SERVICE_VENDOR + "=neba.io",
+                "jmx.objectname=io.neba:type=Metrics"
+        }
+)
+@Designate(ocd = NebaMetrics.Configuration.class)
+public class NebaMetrics implements NebaMetricsMXBean {
+    /**
+     * The model name under which the metrics of all resource models beyond the top models are aggregated.
+     */
+    public static final String OTHER_MODELS = "other";
+
+    private static final Comparator<ModelMetrics> MOST_INSTANTIATIONS_FIRST =
+            comparing(ModelMetrics::getInstantiations).reversed().thenComparing(ModelMetrics::getModel);
+
+    @Reference
+    private ResourceModelMetaDataRegistrar metaDataRegistrar;
+    @Reference
+    private ModelRegistry modelRegistry;
+    @Reference
+    private RequestScopedResourceModelCache requestScopedResourceModelCache;
+    @Reference
+    private JsonViewStatistics jsonViewStatistics;
+
+    private final Set<String> individuallyReportedModels = new HashSet<>();
+    private volatile int topModels;
+
+    @Activate
+    @Modified
+    protected void activate(@Nonnull Configuration configuration) {
+        this.topModels = max(0, configuration.topModels());
+    }
+
+    @Override
+    public List<ModelMetrics> getModelMetrics() {
+        Collection<ResourceModelMetaData> metaData = this.metaDataRegistrar.get();
+        List<ModelMetrics> models = metaData.stream()
+                .map(m -> new ModelMetrics(m.getTypeName(), m.getStatistics().snapshot()))
+                .sorted(MOST_INSTANTIATIONS_FIRST)
+                .collect(toList());
+
+        List<ModelMetrics> result = new ArrayList<>();
+        ResourceModelStatistics.Snapshot others = null;
+        synchronized (this.individuallyReportedModels) {
+            for (ModelMetrics model : models) {
+                if (this.individuallyReportedModels.contains(model.getModel()) ||
+                        this.individuallyReportedModels.size() < this.topModels && this.individuallyReportedModels.add(model.getModel())) {
+                    result.add(model);
+                } else {
+                    others = others == null ? model.statistics() : others.merge(model.statistics());
+                }
+            }
+        }
+
+        if (others != null) {
+            result.add(new ModelMetrics(OTHER_MODELS, others));
+        }
+
+        return result;
+    }
+
+    @Override
+    public long getModelLookupCacheHits() {
+        return this.modelRegistry.getLookupCacheHits();
+    }
+
+    @Override
+    public long getModelLookupCacheMisses() {
+        return this.modelRegistry.getLookupCacheMisses();
+    }
+
+    @Override
+    public int getModelLookupCacheSize() {
+        return this.modelRegistry.getLookupCacheSize();
+    }
+
+    @Override
+    public long getRequestCacheHits() {
+        return this.requestScopedResourceModelCache.getCacheHits();
+    }
+
+    @Override
+    public long getRequestCacheMisses() {
+        return this.requestScopedResourceModelCache.getCacheMisses();
+    }
+
+    @Override
+    public long getJsonViewRenderings() {
+        return jsonViewRenderDurations().getCount();
+    }
+
+    @Override
+    public double getJsonViewRenderDurationMedian() {
+        return toMs(jsonViewRenderDurations().getPercentile(50));
+    }
+
+    @Override
+    public double getJsonViewRenderDurationP99() {
+        return toMs(jsonViewRenderDurations().getPercentile(99));
+    }
+
+    @Override
+    public double getMaximumJsonViewRenderDuration() {
+        return toMs(jsonViewRenderDurations().getMaximumDuration());
+    }
+
+    /**
+     * @return the histogram of the JSON view render durations in ns. Never <code>null</code>.
+     */
+    @Nonnull
+    LatencyHistogram.Snapshot jsonViewRenderDurations() {
+        return this.jsonViewStatistics.getRenderDurations();
+    }
+
+    private static double toMs(double durationInNs) {
+        return durationInNs / 1000000D;
+    }
+
+    @ObjectClassDefinition(
+            name = "NEBA metrics",
+            description = "Exposes NEBA's internal metrics, such as resource model statistics and cache efficiency, via JMX " +
+                    "and the optional Prometheus metrics servlet.")
+    public @interface Configuration {
+        @AttributeDefinition(
+                name = "Individually reported models",
+                description = "The number of resource models whose metrics are reported individually. These are the first reported models, " +
+                        "preferring the models with the most instantiations. Once reported individually, a model remains reported individually. " +
+                        "The metrics of all other resource models are aggregated as \"" + OTHER_MODELS + "\" to bound the number of reported metrics.")
+        int topModels() default 20;
+    }
+}
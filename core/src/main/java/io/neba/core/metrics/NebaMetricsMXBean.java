@@ -0,0 +1,77 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.metrics;
+
+import java.util.List;
+
+/**
+ * Management interface exposing NEBA's internal metrics via JMX.
+ *
+ * @author Olaf Otto
+ * @see NebaMetrics
+ */
+public interface NebaMetricsMXBean {
+    /**
+     * @return the metrics of the resource models with the most instantiations, followed by
+     * the aggregated metrics of all other resource models, if any. Never <code>null</code>.
+     */
+    List<ModelMetrics> getModelMetrics();
+
+    /**
+     * @return the number of resource model lookups answered by the model registry's lookup cache.
+     */
+    long getModelLookupCacheHits();
+
+    /**
+     * @return the number of resource model lookups the model registry had to resolve.
+     */
+    long getModelLookupCacheMisses();
+
+    /**
+     * @return the number of lookup results currently held by the model registry's lookup cache.
+     */
+    int getModelLookupCacheSize();
+
+    /**
+     * @return the number of resource models found in the request-scoped resource model cache.
+     */
+    long getRequestCacheHits();
+
+    /**
+     * @return the number of resource models not found in the request-scoped resource model cache.
+     */
+    long getRequestCacheMisses();
+
+    /**
+     * @return the number of models rendered by the JSON views.
+     */
+    long getJsonViewRenderings();
+
+    /**
+     * @return the median JSON view render duration in ms.
+     */
+    double getJsonViewRenderDurationMedian();
+
+    /**
+     * @return the 99th percentile of the JSON view render durations in ms.
+     */
+    double getJsonViewRenderDurationP99();
+
+    /**
+     * @return the maximum JSON view render duration in ms.
+     */
+    double getMaximumJsonViewRenderDuration();
+}
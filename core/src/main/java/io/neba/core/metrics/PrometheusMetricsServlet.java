@@ -0,0 +1,178 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.metrics;
+
+import io.neba.core.resourcemodels.metadata.LatencyHistogram;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.apache.sling.api.servlets.SlingSafeMethodsServlet;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.Servlet;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.function.ToLongFunction;
+
+import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+import static org.osgi.service.component.annotations.ConfigurationPolicy.REQUIRE;
+
+/**
+ * Exports the {@link NebaMetrics} in the
+ * <a href="https://prometheus.io/docs/instrumenting/exposition_formats/">Prometheus text exposition format</a>.
+ * This servlet is only active if it is explicitly configured and, unless {@link Configuration#allowAnonymousAccess() configured otherwise},
+ * only serves authenticated requests.
+ *
+ * @author Olaf Otto
+ */
+@Component(
+        service = Servlet.class,
+        configurationPolicy = REQUIRE,
+        property = {
+                SERVICE_VENDOR + "=neba.io",
+                "sling.servlet.methods=GET"
+        }
+)
+@Designate(ocd = PrometheusMetricsServlet.Configuration.class)
+public class PrometheusMetricsServlet extends SlingSafeMethodsServlet {
+    static final String CONTENT_TYPE = "text/plain; version=0.0.4";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final long serialVersionUID = 4212817468210531466L;
+
+    @Reference
+    private transient NebaMetrics metrics;
+
+    private volatile boolean allowAnonymousAccess;
+
+    @Activate
+    @Modified
+    protected void activate(@Nonnull Configuration configuration) {
+        this.allowAnonymousAccess = configuration.allowAnonymousAccess();
+    }
+
+    @Override
+    protected void doGet(@Nonnull SlingHttpServletRequest request, @Nonnull SlingHttpServletResponse response) throws IOException {
+        // Sling does not set an authentication type for anonymous requests.
+        if (!this.allowAnonymousAccess && request.getAuthType() == null) {
+            response.sendError(SC_FORBIDDEN, "The NEBA metrics are only available to authenticated users.");
+            return;
+        }
+
+        response.setContentType(CONTENT_TYPE);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+        write(response.getWriter());
+    }
+
+    private void write(PrintWriter writer) {
+        List<ModelMetrics> models = this.metrics.getModelMetrics();
+
+        modelCounter(writer, "neba_model_instantiations_total", "Number of resource model instantiations.", models, ModelMetrics::getInstantiations);
+        modelCounter(writer, "neba_model_subsequent_mappings_total", "Number of resource models mapped while mapping a resource model.", models, ModelMetrics::getSubsequentMappings);
+        modelCounter(writer, "neba_model_cache_hits_total", "Number of resource models served from the request-scoped resource model cache.", models, ModelMetrics::getCacheHits);
+
+        header(writer, "neba_model_mapping_duration_seconds", "Duration of resource to model mappings.", "summary");
+        for (ModelMetrics model : models) {
+            summary(writer, "neba_model_mapping_duration_seconds", modelLabel(model), model.mappingDurations());
+        }
+
+        header(writer, "neba_registry_lookup_cache_hits_total", "Number of model lookups answered by the model registry's lookup cache.", "counter");
+        sample(writer, "neba_registry_lookup_cache_hits_total", null, this.metrics.getModelLookupCacheHits());
+        header(writer, "neba_registry_lookup_cache_misses_total", "Number of model lookups the model registry had to resolve.", "counter");
+        sample(writer, "neba_registry_lookup_cache_misses_total", null, this.metrics.getModelLookupCacheMisses());
+        header(writer, "neba_registry_lookup_cache_size", "Number of cached model lookup results.", "gauge");
+        sample(writer, "neba_registry_lookup_cache_size", null, this.metrics.getModelLookupCacheSize());
+
+        header(writer, "neba_request_cache_hits_total", "Number of hits in the request-scoped resource model cache.", "counter");
+        sample(writer, "neba_request_cache_hits_total", null, this.metrics.getRequestCacheHits());
+        header(writer, "neba_request_cache_misses_total", "Number of misses in the request-scoped resource model cache.", "counter");
+        sample(writer, "neba_request_cache_misses_total", null, this.metrics.getRequestCacheMisses());
+
+        header(writer, "neba_json_view_render_duration_seconds", "Duration of rendering resource models as JSON.", "summary");
+        summary(writer, "neba_json_view_render_duration_seconds", null, this.metrics.jsonViewRenderDurations());
+
+        writer.flush();
+    }
+
+    private static void modelCounter(PrintWriter writer, String name, String help, List<ModelMetrics> models, ToLongFunction<ModelMetrics> value) {
+        header(writer, name, help, "counter");
+        for (ModelMetrics model : models) {
+            sample(writer, name, modelLabel(model), value.applyAsLong(model));
+        }
+    }
+
+    private static void summary(PrintWriter writer, String name, @CheckForNull String labels, LatencyHistogram.Snapshot durations) {
+        String prefix = labels == null ? "" : labels + ',';
+        for (double quantile : QUANTILES) {
+            sample(writer, name, prefix + "quantile=\"" + quantile + '"', toSeconds(durations.getPercentile(quantile * 100)));
+        }
+        sample(writer, name + "_sum", labels, toSeconds(durations.getTotalDuration()));
+        sample(writer, name + "_count", labels, durations.getCount());
+    }
+
+    private static void header(PrintWriter writer, String name, String help, String type) {
+        writer.write("# HELP " + name + ' ' + help + '\n');
+        writer.write("# TYPE " + name + ' ' + type + '\n');
+    }
+
+    private static void sample(PrintWriter writer, String name, @CheckForNull String labels, Object value) {
+        writer.write(name);
+        if (labels != null) {
+            writer.write('{' + labels + '}');
+        }
+        writer.write(" " + value + '\n');
+    }
+
+    private static String modelLabel(ModelMetrics model) {
+        return "model=\"" + escape(model.getModel()) + '"';
+    }
+
+    /**
+     * Escapes a label value as defined by the text exposition format.
+     */
+    static String escape(String labelValue) {
+        return labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static double toSeconds(double durationInNs) {
+        return durationInNs / 1000000000D;
+    }
+
+    @ObjectClassDefinition(
+            name = "NEBA Prometheus metrics servlet",
+            description = "Exports NEBA's internal metrics in the Prometheus text exposition format. " +
+                    "The servlet is only active if this configuration exists.")
+    public @interface Configuration {
+        @AttributeDefinition(
+                name = "Paths",
+                description = "The servlet paths under which the metrics are exported.")
+        String[] sling_servlet_paths() default "/bin/neba/metrics";
+
+        @AttributeDefinition(
+                name = "Allow anonymous access",
+                description = "Whether the metrics are exported to anonymous requests. By default, only authenticated requests are served.")
+        boolean allowAnonymousAccess() default false;
+    }
+}
@@ -17,6 +17,7 @@
 package io.neba.core.resourcemodels.adaptation;
 
 import io.neba.core.resourcemodels.registration.ModelRegistry;
+import io.neba.core.resourcemodels.registration.StartupTimeline;
 import io.neba.core.util.OsgiModelSource;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.AdapterFactory;
@@ -43,6 +44,8 @@ import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
 
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static java.util.concurrent.Executors.newSingleThreadExecutor;
 import static org.apache.commons.lang3.ClassUtils.getAllInterfaces;
 import static org.apache.commons.lang3.ClassUtils.getAllSuperclasses;
@@ -78,6 +81,8 @@ public class ResourceToModelAdapterUpdater {
     private ModelRegistry registry;
     @Reference
     private ResourceToModelAdapter adapter;
+    @Reference
+    private StartupTimeline startupTimeline;
 
     private BundleContext context = null;
     private ServiceRegistration<AdapterFactory> resourceToModelAdapterRegistration = null;
@@ -127,17 +132,24 @@ public class ResourceToModelAdapterUpdater {
      * (e.g. adding new adaptable types).
      */
     private void updateModelAdapter() {
+        final long occurredAt = currentTimeMillis();
+        final long start = nanoTime();
         unregisterModelAdapter();
-        registerModelAdapter();
+        int numberOfAdapterTypes = registerModelAdapter();
+        this.startupTimeline.adapterFactoryRefreshed(occurredAt, nanoTime() - start, numberOfAdapterTypes);
     }
 
     /**
      * {@link BundleContext#registerService(String, Object, Dictionary) Registers}
      * the {@link ResourceToModelAdapter}, i.e. publishes it as an OSGi service.
+     *
+     * @return the number of types the registered adapter factory adapts to.
      */
-    private void registerModelAdapter() {
-        Dictionary<String, Object> properties = createResourceToModelAdapterProperties();
+    private int registerModelAdapter() {
+        Set<String> adapterTypeNames = getAdapterTypeNames();
+        Dictionary<String, Object> properties = createResourceToModelAdapterProperties(adapterTypeNames);
         this.resourceToModelAdapterRegistration = this.context.registerService(AdapterFactory.class, this.adapter, properties);
+        return adapterTypeNames.size();
     }
 
     private void unregisterModelAdapter() {
@@ -148,9 +160,8 @@ public class ResourceToModelAdapterUpdater {
         }
     }
 
-    private Dictionary<String, Object> createResourceToModelAdapterProperties() {
+    private Dictionary<String, Object> createResourceToModelAdapterProperties(Set<String> fullyQualifiedNamesOfRegisteredModels) {
         Dictionary<String, Object> properties = new Hashtable<>();
-        Set<String> fullyQualifiedNamesOfRegisteredModels = getAdapterTypeNames();
         properties.put(ADAPTER_CLASSES, fullyQualifiedNamesOfRegisteredModels.toArray());
         String[] adaptableClasses = configuration.allowAdaptingFromRequest() ?
                 new String[]{Resource.class.getName(), SlingHttpServletRequest.class.getName()} :
@@ -16,7 +16,11 @@
 
 package io.neba.core.resourcemodels.caching;
 
+import io.neba.core.resourcemodels.mapping.MappingListeners;
+import io.neba.core.resourcemodels.mapping.NestedMappingSupport;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
+import io.neba.core.resourcemodels.tracing.FlightRecorderEvents;
+import io.neba.core.resourcemodels.tracing.MappingTrace;
 import io.neba.core.util.Key;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.request.RequestPathInfo;
@@ -43,7 +47,9 @@ import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.LongAdder;
 
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.CACHE_HIT;
 import static java.util.Optional.empty;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.StringUtils.substringBefore;
@@ -70,10 +76,16 @@ import static org.osgi.framework.Constants.SERVICE_VENDOR;
 public class RequestScopedResourceModelCache implements Filter {
     private final ThreadLocal<Map<Key, Optional<?>>> cacheHolder = new ThreadLocal<>();
     private final ThreadLocal<SlingHttpServletRequest> requestHolder = new ThreadLocal<>();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder cacheMisses = new LongAdder();
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     @Reference
     private ResourceModelMetaDataRegistrar metaDataRegistrar;
+    @Reference
+    private NestedMappingSupport nestedMappingSupport;
+    @Reference
+    private MappingListeners mappingListeners;
 
     private Configuration configuration;
 
@@ -116,13 +128,49 @@ public class RequestScopedResourceModelCache implements Filter {
             lookupResult = (Optional<T>) cache.get(createKey(resource, key));
         }
 
-        if (lookupResult != null && lookupResult.isPresent()) {
-            metaDataRegistrar.get(lookupResult.get().getClass()).getStatistics().countCacheHit();
+        if (lookupResult == null) {
+            this.cacheMisses.increment();
+            if (!this.mappingListeners.isEmpty()) {
+                this.mappingListeners.cacheMiss(resource.getPath());
+            }
+            if (FlightRecorderEvents.isCacheLookupEnabled()) {
+                FlightRecorderEvents.cacheLookup(resource.getPath(), null, false);
+            }
+        } else {
+            this.cacheHits.increment();
+            lookupResult.ifPresent(model -> {
+                metaDataRegistrar.get(model.getClass()).getStatistics().countCacheHit();
+                MappingTrace trace = nestedMappingSupport.getTrace();
+                if (trace != null) {
+                    trace.event(CACHE_HIT, model.getClass().getName(), resource.getPath());
+                }
+            });
+            if (!this.mappingListeners.isEmpty()) {
+                this.mappingListeners.cacheHit(resource.getPath(), lookupResult.map(Object::getClass).orElse(null));
+            }
+            if (FlightRecorderEvents.isCacheLookupEnabled()) {
+                FlightRecorderEvents.cacheLookup(resource.getPath(), lookupResult.map(Object::getClass).orElse(null), true);
+            }
         }
 
         return lookupResult;
     }
 
+    /**
+     * @return the number of lookups that found a model (or a known <code>null</code> model) in a request's cache.
+     */
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    /**
+     * @return the number of lookups that did not find a model in the request's cache.
+     * Lookups outside of a request or with the cache disabled are not counted.
+     */
+    public long getCacheMisses() {
+        return this.cacheMisses.sum();
+    }
+
     /**
      * @param resource The resource {@link Resource#adaptTo(Class) adapted} to the target type. Never <code>null</code>.
      * @param model    the model representing the mapped result of the adaptation. Can be <code>null</code>.
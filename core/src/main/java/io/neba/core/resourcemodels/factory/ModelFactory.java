@@ -19,8 +19,13 @@ import io.neba.api.annotations.ResourceModel;
 import io.neba.api.spi.ResourceModelFactory;
 import org.apache.commons.lang3.StringUtils;
 import org.osgi.framework.Bundle;
+import org.slf4j.Logger;
 
 import javax.annotation.Nonnull;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
@@ -31,6 +36,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 
+import static io.neba.core.util.BundleUtil.displayNameOf;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.stream;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.unmodifiableList;
@@ -38,33 +45,52 @@ import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Stream.concat;
+import static org.slf4j.LoggerFactory.getLogger;
 
 /**
  * Finds {@link ResourceModel} in bundles with a <code>Neba-Packages</code> header and provides the respective
  * {@link io.neba.api.spi.ResourceModelFactory.ModelDefinition model definitions} and
  * {@link #provideModel(ModelDefinition, io.neba.api.spi.ResourceModelFactory.ContentToModelMappingCallback) means to instantiate}
  * the models, including injection of <em>OSGi service dependencies</em> via {@link javax.inject.Inject} and {@link io.neba.api.annotations.Filter}.
+ * <br />
+ * If the bundle contains a {@link #MODEL_INDEX model index}, e.g. generated at build time by the NEBA annotation processor,
+ * the index replaces the scanning of the <code>Neba-Packages</code> it covers, i.e. the packages containing at least one
+ * indexed class: Only the indexed classes of these packages are loaded, and models missing from the index, e.g. models compiled
+ * without the annotation processor, are not found. All classes within the <code>Neba-Packages</code> not covered by the index are scanned,
+ * as are all packages of bundles without an index.
+ * <br />
+ * The {@link ModelInstantiator instantiator} of a model is created when the model is first {@link #provideModel(ModelDefinition, ContentToModelMappingCallback) provided}
+ * or when the instantiators are {@link #initializeModelInstantiators() initialized} explicitly, e.g. to validate the models.
  */
 class ModelFactory implements ResourceModelFactory {
+    /**
+     * The bundle header listing the packages containing the resource models of a bundle, separated by commas.
+     */
+    static final String NEBA_PACKAGES = "Neba-Packages";
+    /**
+     * Lists the binary names of the resource model candidates of a bundle, one per line.
+     */
+    static final String MODEL_INDEX = "META-INF/neba/models";
+
+    private final Logger logger = getLogger(getClass());
     private final Bundle bundle;
+    private final ServiceTrackers serviceTrackers;
     private List<ModelDefinition<?>> modelDefinitions;
-    private Map<ModelDefinition<?>, ModelInstantiator<?>> modelMetadata;
+    private final Map<ModelDefinition<?>, LazyModelInstantiator<?>> modelMetadata;
+    private int numberOfLoadedClasses = 0;
 
     ModelFactory(Bundle bundle) {
         this.bundle = bundle;
+        this.serviceTrackers = new ServiceTrackers(bundle);
 
-        String packages = this.bundle.getHeaders().get("Neba-Packages");
+        String packages = this.bundle.getHeaders().get(NEBA_PACKAGES);
 
         this.modelDefinitions = packages == null ? emptyList() :
-                unmodifiableList(stream(packages.split(","))
+                unmodifiableList(findCandidateClassNames(stream(packages.split(","))
                         .map(String::trim)
                         .filter(StringUtils::isNotBlank)
-                        .map(this::packageNameToDirectory)
-                        .map(this::findClassesInDirectory)
-                        .filter(Optional::isPresent)
-                        .map(Optional::get)
-                        .flatMap(this::streamUrls)
-                        .map(this::urlToClassName)
+                        .collect(toList()))
                         .map(this::loadClass)
                         .filter(o -> o.map(c -> c.isAnnotationPresent(ResourceModel.class)).orElse(false))
                         .map(Optional::get)
@@ -72,9 +98,9 @@ class ModelFactory implements ResourceModelFactory {
                         .distinct()
                         .collect(toList()));
 
-        Map<ModelDefinition<?>, ModelInstantiator<?>> metaData = new HashMap<>();
+        Map<ModelDefinition<?>, LazyModelInstantiator<?>> metaData = new HashMap<>();
         for (ModelDefinition<?> definition : this.modelDefinitions) {
-            metaData.put(definition, new ModelInstantiator<>(definition.getType()));
+            metaData.put(definition, new LazyModelInstantiator<>(definition.getType()));
         }
 
         this.modelMetadata = metaData;
@@ -86,6 +112,74 @@ class ModelFactory implements ResourceModelFactory {
         return this.modelDefinitions;
     }
 
+    /**
+     * @return the number of classes loaded from the bundle while looking for resource models.
+     */
+    int getNumberOfLoadedClasses() {
+        return this.numberOfLoadedClasses;
+    }
+
+    private Stream<String> findCandidateClassNames(List<String> packageNames) {
+        URL index = this.bundle.getEntry(MODEL_INDEX);
+        if (index == null) {
+            return scan(packageNames);
+        }
+
+        List<String> indexedClassNames = readIndex(index).stream()
+                .filter(className -> isInPackages(className, packageNames))
+                .collect(toList());
+        List<String> packagesNotInIndex = packageNames.stream()
+                .filter(packageName -> indexedClassNames.stream().noneMatch(className -> isInPackage(className, packageName)))
+                .collect(toList());
+
+        this.logger.info("Using the resource model index {} of bundle {}, listing {} resource model(s) in the Neba-Packages {}. " +
+                        "The index replaces scanning these packages.",
+                MODEL_INDEX, displayNameOf(this.bundle), indexedClassNames.size(), packageNames);
+        if (!packagesNotInIndex.isEmpty()) {
+            this.logger.info("The Neba-Packages {} of bundle {} are not covered by the resource model index and are scanned.",
+                    packagesNotInIndex, displayNameOf(this.bundle));
+        }
+
+        return concat(indexedClassNames.stream(), scan(packagesNotInIndex));
+    }
+
+    private Stream<String> scan(List<String> packageNames) {
+        return packageNames.stream()
+                .map(this::packageNameToDirectory)
+                .map(this::findClassesInDirectory)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .flatMap(this::streamUrls)
+                .map(this::urlToClassName);
+    }
+
+    private List<String> readIndex(URL index) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), UTF_8))) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(StringUtils::isNotBlank)
+                    .collect(toList());
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Unable to read the resource model index " + index + " of bundle " + this.bundle + ".", e);
+        }
+    }
+
+    /**
+     * Like the class path scanning, this includes classes in sub packages of the <code>Neba-Packages</code>.
+     */
+    private static boolean isInPackages(String className, List<String> packageNames) {
+        for (String packageName : packageNames) {
+            if (isInPackage(className, packageName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isInPackage(String className, String packageName) {
+        return className.startsWith(packageName + '.');
+    }
+
     private Optional<Enumeration<URL>> findClassesInDirectory(String directory) {
         return ofNullable(bundle.findEntries(directory, "*.class", true));
     }
@@ -102,6 +196,7 @@ class ModelFactory implements ResourceModelFactory {
 
     private Optional<Class<?>> loadClass(String name) {
         try {
+            ++this.numberOfLoadedClasses;
             return of(this.bundle.loadClass(name));
         } catch (ClassNotFoundException e) {
             return empty();
@@ -119,12 +214,13 @@ class ModelFactory implements ResourceModelFactory {
     @Override
     public <T> T provideModel(@Nonnull ModelDefinition<T> modelDefinition, @Nonnull ContentToModelMappingCallback<T> callback) {
         @SuppressWarnings("unchecked")
-        ModelInstantiator<T> modelInstantiator = (ModelInstantiator<T>) this.modelMetadata.get(modelDefinition);
-        if (modelInstantiator == null) {
+        LazyModelInstantiator<T> lazyModelInstantiator = (LazyModelInstantiator<T>) this.modelMetadata.get(modelDefinition);
+        if (lazyModelInstantiator == null) {
             throw new IllegalStateException("Unable to instantiate " + modelDefinition + ", there is no model metadata for this model type in this factory.");
         }
+        ModelInstantiator<T> modelInstantiator = lazyModelInstantiator.get();
         try {
-            T model = modelInstantiator.create(this.bundle.getBundleContext());
+            T model = modelInstantiator.create(this.serviceTrackers);
             model = callback.map(model);
             modelInstantiator.postProcessAfterInitialization(model);
             return model;
@@ -132,4 +228,65 @@ class ModelFactory implements ResourceModelFactory {
             throw new ModelInstantiationException("Unable to instantiate model " + modelDefinition, e);
         }
     }
+
+    /**
+     * Creates the {@link ModelInstantiator instantiators} of all models that do not have one yet, thereby validating
+     * the models.
+     *
+     * @throws InvalidModelException if any of the models is invalid. The exception describes the first
+     *                               invalid model, the exceptions for further invalid models are {@link Throwable#getSuppressed() suppressed}.
+     */
+    void initializeModelInstantiators() {
+        InvalidModelException failure = null;
+        for (LazyModelInstantiator<?> modelInstantiator : this.modelMetadata.values()) {
+            try {
+                modelInstantiator.get();
+            } catch (InvalidModelException e) {
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Releases the services injected into models, e.g. when the bundle containing the models is stopped.
+     */
+    void close() {
+        this.serviceTrackers.close();
+    }
+
+    /**
+     * Creates the {@link ModelInstantiator} of a model exactly once, when it is first used. Creating an
+     * instantiator resolves and validates the constructors, injection points and lifecycle callbacks of the model.
+     * If this fails, subsequent uses will retry.
+     */
+    private static class LazyModelInstantiator<T> {
+        private final Class<? extends T> modelType;
+        private volatile ModelInstantiator<T> modelInstantiator;
+
+        LazyModelInstantiator(@Nonnull Class<? extends T> modelType) {
+            this.modelType = modelType;
+        }
+
+        @Nonnull
+        ModelInstantiator<T> get() {
+            ModelInstantiator<T> modelInstantiator = this.modelInstantiator;
+            if (modelInstantiator == null) {
+                synchronized (this) {
+                    modelInstantiator = this.modelInstantiator;
+                    if (modelInstantiator == null) {
+                        modelInstantiator = new ModelInstantiator<>(this.modelType);
+                        this.modelInstantiator = modelInstantiator;
+                    }
+                }
+            }
+            return modelInstantiator;
+        }
+    }
 }
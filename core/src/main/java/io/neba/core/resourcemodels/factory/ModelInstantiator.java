@@ -18,22 +18,35 @@ package io.neba.core.resourcemodels.factory;
 import io.neba.api.annotations.Filter;
 import io.neba.core.util.Annotations;
 import io.neba.core.util.ReflectionUtil;
-import org.osgi.framework.BundleContext;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles.Lookup;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
+import java.lang.reflect.UndeclaredThrowableException;
 import java.util.ArrayList;
 import java.util.List;
 
 import static io.neba.core.util.Annotations.annotations;
 import static io.neba.core.util.ReflectionUtil.makeAccessible;
 import static io.neba.core.util.ReflectionUtil.methodsOf;
+import static java.lang.invoke.MethodHandles.catchException;
+import static java.lang.invoke.MethodHandles.constant;
+import static java.lang.invoke.MethodHandles.dropArguments;
+import static java.lang.invoke.MethodHandles.filterArguments;
+import static java.lang.invoke.MethodHandles.foldArguments;
+import static java.lang.invoke.MethodHandles.identity;
+import static java.lang.invoke.MethodHandles.insertArguments;
+import static java.lang.invoke.MethodHandles.lookup;
+import static java.lang.invoke.MethodHandles.permuteArguments;
+import static java.lang.invoke.MethodType.genericMethodType;
+import static java.lang.invoke.MethodType.methodType;
 import static java.lang.reflect.Modifier.isFinal;
 import static java.lang.reflect.Modifier.isStatic;
 import static org.apache.commons.lang3.ArrayUtils.reverse;
@@ -42,21 +55,70 @@ import static org.apache.commons.lang3.reflect.FieldUtils.getAllFields;
 /**
  * Represents the way in which a model can be instantiated, including resolution of the
  * model's dependencies.
+ * <p>
+ * The constructor invocation, the service injections and the {@link javax.annotation.PostConstruct} callbacks of a model
+ * are composed into two {@link MethodHandle method handles} when the instantiator is created: one creating an instance
+ * with all dependencies injected and one applying the post-construct callbacks. Creating a model thus runs
+ * without reflective access checks or argument arrays.
+ * <p>
+ * Exceptions thrown by model code, i.e. the constructor, the {@link javax.inject.Inject} methods or the
+ * post-construct callbacks, are wrapped in an {@link InvocationTargetException}. {@link Error errors} and
+ * exceptions raised while resolving the dependencies are thrown as they are.
  */
 class ModelInstantiator<T> {
     private static final String INJECT_ANNOTATION_NAME = "javax.inject.Inject";
     private static final String POSTCONSTRUCT_ANNOTATION_NAME = "javax.annotation.PostConstruct";
 
-    private final ModelConstructor<T> constructor;
-    private final ModelServiceSetter[] setters;
-    private final Method[] postConstructMethods;
-    private final ModelFieldInjection[] fieldInjections;
+    private static final Lookup LOOKUP = lookup();
+    /**
+     * (ServiceDependency, String, ServiceTrackers)Object, see {@link #requireService(ServiceDependency, String, ServiceTrackers)}.
+     */
+    private static final MethodHandle REQUIRE_SERVICE;
+    /**
+     * (Throwable)Object, see {@link #wrapModelException(Throwable)}.
+     */
+    private static final MethodHandle WRAP_MODEL_EXCEPTION;
+    /**
+     * (Object)void, does nothing.
+     */
+    private static final MethodHandle NO_POST_CONSTRUCT_CALLBACKS =
+            dropArguments(constant(Object.class, null).asType(methodType(void.class)), 0, Object.class);
+
+    static {
+        try {
+            REQUIRE_SERVICE = LOOKUP.findStatic(
+                    ModelInstantiator.class,
+                    "requireService",
+                    methodType(Object.class, ServiceDependency.class, String.class, ServiceTrackers.class));
+            WRAP_MODEL_EXCEPTION = LOOKUP.findStatic(
+                    ModelInstantiator.class,
+                    "wrapModelException",
+                    methodType(Object.class, Throwable.class));
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    /**
+     * (ServiceTrackers)Object, creates the model instance and injects all service dependencies.
+     */
+    private final MethodHandle creation;
+    /**
+     * (Object)void, invokes the post-construct callbacks of the model.
+     */
+    private final MethodHandle postConstruction;
 
     ModelInstantiator(@Nonnull Class<? extends T> modelType) {
-        this.constructor = resolveConstructor(modelType);
-        this.setters = resolveServiceSetters(modelType);
-        this.postConstructMethods = resolvePostConstructMethods(modelType);
-        this.fieldInjections = resolveServiceFieldInjections(modelType);
+        MethodHandle creation = resolveConstructor(modelType);
+        for (MethodHandle injection : resolveServiceSetters(modelType)) {
+            creation = injectAfter(creation, injection);
+        }
+        for (MethodHandle injection : resolveServiceFieldInjections(modelType)) {
+            creation = injectAfter(creation, injection);
+        }
+
+        this.creation = creation;
+        this.postConstruction = resolvePostConstructMethods(modelType);
     }
 
     /**
@@ -64,31 +126,94 @@ class ModelInstantiator<T> {
      * {@link #postProcessAfterInitialization(Object) post-processing} applied.
      */
     @Nonnull
-    T create(@Nonnull BundleContext context) throws ReflectiveOperationException {
-        T instance = this.constructor.instantiate(context);
-
-        for (ModelServiceSetter setter : this.setters) {
-            setter.set(context, instance);
+    @SuppressWarnings("unchecked")
+    T create(@Nonnull ServiceTrackers serviceTrackers) throws ReflectiveOperationException {
+        final Object instance;
+        try {
+            instance = (Object) this.creation.invokeExact(serviceTrackers);
+        } catch (InvocationTargetException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // Cannot happen: checked exceptions can only stem from model code and are wrapped by the handles.
+            throw new UndeclaredThrowableException(t);
         }
+        return (T) instance;
+    }
 
-        for (ModelFieldInjection injection : this.fieldInjections) {
-            injection.set(context, instance);
+    /**
+     * Applies initializations such as {@link javax.annotation.PostConstruct} method invocation.
+     */
+    void postProcessAfterInitialization(@Nonnull T instance) throws IllegalAccessException, InvocationTargetException {
+        try {
+            this.postConstruction.invokeExact((Object) instance);
+        } catch (InvocationTargetException | RuntimeException | Error e) {
+            throw e;
+        } catch (Throwable t) {
+            // Cannot happen: checked exceptions can only stem from model code and are wrapped by the handles.
+            throw new UndeclaredThrowableException(t);
         }
+    }
 
-        return instance;
+    /**
+     * @param dependency     must not be <code>null</code>.
+     * @param failureMessage the message of the exception signaling that the dependency resolved to <code>null</code>.
+     * @return the resolved dependency, never <code>null</code>.
+     */
+    @SuppressWarnings("unused") // Invoked via REQUIRE_SERVICE
+    private static Object requireService(@Nonnull ServiceDependency dependency, @Nonnull String failureMessage, @Nonnull ServiceTrackers serviceTrackers) {
+        Object serviceInstance = dependency.resolve(serviceTrackers);
+        if (serviceInstance == null) {
+            throw new ModelInstantiationException(failureMessage);
+        }
+        return serviceInstance;
     }
 
     /**
-     * Applies initializations such as {@link javax.annotation.PostConstruct} method invocation.
+     * Signals that model code failed, like {@link Method#invoke(Object, Object...)} does. Errors are not wrapped.
      */
-    void postProcessAfterInitialization(@Nonnull T instance) throws IllegalAccessException, InvocationTargetException {
-        for (Method m : this.postConstructMethods) {
-            m.invoke(instance);
+    @SuppressWarnings("unused") // Invoked via WRAP_MODEL_EXCEPTION
+    private static Object wrapModelException(@Nonnull Throwable t) throws InvocationTargetException {
+        if (t instanceof Error) {
+            throw (Error) t;
         }
+        throw new InvocationTargetException(t);
     }
 
-    private ModelFieldInjection[] resolveServiceFieldInjections(@Nonnull Class<? extends T> modelType) {
-        List<ModelFieldInjection> fieldInjectionList = new ArrayList<>();
+    /**
+     * @param modelCode a handle invoking a constructor or method of the model.
+     * @return the handle, wrapping all exceptions it throws in an {@link InvocationTargetException}.
+     */
+    @Nonnull
+    private static MethodHandle wrappingModelExceptions(@Nonnull MethodHandle modelCode) {
+        MethodHandle handler = WRAP_MODEL_EXCEPTION.asType(methodType(modelCode.type().returnType(), Throwable.class));
+        return catchException(modelCode, Throwable.class, handler);
+    }
+
+    /**
+     * @return (ServiceTrackers)Object, the required service of the dependency.
+     */
+    @Nonnull
+    private static MethodHandle serviceResolution(@Nonnull ServiceDependency dependency, @Nonnull String failureMessage) {
+        return insertArguments(REQUIRE_SERVICE, 0, dependency, failureMessage);
+    }
+
+    /**
+     * @param creation  (ServiceTrackers)Object
+     * @param injection (Object, ServiceTrackers)void
+     * @return (ServiceTrackers)Object, invoking the injection with the result of the creation and returning that result.
+     */
+    @Nonnull
+    private static MethodHandle injectAfter(@Nonnull MethodHandle creation, @Nonnull MethodHandle injection) {
+        MethodHandle returnModel = dropArguments(identity(Object.class), 1, ServiceTrackers.class);
+        return foldArguments(foldArguments(returnModel, injection), creation);
+    }
+
+    /**
+     * @return the (Object, ServiceTrackers)void injections into all non-static, non-final fields annotated with @Inject.
+     */
+    @Nonnull
+    private static List<MethodHandle> resolveServiceFieldInjections(@Nonnull Class<?> modelType) {
+        List<MethodHandle> fieldInjections = new ArrayList<>();
 
         for (Field field : getAllFields(modelType)) {
             if (isStatic(field.getModifiers()) || isFinal(field.getModifiers())) {
@@ -103,20 +228,31 @@ class ModelInstantiator<T> {
             final Filter filter = annotations.get(Filter.class);
             final ServiceDependency serviceDependency = new ServiceDependency(field.getGenericType(), modelType, filter);
 
-            makeAccessible(field);
-            fieldInjectionList.add(new ModelFieldInjection(serviceDependency, field));
+            final MethodHandle setter;
+            try {
+                setter = LOOKUP.unreflectSetter(makeAccessible(field));
+            } catch (IllegalAccessException e) {
+                throw new InvalidModelException("Unable to access the field " + field + " annotated with @Inject.", e);
+            }
+
+            fieldInjections.add(filterArguments(
+                    setter.asType(methodType(void.class, Object.class, Object.class)),
+                    1,
+                    serviceResolution(serviceDependency,
+                            "Unable to inject a required service dependency via '" + field + "', " +
+                                    " the Service dependency '" + serviceDependency + "' resolved to null.")));
         }
 
-        return fieldInjectionList.toArray(new ModelFieldInjection[0]);
+        return fieldInjections;
     }
 
     /**
-     * @return all public methods annotated with @Inject. Fails if a public method
+     * @return the (Object, ServiceTrackers)void injections via all public methods annotated with @Inject. Fails if a public method
      * annotated with @Inject does not take exactly one argument.
      */
     @Nonnull
-    private static ModelServiceSetter[] resolveServiceSetters(@Nonnull Class<?> modelType) {
-        List<ModelServiceSetter> serviceSetters = new ArrayList<>();
+    private static List<MethodHandle> resolveServiceSetters(@Nonnull Class<?> modelType) {
+        List<MethodHandle> serviceSetters = new ArrayList<>();
         for (Method method : modelType.getMethods()) {
             if (isStatic(method.getModifiers())) {
                 continue;
@@ -132,13 +268,29 @@ class ModelInstantiator<T> {
             Filter filter = findFilterAnnotation(method.getParameterAnnotations()[0]);
             Type serviceType = method.getGenericParameterTypes()[0];
             ServiceDependency serviceDependency = new ServiceDependency(serviceType, modelType, filter);
-            serviceSetters.add(new ModelServiceSetter(serviceDependency, method));
+
+            final MethodHandle setter;
+            try {
+                setter = LOOKUP.unreflect(makeAccessible(method));
+            } catch (IllegalAccessException e) {
+                throw new InvalidModelException("Unable to access the method " + method + " annotated with @Inject.", e);
+            }
+
+            serviceSetters.add(filterArguments(
+                    wrappingModelExceptions(setter.asType(methodType(void.class, Object.class, Object.class))),
+                    1,
+                    serviceResolution(serviceDependency,
+                            "Unable to inject a required service dependency via '" + method + "', " +
+                                    " the Service dependency '" + serviceDependency + "' resolved to null.")));
         }
-        return serviceSetters.toArray(new ModelServiceSetter[0]);
+        return serviceSetters;
     }
 
+    /**
+     * @return (Object)void, invoking all post-construct callbacks of the model.
+     */
     @Nonnull
-    private Method[] resolvePostConstructMethods(@Nonnull Class<? extends T> modelType) {
+    private static MethodHandle resolvePostConstructMethods(@Nonnull Class<?> modelType) {
         Method[] postConstructMethods = methodsOf(modelType).stream()
                 .filter(m -> annotations(m).containsName(POSTCONSTRUCT_ANNOTATION_NAME))
                 .peek(m -> {
@@ -158,20 +310,31 @@ class ModelInstantiator<T> {
         // However, invoking all is the de facto standard used e.g. by the spring framework.
         reverse(postConstructMethods);
 
-        return postConstructMethods;
+        MethodHandle postConstruction = NO_POST_CONSTRUCT_CALLBACKS;
+        for (Method method : postConstructMethods) {
+            final MethodHandle callback;
+            try {
+                callback = LOOKUP.unreflect(method);
+            } catch (IllegalAccessException e) {
+                throw new InvalidModelException("Unable to access the @PostConstruct callback '" + method + "'.", e);
+            }
+            // Invoke the callbacks resolved so far, then this callback.
+            postConstruction = foldArguments(wrappingModelExceptions(callback.asType(methodType(void.class, Object.class))), postConstruction);
+        }
+
+        return postConstruction;
     }
 
     /**
-     * @return either the default or an @Inject constructor, if present. Fails if neither a public default constructor nor a public @Inject constructor is
+     * @return (ServiceTrackers)Object, invoking either the default or an @Inject constructor, if present.
+     * Fails if neither a public default constructor nor a public @Inject constructor is
      * present, of if multiple @Inject constructors exist.
      */
-    @SuppressWarnings("unchecked")
     @Nonnull
-    private static <T> ModelConstructor<T> resolveConstructor(@Nonnull Class<? extends T> modelType) {
-        ModelConstructor<T> constructor;
-        Constructor<T> injectionConstructor = null,
+    private static MethodHandle resolveConstructor(@Nonnull Class<?> modelType) {
+        Constructor<?> injectionConstructor = null,
                 defaultConstructor = null;
-        for (Constructor c : modelType.getConstructors()) {
+        for (Constructor<?> c : modelType.getConstructors()) {
             if (c.getParameterCount() == 0) {
                 defaultConstructor = c;
             }
@@ -189,22 +352,39 @@ class ModelInstantiator<T> {
             injectionConstructor = c;
         }
 
-        if (injectionConstructor != null) {
-            Type[] parameters = injectionConstructor.getGenericParameterTypes();
-            ServiceDependency[] serviceDependencies = new ServiceDependency[parameters.length];
-            Annotation[][] parameterAnnotations = injectionConstructor.getParameterAnnotations();
-            for (int i = 0; i < parameters.length; ++i) {
-                Filter filter = findFilterAnnotation(parameterAnnotations[i]);
-                serviceDependencies[i] = new ServiceDependency(parameters[i], modelType, filter);
-            }
-            constructor = new ModelConstructor<>(injectionConstructor, serviceDependencies);
-        } else if (defaultConstructor != null) {
-            constructor = new ModelConstructor<>(defaultConstructor);
-        } else {
+        final Constructor<?> constructor = injectionConstructor != null ? injectionConstructor : defaultConstructor;
+        if (constructor == null) {
             throw new InvalidModelException("The model " + modelType + " has neither a public default constructor nor a public constructor annotated with @Inject.");
         }
 
-        return constructor;
+        final MethodHandle instantiation;
+        try {
+            instantiation = wrappingModelExceptions(LOOKUP.unreflectConstructor(makeAccessible(constructor))
+                    .asType(genericMethodType(constructor.getParameterCount())));
+        } catch (IllegalAccessException e) {
+            throw new InvalidModelException("Unable to access the constructor " + constructor + ".", e);
+        }
+
+        if (constructor.getParameterCount() == 0) {
+            return dropArguments(instantiation, 0, ServiceTrackers.class);
+        }
+
+        Type[] parameters = constructor.getGenericParameterTypes();
+        Annotation[][] parameterAnnotations = constructor.getParameterAnnotations();
+        MethodHandle[] serviceResolutions = new MethodHandle[parameters.length];
+        for (int i = 0; i < parameters.length; ++i) {
+            Filter filter = findFilterAnnotation(parameterAnnotations[i]);
+            ServiceDependency serviceDependency = new ServiceDependency(parameters[i], modelType, filter);
+            serviceResolutions[i] = serviceResolution(serviceDependency,
+                    "Unable to instantiate the model using '" + constructor + "'. " +
+                            "The Service dependency '" + serviceDependency + "' resolved to null.");
+        }
+
+        // (ServiceTrackers, ..., ServiceTrackers)Object -> (ServiceTrackers)Object
+        return permuteArguments(
+                filterArguments(instantiation, 0, serviceResolutions),
+                methodType(Object.class, ServiceTrackers.class),
+                new int[parameters.length]);
     }
 
     @Nullable
@@ -222,89 +402,4 @@ class ModelInstantiator<T> {
         }
         return filter;
     }
-
-    /**
-     * Represents a field with a  {@link ServiceDependency}.
-     */
-    private static class ModelFieldInjection {
-        private final ServiceDependency serviceDependency;
-        private final Field field;
-
-        private ModelFieldInjection(ServiceDependency serviceDependency, Field field) {
-            this.serviceDependency = serviceDependency;
-            this.field = makeAccessible(field);
-        }
-
-        public void set(@Nonnull BundleContext context, @Nonnull Object model) throws IllegalAccessException {
-            Object serviceInstance = this.serviceDependency.resolve(context);
-
-            if (serviceInstance == null) {
-                throw new ModelInstantiationException(
-                        "Unable to inject a required service dependency via '" + this.field + "', " +
-                                " the Service dependency '" + serviceDependency + "' resolved to null.");
-
-            }
-
-            this.field.set(model, serviceInstance);
-        }
-    }
-
-    /**
-     * Represents a setter method with a {@link ServiceDependency}.
-     */
-    private static class ModelServiceSetter {
-        private final ServiceDependency serviceDependency;
-        private final Method setter;
-
-        private ModelServiceSetter(@Nonnull ServiceDependency serviceDependency, @Nonnull Method setter) {
-            this.serviceDependency = serviceDependency;
-            this.setter = setter;
-        }
-
-        public void set(@Nonnull BundleContext context, @Nonnull Object model) throws InvocationTargetException, IllegalAccessException {
-            Object serviceInstance = this.serviceDependency.resolve(context);
-
-            if (serviceInstance == null) {
-                throw new ModelInstantiationException(
-                        "Unable to inject a required service dependency via '" + this.setter + "', " +
-                                " the Service dependency '" + serviceDependency + "' resolved to null.");
-
-            }
-
-            this.setter.invoke(model, serviceInstance);
-        }
-    }
-
-    /**
-     * Creates model instances via either a default constructor or using a constructor annotated with @Inject, resolving
-     * the respective {@link ServiceDependency service depencies}.
-     */
-    private static class ModelConstructor<T> {
-        private final ServiceDependency[] serviceDependencies;
-        private final Constructor<T> constructor;
-
-        ModelConstructor(@Nonnull Constructor<T> constructor, @Nullable ServiceDependency... serviceDependencies) {
-            this.serviceDependencies = serviceDependencies;
-            this.constructor = constructor;
-        }
-
-        @Nonnull
-        T instantiate(@Nonnull BundleContext context) throws ReflectiveOperationException {
-            if (this.serviceDependencies == null || this.serviceDependencies.length == 0) {
-                return this.constructor.newInstance();
-            }
-            Object[] resolvedServices = new Object[this.serviceDependencies.length];
-            for (int i = 0; i < resolvedServices.length; ++i) {
-                ServiceDependency serviceDependency = this.serviceDependencies[i];
-                Object serviceInstance = serviceDependency.resolve(context);
-                if (serviceInstance == null) {
-                    throw new ModelInstantiationException(
-                            "Unable to instantiate the model using '" + this.constructor + "'. " +
-                                    "The Service dependency '" + serviceDependency + "' resolved to null.");
-                }
-                resolvedServices[i] = serviceInstance;
-            }
-            return this.constructor.newInstance(resolvedServices);
-        }
-    }
 }
@@ -16,6 +16,7 @@
 package io.neba.core.resourcemodels.factory;
 
 import io.neba.api.spi.ResourceModelFactory;
+import io.neba.core.resourcemodels.registration.StartupTimeline;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
@@ -24,14 +25,28 @@ import org.osgi.service.component.ComponentContext;
 import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 import org.osgi.util.tracker.BundleTracker;
 import org.osgi.util.tracker.BundleTrackerCustomizer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static io.neba.core.resourcemodels.factory.ModelFactory.NEBA_PACKAGES;
 import static io.neba.core.util.BundleUtil.displayNameOf;
+import static java.lang.Math.max;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.osgi.framework.Bundle.ACTIVE;
 import static org.osgi.framework.Constants.SERVICE_DESCRIPTION;
 import static org.osgi.framework.Constants.SERVICE_VENDOR;
@@ -39,47 +54,62 @@ import static org.osgi.framework.Constants.SERVICE_VENDOR;
 /**
  * Provides a {@link ModelFactory} service via every bundle that has a <code>Neba-Packages</code> header
  * and contains {@link io.neba.api.annotations.ResourceModel resource models} within the respective packages.
+ * <br />
+ * By default, the packages of a bundle are scanned for resource models on a bounded thread pool rather than in the
+ * framework thread starting the bundle, such that the scanning of large bundles does not delay the start of
+ * other bundles and multiple bundles are scanned in parallel. The pool's threads are daemon threads and terminate
+ * when idle, e.g. once all bundles are started.
+ * <br />
+ * The models of a bundle are validated and prepared for instantiation in the background once the
+ * factory is registered, or on first use, whichever comes first. Alternatively, the models can be
+ * {@link Configuration#validateModelsEagerly() validated eagerly} when the bundle is scanned.
  */
 @Component
+@Designate(ocd = NebaPackagesResourceModelFactoryInjector.Configuration.class)
 public class NebaPackagesResourceModelFactoryInjector {
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    private BundleTracker<ServiceRegistration<?>> tracker;
+    @Reference
+    private StartupTimeline startupTimeline;
+
+    private final AtomicInteger scanningThreadNumber = new AtomicInteger();
+
+    private BundleTracker<BundleModelFactory> tracker;
+    private ExecutorService executorService;
+    private Configuration configuration;
 
     @Activate
-    protected void activate(ComponentContext context) {
-        this.tracker = new BundleTracker<>(context.getBundleContext(), ACTIVE, new BundleTrackerCustomizer<ServiceRegistration<?>>() {
+    protected void activate(ComponentContext context, Configuration configuration) {
+        this.configuration = configuration;
+        final int scanningThreads = max(1, configuration.scanningThreads());
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(scanningThreads, scanningThreads, 60, SECONDS,
+                new LinkedBlockingQueue<>(), this::newScanningThread);
+        executor.allowCoreThreadTimeOut(true);
+        this.executorService = executor;
+        this.tracker = new BundleTracker<>(context.getBundleContext(), ACTIVE, new BundleTrackerCustomizer<BundleModelFactory>() {
             @Override
-            public ServiceRegistration<?> addingBundle(Bundle bundle, BundleEvent event) {
-                ModelFactory factory = new ModelFactory(bundle);
-                if (factory.getModelDefinitions().isEmpty()) {
+            public BundleModelFactory addingBundle(Bundle bundle, BundleEvent event) {
+                if (bundle.getHeaders().get(NEBA_PACKAGES) == null) {
                     return null;
                 }
 
-                BundleContext bundleContext = bundle.getBundleContext();
-                if (bundleContext == null) {
-                    logger.warn("Unable to register the resource models of bundle " + displayNameOf(bundle) + ", the bundle context is null. This usually means the bundle activator or blueprint context failed to start.");
-                    return null;
+                BundleModelFactory modelFactory = new BundleModelFactory(bundle);
+                if (!configuration.scanBundlesAsynchronously()) {
+                    return modelFactory.register() ? modelFactory : null;
                 }
 
-                Hashtable<String, Object> properties = new Hashtable<>();
-                properties.put(SERVICE_DESCRIPTION, "Provides NEBA resource model POJOs from packages specified in the 'Neba-Packages' bundle header.");
-                properties.put(SERVICE_VENDOR, "neba.io");
-                return bundleContext.registerService(ResourceModelFactory.class, factory, properties);
+                modelFactory.registerAsynchronously();
+                return modelFactory;
             }
 
             @Override
-            public void modifiedBundle(Bundle bundle, BundleEvent event, ServiceRegistration<?> registration) {
+            public void modifiedBundle(Bundle bundle, BundleEvent event, BundleModelFactory modelFactory) {
                 // ignore
             }
 
             @Override
-            public void removedBundle(Bundle bundle, BundleEvent event, ServiceRegistration<?> registration) {
-                if (registration == null) {
-                    return;
-                }
-
-                registration.unregister();
+            public void removedBundle(Bundle bundle, BundleEvent event, BundleModelFactory modelFactory) {
+                modelFactory.unregister();
             }
         });
         this.tracker.open();
@@ -88,5 +118,144 @@ public class NebaPackagesResourceModelFactoryInjector {
     @Deactivate
     protected void deactivate() {
         this.tracker.close();
+        this.executorService.shutdownNow();
+    }
+
+    void setExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+    }
+
+    private Thread newScanningThread(Runnable runnable) {
+        Thread thread = new Thread(runnable, "NEBA resource model scanner " + this.scanningThreadNumber.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    /**
+     * Scans a bundle for resource models and provides the {@link ModelFactory} of the bundle as a service,
+     * if the bundle contains resource models.
+     */
+    private class BundleModelFactory {
+        private final Bundle bundle;
+        // Assigned by the thread starting the bundle, read by the thread stopping it.
+        private volatile Future<?> scanning;
+        private ModelFactory factory;
+        private ServiceRegistration<?> registration;
+        private boolean unregistered = false;
+
+        BundleModelFactory(Bundle bundle) {
+            this.bundle = bundle;
+        }
+
+        void registerAsynchronously() {
+            this.scanning = executorService.submit(() -> {
+                try {
+                    register();
+                } catch (RuntimeException e) {
+                    logger.error("Unable to register the resource models of bundle " + displayNameOf(this.bundle) + ".", e);
+                }
+            });
+        }
+
+        /**
+         * @return whether a model factory was registered for the bundle.
+         */
+        boolean register() {
+            final long scanStartedAt = currentTimeMillis();
+            final long scanStart = nanoTime();
+            ModelFactory factory = new ModelFactory(this.bundle);
+            startupTimeline.bundleScanned(this.bundle, scanStartedAt, nanoTime() - scanStart,
+                    factory.getNumberOfLoadedClasses(), factory.getModelDefinitions().size());
+
+            if (factory.getModelDefinitions().isEmpty()) {
+                return false;
+            }
+
+            if (configuration.validateModelsEagerly()) {
+                factory.initializeModelInstantiators();
+            }
+
+            BundleContext bundleContext = this.bundle.getBundleContext();
+            if (bundleContext == null) {
+                logger.warn("Unable to register the resource models of bundle " + displayNameOf(this.bundle) + ", the bundle context is null. This usually means the bundle activator or blueprint context failed to start.");
+                return false;
+            }
+
+            Hashtable<String, Object> properties = new Hashtable<>();
+            properties.put(SERVICE_DESCRIPTION, "Provides NEBA resource model POJOs from packages specified in the 'Neba-Packages' bundle header.");
+            properties.put(SERVICE_VENDOR, "neba.io");
+
+            synchronized (this) {
+                if (this.unregistered) {
+                    // The bundle was removed while it was scanned.
+                    return false;
+                }
+                this.factory = factory;
+                this.registration = bundleContext.registerService(ResourceModelFactory.class, factory, properties);
+            }
+
+            if (!configuration.validateModelsEagerly() && configuration.prepareModelsInBackground()) {
+                prepareModels(factory);
+            }
+
+            return true;
+        }
+
+        /**
+         * Unregisters the factory and releases the services used by its models. Stops scanning the bundle, if it is still
+         * being scanned.
+         */
+        void unregister() {
+            final Future<?> scanning = this.scanning;
+            if (scanning != null) {
+                scanning.cancel(false);
+            }
+
+            synchronized (this) {
+                this.unregistered = true;
+                if (this.registration == null) {
+                    return;
+                }
+                this.registration.unregister();
+                this.factory.close();
+            }
+        }
+
+        private void prepareModels(ModelFactory factory) {
+            executorService.execute(() -> {
+                try {
+                    factory.initializeModelInstantiators();
+                } catch (InvalidModelException e) {
+                    logger.error("The bundle " + displayNameOf(this.bundle) + " contains invalid resource models. Providing these models will fail.", e);
+                }
+            });
+        }
+    }
+
+    @ObjectClassDefinition(name = "NEBA resource model factory", description = "Provides the resource models of bundles with a 'Neba-Packages' header.")
+    public @interface Configuration {
+        @AttributeDefinition(
+                name = "Scan bundles asynchronously",
+                description = "Scan bundles for resource models in a thread pool rather than in the framework thread starting the bundle. " +
+                        "Models become available shortly after the bundle has started.")
+        boolean scanBundlesAsynchronously() default true;
+
+        @AttributeDefinition(
+                name = "Scanning threads",
+                description = "The maximum number of threads scanning bundles for resource models and preparing models in parallel.")
+        int scanningThreads() default 4;
+
+        @AttributeDefinition(
+                name = "Validate models eagerly",
+                description = "Validate the resource models of a bundle and prepare their instantiation when the bundle is scanned. " +
+                        "Invalid models prevent the bundle's models from being registered. " +
+                        "Recommended for development, as this detects invalid models early at the expense of a slower bundle start.")
+        boolean validateModelsEagerly() default false;
+
+        @AttributeDefinition(
+                name = "Prepare models in the background",
+                description = "Unless models are validated eagerly, validate the resource models of a bundle and prepare their instantiation " +
+                        "in a background thread after the bundle has started. Otherwise, this happens when a model is first used.")
+        boolean prepareModelsInBackground() default true;
     }
 }
@@ -16,27 +16,27 @@
 package io.neba.core.resourcemodels.factory;
 
 import io.neba.api.annotations.Filter;
-import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
-import org.osgi.framework.ServiceReference;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 import static io.neba.core.util.ReflectionUtil.getBoundaryOfParametrizedType;
+import static java.util.Arrays.asList;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 import static org.apache.commons.lang3.reflect.TypeUtils.getRawType;
 import static org.osgi.framework.FrameworkUtil.createFilter;
 
 /**
- * Represents a dependency to OSGi services with an optional {@link Filter}.
+ * Represents a dependency to OSGi services with an optional {@link Filter}. The services are
+ * {@link TrackedServices tracked} once the dependency is first {@link #resolve(ServiceTrackers) resolved};
+ * subsequent resolutions use the tracked services and do not query the service registry.
  */
 class ServiceDependency {
     private final Class<?> serviceType;
@@ -44,6 +44,8 @@ class ServiceDependency {
     private final boolean hasFilter;
     private final boolean isOptional;
     private final boolean isList;
+    // Obtained from the service trackers upon first resolution.
+    private volatile TrackedServices trackedServices;
 
     /**
      * @param serviceType Either the actual service type (e.g. the service interface) or {@link Optional}&lt;ServiceTyp&gt;.
@@ -102,48 +104,35 @@ class ServiceDependency {
 
     }
 
+    /**
+     * @param serviceTrackers the trackers of the bundle declaring the dependency. A dependency is always
+     *                        resolved using the same service trackers. Must not be <code>null</code>.
+     * @return the resolved service(s), see {@link #ServiceDependency(Type, Class, Filter)}.
+     */
     @Nullable
-    public Object resolve(@Nonnull BundleContext context) {
-        Object resolved = null;
+    public Object resolve(@Nonnull ServiceTrackers serviceTrackers) {
+        TrackedServices trackedServices = this.trackedServices;
+        if (trackedServices == null) {
+            trackedServices = serviceTrackers.track(this.serviceType, this.hasFilter ? this.filter.value() : null);
+            this.trackedServices = trackedServices;
+        }
 
-        if (this.hasFilter || this.isList) {
-            Collection<? extends ServiceReference<?>> serviceReferences;
-            try {
-                serviceReferences = context.getServiceReferences(this.serviceType, this.hasFilter ? this.filter.value() : null);
-            } catch (InvalidSyntaxException e) {
-                // This should not happen as the filter syntax is checked during meta data construction.
-                throw new IllegalStateException("Unable to retrieve service references of type '" + this.serviceType + "'.", e);
-            }
+        final Object[] services = trackedServices.getServices();
 
-            if (this.isList) {
-                List<Object> serviceInstances = new ArrayList<>(serviceReferences.size());
-                for (ServiceReference<?> reference : serviceReferences) {
-                    Object serviceInstance = context.getService(reference);
-                    if (serviceInstance != null) {
-                        serviceInstances.add(serviceInstance);
-                    }
-                }
-                // Lists are implicitly optional as they have a natural representation of emptiness,
-                // thus we are done.
-                return serviceInstances;
-            }
-
-            if (serviceReferences.size() > 1) {
-                throw new ModelInstantiationException(
-                        "Unable to resolve the service dependency " + this + ", " +
-                                "got more than one matching service instance: " + serviceReferences + ".");
-            }
-            if (!serviceReferences.isEmpty()) {
-                resolved = context.getService(serviceReferences.iterator().next());
-            }
+        if (this.isList) {
+            // Lists are implicitly optional as they have a natural representation of emptiness,
+            // thus we are done.
+            return new ArrayList<>(asList(services));
+        }
 
-        } else {
-            ServiceReference<?> reference = context.getServiceReference(this.serviceType);
-            if (reference != null) {
-                resolved = context.getService(reference);
-            }
+        if (this.hasFilter && services.length > 1) {
+            throw new ModelInstantiationException(
+                    "Unable to resolve the service dependency " + this + ", " +
+                            "got more than one matching service instance: " + asList(services) + ".");
         }
 
+        // Without a filter, the highest ranked service is used.
+        final Object resolved = services.length == 0 ? null : services[0];
         return this.isOptional ? ofNullable(resolved) : resolved;
     }
 
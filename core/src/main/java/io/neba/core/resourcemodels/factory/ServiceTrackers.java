@@ -0,0 +1,88 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.factory;
+
+import io.neba.core.util.Key;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.neba.core.util.BundleUtil.displayNameOf;
+
+/**
+ * Provides the {@link TrackedServices services tracked} on behalf of a bundle. Services of the same type and
+ * filter are tracked once per bundle, regardless of the number of models depending on them. Trackers are opened
+ * when the services are first requested and remain open until this instance is {@link #close() closed}.
+ *
+ * @author Olaf Otto
+ */
+class ServiceTrackers {
+    private final Bundle bundle;
+    private final Map<Key, TrackedServices> trackedServices = new HashMap<>();
+    private boolean closed = false;
+
+    /**
+     * @param bundle the bundle on behalf of which services are tracked. Must not be <code>null</code>.
+     */
+    ServiceTrackers(@Nonnull Bundle bundle) {
+        if (bundle == null) {
+            throw new IllegalArgumentException("Constructor parameter bundle must not be null.");
+        }
+        this.bundle = bundle;
+    }
+
+    /**
+     * @param serviceType must not be <code>null</code>.
+     * @param filter      can be <code>null</code>.
+     * @return the open tracker for the services of the given type matching the filter. Never <code>null</code>.
+     */
+    @Nonnull
+    synchronized TrackedServices track(@Nonnull Class<?> serviceType, @Nullable String filter) {
+        if (this.closed) {
+            throw new IllegalStateException("Unable to track services of type '" + serviceType + "' for bundle " +
+                    displayNameOf(this.bundle) + ", the service trackers are closed.");
+        }
+
+        final Key key = new Key(serviceType, filter);
+        TrackedServices services = this.trackedServices.get(key);
+        if (services == null) {
+            BundleContext context = this.bundle.getBundleContext();
+            if (context == null) {
+                throw new IllegalStateException("Unable to track services of type '" + serviceType + "' for bundle " +
+                        displayNameOf(this.bundle) + ", the bundle has no bundle context.");
+            }
+            services = new TrackedServices(context, serviceType, filter);
+            services.open();
+            this.trackedServices.put(key, services);
+        }
+        return services;
+    }
+
+    /**
+     * Closes all trackers, releasing the tracked services.
+     */
+    synchronized void close() {
+        this.closed = true;
+        for (TrackedServices services : this.trackedServices.values()) {
+            services.close();
+        }
+        this.trackedServices.clear();
+    }
+}
@@ -0,0 +1,151 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.factory;
+
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.Filter;
+import org.osgi.framework.InvalidSyntaxException;
+import org.osgi.framework.ServiceReference;
+import org.osgi.util.tracker.ServiceTracker;
+import org.osgi.util.tracker.ServiceTrackerCustomizer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+
+import static java.util.Arrays.sort;
+import static java.util.Collections.reverseOrder;
+import static org.osgi.framework.Constants.OBJECTCLASS;
+import static org.osgi.framework.FrameworkUtil.createFilter;
+
+/**
+ * Tracks the services of a specific type matching an optional filter and provides the currently available services
+ * as an array ordered by {@link ServiceReference#compareTo(Object) service ranking}. The array is re-created whenever the tracked
+ * services change, retrieving the services is thus a single volatile read that neither queries the service registry nor locks.
+ * <br />
+ * Like {@link BundleContext#getServiceReferences(Class, String)}, only services whose type is compatible to the
+ * tracking bundle's class space are tracked.
+ *
+ * @author Olaf Otto
+ */
+class TrackedServices implements ServiceTrackerCustomizer<Object, Object> {
+    private static final Object[] NONE = new Object[0];
+
+    private final BundleContext context;
+    private final String serviceTypeName;
+    private final ServiceTracker<Object, Object> tracker;
+    private final Map<ServiceReference<Object>, Object> services = new HashMap<>();
+    private volatile Object[] rankedServices = NONE;
+
+    /**
+     * @param context     the context of the bundle using the services. Must not be <code>null</code>.
+     * @param serviceType must not be <code>null</code>.
+     * @param filter      an optional, syntactically valid filter the services must match. Can be <code>null</code>.
+     */
+    TrackedServices(@Nonnull BundleContext context, @Nonnull Class<?> serviceType, @Nullable String filter) {
+        if (context == null) {
+            throw new IllegalArgumentException("Constructor parameter context must not be null.");
+        }
+        if (serviceType == null) {
+            throw new IllegalArgumentException("Constructor parameter serviceType must not be null.");
+        }
+
+        this.context = context;
+        this.serviceTypeName = serviceType.getName();
+
+        final String typeFilter = "(" + OBJECTCLASS + "=" + this.serviceTypeName + ")";
+        final Filter trackedServices;
+        try {
+            trackedServices = createFilter(filter == null ? typeFilter : "(&" + typeFilter + filter + ")");
+        } catch (InvalidSyntaxException e) {
+            // This should not happen as the filter syntax is checked during meta data construction.
+            throw new IllegalStateException("Unable to track services of type '" + serviceType + "' with filter '" + filter + "'.", e);
+        }
+
+        this.tracker = new ServiceTracker<>(context, trackedServices, this);
+    }
+
+    void open() {
+        this.tracker.open();
+    }
+
+    void close() {
+        this.tracker.close();
+    }
+
+    /**
+     * @return the currently available services, highest ranked service first. Never <code>null</code>. The returned array must not be modified.
+     */
+    @Nonnull
+    Object[] getServices() {
+        return this.rankedServices;
+    }
+
+    @Override
+    public Object addingService(ServiceReference<Object> reference) {
+        if (!reference.isAssignableTo(this.context.getBundle(), this.serviceTypeName)) {
+            return null;
+        }
+        Object service = this.context.getService(reference);
+        if (service == null) {
+            return null;
+        }
+        synchronized (this) {
+            this.services.put(reference, service);
+            publish();
+        }
+        return service;
+    }
+
+    @Override
+    public void modifiedService(ServiceReference<Object> reference, Object service) {
+        // The service ranking may have changed.
+        synchronized (this) {
+            publish();
+        }
+    }
+
+    @Override
+    public void removedService(ServiceReference<Object> reference, Object service) {
+        synchronized (this) {
+            this.services.remove(reference);
+            publish();
+        }
+        try {
+            this.context.ungetService(reference);
+        } catch (IllegalStateException e) {
+            // The bundle context is no longer valid. The framework has already released all services used by the bundle.
+        }
+    }
+
+    private void publish() {
+        if (this.services.isEmpty()) {
+            this.rankedServices = NONE;
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        ServiceReference<Object>[] references = this.services.keySet().toArray(new ServiceReference[0]);
+        sort(references, reverseOrder());
+
+        Object[] rankedServices = new Object[references.length];
+        for (int i = 0; i < references.length; ++i) {
+            rankedServices[i] = this.services.get(references[i]);
+        }
+        this.rankedServices = rankedServices;
+    }
+}
@@ -16,13 +16,13 @@
 package io.neba.core.resourcemodels.mapping;
 
 import io.neba.api.spi.AnnotatedFieldMapper;
+import io.neba.core.resourcemodels.metadata.CustomMapperChain;
 import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
 import io.neba.core.util.ConcurrentDistinctMultiValueMap;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Reference;
 
 import java.lang.annotation.Annotation;
-import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
@@ -63,8 +63,9 @@ public class AnnotatedFieldMappers {
         }
     }
 
-    private final ConcurrentDistinctMultiValueMap<Field, AnnotationMapping<?, ?>> cache = new ConcurrentDistinctMultiValueMap<>();
     private final ConcurrentDistinctMultiValueMap<Class<? extends Annotation>, AnnotatedFieldMapper<?, ?>> fieldMappers = new ConcurrentDistinctMultiValueMap<>();
+    // Changes whenever mappers are bound or unbound. Mapper chains of a different generation are outdated.
+    private volatile int generation = 0;
 
     @Reference(cardinality = MULTIPLE, policy = DYNAMIC, unbind = "unbind")
     protected synchronized void bind(AnnotatedFieldMapper<?, ?> mapper) {
@@ -72,7 +73,7 @@ public class AnnotatedFieldMappers {
             throw new IllegalArgumentException("Method argument mapper must not be null.");
         }
         this.fieldMappers.put(mapper.getAnnotationType(), mapper);
-        this.cache.clear();
+        ++this.generation;
     }
 
     /**
@@ -83,29 +84,39 @@ public class AnnotatedFieldMappers {
             return;
         }
         this.fieldMappers.removeValue(mapper);
-        this.cache.clear();
+        ++this.generation;
     }
 
     /**
+     * Provides the mappers applicable to the field. The result is retained in the field's
+     * {@link MappedFieldMetaData#getCustomMapperChain() metadata} and only resolved again
+     * once mappers are bound or unbound.
+     *
      * @param metaData must not be <code>null</code>.
-     * @return never <code>null</code> but rather an empty collection.
+     * @return never <code>null</code> but rather an empty array.
      */
-    public Collection<AnnotationMapping<?, ?>> get(MappedFieldMetaData metaData) {
+    public AnnotationMapping<?, ?>[] get(MappedFieldMetaData metaData) {
         if (metaData == null) {
             throw new IllegalArgumentException("Method argument metaData must not be null.");
         }
 
-        Collection<AnnotationMapping<?, ?>> mappers = this.cache.get(metaData.getField());
+        // Read the generation prior to resolving the mappers: Should mappers change during the resolution,
+        // the resulting chain is considered outdated and is resolved again upon the next lookup.
+        final int generation = this.generation;
+        CustomMapperChain<?> chain = metaData.getCustomMapperChain();
 
-        if (mappers != null) {
-            return mappers;
+        if (chain != null && chain.getGeneration() == generation) {
+            // Chains are only ever stored by this instance and thus always contain annotation mappings.
+            return (AnnotationMapping<?, ?>[]) chain.getMappers();
         }
 
-        return this.cache.computeIfAbsent(metaData.getField(), key -> resolveCompatibleMappers(metaData));
+        AnnotationMapping<?, ?>[] mappings = resolveCompatibleMappers(metaData);
+        metaData.setCustomMapperChain(new CustomMapperChain<>(generation, mappings));
+        return mappings;
     }
 
     @SuppressWarnings({"rawtypes", "unchecked"})
-    private Collection<AnnotationMapping<?, ?>> resolveCompatibleMappers(MappedFieldMetaData metaData) {
+    private AnnotationMapping<?, ?>[] resolveCompatibleMappers(MappedFieldMetaData metaData) {
         List<AnnotationMapping<?, ?>> compatibleMappers = new ArrayList<>();
         for (Annotation annotation : metaData.getAnnotations()) {
             Collection<AnnotatedFieldMapper<?, ?>> mappersForAnnotation = this.fieldMappers.get(annotation.annotationType());
@@ -121,6 +132,6 @@ public class AnnotatedFieldMappers {
                 }
             }
         }
-        return compatibleMappers;
+        return compatibleMappers.toArray(new AnnotationMapping<?, ?>[0]);
     }
 }
@@ -0,0 +1,64 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.mapping;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static java.lang.ThreadLocal.withInitial;
+
+/**
+ * Supports the sampled profiling of field mappings: Decides which resource model mappings are profiled and
+ * counts the resource model mappings of each thread, such that a profiled field can determine how many
+ * nested mappings resolving its value triggered.
+ *
+ * @author Olaf Otto
+ */
+class FieldProfiler {
+    private final int sampleRate;
+    // A plain counter suffices: the mappings of a thread are only ever counted and read by that thread.
+    private final ThreadLocal<long[]> mappings = withInitial(() -> new long[1]);
+
+    /**
+     * @param sampleRate on average, one out of <code>sampleRate</code> mappings is profiled. Must be greater than zero.
+     */
+    FieldProfiler(int sampleRate) {
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Constructor parameter sampleRate must be greater than zero, but is " + sampleRate + ".");
+        }
+        this.sampleRate = sampleRate;
+    }
+
+    /**
+     * @return whether the next mapping shall be profiled.
+     */
+    boolean sample() {
+        return this.sampleRate == 1 || ThreadLocalRandom.current().nextInt(this.sampleRate) == 0;
+    }
+
+    /**
+     * Counts a resource model mapping of the current thread.
+     */
+    void countMapping() {
+        ++this.mappings.get()[0];
+    }
+
+    /**
+     * @return the number of {@link #countMapping() counted mappings} of the current thread.
+     */
+    long getMappings() {
+        return this.mappings.get()[0];
+    }
+}
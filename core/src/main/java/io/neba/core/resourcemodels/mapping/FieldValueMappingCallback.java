@@ -20,6 +20,7 @@ import io.neba.api.resourcemodels.Lazy;
 import io.neba.api.spi.AnnotatedFieldMapper;
 import io.neba.api.spi.ResourceModelFactory;
 import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
+import io.neba.core.resourcemodels.tracing.MappingTrace;
 import io.neba.core.util.PrimitiveSupportingValueMap;
 import io.neba.core.util.ReflectionUtil;
 import io.neba.core.util.ResourcePaths;
@@ -33,13 +34,17 @@ import java.lang.reflect.Field;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.Supplier;
 
 import static io.neba.core.resourcemodels.mapping.AnnotatedFieldMappers.AnnotationMapping;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.LAZY_LOAD;
 import static io.neba.core.util.ReflectionUtil.instantiateCollectionType;
 import static io.neba.core.util.StringUtil.appendToAll;
+import static java.lang.System.nanoTime;
 import static java.util.Optional.ofNullable;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
@@ -58,6 +63,12 @@ public class FieldValueMappingCallback {
     private final Resource resource;
     private final AnnotatedFieldMappers annotatedFieldMappers;
     private final PlaceholderVariableResolvers placeholderVariableResolvers;
+    private final FieldProfiler profiler;
+    private final MappingTrace trace;
+    private final MappingListeners listeners;
+    private final SubtreePrefetcher prefetcher;
+    // The content prefetched by the ongoing mapping, retained for lazy loads. null if nothing was prefetched.
+    private final SubtreePrefetcher.Prefetched prefetched;
 
     /**
      * @param model     the model to be mapped. Must not be <code>null</code>.
@@ -72,6 +83,32 @@ public class FieldValueMappingCallback {
             ResourceModelFactory factory,
             AnnotatedFieldMappers mappers,
             PlaceholderVariableResolvers resolvers) {
+        this(model, resource, factory, mappers, resolvers, null, null, null, null);
+    }
+
+    /**
+     * @param model     the model to be mapped. Must not be <code>null</code>.
+     * @param resource  the source of property values for the model. Must not be <code>null</code>.
+     * @param factory   must not be <code>null</code>.
+     * @param mappers   must not be <code>null</code>.
+     * @param resolvers must not be <code>null</code>.
+     * @param profiler  if not <code>null</code>, the mapping of each field, including lazy loading, is profiled
+     *                  and recorded in the {@link MappedFieldMetaData#getStatistics() field statistics}.
+     * @param trace     if not <code>null</code>, the loading of lazy fields is reported to this trace.
+     * @param listeners if not <code>null</code>, the loading of lazy fields is reported to these listeners.
+     * @param prefetcher if not <code>null</code>, the children and properties {@link SubtreePrefetcher#current() prefetched} by
+     *                   the ongoing mapping are used instead of reading them again.
+     */
+    FieldValueMappingCallback(
+            Object model,
+            Resource resource,
+            ResourceModelFactory factory,
+            AnnotatedFieldMappers mappers,
+            PlaceholderVariableResolvers resolvers,
+            @CheckForNull FieldProfiler profiler,
+            @CheckForNull MappingTrace trace,
+            @CheckForNull MappingListeners listeners,
+            @CheckForNull SubtreePrefetcher prefetcher) {
 
         if (model == null) {
             throw new IllegalArgumentException("Constructor parameter model must not be null.");
@@ -90,10 +127,15 @@ public class FieldValueMappingCallback {
         }
 
         this.model = model;
-        this.properties = toValueMap(resource);
+        this.prefetcher = prefetcher;
+        this.prefetched = prefetcher == null ? null : prefetcher.current();
+        this.properties = toValueMap(resource, this.prefetched);
         this.resource = resource;
         this.annotatedFieldMappers = mappers;
         this.placeholderVariableResolvers = resolvers;
+        this.profiler = profiler;
+        this.trace = trace;
+        this.listeners = listeners;
     }
 
     /**
@@ -108,8 +150,27 @@ public class FieldValueMappingCallback {
             throw new IllegalArgumentException("Method argument metaData must not be null.");
         }
 
+        if (this.profiler == null) {
+            map(metaData);
+            return;
+        }
+
+        final long mappings = this.profiler.getMappings();
+        final long startTimeInNs = nanoTime();
+        map(metaData);
+        metaData.getStatistics().countMapping(nanoTime() - startTimeInNs, this.profiler.getMappings() - mappings);
+    }
+
+    private void map(final MappedFieldMetaData metaData) {
         // Prepare the dynamic contextual data of this mapping
         final FieldData fieldData = new FieldData(metaData, evaluateFieldPath(metaData));
+
+        if (isDirectlyMappablePrimitiveProperty(fieldData)) {
+            // Read and write the primitive value using type-specialized accessors to avoid boxing and unboxing.
+            metaData.getPrimitiveFieldType().map(this.properties, fieldData.path, metaData.getField(), this.model);
+            return;
+        }
+
         // Determine whether the mapping can result in a non-null value
         final boolean isMappable = isMappable(fieldData);
 
@@ -144,6 +205,61 @@ public class FieldValueMappingCallback {
         return postProcessResolvedValue(fieldData, resolve(fieldData));
     }
 
+    /**
+     * Records the creation of a lazy field value or lazy-loading collection in the
+     * {@link MappedFieldMetaData#getStatistics() field statistics} if this mapping is profiled.
+     *
+     * @return the creation time, to be provided to {@link #lazyLoad(FieldData, long, Supplier)}, or 0 if this mapping is not profiled.
+     */
+    private long lazyValueCreated(FieldData fieldData) {
+        if (this.profiler == null) {
+            return 0;
+        }
+        fieldData.metaData.getStatistics().countLazyValueCreation();
+        return nanoTime();
+    }
+
+    /**
+     * Loads the value of a lazy field or lazy-loading collection, and records the loading and its duration in the
+     * {@link MappedFieldMetaData#getStatistics() field statistics} if this mapping is profiled.
+     * Records the loading in the {@link MappingTrace} if the mapping is traced and notifies the {@link MappingListeners}, if any.
+     */
+    private <T> T lazyLoad(FieldData fieldData, long createdAt, Supplier<T> loader) {
+        if (this.profiler != null) {
+            fieldData.metaData.getStatistics().countLazyValueLoad(nanoTime() - createdAt);
+        }
+
+        if (this.listeners != null) {
+            this.listeners.lazyLoadTriggered(this.model.getClass(), fieldData.metaData.getField().getName(), this.resource.getPath());
+        }
+
+        // Lazy loads take place after the mapping has ended and thus resume the content prefetched by the mapping.
+        final Supplier<T> prefetchingLoader = this.prefetched == null ? loader : () -> this.prefetcher.resume(this.prefetched, loader);
+
+        if (this.trace == null) {
+            return profileLazyLoad(fieldData, prefetchingLoader);
+        }
+
+        this.trace.enter(LAZY_LOAD, this.model.getClass().getName() + '#' + fieldData.metaData.getField().getName(), this.resource.getPath());
+        try {
+            return profileLazyLoad(fieldData, prefetchingLoader);
+        } finally {
+            this.trace.exit();
+        }
+    }
+
+    private <T> T profileLazyLoad(FieldData fieldData, Supplier<T> loader) {
+        if (this.profiler == null) {
+            return loader.get();
+        }
+
+        final long mappings = this.profiler.getMappings();
+        final long startTimeInNs = nanoTime();
+        T value = loader.get();
+        fieldData.metaData.getStatistics().countLazyLoad(nanoTime() - startTimeInNs, this.profiler.getMappings() - mappings);
+        return value;
+    }
+
     /**
      * Implements the NEBA contracts for fields, for instance guarantees that collection-typed fields are never <code>null</code>. Applies
      * {@link AnnotatedFieldMapper custom field mappers}.
@@ -164,20 +280,29 @@ public class FieldValueMappingCallback {
         @SuppressWarnings("unchecked")
         Object defaultValue = preventNullCollection ? instantiateCollectionType((Class<Collection<Object>>) fieldData.metaData.getType()) : null;
 
-        // Provide the custom mappers with the default value in case of empty collections for convenience
-        value = applyCustomMappings(fieldData, value == null ? defaultValue : value);
+        final AnnotationMapping<?, ?>[] mappings = this.annotatedFieldMappers.get(fieldData.metaData);
+        if (mappings.length != 0) {
+            // Provide the custom mappers with the default value in case of empty collections for convenience
+            if (this.profiler == null) {
+                value = applyCustomMappings(fieldData, mappings, value == null ? defaultValue : value);
+            } else {
+                final long startTimeInNs = nanoTime();
+                value = applyCustomMappings(fieldData, mappings, value == null ? defaultValue : value);
+                fieldData.metaData.getStatistics().countCustomMapping(nanoTime() - startTimeInNs);
+            }
+        }
 
         return value == null ? defaultValue : value;
     }
 
     /**
-     * Applies all {@link AnnotatedFieldMapper registered field mappers}
+     * Applies the {@link AnnotatedFieldMapper registered field mappers}
      * to the provided value and returns the result.
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private Object applyCustomMappings(FieldData fieldData, final Object value) {
+    private Object applyCustomMappings(FieldData fieldData, AnnotationMapping<?, ?>[] mappings, final Object value) {
         Object result = value;
-        for (final AnnotationMapping<?, ?> mapping : this.annotatedFieldMappers.get(fieldData.metaData)) {
+        for (final AnnotationMapping<?, ?> mapping : mappings) {
             result = mapping.getMapper().map(new OngoingFieldMapping(this.model, result, mapping, fieldData, this.resource, this.properties));
         }
         return result;
@@ -267,7 +392,8 @@ public class FieldValueMappingCallback {
         }
 
         final Class<?> targetType = field.metaData.getTypeParameter();
-        Iterator<Resource> children = parent.listChildren();
+        final List<Resource> prefetchedChildren = this.prefetched == null ? null : this.prefetched.getChildren(parent);
+        Iterator<Resource> children = prefetchedChildren == null ? parent.listChildren() : prefetchedChildren.iterator();
 
         while (children.hasNext()) {
             Resource child = children.next();
@@ -486,15 +612,33 @@ public class FieldValueMappingCallback {
                 field.isReferenceToOtherResource();
     }
 
+    /**
+     * Determines whether the field is a primitive property of the current resource without any
+     * {@link AnnotatedFieldMapper custom mappers}, i.e. whether it can be mapped directly via its
+     * {@link MappedFieldMetaData#getPrimitiveFieldType() primitive field type}.
+     */
+    private boolean isDirectlyMappablePrimitiveProperty(FieldData field) {
+        return field.metaData.getPrimitiveFieldType() != null &&
+                this.properties != null &&
+                !field.metaData.isReference() &&
+                !field.metaData.isThisReference() &&
+                !field.isReferenceToOtherResource() &&
+                this.annotatedFieldMappers.get(field.metaData).length == 0;
+    }
+
     /**
      * Provides the properties of the resource as a {@link PrimitiveSupportingValueMap}.
      *
-     * @param resource must not be <code>null</code>.
+     * @param resource   must not be <code>null</code>.
+     * @param prefetched can be <code>null</code>.
      * @return the value map, or <code>null</code> if the resource has no properties,
      * e.g. if it is synthetic.
      */
-    private static ValueMap toValueMap(Resource resource) {
-        ValueMap propertyMap = resource.adaptTo(ValueMap.class);
+    private static ValueMap toValueMap(Resource resource, SubtreePrefetcher.Prefetched prefetched) {
+        ValueMap propertyMap = prefetched == null ? null : prefetched.getProperties(resource);
+        if (propertyMap == null) {
+            propertyMap = resource.adaptTo(ValueMap.class);
+        }
         if (propertyMap != null) {
             propertyMap = new PrimitiveSupportingValueMap(propertyMap);
         }
@@ -594,12 +738,14 @@ public class FieldValueMappingCallback {
 
         private final FieldData fieldData;
         private final FieldValueMappingCallback callback;
+        private final long createdAt;
 
         private Object value = NULL;
 
         LazyFieldValue(FieldData fieldData, FieldValueMappingCallback callback) {
             this.fieldData = fieldData;
             this.callback = callback;
+            this.createdAt = callback.lazyValueCreated(fieldData);
         }
 
         /**
@@ -621,7 +767,7 @@ public class FieldValueMappingCallback {
          */
         private synchronized void load() {
             if (this.value == NULL) {
-                this.value = this.callback.resumeMapping(this.fieldData);
+                this.value = this.callback.lazyLoad(this.fieldData, this.createdAt, () -> this.callback.resumeMapping(this.fieldData));
             }
         }
     }
@@ -635,16 +781,18 @@ public class FieldValueMappingCallback {
     private static class LazyChildrenLoader implements Callable<Object> {
         private final FieldData field;
         private final FieldValueMappingCallback mapper;
+        private final long createdAt;
 
         LazyChildrenLoader(FieldData field, FieldValueMappingCallback callback) {
             this.field = field;
             this.mapper = callback;
+            this.createdAt = callback.lazyValueCreated(field);
         }
 
         @Nonnull
         @Override
         public Object call() {
-            return this.mapper.loadChildren(field);
+            return this.mapper.lazyLoad(this.field, this.createdAt, () -> this.mapper.loadChildren(this.field));
         }
     }
 
@@ -658,17 +806,19 @@ public class FieldValueMappingCallback {
         private final FieldData field;
         private final String[] paths;
         private final FieldValueMappingCallback callback;
+        private final long createdAt;
 
         LazyReferencesLoader(FieldData field, String[] paths, FieldValueMappingCallback callback) {
             this.field = field;
             this.paths = paths;
             this.callback = callback;
+            this.createdAt = callback.lazyValueCreated(field);
         }
 
         @Override
         @Nonnull
         public Object call() {
-            return this.callback.loadReferences(field, paths);
+            return this.callback.lazyLoad(this.field, this.createdAt, () -> this.callback.loadReferences(this.field, this.paths));
         }
     }
 
@@ -32,7 +32,8 @@ public class Mapping<T> {
     private final String srcPath;
     private final ResourceModelMetaData metadata;
     private final String resourceType;
-    private final int hashCode;
+    private int hashCode;
+    private int nestedMappings = 0;
 
     private T mappedModel = null;
 
@@ -55,7 +56,6 @@ public class Mapping<T> {
         this.resourceType = resourceType;
         this.srcPath = resourcePath;
         this.metadata = metadata;
-        this.hashCode = 31 * (31 + srcPath.hashCode()) + metadata.hashCode();
     }
 
     @Override
@@ -72,11 +72,30 @@ public class Mapping<T> {
         return mappedModel;
     }
 
+    void countNestedMappings(int nestedMappings) {
+        this.nestedMappings += nestedMappings;
+    }
+
+    /**
+     * @return the number of mappings that occurred while this mapping was ongoing, including indirectly nested mappings.
+     */
+    public int getNestedMappings() {
+        return nestedMappings;
+    }
+
     @Nonnull
     public ResourceModelMetaData getMetadata() {
         return metadata;
     }
 
+    /**
+     * @return the path of the mapped resource. Never <code>null</code>.
+     */
+    @Nonnull
+    public String getResourcePath() {
+        return srcPath;
+    }
+
     @Nonnull
     public String getResourceType() {
         return resourceType;
@@ -94,6 +113,12 @@ public class Mapping<T> {
 
     @Override
     public int hashCode() {
-        return this.hashCode;
+        // Mappings are not hashed while mapping, thus the hash code is calculated lazily.
+        int hashCode = this.hashCode;
+        if (hashCode == 0) {
+            hashCode = 31 * (31 + srcPath.hashCode()) + metadata.hashCode();
+            this.hashCode = hashCode;
+        }
+        return hashCode;
     }
 }
@@ -0,0 +1,162 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.mapping;
+
+import io.neba.api.spi.MappingListener;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+import static java.util.Arrays.copyOf;
+import static org.osgi.service.component.annotations.ReferenceCardinality.MULTIPLE;
+import static org.osgi.service.component.annotations.ReferencePolicy.DYNAMIC;
+
+/**
+ * Represents all registered {@link MappingListener mapping listeners} and dispatches
+ * mapping lifecycle notifications to them. The listeners are held in a copy-on-write array,
+ * dispatching thus neither locks nor allocates. Callers are expected to check {@link #isEmpty()}
+ * prior to collecting the data for a notification, so that the notifications cost nothing
+ * if no listener is registered.
+ *
+ * @author Olaf Otto
+ */
+@Component(service = MappingListeners.class)
+public class MappingListeners {
+    private static final MappingListener[] NONE = new MappingListener[0];
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private volatile MappingListener[] listeners = NONE;
+
+    @Reference(
+            cardinality = MULTIPLE,
+            policy = DYNAMIC,
+            unbind = "unbind")
+    protected synchronized void bind(MappingListener listener) {
+        MappingListener[] listeners = copyOf(this.listeners, this.listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+        this.listeners = listeners;
+    }
+
+    @SuppressWarnings("unused")
+    protected synchronized void unbind(MappingListener listener) {
+        if (listener == null) {
+            return;
+        }
+        MappingListener[] current = this.listeners;
+        for (int i = 0; i < current.length; ++i) {
+            if (current[i] == listener) {
+                MappingListener[] listeners = new MappingListener[current.length - 1];
+                System.arraycopy(current, 0, listeners, 0, i);
+                System.arraycopy(current, i + 1, listeners, i, current.length - i - 1);
+                this.listeners = listeners.length == 0 ? NONE : listeners;
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return whether no listener is registered, i.e. whether notifications can be omitted.
+     */
+    public boolean isEmpty() {
+        return this.listeners.length == 0;
+    }
+
+    /**
+     * @see MappingListener#mappingStarted(Class, String, int)
+     */
+    void mappingStarted(@Nonnull Class<?> modelType, @Nonnull String resourcePath, int depth) {
+        for (MappingListener listener : this.listeners) {
+            try {
+                listener.mappingStarted(modelType, resourcePath, depth);
+            } catch (RuntimeException e) {
+                failed(listener, e);
+            }
+        }
+    }
+
+    /**
+     * @see MappingListener#mappingCompleted(Class, String, int, long)
+     */
+    void mappingCompleted(@Nonnull Class<?> modelType, @Nonnull String resourcePath, int depth, long durationInNs) {
+        for (MappingListener listener : this.listeners) {
+            try {
+                listener.mappingCompleted(modelType, resourcePath, depth, durationInNs);
+            } catch (RuntimeException e) {
+                failed(listener, e);
+            }
+        }
+    }
+
+    /**
+     * @see MappingListener#cacheHit(String, Class)
+     */
+    public void cacheHit(@Nonnull String resourcePath, @CheckForNull Class<?> modelType) {
+        for (MappingListener listener : this.listeners) {
+            try {
+                listener.cacheHit(resourcePath, modelType);
+            } catch (RuntimeException e) {
+                failed(listener, e);
+            }
+        }
+    }
+
+    /**
+     * @see MappingListener#cacheMiss(String)
+     */
+    public void cacheMiss(@Nonnull String resourcePath) {
+        for (MappingListener listener : this.listeners) {
+            try {
+                listener.cacheMiss(resourcePath);
+            } catch (RuntimeException e) {
+                failed(listener, e);
+            }
+        }
+    }
+
+    /**
+     * @see MappingListener#modelsLookedUp(String, String, int, boolean)
+     */
+    public void modelsLookedUp(@Nonnull String resourcePath, @Nonnull String resourceType, int numberOfModels, boolean fromLookupCache) {
+        for (MappingListener listener : this.listeners) {
+            try {
+                listener.modelsLookedUp(resourcePath, resourceType, numberOfModels, fromLookupCache);
+            } catch (RuntimeException e) {
+                failed(listener, e);
+            }
+        }
+    }
+
+    /**
+     * @see MappingListener#lazyLoadTriggered(Class, String, String)
+     */
+    void lazyLoadTriggered(@Nonnull Class<?> modelType, @Nonnull String fieldName, @Nonnull String resourcePath) {
+        for (MappingListener listener : this.listeners) {
+            try {
+                listener.lazyLoadTriggered(modelType, fieldName, resourcePath);
+            } catch (RuntimeException e) {
+                failed(listener, e);
+            }
+        }
+    }
+
+    private void failed(MappingListener listener, RuntimeException e) {
+        this.logger.error("The mapping listener " + listener + " failed, the notification is ignored.", e);
+    }
+}
@@ -17,15 +17,20 @@
 package io.neba.core.resourcemodels.mapping;
 
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
+import io.neba.core.resourcemodels.tracing.MappingTrace;
 import org.osgi.service.component.annotations.Component;
 
 import javax.annotation.CheckForNull;
 import java.util.EmptyStackException;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
-import static java.lang.ThreadLocal.withInitial;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.MAPPING;
+import static java.lang.System.identityHashCode;
+import static java.util.Arrays.asList;
+import static java.util.Arrays.copyOf;
+import static java.util.Collections.emptyList;
 
 
 /**
@@ -43,9 +48,15 @@ public class NestedMappingSupport {
     // thus requires its own scope.
     private final ThreadLocal<Map<Object, Mapping<?>>> recordedMappings = new ThreadLocal<>();
 
+    // If a request is traced, the mapping stack reports all mappings to the trace.
+    private final ThreadLocal<MappingTrace> trace = new ThreadLocal<>();
+    // Tracing is rare. Counting the ongoing traces spares a thread-local lookup per mapping when no request is traced.
+    private final AtomicInteger activeTraces = new AtomicInteger();
+
     // Recursive mappings always occurs within the same thread. This thread locale tracks the respective
-    // mapping stack.
-    private final ThreadLocal<MappingStack> mappingStack = withInitial(() -> new MappingStack(recordedMappings.get()));
+    // mapping stack. The stack only exists while there is an ongoing mapping: Read-only access, e.g. by listeners or
+    // the console, must thus not create it, as it would otherwise never be removed.
+    private final ThreadLocal<MappingStack> mappingStack = new ThreadLocal<>();
 
     /**
      * Contract: When invoked and <code>null</code> is returned,
@@ -62,6 +73,10 @@ public class NestedMappingSupport {
             throw new IllegalArgumentException("Method argument mapping must not be null");
         }
         MappingStack mappingStack = this.mappingStack.get();
+        if (mappingStack == null) {
+            mappingStack = new MappingStack(this.recordedMappings.get(), getTrace());
+            this.mappingStack.set(mappingStack);
+        }
         Mapping<T> alreadyExistingMapping = mappingStack.get(mapping);
         if (alreadyExistingMapping == null) {
             mappingStack.push(mapping);
@@ -92,29 +107,79 @@ public class NestedMappingSupport {
         this.recordedMappings.remove();
     }
 
+    /**
+     * Starts reporting all mappings in the current thread to the given trace until {@link #endTracing()} is invoked.
+     *
+     * @param trace must not be <code>null</code>.
+     */
+    public void beginTracing(MappingTrace trace) {
+        if (trace == null) {
+            throw new IllegalArgumentException("Method argument trace must not be null.");
+        }
+        if (this.trace.get() == null) {
+            this.activeTraces.incrementAndGet();
+        }
+        this.trace.set(trace);
+    }
+
+    /**
+     * @return the {@link #beginTracing(MappingTrace) trace} of the current thread, or <code>null</code>.
+     */
+    @CheckForNull
+    public MappingTrace getTrace() {
+        return this.activeTraces.get() == 0 ? null : this.trace.get();
+    }
+
+    /**
+     * Ends tracing mappings for this thread.
+     */
+    public void endTracing() {
+        if (this.trace.get() != null) {
+            this.trace.remove();
+            this.activeTraces.decrementAndGet();
+        }
+    }
+
     /**
      * Ends a mapping that was {@link #push(Mapping) begun}. Removes thread-local tracking once the mapping stack is empty.
+     *
+     * @return the number of mappings that are still ongoing, i.e. 0 if the outermost mapping has ended.
      */
-    void pop() {
+    int pop() {
         MappingStack mappingStack = this.mappingStack.get();
-        if (mappingStack.pop() == 0) {
+        if (mappingStack == null) {
+            throw new EmptyStackException();
+        }
+        final int depth = mappingStack.pop();
+        if (depth == 0) {
             this.mappingStack.remove();
         }
+        return depth;
     }
 
     /**
-     * @return An unsafe view of the ongoing mappings. Modifications to the returned set will modify
-     * the state of this instance. Never null.
+     * @return A copy of the ongoing mappings in the order in which they were {@link #push(Mapping) pushed}. Never null.
      */
     Iterable<Mapping> getMappingStack() {
-        return this.mappingStack.get().getMappings();
+        MappingStack mappingStack = this.mappingStack.get();
+        return mappingStack == null ? emptyList() : mappingStack.getMappings();
+    }
+
+    /**
+     * @return The number of ongoing mappings, i.e. the number of mappings {@link #push(Mapping) pushed} and not yet {@link #pop() popped}.
+     */
+    int getMappingDepth() {
+        MappingStack mappingStack = this.mappingStack.get();
+        return mappingStack == null ? 0 : mappingStack.size;
     }
 
     /**
-     * @return The mapping that was last {@link #push(Mapping) pushed} and not yet {@link #pop() popped}.
+     * @return The mapping that was last {@link #push(Mapping) pushed} and not yet {@link #pop() popped}, or <code>null</code>.
      */
+    @CheckForNull
     Mapping<?> peek() {
-        return this.mappingStack.get().peek();
+        MappingStack mappingStack = this.mappingStack.get();
+        return mappingStack == null ? null : mappingStack.peek();
     }
 
     /**
@@ -126,113 +191,185 @@ public class NestedMappingSupport {
         if (metadata == null) {
             throw new IllegalArgumentException("Method argument metadata must not be null");
         }
-        return this.mappingStack.get().contains(metadata);
+        MappingStack mappingStack = this.mappingStack.get();
+        return mappingStack != null && mappingStack.contains(metadata);
     }
 
     /**
-     * Represents the stack of the currently ongoing mappings.
+     * Represents the stack of the currently ongoing mappings. The stack is array-based and detects
+     * cycles by comparing the mappings of the same resource model metadata, i.e. without hashing resource paths.
+     * Pushing and popping mappings thus does not allocate memory, except for the occasional growth of the
+     * backing arrays.
      *
      * @author Olaf Otto
      */
     private static class MappingStack {
-        // Contains the stack view of the nested mappings
-        private final Map<Mapping, Mapping> stack = new LinkedHashMap<>(8);
+        // Contains the nested mappings in the order in which they were pushed
+        private Mapping[] stack = new Mapping[16];
+        private int size = 0;
         // Contains the occurrence count of each resource model metadata (model type) currently in the stack
-        private final Map<ResourceModelMetaData, Count> metaData = new HashMap<>(8);
+        private final IdentityCounter metaData = new IdentityCounter();
         // If not null, contains all completed mappings.
         private final Map<Object, Mapping<?>> recordedMappings;
+        // If not null, all mappings are reported to this trace.
+        private final MappingTrace trace;
 
-        private Entry<?> tail = null;
-
-        MappingStack(Map<Object, Mapping<?>> recordedMappings) {
+        MappingStack(Map<Object, Mapping<?>> recordedMappings, MappingTrace trace) {
             this.recordedMappings = recordedMappings;
+            this.trace = trace;
         }
 
         <T> void push(Mapping<T> mapping) {
-            this.tail = new Entry<>(mapping, this.tail);
-            // We are keeping an occurrence count in order to only remove resource model metadata
-            // if no mapping for the corresponding resource model is left on the stack.
-            Count occurrenceCount = new Count();
-            Count previousCount = this.metaData.put(mapping.getMetadata(), occurrenceCount);
-            if (previousCount != null) {
-                occurrenceCount.add(previousCount);
+            if (this.size == this.stack.length) {
+                this.stack = copyOf(this.stack, this.size << 1);
+            }
+            this.stack[this.size++] = mapping;
+            // We are keeping an occurrence count in order to only consider resource model metadata
+            // as present if a mapping for the corresponding resource model is left on the stack.
+            this.metaData.increment(mapping.getMetadata());
+
+            if (this.trace != null) {
+                this.trace.enter(MAPPING, mapping.getMetadata().getTypeName(), mapping.getResourcePath());
             }
-            this.stack.put(mapping, mapping);
         }
 
         /**
-         * Removes the last {@link #push(Mapping) pused mapping} form the stack.
+         * Removes the last {@link #push(Mapping) pushed mapping} from the stack.
          *
          * @return the stack depth after removing the mapping.
          */
         int pop() {
-            if (tail == null) {
+            if (this.size == 0) {
                 throw new EmptyStackException();
             }
-            this.stack.remove(this.tail.mapping);
 
-            final ResourceModelMetaData metadata = this.tail.mapping.getMetadata();
-            Count count = this.metaData.remove(metadata);
-            if (count.decrement() != 0) {
-                this.metaData.put(metadata, count);
+            final Mapping<?> mapping = this.stack[--this.size];
+            this.stack[this.size] = null;
+            this.metaData.decrement(mapping.getMetadata());
+
+            if (this.size != 0) {
+                // Attribute the mapping and all of its nested mappings to the parent mapping.
+                this.stack[this.size - 1].countNestedMappings(mapping.getNestedMappings() + 1);
             }
 
             if (recordedMappings != null) {
-                this.recordedMappings.put(this.tail.mapping.getMappedModel(), this.tail.mapping);
+                this.recordedMappings.put(mapping.getMappedModel(), mapping);
             }
 
-            tail = tail.previous;
+            if (this.trace != null) {
+                this.trace.exit();
+            }
 
-            return stack.size();
+            return this.size;
         }
 
         Mapping<?> peek() {
-            return tail == null ? null : tail.mapping;
+            return this.size == 0 ? null : this.stack[this.size - 1];
         }
 
         @SuppressWarnings("unchecked")
         <T> Mapping<T> get(Mapping<?> mapping) {
-            return this.stack.get(mapping);
+            final ResourceModelMetaData metadata = mapping.getMetadata();
+            // Equal mappings are mappings of the same model. If there is no ongoing mapping of the model, there is no cycle.
+            if (!this.metaData.contains(metadata)) {
+                return null;
+            }
+            for (int i = this.size - 1; i >= 0; --i) {
+                Mapping<?> ongoingMapping = this.stack[i];
+                if (ongoingMapping == mapping || ongoingMapping.getMetadata() == metadata && ongoingMapping.equals(mapping)) {
+                    return (Mapping<T>) ongoingMapping;
+                }
+            }
+            return null;
         }
 
         Iterable<Mapping> getMappings() {
-            return this.stack.keySet();
+            return asList(copyOf(this.stack, this.size));
         }
 
         boolean contains(ResourceModelMetaData metadata) {
-            return this.metaData.containsKey(metadata);
+            return this.metaData.contains(metadata);
         }
 
         /**
-         * A backwards-linked map entry representing a mapping and its predecessor in the stack.
-         * This is mostly because there is no decent stack datastructure in standard java
-         * that combines Stack-Semantics with Set Semantics (Linear iterations, get by position and constant-time contains operations).
+         * Counts the occurrences of objects by identity using a minimal open-addressing hash table with linear probing.
+         * Since the counter only lives as long as the mapping stack, keys whose count dropped to zero are not removed
+         * but rather discarded once the table is resized.
+         *
+         * @author Olaf Otto
          */
-        private static class Entry<T> {
-            private final Mapping<T> mapping;
-            private Entry<?> previous;
+        private static class IdentityCounter {
+            private Object[] keys = new Object[16];
+            private int[] counts = new int[16];
+            private int usedSlots = 0;
+
+            void increment(Object key) {
+                int index = indexOf(key);
+                if (this.keys[index] == null) {
+                    // Keep the load factor at or below 0.5 to retain short probe sequences.
+                    if ((this.usedSlots + 1) << 1 > this.keys.length) {
+                        resize();
+                        index = indexOf(key);
+                    }
+                    this.keys[index] = key;
+                    ++this.usedSlots;
+                }
+                ++this.counts[index];
+            }
 
-            private Entry(Mapping<T> mapping, Entry<?> previous) {
-                this.mapping = mapping;
-                this.previous = previous;
+            void decrement(Object key) {
+                int index = indexOf(key);
+                if (this.keys[index] != null) {
+                    --this.counts[index];
+                }
             }
-        }
 
-        /**
-         * A mutable key occurrence count in a map.
-         *
-         * @author Olaf Otto
-         */
-        private static class Count {
-            private int i = 1;
+            boolean contains(Object key) {
+                int index = indexOf(key);
+                return this.keys[index] != null && this.counts[index] != 0;
+            }
 
-            public void add(Count other) {
-                i += other.i;
+            /**
+             * @return the index of the slot containing the key, or of the empty slot where the key belongs.
+             */
+            private int indexOf(Object key) {
+                final int mask = this.keys.length - 1;
+                int hash = identityHashCode(key);
+                int index = (hash ^ (hash >>> 16)) & mask;
+                while (this.keys[index] != null && this.keys[index] != key) {
+                    index = (index + 1) & mask;
+                }
+                return index;
             }
 
-            int decrement() {
-                --i;
-                return i;
+            private void resize() {
+                final Object[] previousKeys = this.keys;
+                final int[] previousCounts = this.counts;
+
+                int liveKeys = 0;
+                for (int count : previousCounts) {
+                    if (count != 0) {
+                        ++liveKeys;
+                    }
+                }
+
+                int capacity = 16;
+                while ((liveKeys + 1) << 2 > capacity) {
+                    capacity <<= 1;
+                }
+
+                this.keys = new Object[capacity];
+                this.counts = new int[capacity];
+                this.usedSlots = 0;
+
+                for (int i = 0; i < previousKeys.length; ++i) {
+                    if (previousCounts[i] != 0) {
+                        int index = indexOf(previousKeys[i]);
+                        this.keys[index] = previousKeys[i];
+                        this.counts[index] = previousCounts[i];
+                        ++this.usedSlots;
+                    }
+                }
             }
         }
     }
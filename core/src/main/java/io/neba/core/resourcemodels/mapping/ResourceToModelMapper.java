@@ -20,19 +20,28 @@ import io.neba.api.spi.AopSupport;
 import io.neba.api.spi.ResourceModelFactory;
 import io.neba.api.spi.ResourceModelPostProcessor;
 import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
+import io.neba.core.resourcemodels.metadata.PrefetchMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
+import io.neba.core.resourcemodels.tracing.FlightRecorderEvents;
+import io.neba.core.resourcemodels.tracing.SlowMappingDetector;
 import io.neba.core.util.OsgiModelSource;
 import io.neba.core.util.ResolvedModelSource;
 import org.apache.sling.api.resource.Resource;
+import org.osgi.service.component.annotations.Activate;
 import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
 import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
 
 import java.util.ArrayList;
 import java.util.List;
 
 import static io.neba.api.spi.ResourceModelFactory.ContentToModelMappingCallback;
 import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static org.apache.commons.lang3.StringUtils.join;
 import static org.osgi.service.component.annotations.ReferenceCardinality.MULTIPLE;
 import static org.osgi.service.component.annotations.ReferencePolicy.DYNAMIC;
@@ -41,26 +50,43 @@ import static org.osgi.service.component.annotations.ReferencePolicy.DYNAMIC;
  * Maps the properties of a {@link Resource} onto a {@link io.neba.api.annotations.ResourceModel} using
  * the {@link FieldValueMappingCallback}. Applies the registered
  * {@link ResourceModelPostProcessor post processors} to the model before and
- * after the fields are mapped.
+ * after the fields are mapped. Notifies the {@link MappingListeners mapping listeners} about the mapping,
+ * if any are registered.
  *
  * @author Olaf Otto
  */
 @Component(service = ResourceToModelMapper.class)
+@Designate(ocd = ResourceToModelMapper.Configuration.class)
 public class ResourceToModelMapper {
     private final List<ResourceModelPostProcessor> postProcessors = new ArrayList<>();
     private final List<AopSupport> aopSupports = new ArrayList<>();
+    private final SubtreePrefetcher subtreePrefetcher = new SubtreePrefetcher();
 
     @Reference
     private ModelPostProcessor modelPostProcessor;
     @Reference
     private NestedMappingSupport nestedMappingSupport;
     @Reference
+    private SlowMappingDetector slowMappingDetector;
+    @Reference
+    private MappingListeners mappingListeners;
+    @Reference
     private AnnotatedFieldMappers fieldMappers;
     @Reference
     private PlaceholderVariableResolvers variableResolvers;
     @Reference
     private ResourceModelMetaDataRegistrar resourceModelMetaDataRegistrar;
 
+    // null if field profiling is disabled.
+    private volatile FieldProfiler fieldProfiler;
+
+    @Activate
+    @Modified
+    protected void activate(Configuration configuration) {
+        int sampleRate = configuration.fieldProfilingSampleRate();
+        this.fieldProfiler = sampleRate > 0 ? new FieldProfiler(sampleRate) : null;
+    }
+
     /**
      * @param <T>                 the model type.
      * @param resource            must not be <code>null</code>.
@@ -81,6 +107,7 @@ public class ResourceToModelMapper {
         final Mapping<T> mapping = new Mapping<>(resource.getPath(), metaData, resolvedModelSource.getResolvedResourceType());
         // Do not track mapping time for nested resource models of the same type: this would yield
         // a useless average and total mapping time as the mapping durations would sum up multiple times.
+        // For the same reason, only the enclosing mapping of the type is checked by the slow mapping detector.
         final boolean trackMappingDuration = !this.nestedMappingSupport.hasOngoingMapping(metaData);
 
         final Mapping<T> alreadyOngoingMapping = this.nestedMappingSupport.push(mapping);
@@ -108,27 +135,54 @@ public class ResourceToModelMapper {
             // applies the content-to-model mapping when invoked. This way, a factory may construct the object, inject collaborators, map content to the model
             // and then complete initialization e.g. by invoking @PostConstruct methods on the model.
             ContentToModelMappingCallback<T> cb = model -> {
+                // All statistics of this mapping share a single clock read.
+                final long timeInMs = currentTimeMillis();
                 // Track the successful instantiation of the model.
-                metaData.getStatistics().countInstantiation();
+                metaData.getStatistics().countInstantiation(timeInMs);
+
+                final FieldProfiler profiler = this.fieldProfiler;
+                if (profiler != null) {
+                    // Allows profiled fields to determine the number of nested mappings they triggered.
+                    profiler.countMapping();
+                }
 
                 // Phase 2: Retain the model prior to mapping in order to return it if the mapping results in a cycle.
                 mapping.setMappedModel(model);
                 // Phase 3: Map the model (may create a cycle).
 
+                // null if there are no listeners to notify.
+                final MappingListeners listeners = this.mappingListeners.isEmpty() ? null : this.mappingListeners;
+                // null if the flight recorder event is disabled.
+                final Object mappingEvent = FlightRecorderEvents.beginMapping();
+                final int depth = listeners == null && mappingEvent == null ? 0 : this.nestedMappingSupport.getMappingDepth();
+                if (listeners != null) {
+                    listeners.mappingStarted(modelType, mapping.getResourcePath(), depth);
+                }
+
                 // Retain current time for statistics
-                final long startTimeInMs = trackMappingDuration ? currentTimeMillis() : 0;
+                final long startTimeInNs = trackMappingDuration || listeners != null ? nanoTime() : 0;
 
-                T mappedModel = ResourceToModelMapper.this.map(resource, model, metaData, modelSource.getFactory());
+                T mappedModel = ResourceToModelMapper.this.map(resource, model, metaData, modelSource.getFactory(), profiler != null && profiler.sample() ? profiler : null, listeners);
 
                 // Always count the subsequent mapping, if there is a parent.
                 Mapping<?> parent = nestedMappingSupport.peek();
                 if (parent != null) {
-                    parent.getMetadata().getStatistics().countSubsequentMapping();
+                    parent.getMetadata().getStatistics().countSubsequentMapping(timeInMs);
                 }
 
                 if (trackMappingDuration) {
                     // Update statistics with mapping duration
-                    metaData.getStatistics().countMappingDuration((int) (currentTimeMillis() - startTimeInMs));
+                    final long durationInNs = nanoTime() - startTimeInNs;
+                    metaData.getStatistics().countMappingDuration(durationInNs, timeInMs);
+                    this.slowMappingDetector.mappingCompleted(mapping, durationInNs, this.nestedMappingSupport.getMappingStack());
+                }
+
+                if (listeners != null) {
+                    listeners.mappingCompleted(modelType, mapping.getResourcePath(), depth, nanoTime() - startTimeInNs);
+                }
+
+                if (mappingEvent != null) {
+                    FlightRecorderEvents.endMapping(mappingEvent, modelType, mapping.getResourcePath(), depth);
                 }
 
                 return mappedModel;
@@ -136,14 +190,22 @@ public class ResourceToModelMapper {
 
             return modelSource.getModel(cb);
         } finally {
-            this.nestedMappingSupport.pop();
+            if (this.nestedMappingSupport.pop() == 0) {
+                // Content prefetched during the mapping is only retained by the lazy fields of the mapped models.
+                this.subtreePrefetcher.end();
+            }
         }
     }
 
-    private <T> T map(final Resource resource, final T model, final ResourceModelMetaData metaData, final ResourceModelFactory factory) {
+    private <T> T map(final Resource resource, final T model, final ResourceModelMetaData metaData, final ResourceModelFactory factory, final FieldProfiler profiler, final MappingListeners listeners) {
+        final PrefetchMetaData prefetch = metaData.getPrefetch();
+        if (prefetch != null) {
+            this.subtreePrefetcher.prefetch(resource, prefetch);
+        }
+
         T fieldInjectionViewOnPreprocessedModel = prepareAopEnhancedModelTypes(model);
 
-        final FieldValueMappingCallback callback = new FieldValueMappingCallback(fieldInjectionViewOnPreprocessedModel, resource, factory, this.fieldMappers, this.variableResolvers);
+        final FieldValueMappingCallback callback = new FieldValueMappingCallback(fieldInjectionViewOnPreprocessedModel, resource, factory, this.fieldMappers, this.variableResolvers, profiler, this.nestedMappingSupport.getTrace(), listeners, this.subtreePrefetcher);
 
         for (MappedFieldMetaData mappedFieldMetaData : metaData.getMappableFields()) {
             callback.doWith(mappedFieldMetaData);
@@ -204,4 +266,13 @@ public class ResourceToModelMapper {
         }
         this.aopSupports.remove(support);
     }
+
+    @ObjectClassDefinition(name = "NEBA resource to model mapper", description = "Maps resources onto resource models.")
+    public @interface Configuration {
+        @AttributeDefinition(
+                name = "Field profiling sample rate",
+                description = "Profile the mapping of each field for one out of the given number of resource model mappings, e.g. 100 to profile 1% of all mappings. " +
+                        "The resulting per-field breakdown and the usage of lazy fields are shown in the model statistics console. 0 disables field profiling.")
+        int fieldProfilingSampleRate() default 0;
+    }
 }
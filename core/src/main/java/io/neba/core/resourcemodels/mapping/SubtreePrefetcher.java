@@ -0,0 +1,220 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.mapping;
+
+import io.neba.core.resourcemodels.metadata.PrefetchMetaData;
+import io.neba.core.util.Key;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+
+import javax.annotation.CheckForNull;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static io.neba.core.util.Key.key;
+
+/**
+ * Reads the subtree of a resource {@link io.neba.api.annotations.Prefetch configured} for a resource model
+ * in a single pass prior to the mapping and retains the read children and properties as {@link Prefetched prefetched content}.
+ * The mapping {@link FieldValueMappingCallback reuses} the prefetched children and properties instead of reading them again.
+ * <br />
+ * The prefetched content is held per thread and {@link #end() discarded} once the outermost mapping ends. Subtrees that were
+ * already prefetched during the outermost mapping, e.g. by the mapping of a parent model, are not read again. Lazy fields of
+ * the mapped models retain the prefetched content and {@link #resume(Prefetched, Supplier) resume} it while loading, such that
+ * lazily loaded children and the models they are adapted to reuse the prefetched content as well.
+ *
+ * @author Olaf Otto
+ */
+class SubtreePrefetcher {
+    private final ThreadLocal<Scope> scope = new ThreadLocal<>();
+    // Prefetching is opt-in. Counting the threads holding prefetched content spares a thread-local lookup per mapping when nothing was prefetched.
+    private final AtomicInteger activeScopes = new AtomicInteger();
+
+    /**
+     * Prefetches the subtree of the resource unless it was already prefetched in the current scope. Resources of a
+     * resource resolver other than the one of the current scope are not prefetched, as their content could not be reused.
+     *
+     * @param resource must not be <code>null</code>.
+     * @param prefetch must not be <code>null</code>.
+     */
+    void prefetch(Resource resource, PrefetchMetaData prefetch) {
+        final ResourceResolver resolver = resource.getResourceResolver();
+        if (resolver == null) {
+            return;
+        }
+
+        Scope scope = this.scope.get();
+        if (scope == null) {
+            scope = new Scope(new Prefetched(resolver), false);
+            this.scope.set(scope);
+            this.activeScopes.incrementAndGet();
+        } else if (scope.prefetched.resolver != resolver) {
+            return;
+        }
+
+        scope.prefetched.prefetch(resource, prefetch, prefetch.getDepth());
+    }
+
+    /**
+     * @return the content prefetched by the current thread, or <code>null</code>.
+     */
+    @CheckForNull
+    Prefetched current() {
+        if (this.activeScopes.get() == 0) {
+            return null;
+        }
+        Scope scope = this.scope.get();
+        return scope == null ? null : scope.prefetched;
+    }
+
+    /**
+     * Discards the content prefetched by the current thread. Invoked once the outermost mapping has ended. Does not discard
+     * {@link #resume(Prefetched, Supplier) resumed} content, as the mappings of a lazy load end before the lazy load does.
+     */
+    void end() {
+        if (this.activeScopes.get() == 0) {
+            return;
+        }
+        Scope scope = this.scope.get();
+        if (scope != null && !scope.resumed) {
+            this.scope.remove();
+            this.activeScopes.decrementAndGet();
+        }
+    }
+
+    /**
+     * Provides the prefetched content to all mappings performed by the loader, e.g. when loading a lazy field of a model
+     * mapped while the content was {@link #current() current}.
+     *
+     * @param prefetched must not be <code>null</code>.
+     * @param loader     must not be <code>null</code>.
+     * @return the loaded value.
+     */
+    <T> T resume(Prefetched prefetched, Supplier<T> loader) {
+        if (this.scope.get() != null) {
+            // The loader is invoked during a mapping, e.g. by a model accessing a lazy field in its @PostConstruct method.
+            return loader.get();
+        }
+
+        this.scope.set(new Scope(prefetched, true));
+        this.activeScopes.incrementAndGet();
+        try {
+            return loader.get();
+        } finally {
+            this.scope.remove();
+            this.activeScopes.decrementAndGet();
+        }
+    }
+
+    /**
+     * The content prefetched for a resource resolver.
+     *
+     * @author Olaf Otto
+     */
+    static class Prefetched {
+        private final ResourceResolver resolver;
+        // The prefetched depth of the subtrees, keyed by path for unrestricted prefetches and by path and prefetch configuration otherwise.
+        // The maps are concurrent as resumed content may be used by lazy loads in multiple threads.
+        private final Map<Key, Integer> prefetchedDepths = new ConcurrentHashMap<>();
+        private final Map<String, List<Resource>> children = new ConcurrentHashMap<>();
+        private final Map<String, ValueMap> properties = new ConcurrentHashMap<>();
+
+        private Prefetched(ResourceResolver resolver) {
+            this.resolver = resolver;
+        }
+
+        /**
+         * @param parent must not be <code>null</code>.
+         * @return all children of the parent, or <code>null</code> if they were not prefetched.
+         */
+        @CheckForNull
+        List<Resource> getChildren(Resource parent) {
+            return parent.getResourceResolver() == this.resolver ? this.children.get(parent.getPath()) : null;
+        }
+
+        /**
+         * @param resource must not be <code>null</code>.
+         * @return the properties of the resource, or <code>null</code> if they were not prefetched.
+         */
+        @CheckForNull
+        ValueMap getProperties(Resource resource) {
+            return resource.getResourceResolver() == this.resolver ? this.properties.get(resource.getPath()) : null;
+        }
+
+        private void prefetch(Resource resource, PrefetchMetaData prefetch, int depth) {
+            final String path = resource.getPath();
+            // A subtree prefetched without name restrictions contains the subtree of any prefetch configuration.
+            if (depth <= prefetchedDepth(key(path)) || depth <= prefetchedDepth(key(path, prefetch))) {
+                return;
+            }
+            this.prefetchedDepths.put(prefetch.includesAll() ? key(path) : key(path, prefetch), depth);
+
+            List<Resource> children = this.children.get(path);
+            if (children == null) {
+                children = new ArrayList<>();
+                Iterator<Resource> iterator = resource.listChildren();
+                while (iterator.hasNext()) {
+                    children.add(iterator.next());
+                }
+                this.children.put(path, children);
+            }
+
+            for (Resource child : children) {
+                if (!prefetch.includes(child.getName())) {
+                    continue;
+                }
+                if (!this.properties.containsKey(child.getPath())) {
+                    // Obtaining the value map does not read the properties, determining its size does.
+                    ValueMap properties = child.adaptTo(ValueMap.class);
+                    if (properties != null) {
+                        properties.size();
+                        this.properties.put(child.getPath(), properties);
+                    }
+                }
+                if (depth > 1) {
+                    prefetch(child, prefetch, depth - 1);
+                }
+            }
+        }
+
+        private int prefetchedDepth(Key key) {
+            Integer depth = this.prefetchedDepths.get(key);
+            return depth == null ? 0 : depth;
+        }
+    }
+
+    /**
+     * The prefetched content of a thread.
+     *
+     * @author Olaf Otto
+     */
+    private static class Scope {
+        private final Prefetched prefetched;
+        // Whether the content was prefetched by another mapping and is resumed by a lazy load.
+        private final boolean resumed;
+
+        private Scope(Prefetched prefetched, boolean resumed) {
+            this.prefetched = prefetched;
+            this.resumed = resumed;
+        }
+    }
+}
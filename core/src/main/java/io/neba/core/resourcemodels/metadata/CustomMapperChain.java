@@ -0,0 +1,55 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.metadata;
+
+/**
+ * The custom field mappers applicable to a {@link MappedFieldMetaData field}, as resolved for a
+ * specific generation of the registered mappers. Instances are immutable and thus replace each other atomically
+ * when stored in the {@link MappedFieldMetaData#getCustomMapperChain() field metadata}.
+ *
+ * @param <M> the type representing a resolved mapper.
+ * @author Olaf Otto
+ */
+public final class CustomMapperChain<M> {
+    private final int generation;
+    private final M[] mappers;
+
+    /**
+     * @param generation the generation of the registered mappers the chain was resolved for.
+     * @param mappers    must not be <code>null</code>.
+     */
+    public CustomMapperChain(int generation, M[] mappers) {
+        if (mappers == null) {
+            throw new IllegalArgumentException("Method argument mappers must not be null.");
+        }
+        this.generation = generation;
+        this.mappers = mappers;
+    }
+
+    /**
+     * @return the generation of the registered mappers this chain was resolved for.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    /**
+     * @return never <code>null</code> but rather an empty array.
+     */
+    public M[] getMappers() {
+        return mappers;
+    }
+}
@@ -0,0 +1,286 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.metadata;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Long.numberOfLeadingZeros;
+import static java.lang.Math.ceil;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+
+/**
+ * A high dynamic range histogram of durations in nanoseconds with bounded memory. The durations are counted in
+ * log-linear buckets: Each power of two is divided into {@value #SUB_BUCKETS} linear sub-buckets, such that
+ * a recorded duration is represented with a relative error of at most 1 / {@value #SUB_BUCKETS} (approx. 6%), regardless of whether it is
+ * a couple of microseconds or several seconds. Durations exceeding {@link #HIGHEST_TRACKABLE_VALUE} are counted as that value.
+ * <br />
+ * The histogram may be updated concurrently. The buckets are {@link LongAdder striped counters} that are only allocated once
+ * they are used, as the durations of a model usually cluster in a small number of buckets. Likewise, the sub-buckets of a power of two
+ * are only allocated once a duration within that power of two is recorded, such that an unused histogram only occupies a few hundred bytes.
+ *
+ * @author Olaf Otto
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAXIMUM_EXPONENT = 36;
+    /**
+     * Approximately 68.7 seconds.
+     */
+    static final long HIGHEST_TRACKABLE_VALUE = (1L << MAXIMUM_EXPONENT) - 1;
+    static final int NUMBER_OF_BUCKETS = bucketIndexOf(HIGHEST_TRACKABLE_VALUE) + 1;
+
+    private static final int NUMBER_OF_CHUNKS = (NUMBER_OF_BUCKETS + SUB_BUCKETS - 1) / SUB_BUCKETS;
+
+    // The buckets, in chunks of the sub-buckets of a power of two.
+    private final AtomicReferenceArray<AtomicReferenceArray<LongAdder>> chunks = new AtomicReferenceArray<>(NUMBER_OF_CHUNKS);
+    private final LongAdder totalDuration = new LongAdder();
+    private final LongAccumulator maximumDuration = new LongAccumulator(Math::max, 0);
+    private final LongAccumulator minimumDuration = new LongAccumulator(Math::min, Long.MAX_VALUE);
+
+    /**
+     * @param durationInNs negative durations are counted as zero.
+     */
+    public void record(long durationInNs) {
+        final long duration = min(max(durationInNs, 0), HIGHEST_TRACKABLE_VALUE);
+        final int index = bucketIndexOf(duration);
+
+        final int chunkIndex = index >>> SUB_BUCKET_BITS;
+        AtomicReferenceArray<LongAdder> chunk = this.chunks.get(chunkIndex);
+        if (chunk == null) {
+            this.chunks.compareAndSet(chunkIndex, null, new AtomicReferenceArray<>(SUB_BUCKETS));
+            chunk = this.chunks.get(chunkIndex);
+        }
+
+        final int subBucketIndex = index & (SUB_BUCKETS - 1);
+        LongAdder bucket = chunk.get(subBucketIndex);
+        if (bucket == null) {
+            chunk.compareAndSet(subBucketIndex, null, new LongAdder());
+            bucket = chunk.get(subBucketIndex);
+        }
+
+        bucket.increment();
+        this.totalDuration.add(duration);
+        this.maximumDuration.accumulate(duration);
+        this.minimumDuration.accumulate(duration);
+    }
+
+    /**
+     * @return an immutable copy of the recorded data. Never <code>null</code>.
+     */
+    public Snapshot snapshot() {
+        long[] counts = new long[NUMBER_OF_BUCKETS];
+        for (int chunkIndex = 0; chunkIndex < NUMBER_OF_CHUNKS; ++chunkIndex) {
+            AtomicReferenceArray<LongAdder> chunk = this.chunks.get(chunkIndex);
+            if (chunk == null) {
+                continue;
+            }
+            for (int subBucketIndex = 0; subBucketIndex < SUB_BUCKETS; ++subBucketIndex) {
+                LongAdder bucket = chunk.get(subBucketIndex);
+                int index = (chunkIndex << SUB_BUCKET_BITS) + subBucketIndex;
+                if (bucket != null && index < NUMBER_OF_BUCKETS) {
+                    counts[index] = bucket.sum();
+                }
+            }
+        }
+        long minimum = this.minimumDuration.get();
+        return new Snapshot(
+                counts,
+                this.totalDuration.sum(),
+                minimum == Long.MAX_VALUE ? 0 : minimum,
+                this.maximumDuration.get());
+    }
+
+    static int bucketIndexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = (63 - numberOfLeadingZeros(value)) - SUB_BUCKET_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    /**
+     * @return the smallest value counted in the bucket with the given index.
+     */
+    static long lowerBoundOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS) {
+            return bucketIndex;
+        }
+        int shift = bucketIndex / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucketIndex % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * @return the smallest value no longer counted in the bucket with the given index.
+     */
+    static long upperBoundOf(int bucketIndex) {
+        if (bucketIndex < SUB_BUCKETS) {
+            return bucketIndex + 1;
+        }
+        int shift = bucketIndex / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucketIndex % SUB_BUCKETS + 1) << shift;
+    }
+
+    /**
+     * An immutable copy of a {@link LatencyHistogram}.
+     *
+     * @author Olaf Otto
+     */
+    public static class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long totalDuration;
+        private final long minimumDuration;
+        private final long maximumDuration;
+
+        /**
+         * @return a snapshot without any recorded durations.
+         */
+        public static Snapshot empty() {
+            return new Snapshot(new long[NUMBER_OF_BUCKETS], 0, 0, 0);
+        }
+
+        Snapshot(long[] counts, long totalDuration, long minimumDuration, long maximumDuration) {
+            long count = 0;
+            for (long c : counts) {
+                count += c;
+            }
+            this.counts = counts;
+            this.count = count;
+            this.totalDuration = totalDuration;
+            this.minimumDuration = minimumDuration;
+            this.maximumDuration = maximumDuration;
+        }
+
+        /**
+         * @param other must not be <code>null</code>.
+         * @return a new snapshot containing the durations of this and the other snapshot.
+         */
+        public Snapshot merge(Snapshot other) {
+            if (other == null) {
+                throw new IllegalArgumentException("Method argument other must not be null.");
+            }
+            if (other.count == 0) {
+                return this;
+            }
+            if (this.count == 0) {
+                return other;
+            }
+            long[] counts = new long[this.counts.length];
+            for (int i = 0; i < counts.length; ++i) {
+                counts[i] = this.counts[i] + other.counts[i];
+            }
+            return new Snapshot(
+                    counts,
+                    this.totalDuration + other.totalDuration,
+                    min(this.minimumDuration, other.minimumDuration),
+                    max(this.maximumDuration, other.maximumDuration));
+        }
+
+        /**
+         * @return the number of recorded durations.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * @return the exact sum of all recorded durations in ns.
+         */
+        public long getTotalDuration() {
+            return totalDuration;
+        }
+
+        /**
+         * @return the exact minimum of all recorded durations in ns, or 0 if no durations were recorded.
+         */
+        public long getMinimumDuration() {
+            return minimumDuration;
+        }
+
+        /**
+         * @return the exact maximum of all recorded durations in ns, or 0 if no durations were recorded.
+         */
+        public long getMaximumDuration() {
+            return maximumDuration;
+        }
+
+        /**
+         * @return the exact mean of all recorded durations in ns, or 0 if no durations were recorded.
+         */
+        public double getAverageDuration() {
+            return this.count == 0 ? 0 : this.totalDuration / (double) this.count;
+        }
+
+        /**
+         * @param percentile a value between 0 and 100, e.g. 99.9.
+         * @return the duration in ns which the given percentage of all recorded durations does not exceed, i.e. the
+         * mean of the bucket containing the respective duration, limited to the {@link #getMinimumDuration() minimum}
+         * and {@link #getMaximumDuration() maximum}.
+         * 0 if no durations were recorded.
+         */
+        public double getPercentile(double percentile) {
+            if (percentile < 0 || percentile > 100) {
+                throw new IllegalArgumentException("Method argument percentile must be within [0, 100], but is " + percentile + ".");
+            }
+            if (this.count == 0) {
+                return 0;
+            }
+
+            long rank = max(1, (long) ceil(percentile / 100D * this.count));
+            // The extrema are known exactly
+            if (rank == 1) {
+                return this.minimumDuration;
+            }
+            if (rank >= this.count) {
+                return this.maximumDuration;
+            }
+
+            long samples = 0;
+            for (int i = 0; i < this.counts.length; ++i) {
+                samples += this.counts[i];
+                if (samples >= rank) {
+                    double mean = (lowerBoundOf(i) + upperBoundOf(i) - 1) / 2D;
+                    return min(max(mean, this.minimumDuration), this.maximumDuration);
+                }
+            }
+            return this.maximumDuration;
+        }
+
+        /**
+         * @return the number of recorded durations per bucket. The bucket boundaries are provided
+         * by {@link #getBucketLowerBounds()}.
+         */
+        public long[] getCounts() {
+            return this.counts.clone();
+        }
+
+        /**
+         * @return the inclusive lower bound in ns of each bucket. The upper bound of a bucket is the
+         * lower bound of the succeeding bucket.
+         */
+        public long[] getBucketLowerBounds() {
+            long[] bounds = new long[this.counts.length];
+            for (int i = 0; i < bounds.length; ++i) {
+                bounds[i] = lowerBoundOf(i);
+            }
+            return bounds;
+        }
+    }
+}
@@ -27,6 +27,7 @@ import io.neba.core.util.ResourcePaths;
 import net.bytebuddy.ByteBuddy;
 import org.apache.commons.lang3.ClassUtils;
 
+import javax.annotation.CheckForNull;
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationHandler;
@@ -42,6 +43,7 @@ import static io.neba.core.util.ReflectionUtil.getInstantiableCollectionTypes;
 import static io.neba.core.util.ReflectionUtil.makeAccessible;
 import static io.neba.core.util.ReflectionUtil.getBoundaryOfParametrizedType;
 import static io.neba.core.util.ResourcePaths.path;
+import static java.lang.System.nanoTime;
 import static net.bytebuddy.description.modifier.Visibility.PRIVATE;
 import static net.bytebuddy.implementation.FieldAccessor.ofField;
 import static net.bytebuddy.implementation.InvocationHandlerAdapter.toField;
@@ -94,6 +96,12 @@ public class MappedFieldMetaData {
     private final Class<?> fieldType;
     private final Class<?> modelType;
     private final Class<? extends NebaDelegatingLazyLoadingProxy> collectionProxyFactory;
+    private final long proxyGenerationTimeInNs;
+    private final PrimitiveFieldType primitiveFieldType;
+    private final MappedFieldStatistics statistics = new MappedFieldStatistics();
+
+    // Resolved and replaced by the AnnotatedFieldMappers.
+    private volatile CustomMapperChain<?> customMapperChain;
 
     /**
      * Immediately extracts all metadata for the provided field.
@@ -134,9 +142,12 @@ public class MappedFieldMetaData {
         this.path = getPathInternal();
         this.isPropertyType = isPropertyTypeInternal();
         this.isInstantiableCollectionType = ReflectionUtil.isInstantiableCollectionType(this.fieldType);
+        this.primitiveFieldType = this.isLazy ? null : PrimitiveFieldType.of(this.fieldType);
 
         enforceInstantiableCollectionTypeForExplicitlyMappedFields();
+        final long proxyGenerationStart = nanoTime();
         this.collectionProxyFactory = prepareProxyFactoryForCollectionTypes();
+        this.proxyGenerationTimeInNs = this.collectionProxyFactory == null ? 0 : nanoTime() - proxyGenerationStart;
 
         makeAccessible(field);
     }
@@ -405,6 +416,31 @@ public class MappedFieldMetaData {
         return arrayTypeOfComponentType;
     }
 
+    /**
+     * @return the {@link PrimitiveFieldType} of this field if the field has a primitive type, e.g. <code>int</code>,
+     * or <code>null</code>.
+     */
+    @CheckForNull
+    public PrimitiveFieldType getPrimitiveFieldType() {
+        return primitiveFieldType;
+    }
+
+    /**
+     * @return the {@link io.neba.api.spi.AnnotatedFieldMapper custom mappers} last resolved for this field,
+     * or <code>null</code> if they were not resolved yet.
+     */
+    @CheckForNull
+    public CustomMapperChain<?> getCustomMapperChain() {
+        return customMapperChain;
+    }
+
+    /**
+     * @param customMapperChain the {@link io.neba.api.spi.AnnotatedFieldMapper custom mappers} resolved for this field.
+     */
+    public void setCustomMapperChain(CustomMapperChain<?> customMapperChain) {
+        this.customMapperChain = customMapperChain;
+    }
+
     /**
      * @return the annotations of the field, never <code>null</code>.
      */
@@ -419,6 +455,41 @@ public class MappedFieldMetaData {
         return isLazy;
     }
 
+    /**
+     * @return the time spent generating the lazy-loading proxy class for the field type, or 0 if the field
+     * does not require a proxy class.
+     */
+    public long getProxyGenerationTimeInNs() {
+        return proxyGenerationTimeInNs;
+    }
+
+    /**
+     * @return the sampled profiling statistics of this field, never <code>null</code>.
+     */
+    public MappedFieldStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * @return a short description of how the field value is resolved, e.g. <code>@Children</code> or <code>property</code>.
+     * Never <code>null</code>.
+     */
+    public String getMappingKind() {
+        final String kind;
+        if (this.isThisReference) {
+            kind = "@This";
+        } else if (this.isChildrenAnnotationPresent) {
+            kind = "@Children";
+        } else if (this.isReference) {
+            kind = "@Reference";
+        } else if (this.isPropertyType) {
+            kind = "property";
+        } else {
+            kind = "resource";
+        }
+        return this.isLazy ? "lazy " + kind : kind;
+    }
+
     @Override
     public int hashCode() {
         return this.field.hashCode();
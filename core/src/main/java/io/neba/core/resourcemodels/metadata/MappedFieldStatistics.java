@@ -0,0 +1,245 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.metadata;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import static java.lang.Math.min;
+
+/**
+ * Profiling statistics of a single {@link MappedFieldMetaData mapped field}. The mapping durations are only
+ * recorded for a sample of all mappings, see {@link io.neba.core.resourcemodels.mapping.ResourceToModelMapper}, and
+ * allow telling which fields of a resource model contribute most to its mapping duration.
+ * <br />
+ * The usage of lazy values, i.e. {@link io.neba.api.resourcemodels.Lazy} field values and lazy-loading collections, is
+ * recorded for the same sample of mappings. It tells whether lazy values are always loaded, rendering the lazy loading
+ * an overhead, or never loaded.
+ * <br />
+ * As there are statistics for every mapped field, they only allocate their counters and histograms once
+ * data is recorded, i.e. fields that are never sampled do not occupy memory for statistics.
+ *
+ * @author Olaf Otto
+ */
+public class MappedFieldStatistics {
+    private static final int MAPPING_DURATIONS = 0;
+    private static final int LAZY_LOAD_DURATIONS = 1;
+    private static final int CUSTOM_MAPPING_DURATIONS = 2;
+    private static final int LAZY_VALUE_LOAD_DELAYS = 3;
+
+    /**
+     * <code>null</code> until data is recorded.
+     */
+    private volatile State state;
+
+    /**
+     * @param durationInNs   the time it took to map the field's value, including any {@link io.neba.api.spi.AnnotatedFieldMapper custom mappers}.
+     * @param nestedMappings the number of resource models mapped while mapping the field's value.
+     */
+    public void countMapping(long durationInNs, long nestedMappings) {
+        State state = state();
+        state.histogram(MAPPING_DURATIONS).record(durationInNs);
+        state.nestedMappings.add(nestedMappings);
+    }
+
+    /**
+     * @param durationInNs   the time it took to load the value of a lazy field or lazy-loading collection, including any
+     *                       {@link io.neba.api.spi.AnnotatedFieldMapper custom mappers}.
+     * @param nestedMappings the number of resource models mapped while loading the value.
+     */
+    public void countLazyLoad(long durationInNs, long nestedMappings) {
+        State state = state();
+        state.histogram(LAZY_LOAD_DURATIONS).record(durationInNs);
+        state.nestedMappings.add(nestedMappings);
+    }
+
+    /**
+     * @param durationInNs the time the {@link io.neba.api.spi.AnnotatedFieldMapper custom mappers} of the field took
+     *                     to map the field's value.
+     */
+    public void countCustomMapping(long durationInNs) {
+        state().histogram(CUSTOM_MAPPING_DURATIONS).record(durationInNs);
+    }
+
+    /**
+     * Counts the creation of a lazy value for this field.
+     */
+    public void countLazyValueCreation() {
+        state().lazyValuesCreated.increment();
+    }
+
+    /**
+     * @param delayInNs the time between the creation of a lazy value and its loading.
+     */
+    public void countLazyValueLoad(long delayInNs) {
+        state().histogram(LAZY_VALUE_LOAD_DELAYS).record(delayInNs);
+    }
+
+    /**
+     * @return a copy of the statistics since the last reset. The individual values are sampled independently and may thus
+     * not reflect data recorded concurrently to this invocation. Never <code>null</code>.
+     */
+    @Nonnull
+    public Snapshot snapshot() {
+        State state = this.state;
+        if (state == null) {
+            LatencyHistogram.Snapshot empty = LatencyHistogram.Snapshot.empty();
+            return new Snapshot(empty, empty, empty, 0, 0, empty);
+        }
+        return new Snapshot(
+                state.snapshot(MAPPING_DURATIONS),
+                state.snapshot(LAZY_LOAD_DURATIONS),
+                state.snapshot(CUSTOM_MAPPING_DURATIONS),
+                state.nestedMappings.sum(),
+                state.lazyValuesCreated.sum(),
+                state.snapshot(LAZY_VALUE_LOAD_DELAYS));
+    }
+
+    /**
+     * Discards all recorded statistics.
+     */
+    public void reset() {
+        this.state = null;
+    }
+
+    private State state() {
+        State state = this.state;
+        if (state == null) {
+            synchronized (this) {
+                state = this.state;
+                if (state == null) {
+                    state = new State();
+                    this.state = state;
+                }
+            }
+        }
+        return state;
+    }
+
+    private static class State {
+        private final AtomicReferenceArray<LatencyHistogram> histograms = new AtomicReferenceArray<>(4);
+        private final LongAdder nestedMappings = new LongAdder();
+        private final LongAdder lazyValuesCreated = new LongAdder();
+
+        private LatencyHistogram histogram(int index) {
+            LatencyHistogram histogram = this.histograms.get(index);
+            if (histogram == null) {
+                this.histograms.compareAndSet(index, null, new LatencyHistogram());
+                histogram = this.histograms.get(index);
+            }
+            return histogram;
+        }
+
+        private LatencyHistogram.Snapshot snapshot(int index) {
+            LatencyHistogram histogram = this.histograms.get(index);
+            return histogram == null ? LatencyHistogram.Snapshot.empty() : histogram.snapshot();
+        }
+    }
+
+    /**
+     * An immutable view of the {@link MappedFieldStatistics}. All durations are in ns.
+     *
+     * @author Olaf Otto
+     */
+    public static class Snapshot {
+        private final LatencyHistogram.Snapshot mappingDurations;
+        private final LatencyHistogram.Snapshot lazyLoadDurations;
+        private final LatencyHistogram.Snapshot customMappingDurations;
+        private final long nestedMappings;
+        private final long lazyValuesCreated;
+        private final LatencyHistogram.Snapshot lazyValueLoadDelays;
+
+        Snapshot(LatencyHistogram.Snapshot mappingDurations,
+                 LatencyHistogram.Snapshot lazyLoadDurations,
+                 LatencyHistogram.Snapshot customMappingDurations,
+                 long nestedMappings,
+                 long lazyValuesCreated,
+                 LatencyHistogram.Snapshot lazyValueLoadDelays) {
+            this.mappingDurations = mappingDurations;
+            this.lazyLoadDurations = lazyLoadDurations;
+            this.customMappingDurations = customMappingDurations;
+            this.nestedMappings = nestedMappings;
+            this.lazyValuesCreated = lazyValuesCreated;
+            this.lazyValueLoadDelays = lazyValueLoadDelays;
+        }
+
+        /**
+         * @return the durations of the sampled field mappings. For lazy fields, this is the time to create the lazy value holder.
+         */
+        public LatencyHistogram.Snapshot getMappingDurations() {
+            return mappingDurations;
+        }
+
+        /**
+         * @return the durations of loading sampled lazy field values or lazy-loading collections.
+         */
+        public LatencyHistogram.Snapshot getLazyLoadDurations() {
+            return lazyLoadDurations;
+        }
+
+        /**
+         * @return the share of the mapping and lazy loading durations spent in {@link io.neba.api.spi.AnnotatedFieldMapper custom mappers}.
+         */
+        public LatencyHistogram.Snapshot getCustomMappingDurations() {
+            return customMappingDurations;
+        }
+
+        /**
+         * @return the total number of resource models mapped while mapping or lazy-loading the sampled field values.
+         */
+        public long getNestedMappings() {
+            return nestedMappings;
+        }
+
+        /**
+         * @return the average number of resource models mapped per sampled mapping or lazy load of the field value.
+         */
+        public double getAverageNestedMappings() {
+            long samples = this.mappingDurations.getCount() + this.lazyLoadDurations.getCount();
+            return samples == 0 ? 0 : (double) this.nestedMappings / samples;
+        }
+
+        /**
+         * @return the number of lazy values created for the field, i.e. once per mapping of a lazy field.
+         */
+        public long getLazyValuesCreated() {
+            return lazyValuesCreated;
+        }
+
+        /**
+         * @return the number of lazy values that were loaded.
+         */
+        public long getLazyValuesLoaded() {
+            return lazyValueLoadDelays.getCount();
+        }
+
+        /**
+         * @return the time between the creation of the lazy values and their loading.
+         */
+        public LatencyHistogram.Snapshot getLazyValueLoadDelays() {
+            return lazyValueLoadDelays;
+        }
+
+        /**
+         * @return the share of created lazy values that were loaded, within [0, 1]. Values created prior to the last
+         * reset but loaded afterwards may otherwise yield a ratio greater than 1.
+         */
+        public double getLazyValueLoadRatio() {
+            return this.lazyValuesCreated == 0 ? 0 : min(1D, (double) getLazyValuesLoaded() / this.lazyValuesCreated);
+        }
+    }
+}
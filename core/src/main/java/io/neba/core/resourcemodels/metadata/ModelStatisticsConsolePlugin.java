@@ -26,14 +26,24 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 
+import static io.neba.core.resourcemodels.metadata.ResourceModelStatistics.MAXIMUM_WINDOW;
 import static io.neba.core.util.JsonUtil.toJson;
+import static java.lang.Integer.parseInt;
+import static java.lang.Math.max;
+import static java.lang.String.format;
+import static java.util.Comparator.comparing;
+import static java.util.Locale.ENGLISH;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static org.apache.commons.collections.CollectionUtils.find;
 import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.join;
 import static org.apache.commons.lang3.StringUtils.startsWith;
 import static org.apache.commons.lang3.StringUtils.substringAfter;
 import static org.osgi.framework.Constants.SERVICE_VENDOR;
@@ -42,6 +52,14 @@ import static org.osgi.framework.Constants.SERVICE_VENDOR;
  * Provides a RESTFul JSON API for {@link io.neba.api.annotations.ResourceModel} metadata,
  * i.e. the metadata collected at both registration and runtime. The metadata - in particular the
  * {@link ResourceModelStatistics} - is visualized by this console plugin on the client-side using D3.js.
+ * <br />
+ * The statistics API provides the statistics since the last reset by default. The optional <code>window</code> parameter
+ * selects a {@link ResourceModelStatistics#snapshot(int) rolling window} of the given number of minutes instead,
+ * e.g. <code>/api/statistics?window=5</code>.
+ * <br />
+ * The recommendations API, <code>/api/recommendations</code>, suggests making lazy fields eager or eager fields lazy
+ * based on how often the {@link MappedFieldStatistics lazy values} of the fields are loaded in the profiled mappings.
+ * Recommendations thus require field profiling to be enabled.
  *
  * @author Olaf Otto
  */
@@ -58,6 +76,11 @@ public class ModelStatisticsConsolePlugin extends AbstractWebConsolePlugin {
     private static final long serialVersionUID = -8676958166611686979L;
     private static final String STATISTICS_API_PATH = "/api/statistics";
     private static final String RESET_API_PATH = "/api/reset";
+    private static final String RECOMMENDATIONS_API_PATH = "/api/recommendations";
+    // Recommendations regarding lazy fields require a meaningful number of lazy values.
+    private static final long MINIMUM_LAZY_VALUES_FOR_RECOMMENDATION = 100;
+    private static final double ALWAYS_LOADED_RATIO = 0.99D;
+    private static final String WINDOW_PARAMETER = "window";
 
     @Reference
     private ResourceModelMetaDataRegistrar modelMetaDataRegistrar;
@@ -82,7 +105,17 @@ public class ModelStatisticsConsolePlugin extends AbstractWebConsolePlugin {
         String suffix = substringAfter(req.getRequestURI(), req.getServletPath() + "/" + getLabel());
         if (!isBlank(suffix) && suffix.startsWith(STATISTICS_API_PATH)) {
             setNoCacheHeaders(res);
-            getModelMetadata(suffix.substring(STATISTICS_API_PATH.length()), res);
+            Integer window = windowOf(req);
+            if (window == null) {
+                res.sendError(SC_BAD_REQUEST, "The parameter " + WINDOW_PARAMETER + " must be a number of minutes within [1, " + MAXIMUM_WINDOW + "].");
+                return;
+            }
+            getModelMetadata(suffix.substring(STATISTICS_API_PATH.length()), window, res);
+            return;
+        }
+        if (!isBlank(suffix) && suffix.startsWith(RECOMMENDATIONS_API_PATH)) {
+            setNoCacheHeaders(res);
+            provideRecommendations(res);
             return;
         }
         if (!isBlank(suffix) && suffix.startsWith(RESET_API_PATH)) {
@@ -103,64 +136,205 @@ public class ModelStatisticsConsolePlugin extends AbstractWebConsolePlugin {
     private void resetStatistics(HttpServletResponse res) throws IOException {
         for (ResourceModelMetaData metaData : this.modelMetaDataRegistrar.get()) {
             metaData.getStatistics().reset();
+            for (MappedFieldMetaData field : metaData.getMappableFields()) {
+                field.getStatistics().reset();
+            }
         }
         prepareJsonResponse(res);
         res.getWriter().write("{\"success\": true}");
     }
 
-    private void getModelMetadata(String typePath, HttpServletResponse res) throws IOException {
+    /**
+     * @return the requested window in minutes, 0 if no window was requested (i.e. the statistics since the last reset),
+     * or <code>null</code> if the requested window is invalid.
+     */
+    private static Integer windowOf(HttpServletRequest req) {
+        String window = req.getParameter(WINDOW_PARAMETER);
+        if (isBlank(window)) {
+            return 0;
+        }
+        try {
+            int minutes = parseInt(window.trim());
+            return minutes < 1 || minutes > MAXIMUM_WINDOW ? null : minutes;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static ResourceModelStatistics.Snapshot snapshotOf(ResourceModelMetaData metaData, int window) {
+        ResourceModelStatistics statistics = metaData.getStatistics();
+        return window == 0 ? statistics.snapshot() : statistics.snapshot(window);
+    }
+
+    private void getModelMetadata(String typePath, int window, HttpServletResponse res) throws IOException {
         if (typePath.isEmpty()) {
-            provideStatisticsOfAllModels(res);
+            provideStatisticsOfAllModels(window, res);
         } else {
             String typeName = typePath.substring(1);
-            provideStatisticsOfModel(typeName, res);
+            provideStatisticsOfModel(typeName, window, res);
         }
     }
 
-    private void provideStatisticsOfModel(final String typeName, HttpServletResponse res) throws IOException {
+    private void provideStatisticsOfModel(final String typeName, int window, HttpServletResponse res) throws IOException {
         ResourceModelMetaData metaData = (ResourceModelMetaData) find(
                 this.modelMetaDataRegistrar.get(), object -> ((ResourceModelMetaData) object).getTypeName().equals(typeName)
         );
 
         if (metaData != null) {
 
-            Map<String, Object> data = toMap(metaData);
+            ResourceModelStatistics.Snapshot statistics = snapshotOf(metaData, window);
+            Map<String, Object> data = toMap(metaData, statistics);
 
-            ResourceModelStatistics statistics = metaData.getStatistics();
-            int[] mappingDurationFrequencies = statistics.getMappingDurationFrequencies();
-            int[] intervalBoundaries = statistics.getMappingDurationIntervalBoundaries();
+            LatencyHistogram.Snapshot mappingDurations = statistics.getMappingDurations();
+            long[] mappingDurationFrequencies = mappingDurations.getCounts();
+            long[] lowerBounds = mappingDurations.getBucketLowerBounds();
 
+            // Only the non-empty buckets are reported, as the durations of a model usually cluster in a few buckets.
             Map<String, Object> durationFrequencies = new LinkedHashMap<>();
-
-            int leftBoundary = 0;
             for (int i = 0; i < mappingDurationFrequencies.length; ++i) {
-                durationFrequencies.put("[" + leftBoundary + ", " + intervalBoundaries[i] + ")", mappingDurationFrequencies[i]);
-                leftBoundary = intervalBoundaries[i];
+                if (mappingDurationFrequencies[i] != 0) {
+                    long upperBound = i + 1 < lowerBounds.length ? lowerBounds[i + 1] : LatencyHistogram.HIGHEST_TRACKABLE_VALUE + 1;
+                    durationFrequencies.put("[" + lowerBounds[i] + "ns, " + upperBound + "ns)", mappingDurationFrequencies[i]);
+                }
             }
 
             data.put("mappingDurationFrequencies", durationFrequencies);
 
+            Collection<Object> timeline = new LinkedList<>();
+            for (ResourceModelStatistics.Snapshot interval : metaData.getStatistics().timeline()) {
+                Map<String, Object> intervalData = new LinkedHashMap<>();
+                intervalData.put("since", interval.getSince());
+                intervalData.put("instantiations", interval.getInstantiations());
+                intervalData.put("mappingDurationMedian", interval.getMappingDurationMedian());
+                intervalData.put("mappingDurationP99", interval.getMappingDurationPercentile(99));
+                timeline.add(intervalData);
+            }
+            data.put("timeline", timeline);
+            data.put("fields", fieldStatisticsOf(metaData));
+
             prepareJsonResponse(res);
             res.getWriter().write(toJson(data));
         }
     }
 
+    /**
+     * @return the sampled per-field mapping statistics of the model, ordered by the mapping and lazy loading time
+     * of the fields, most expensive first, including the usage of lazy values. Fields without samples or lazy values
+     * are omitted. Durations are in ms.
+     */
+    private static List<Map<String, Object>> fieldStatisticsOf(ResourceModelMetaData metaData) {
+        List<Map<String, Object>> fields = new ArrayList<>();
+        for (MappedFieldMetaData field : metaData.getMappableFields()) {
+            MappedFieldStatistics.Snapshot statistics = field.getStatistics().snapshot();
+            LatencyHistogram.Snapshot mappingDurations = statistics.getMappingDurations();
+            LatencyHistogram.Snapshot lazyLoadDurations = statistics.getLazyLoadDurations();
+            if (mappingDurations.getCount() == 0 && lazyLoadDurations.getCount() == 0 && statistics.getLazyValuesCreated() == 0) {
+                continue;
+            }
+
+            Map<String, Object> fieldData = new LinkedHashMap<>();
+            fieldData.put("name", field.getField().getName());
+            fieldData.put("kind", field.getMappingKind());
+            fieldData.put("mappings", mappingDurations.getCount());
+            fieldData.put("averageMappingDuration", toMs(mappingDurations.getAverageDuration()));
+            fieldData.put("mappingDurationP99", toMs(mappingDurations.getPercentile(99)));
+            fieldData.put("lazyLoads", lazyLoadDurations.getCount());
+            fieldData.put("averageLazyLoadDuration", toMs(lazyLoadDurations.getAverageDuration()));
+            fieldData.put("averageCustomMappingDuration", toMs(statistics.getCustomMappingDurations().getAverageDuration()));
+            fieldData.put("averageNestedMappings", statistics.getAverageNestedMappings());
+            fieldData.put("lazyValuesCreated", statistics.getLazyValuesCreated());
+            fieldData.put("lazyValuesLoaded", statistics.getLazyValuesLoaded());
+            fieldData.put("averageLazyValueLoadDelay", toMs(statistics.getLazyValueLoadDelays().getAverageDuration()));
+            fieldData.put("totalDuration", toMs(mappingDurations.getTotalDuration() + lazyLoadDurations.getTotalDuration()));
+            fields.add(fieldData);
+        }
+        fields.sort(comparing((Map<String, Object> field) -> (Double) field.get("totalDuration")).reversed());
+        return fields;
+    }
+
+    /**
+     * Recommends making lazy fields eager if their lazy values are (almost) always loaded, as the lazy loading is
+     * pure overhead in this case. If the lazy values of a field are never loaded, the model's related content is likely
+     * unused, thus making the model's eager fields mapping related resources lazy is recommended.
+     */
+    private void provideRecommendations(HttpServletResponse res) throws IOException {
+        List<Map<String, Object>> recommendations = new ArrayList<>();
+        for (ResourceModelMetaData metaData : this.modelMetaDataRegistrar.get()) {
+            List<MappedFieldMetaData> eagerRelationFields = new ArrayList<>();
+            List<String> neverLoadedFields = new ArrayList<>();
+            long mappings = 0;
+
+            for (MappedFieldMetaData field : metaData.getMappableFields()) {
+                MappedFieldStatistics.Snapshot statistics = field.getStatistics().snapshot();
+                String name = field.getField().getName();
+                long created = statistics.getLazyValuesCreated();
+
+                if (created == 0) {
+                    String kind = field.getMappingKind();
+                    if ("resource".equals(kind) || "@Reference".equals(kind)) {
+                        eagerRelationFields.add(field);
+                    }
+                    continue;
+                }
+
+                if (created < MINIMUM_LAZY_VALUES_FOR_RECOMMENDATION) {
+                    continue;
+                }
+
+                if (statistics.getLazyValueLoadRatio() >= ALWAYS_LOADED_RATIO) {
+                    recommendations.add(recommendation(metaData, name, "make eager", format(ENGLISH,
+                            "Loaded %d of %d times, on average %.3f ms after the mapping. The lazy loading is pure overhead.",
+                            statistics.getLazyValuesLoaded(), created, toMs(statistics.getLazyValueLoadDelays().getAverageDuration()))));
+                } else if (statistics.getLazyValuesLoaded() == 0) {
+                    recommendations.add(recommendation(metaData, name, "never loaded", format(ENGLISH,
+                            "Never loaded in %d sampled mappings. The field may be obsolete.", created)));
+                    neverLoadedFields.add(name);
+                    mappings = max(mappings, created);
+                }
+            }
+
+            if (!neverLoadedFields.isEmpty()) {
+                for (MappedFieldMetaData field : eagerRelationFields) {
+                    recommendations.add(recommendation(metaData, field.getField().getName(), "make lazy", format(ENGLISH,
+                            "The lazy field(s) %s of this model were never loaded in %d sampled mappings, " +
+                                    "suggesting that this eagerly mapped content is unused as well.",
+                            join(neverLoadedFields, ", "), mappings)));
+                }
+            }
+        }
+
+        prepareJsonResponse(res);
+        res.getWriter().write(toJson(recommendations));
+    }
+
+    private static Map<String, Object> recommendation(ResourceModelMetaData metaData, String field, String recommendation, String reason) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("type", metaData.getTypeName());
+        data.put("field", field);
+        data.put("recommendation", recommendation);
+        data.put("reason", reason);
+        return data;
+    }
+
+    private static double toMs(double durationInNs) {
+        return durationInNs / 1000000D;
+    }
+
     private void prepareJsonResponse(HttpServletResponse res) {
         res.setCharacterEncoding("UTF-8");
         res.setContentType("application/json; charset=UTF-8");
     }
 
-    private void provideStatisticsOfAllModels(HttpServletResponse res) throws IOException {
+    private void provideStatisticsOfAllModels(int window, HttpServletResponse res) throws IOException {
         Collection<Object> data = new LinkedList<>();
         for (ResourceModelMetaData metaData : this.modelMetaDataRegistrar.get()) {
-            data.add(toMap(metaData));
+            data.add(toMap(metaData, snapshotOf(metaData, window)));
         }
         prepareJsonResponse(res);
         res.getWriter().write(toJson(data));
     }
 
-    private Map<String, Object> toMap(ResourceModelMetaData metaData) {
-        ResourceModelStatistics statistics = metaData.getStatistics();
+    private Map<String, Object> toMap(ResourceModelMetaData metaData, ResourceModelStatistics.Snapshot statistics) {
         Map<String, Object> data = new LinkedHashMap<>();
 
         int lazyFields = 0, greedyFields = 0;
@@ -187,6 +361,9 @@ public class ModelStatisticsConsolePlugin extends AbstractWebConsolePlugin {
         data.put("maximumMappingDuration", statistics.getMaximumMappingDuration());
         data.put("minimumMappingDuration", statistics.getMinimumMappingDuration());
         data.put("mappingDurationMedian", statistics.getMappingDurationMedian());
+        data.put("mappingDurationP90", statistics.getMappingDurationPercentile(90));
+        data.put("mappingDurationP99", statistics.getMappingDurationPercentile(99));
+        data.put("mappingDurationP999", statistics.getMappingDurationPercentile(99.9));
         data.put("cacheHits", statistics.getCacheHits());
         return data;
     }
@@ -213,7 +390,7 @@ public class ModelStatisticsConsolePlugin extends AbstractWebConsolePlugin {
         String nameOfModelWithHighestAverageMappingDuration = "";
         String nameOfModelWithGreatestNumberOfFields = "";
         for (ResourceModelMetaData metaData : this.modelMetaDataRegistrar.get()) {
-            ResourceModelStatistics statistics = metaData.getStatistics();
+            ResourceModelStatistics.Snapshot statistics = metaData.getStatistics().snapshot();
             if (statistics.getInstantiations() != 0) {
                 ++numberOfModelsWithInstantiations;
                 double averageMappingDuration = statistics.getAverageMappingDuration();
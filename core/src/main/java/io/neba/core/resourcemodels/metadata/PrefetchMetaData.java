@@ -0,0 +1,71 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.metadata;
+
+import io.neba.api.annotations.Prefetch;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+
+/**
+ * Retains the {@link Prefetch} configuration of a {@link io.neba.api.annotations.ResourceModel}.
+ *
+ * @author Olaf Otto
+ * @see ResourceModelMetaData#getPrefetch()
+ */
+public class PrefetchMetaData {
+    private final int depth;
+    private final Set<String> names;
+
+    public PrefetchMetaData(Prefetch prefetch, Class<?> modelType) {
+        if (prefetch == null) {
+            throw new IllegalArgumentException("Constructor parameter prefetch must not be null.");
+        }
+        if (modelType == null) {
+            throw new IllegalArgumentException("Constructor parameter modelType must not be null.");
+        }
+        if (prefetch.depth() < 1) {
+            throw new IllegalArgumentException("The @" + Prefetch.class.getSimpleName() + " depth of " + modelType.getName() +
+                    " must be greater than zero, but is " + prefetch.depth() + ".");
+        }
+        this.depth = prefetch.depth();
+        this.names = new HashSet<>(asList(prefetch.names()));
+    }
+
+    /**
+     * @return the number of levels below the mapped resource to prefetch, always greater than zero.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return whether all resources within the {@link #getDepth() depth} are prefetched, i.e. the prefetch is not restricted to specific names.
+     */
+    public boolean includesAll() {
+        return this.names.isEmpty();
+    }
+
+    /**
+     * @param resourceName must not be <code>null</code>.
+     * @return whether the resource with the given name is to be prefetched.
+     */
+    public boolean includes(String resourceName) {
+        return this.names.isEmpty() || this.names.contains(resourceName);
+    }
+}
@@ -0,0 +1,165 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+ */
+
+package io.neba.core.resourcemodels.metadata;
+
+import org.apache.sling.api.resource.ValueMap;
+
+import javax.annotation.CheckForNull;
+import java.lang.reflect.Field;
+
+/**
+ * Type-specialized property readers and field writers for primitive {@link io.neba.api.annotations.ResourceModel} fields.
+ * Writing a primitive via e.g. {@link Field#setInt(Object, int)} does not require the generic boxed value conversion
+ * of {@link Field#set(Object, Object)}. In addition, the raw property value is used if it already has the
+ * boxed type of the field (e.g. a JCR <code>long</code> property mapped to a <code>long</code> field), which
+ * avoids the allocation of a converted wrapper by the {@link ValueMap}.
+ *
+ * @author Olaf Otto
+ */
+public enum PrimitiveFieldType {
+    BOOLEAN(Boolean.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setBoolean(model, (Boolean) value);
+        }
+    },
+    BYTE(Byte.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setByte(model, (Byte) value);
+        }
+    },
+    CHAR(Character.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setChar(model, (Character) value);
+        }
+    },
+    SHORT(Short.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setShort(model, (Short) value);
+        }
+    },
+    INT(Integer.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setInt(model, (Integer) value);
+        }
+    },
+    LONG(Long.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setLong(model, (Long) value);
+        }
+    },
+    FLOAT(Float.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setFloat(model, (Float) value);
+        }
+    },
+    DOUBLE(Double.class) {
+        @Override
+        void set(Field field, Object model, Object value) throws IllegalAccessException {
+            field.setDouble(model, (Double) value);
+        }
+    };
+
+    private final Class<?> boxedType;
+
+    PrimitiveFieldType(Class<?> boxedType) {
+        this.boxedType = boxedType;
+    }
+
+    /**
+     * @param type can be <code>null</code>.
+     * @return the primitive field type corresponding to the given type, or <code>null</code> if
+     * the type is not a primitive type.
+     */
+    @CheckForNull
+    public static PrimitiveFieldType of(Class<?> type) {
+        if (type == null || !type.isPrimitive()) {
+            return null;
+        }
+        if (type == boolean.class) {
+            return BOOLEAN;
+        }
+        if (type == byte.class) {
+            return BYTE;
+        }
+        if (type == char.class) {
+            return CHAR;
+        }
+        if (type == short.class) {
+            return SHORT;
+        }
+        if (type == int.class) {
+            return INT;
+        }
+        if (type == long.class) {
+            return LONG;
+        }
+        if (type == float.class) {
+            return FLOAT;
+        }
+        if (type == double.class) {
+            return DOUBLE;
+        }
+        // void.class
+        return null;
+    }
+
+    /**
+     * Reads the property with the given name and writes it to the given primitive field of the model.
+     * The field is left untouched if the property does not exist or cannot be converted to the field type.
+     *
+     * @param properties must not be <code>null</code>.
+     * @param name       must not be <code>null</code>.
+     * @param field      must not be <code>null</code>. Must be {@link Field#setAccessible(boolean) accessible}.
+     * @param model      must not be <code>null</code>.
+     * @return whether the field was written.
+     */
+    public boolean map(ValueMap properties, String name, Field field, Object model) {
+        Object value = properties.get(name);
+        if (value == null) {
+            return false;
+        }
+        if (value.getClass() != this.boxedType) {
+            // Let the value map perform the conversion, e.g. from a String or Long property value.
+            value = properties.get(name, this.boxedType);
+            if (value == null) {
+                return false;
+            }
+        }
+        try {
+            set(field, model, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        return true;
+    }
+
+    /**
+     * @return the boxed representation of this primitive type, e.g. {@link Integer} for <code>int</code>.
+     */
+    public Class<?> getBoxedType() {
+        return boxedType;
+    }
+
+    abstract void set(Field field, Object model, Object value) throws IllegalAccessException;
+}
@@ -16,9 +16,11 @@
 
 package io.neba.core.resourcemodels.metadata;
 
+import io.neba.api.annotations.Prefetch;
 import io.neba.api.annotations.Unmapped;
 import io.neba.core.util.Annotations;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Resource;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
@@ -124,6 +126,7 @@ public class ResourceModelMetaData {
     private final MappedFieldMetaData[] mappableFields;
     private final MethodMetaData[] afterMappingMethods;
     private final String typeName;
+    private final PrefetchMetaData prefetch;
 
     private final ResourceModelStatistics statistics = new ResourceModelStatistics();
 
@@ -137,6 +140,9 @@ public class ResourceModelMetaData {
         this.mappableFields = fc.getMappableFields();
         this.afterMappingMethods = mc.getAfterMappingMethods();
         this.typeName = modelType.getName();
+
+        Prefetch prefetch = annotations(modelType).get(Prefetch.class);
+        this.prefetch = prefetch == null ? null : new PrefetchMetaData(prefetch, modelType);
     }
 
 
@@ -152,6 +158,14 @@ public class ResourceModelMetaData {
         return typeName;
     }
 
+    /**
+     * @return the prefetch configuration of the model, or <code>null</code> if the model's subtree is not to be prefetched.
+     */
+    @CheckForNull
+    public PrefetchMetaData getPrefetch() {
+        return prefetch;
+    }
+
     public ResourceModelStatistics getStatistics() {
         return statistics;
     }
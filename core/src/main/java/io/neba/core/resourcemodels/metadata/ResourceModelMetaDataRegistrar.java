@@ -95,8 +95,9 @@ public class ResourceModelMetaDataRegistrar {
      * by the provided model source.
      *
      * @param modelSource must not be <code>null</code>.
+     * @return the created metadata, never <code>null</code>.
      */
-    public synchronized void register(OsgiModelSource<?> modelSource) {
+    public synchronized ResourceModelMetaData register(OsgiModelSource<?> modelSource) {
         if (modelSource == null) {
             throw new IllegalArgumentException("method parameter modelSource must not be null");
         }
@@ -109,6 +110,8 @@ public class ResourceModelMetaDataRegistrar {
         newCache.put(getUserClass(modelType), holder);
 
         this.cache = newCache;
+
+        return modelMetaData;
     }
 
     /**
@@ -13,69 +13,247 @@
   See the License for the specific language governing permissions and
   limitations under the License.
 */
-
 package io.neba.core.resourcemodels.metadata;
 
-import static java.lang.Math.max;
-import static java.lang.System.currentTimeMillis;
-import static java.util.Arrays.copyOf;
-import static java.util.Arrays.fill;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static java.lang.Math.toIntExact;
 
 /**
  * Represents statistical data regarding the usage of a {@link io.neba.api.annotations.ResourceModel}.
- * This implementation is intentionally not thread-safe, i.e. the calculations will loose accuracy in case the
- * statics are modified concurrently. This is intended: We can give up some precision in favor of a massive performance gain,
- * as this model is accessed hundreds of times per request, e.g. during page rendering.<br />
- * However, it is expected that the statistics still provide an accurate picture and gain
- * precision as time passes and data accumulates.
+ * The statistics are updated by all request threads, hundreds of times per request, e.g. during page rendering.
+ * All counters are thus {@link LongAdder striped}: concurrent updates neither lose counts nor contend
+ * for the same memory location. The counters are only summed up when a {@link #snapshot() snapshot} is taken,
+ * which is comparatively rare (e.g. when the statistics are viewed in the console).
+ * <br />
+ * Mapping durations are recorded with nanosecond precision in a {@link LatencyHistogram}.
+ * <br />
+ * In addition to the totals since the last {@link #reset() reset}, the statistics are recorded per
+ * {@link #INTERVAL_IN_MS one-minute interval} in a ring buffer covering the last {@link #MAXIMUM_WINDOW} minutes.
+ * This allows {@link #snapshot(int) evaluating} rolling windows, e.g. the last five minutes, and provides
+ * a {@link #timeline() timeline} of the recent statistics.
+ * <br />
+ * All counters and the start of the statistics are held by a single state, which a {@link #reset() reset} replaces as a whole.
+ * A snapshot thus always reflects the counts of exactly one state since its start and never mixes values from before and after a reset.
+ * <br />
+ * As there are statistics for every resource model, the counters are only allocated once data is recorded, and an
+ * interval is only allocated once data is recorded within it. Counting methods accepting the current time allow
+ * sharing a single clock read among all counts of a mapping.
  *
  * @author Olaf Otto
  */
 public class ResourceModelStatistics {
-    private final long since = currentTimeMillis();
-    // This will consume approx 4 Byte * 16 + c
-    // (= 68 Byte + constant management overhead for the array) of main memory.
-    // The mapping duration intervals are of the form [0, 1), [1, 2), [2, 4), [4, 8),
-    // i.e. use a base-2 exponential to build frequency groups up to [2^(i - 1), 2^i) where i
-    // is the size of the frequency table.
-    private final int[] mappingDurationFrequencies = new int[16];
-    private final int[] indexBoundaries = new int[mappingDurationFrequencies.length];
-
-    private long instantiations;
-    private long mappings;
-    private long cacheHits;
+    private static final double NANOSECONDS_PER_MILLISECOND = 1000_000D;
+    static final long INTERVAL_IN_MS = 60 * 1000L;
+    /**
+     * The longest supported rolling window in number of intervals, i.e. minutes.
+     */
+    static final int MAXIMUM_WINDOW = 15;
+
+    /**
+     * @author Olaf Otto
+     */
+    private static class Counters {
+        private final LongAdder instantiations = new LongAdder();
+        private final LongAdder mappings = new LongAdder();
+        private final LongAdder cacheHits = new LongAdder();
+        private final LatencyHistogram mappingDurations = new LatencyHistogram();
+    }
+
+    /**
+     * The counters of a single interval.
+     *
+     * @author Olaf Otto
+     */
+    private static class Interval {
+        private final long number;
+        private final Counters counters = new Counters();
+
+        private Interval(long number) {
+            this.number = number;
+        }
+    }
+
+    /**
+     * Holds the start of the statistics and all counters. {@link #reset() Resetting} the statistics replaces the state as a whole,
+     * thus a {@link #snapshot() snapshot} never contains values from both before and after a reset, and its start always
+     * matches its counts.
+     *
+     * @author Olaf Otto
+     */
+    private static class State {
+        private final long since;
+        /**
+         * <code>null</code> until data is recorded.
+         */
+        private final Counters total;
+        private final AtomicReferenceArray<Interval> intervals;
+
+        private State(long since, Counters total, AtomicReferenceArray<Interval> intervals) {
+            this.since = since;
+            this.total = total;
+            this.intervals = intervals;
+        }
+
+        private static State empty(long since) {
+            return new State(since, null, null);
+        }
+
+        /**
+         * @return a state with the same start as this state, with allocated counters.
+         */
+        private State recording() {
+            // One more than the maximum window, as the current interval is not yet complete.
+            return new State(this.since, new Counters(), new AtomicReferenceArray<>(MAXIMUM_WINDOW + 1));
+        }
+
+        private boolean isRecording() {
+            return this.total != null;
+        }
+
+        private Counters intervalAt(long timeInMs) {
+            final long number = timeInMs / INTERVAL_IN_MS;
+            final int index = floorMod(number, this.intervals.length());
+
+            Interval interval = this.intervals.get(index);
+            if (interval == null || interval.number < number) {
+                // The interval is either unused or outdated, i.e. the ring buffer has moved on.
+                Interval next = new Interval(number);
+                interval = this.intervals.compareAndSet(index, interval, next) ? next : this.intervals.get(index);
+            }
+            return interval.counters;
+        }
+
+        private Counters completedInterval(long number) {
+            if (!isRecording()) {
+                return null;
+            }
+            Interval interval = this.intervals.get(floorMod(number, this.intervals.length()));
+            return interval == null || interval.number != number ? null : interval.counters;
+        }
+    }
+
+    private final LongSupplier clock;
+    /**
+     * Never <code>null</code>. Only replaced while holding the lock of this instance.
+     */
+    private volatile State state;
 
     ResourceModelStatistics() {
-        reset();
-        int boundary = 1;
-        for (int i = 0; i < indexBoundaries.length; ++i) {
-            indexBoundaries[i] = boundary;
-            boundary *= 2;
+        this(System::currentTimeMillis);
+    }
+
+    /**
+     * @param clock must not be <code>null</code>. Provides the current time in ms.
+     */
+    ResourceModelStatistics(LongSupplier clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Constructor parameter clock must not be null.");
         }
+        this.clock = clock;
+        this.state = State.empty(clock.getAsLong());
     }
 
     /**
-     * Clears all collected statistical data.
+     * Clears all collected statistical data, starting new statistics at the current time. Counts recorded concurrently to the reset
+     * may either be attributed to the previous or the new statistics.
      */
-    void reset() {
-        fill(this.mappingDurationFrequencies, 0);
-        this.instantiations = 0;
-        this.mappings = 0;
-        this.cacheHits = 0;
+    synchronized void reset() {
+        this.state = State.empty(this.clock.getAsLong());
+    }
+
+    private State state() {
+        State state = this.state;
+        if (!state.isRecording()) {
+            synchronized (this) {
+                state = this.state;
+                if (!state.isRecording()) {
+                    state = state.recording();
+                    this.state = state;
+                }
+            }
+        }
+        return state;
     }
 
     /**
-     * @return The age of these statistics in terms of {@link System#currentTimeMillis()}.
+     * @return a copy of the statistics since the last reset. The start and all counts are taken from the same state, i.e.
+     * never mix values from before and after a reset. Counts recorded concurrently to this invocation may however be contained
+     * in some values but not yet in others, e.g. in the number of instantiations but not yet in the mapping durations,
+     * as the counters are not locked against the request threads updating them. Never <code>null</code>.
      */
-    long getSince() {
-        return since;
+    public Snapshot snapshot() {
+        final State state = this.state;
+        if (!state.isRecording()) {
+            return new Snapshot(state.since, 0, 0, 0, LatencyHistogram.Snapshot.empty());
+        }
+        Counters total = state.total;
+        return new Snapshot(
+                state.since,
+                total.instantiations.sum(),
+                total.mappings.sum(),
+                total.cacheHits.sum(),
+                total.mappingDurations.snapshot());
     }
 
     /**
-     * @return The number of times this resource model instantiated.
+     * @param windowInMinutes the number of recent, completed one-minute intervals to evaluate. Must be within [1, {@link #MAXIMUM_WINDOW}].
+     * @return a copy of the statistics of the given rolling window. As for {@link #snapshot()}, the values are
+     * summed up independently of each other. Never <code>null</code>.
      */
-    long getInstantiations() {
-        return instantiations;
+    public Snapshot snapshot(int windowInMinutes) {
+        if (windowInMinutes < 1 || windowInMinutes > MAXIMUM_WINDOW) {
+            throw new IllegalArgumentException("Method argument windowInMinutes must be within [1, " + MAXIMUM_WINDOW + "], but is " + windowInMinutes + ".");
+        }
+
+        final State state = this.state;
+        final long currentInterval = this.clock.getAsLong() / INTERVAL_IN_MS;
+        final long firstInterval = currentInterval - windowInMinutes;
+
+        if (!state.isRecording()) {
+            return new Snapshot(firstInterval * INTERVAL_IN_MS, 0, 0, 0, LatencyHistogram.Snapshot.empty());
+        }
+
+        long instantiations = 0, mappings = 0, cacheHits = 0;
+        LatencyHistogram.Snapshot mappingDurations = LatencyHistogram.Snapshot.empty();
+        for (long number = firstInterval; number < currentInterval; ++number) {
+            Counters counters = state.completedInterval(number);
+            if (counters != null) {
+                instantiations += counters.instantiations.sum();
+                mappings += counters.mappings.sum();
+                cacheHits += counters.cacheHits.sum();
+                mappingDurations = mappingDurations.merge(counters.mappingDurations.snapshot());
+            }
+        }
+
+        return new Snapshot(firstInterval * INTERVAL_IN_MS, instantiations, mappings, cacheHits, mappingDurations);
+    }
+
+    /**
+     * @return the statistics of each of the last {@link #MAXIMUM_WINDOW} completed one-minute intervals, oldest first.
+     * Intervals without any recorded data are contained as empty snapshots. Never <code>null</code>.
+     */
+    List<Snapshot> timeline() {
+        final State state = this.state;
+        final long currentInterval = this.clock.getAsLong() / INTERVAL_IN_MS;
+
+        List<Snapshot> timeline = new ArrayList<>(MAXIMUM_WINDOW);
+        for (long number = currentInterval - MAXIMUM_WINDOW; number < currentInterval; ++number) {
+            Counters counters = state.completedInterval(number);
+            timeline.add(counters == null ?
+                    new Snapshot(number * INTERVAL_IN_MS, 0, 0, 0, LatencyHistogram.Snapshot.empty()) :
+                    new Snapshot(
+                            number * INTERVAL_IN_MS,
+                            counters.instantiations.sum(),
+                            counters.mappings.sum(),
+                            counters.cacheHits.sum(),
+                            counters.mappingDurations.snapshot()));
+        }
+        return timeline;
     }
 
     /**
@@ -84,7 +262,19 @@ public class ResourceModelStatistics {
      * @return this instance.
      */
     public ResourceModelStatistics countInstantiation() {
-        ++this.instantiations;
+        return countInstantiation(this.clock.getAsLong());
+    }
+
+    /**
+     * Increments the number of times the resource model was instantiated.
+     *
+     * @param timeInMs the current time in ms, e.g. read once per mapping.
+     * @return this instance.
+     */
+    public ResourceModelStatistics countInstantiation(long timeInMs) {
+        final State state = state();
+        state.total.instantiations.increment();
+        state.intervalAt(timeInMs).instantiations.increment();
         return this;
     }
 
@@ -94,16 +284,20 @@ public class ResourceModelStatistics {
      * @return this instance.
      */
     public ResourceModelStatistics countSubsequentMapping() {
-        ++this.mappings;
-        return this;
+        return countSubsequentMapping(this.clock.getAsLong());
     }
 
     /**
-     * @return The number of types the {@link io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache} contained an instance
-     * of the resource model.
+     * Increments the number of subsequent mappings.
+     *
+     * @param timeInMs the current time in ms, e.g. read once per mapping.
+     * @return this instance.
      */
-    long getCacheHits() {
-        return cacheHits;
+    public ResourceModelStatistics countSubsequentMapping(long timeInMs) {
+        final State state = state();
+        state.total.mappings.increment();
+        state.intervalAt(timeInMs).mappings.increment();
+        return this;
     }
 
     /**
@@ -112,184 +306,160 @@ public class ResourceModelStatistics {
      * @return this instance.
      */
     public ResourceModelStatistics countCacheHit() {
-        ++this.cacheHits;
+        final State state = state();
+        state.total.cacheHits.increment();
+        state.intervalAt(this.clock.getAsLong()).cacheHits.increment();
         return this;
     }
 
     /**
-     * @return the total number of recorded subsequent resource-to-resource model mappings
-     * that occurred during the mapping of this model.
+     * Adds the mapping with the duration to the statistics.
+     *
+     * @param durationInNs the mapping duration in nanoseconds, e.g. measured using {@link System#nanoTime()}.
+     * @return this instance.
      */
-    long getNumberOfMappings() {
-        return this.mappings;
+    public ResourceModelStatistics countMappingDuration(long durationInNs) {
+        return countMappingDuration(durationInNs, this.clock.getAsLong());
     }
 
     /**
      * Adds the mapping with the duration to the statistics.
      *
+     * @param durationInNs the mapping duration in nanoseconds, e.g. measured using {@link System#nanoTime()}.
+     * @param timeInMs     the current time in ms, e.g. read once per mapping.
      * @return this instance.
      */
-    public ResourceModelStatistics countMappingDuration(int durationInMs) {
-        // The right-hand interval boundaries are pre-calculated. We start at the smallest (1) of the
-        // interval [0, 1). Thus, when our value is less than the boundary, we know it is in the current interval (i),
-        // as the right-hand boundary is exclusive.
-        for (int i = 0; i < this.indexBoundaries.length; ++i) {
-            if (durationInMs < this.indexBoundaries[i]) {
-                ++this.mappingDurationFrequencies[i];
-                return this;
-            }
-        }
-
-        // The mapping duration time exceeds the frequency table boundaries.
-        // Fallback: count it as the longest possible duration
-        ++this.mappingDurationFrequencies[this.mappingDurationFrequencies.length - 1];
+    public ResourceModelStatistics countMappingDuration(long durationInNs, long timeInMs) {
+        final State state = state();
+        state.total.mappingDurations.record(durationInNs);
+        state.intervalAt(timeInMs).mappingDurations.record(durationInNs);
         return this;
     }
 
-    /**
-     * @return the average mapping duration of all {@link #countMappingDuration(int) counted mappings} in ms.
-     */
-    double getAverageMappingDuration() {
-        return getTotalMappingDuration() / (double) max(getNumberOfMappingDurationSamples(), 1);
+    private static int floorMod(long number, int modulus) {
+        return toIntExact(Math.floorMod(number, (long) modulus));
     }
 
     /**
-     * @return the sum of all recorded mapping durations in ms,
-     * i.e. summed up averages of the mapping duration frequency table interval means.
+     * An immutable copy of the {@link ResourceModelStatistics}, providing
+     * the statistical evaluation of the recorded data. All durations are provided in milliseconds.
+     *
+     * @author Olaf Otto
      */
-    double getTotalMappingDuration() {
-        double totalDuration = 0L;
-        double leftBoundary = 0;
-        for (int i = 0; i < this.mappingDurationFrequencies.length; ++i) {
-            double rightBoundary = this.indexBoundaries[i];
-            double intervalMean = (leftBoundary + rightBoundary) / 2;
-            totalDuration += intervalMean * this.mappingDurationFrequencies[i];
-            leftBoundary = this.indexBoundaries[i];
+    public static class Snapshot {
+        private final long since;
+        private final long instantiations;
+        private final long mappings;
+        private final long cacheHits;
+        private final LatencyHistogram.Snapshot mappingDurations;
+
+        Snapshot(long since, long instantiations, long mappings, long cacheHits, LatencyHistogram.Snapshot mappingDurations) {
+            this.since = since;
+            this.instantiations = instantiations;
+            this.mappings = mappings;
+            this.cacheHits = cacheHits;
+            this.mappingDurations = mappingDurations;
         }
-        return totalDuration;
-    }
 
-    /**
-     * @return the median of the mapping durations based on a frequency table.
-     */
-    double getMappingDurationMedian() {
-        double median;
-
-        long numberOfSamples = getNumberOfMappingDurationSamples();
+        /**
+         * @return The start of these statistics in terms of {@link System#currentTimeMillis()}.
+         */
+        public long getSince() {
+            return since;
+        }
 
-        if (numberOfSamples == 0) {
-            return 0;
+        /**
+         * @return The number of times this resource model instantiated.
+         */
+        public long getInstantiations() {
+            return instantiations;
         }
 
-        if (numberOfSamples % 2 == 0) {
-            // Even number of occurrences: The median is the average of the two center most elements (around the 50% mark)
-            long sample = (numberOfSamples / 2L);
-            // Obtain mapping depth x1, x2 at the center
-            double[] depths = mappingDurationOfSampleAndSuccessor(sample);
-            median = (depths[0] + depths[1]) / 2D;
-        } else {
-            // Odd number of occurrences: The median is defined by the sample representing the 50% mark.
-            long sample = (numberOfSamples + 1) / 2L;
-            return mappingDurationOf(sample);
+        /**
+         * @return The number of types the {@link io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache} contained an instance
+         * of the resource model.
+         */
+        public long getCacheHits() {
+            return cacheHits;
         }
-        return median;
-    }
 
-    /**
-     * @return The maximum {@link #countMappingDuration(int) recorded mapping duration} of this resource model in ms.
-     */
-    double getMaximumMappingDuration() {
-        for (int i = this.mappingDurationFrequencies.length - 1; i >= 0; --i) {
-            if (this.mappingDurationFrequencies[i] != 0) {
-                double leftHandBoundary = i == 0 ? 0 : this.indexBoundaries[i - 1];
-                double rightHandBoundary = this.indexBoundaries[i];
-                return (leftHandBoundary + rightHandBoundary) / 2D;
-            }
+        /**
+         * @return the total number of recorded subsequent resource-to-resource model mappings
+         * that occurred during the mapping of this model.
+         */
+        public long getNumberOfMappings() {
+            return this.mappings;
         }
-        return 0;
-    }
 
-    /**
-     * @return The minimum {@link #countMappingDuration(int) recorded mapping duration} of this resource model in ms.
-     */
-    double getMinimumMappingDuration() {
-        for (int i = 0; i < this.mappingDurationFrequencies.length; ++i) {
-            if (this.mappingDurationFrequencies[i] != 0) {
-                double leftHandBoundary = i == 0 ? 0 : this.indexBoundaries[i - 1];
-                double rightHandBoundary = this.indexBoundaries[i];
-                return (leftHandBoundary + rightHandBoundary) / 2D;
-            }
+        /**
+         * @return the average mapping duration of all {@link ResourceModelStatistics#countMappingDuration(long) counted mappings} in ms.
+         */
+        public double getAverageMappingDuration() {
+            return toMs(this.mappingDurations.getAverageDuration());
         }
-        return 0;
-    }
 
-    int[] getMappingDurationFrequencies() {
-        return copyOf(this.mappingDurationFrequencies, this.mappingDurationFrequencies.length);
-    }
+        /**
+         * @return the sum of all recorded mapping durations in ms.
+         */
+        public double getTotalMappingDuration() {
+            return toMs(this.mappingDurations.getTotalDuration());
+        }
 
-    int[] getMappingDurationIntervalBoundaries() {
-        return copyOf(this.indexBoundaries, this.indexBoundaries.length);
-    }
+        /**
+         * @return the median of the mapping durations in ms.
+         */
+        public double getMappingDurationMedian() {
+            return getMappingDurationPercentile(50);
+        }
 
-    /**
-     * @return the summed up mapping duration counts, i.e. all frequencies (number of times) any mapping time was recorded.
-     */
-    private long getNumberOfMappingDurationSamples() {
-        long sum = 0L;
-        for (int samples : this.mappingDurationFrequencies) {
-            sum += samples;
+        /**
+         * @param percentile a value between 0 and 100, e.g. 99.9.
+         * @return the mapping duration in ms which the given percentage of all mappings did not exceed.
+         */
+        public double getMappingDurationPercentile(double percentile) {
+            return toMs(this.mappingDurations.getPercentile(percentile));
         }
-        return sum;
-    }
 
-    /**
-     * @return the mapping duration corresponding to the nth measured duration.
-     * Example: if the duration was measured seven times, get the position of the third sample from the
-     * ordered frequency table; it represents the duration which has 50% of all mapping durations below
-     * and 50% of all mapping durations above: <code>[0 1 2 (3) 4 5 5]</code>.
-     */
-    private double mappingDurationOf(long nthSample) {
-        int index = 0;
-        for (long sum = 0; sum < nthSample; ++index) {
-            sum += this.mappingDurationFrequencies[index];
+        /**
+         * @return The maximum {@link ResourceModelStatistics#countMappingDuration(long) recorded mapping duration} of this resource model in ms.
+         */
+        public double getMaximumMappingDuration() {
+            return toMs(this.mappingDurations.getMaximumDuration());
         }
-        // subtract one: the for-loop always post-increments index.
-        double leftBoundary = index < 2 ? 0 : this.indexBoundaries[index - 2];
-        double rightBoundary = this.indexBoundaries[index - 1];
-        return (leftBoundary + rightBoundary) / 2D;
-    }
 
-    /**
-     * @see #mappingDurationOf(long). Also returns the duration of the sample succeeding the given sample.
-     */
-    private double[] mappingDurationOfSampleAndSuccessor(long nthSample) {
-        int x1 = -1, x2 = -1;
+        /**
+         * @return The minimum {@link ResourceModelStatistics#countMappingDuration(long) recorded mapping duration} of this resource model in ms.
+         */
+        public double getMinimumMappingDuration() {
+            return toMs(this.mappingDurations.getMinimumDuration());
+        }
 
-        int index = 0;
-        long samples = 0;
+        /**
+         * @return the histogram of the recorded mapping durations (in ns). Never <code>null</code>.
+         */
+        public LatencyHistogram.Snapshot getMappingDurations() {
+            return this.mappingDurations;
+        }
 
-        do {
-            samples += this.mappingDurationFrequencies[index];
-            if (x1 == -1 && samples >= nthSample) {
-                x1 = index;
+        /**
+         * @param other must not be <code>null</code>.
+         * @return a new snapshot containing the statistics of this and the other snapshot, e.g. to aggregate the statistics
+         * of several resource models. The result starts at the earliest start of both snapshots.
+         */
+        public Snapshot merge(Snapshot other) {
+            if (other == null) {
+                throw new IllegalArgumentException("Method argument other must not be null.");
             }
-            if (samples >= nthSample + 1) {
-                x2 = index;
-                break;
-            }
-            ++index;
-        } while (index < this.mappingDurationFrequencies.length);
-
-        // [n1, n2) -> mean is (n1 + n2) / 2
-        double leftHandBoundaryX1 = x1 == 0 ? 0 : this.indexBoundaries[x1 - 1];
-        double rightHandBoundaryX1 = this.indexBoundaries[x1];
-        double leftHandBoundaryX2 = x2 == 0 ? 0 : this.indexBoundaries[x2 - 1];
-        double rightHandBoundaryX2 = this.indexBoundaries[x2];
-
-        // The boundaries are doubles as the intervals [0, 1) and [1, 2) have fraction means (0.5, 1.5)
-        double durationX1 = (leftHandBoundaryX1 + rightHandBoundaryX1) / 2;
-        double durationX2 = (leftHandBoundaryX2 + rightHandBoundaryX2) / 2;
+            return new Snapshot(
+                    Math.min(this.since, other.since),
+                    this.instantiations + other.instantiations,
+                    this.mappings + other.mappings,
+                    this.cacheHits + other.cacheHits,
+                    this.mappingDurations.merge(other.mappingDurations));
+        }
 
-        return new double[]{durationX1, durationX2};
+        private static double toMs(double durationInNs) {
+            return durationInNs / NANOSECONDS_PER_MILLISECOND;
+        }
     }
 }
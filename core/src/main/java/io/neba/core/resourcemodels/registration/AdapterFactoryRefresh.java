@@ -0,0 +1,52 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.registration;
+
+/**
+ * A re-registration of the {@link io.neba.core.resourcemodels.adaptation.ResourceToModelAdapter resource to model adapter factory},
+ * as recorded by the {@link StartupTimeline}.
+ *
+ * @author Olaf Otto
+ */
+public class AdapterFactoryRefresh {
+    private final long occurredAt;
+    private final long durationInNs;
+    private final int numberOfAdapterTypes;
+
+    AdapterFactoryRefresh(long occurredAt, long durationInNs, int numberOfAdapterTypes) {
+        this.occurredAt = occurredAt;
+        this.durationInNs = durationInNs;
+        this.numberOfAdapterTypes = numberOfAdapterTypes;
+    }
+
+    /**
+     * @return the start of the re-registration in terms of {@link System#currentTimeMillis()}.
+     */
+    public long getOccurredAt() {
+        return occurredAt;
+    }
+
+    public long getDurationInNs() {
+        return durationInNs;
+    }
+
+    /**
+     * @return the number of types the adapter factory adapts to after the re-registration.
+     */
+    public int getNumberOfAdapterTypes() {
+        return numberOfAdapterTypes;
+    }
+}
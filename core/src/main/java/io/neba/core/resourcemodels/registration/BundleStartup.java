@@ -0,0 +1,154 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.registration;
+
+import javax.annotation.Nonnull;
+
+/**
+ * The startup of the resource models of a single bundle, as recorded by the {@link StartupTimeline}.
+ * Instances are immutable.
+ *
+ * @author Olaf Otto
+ */
+public class BundleStartup {
+    private final long bundleId;
+    private final String bundleName;
+    private final long scanStartedAt;
+    private final long scanningTimeInNs;
+    private final int numberOfLoadedClasses;
+    private final int numberOfModelsFound;
+    private final long metaDataTimeInNs;
+    private final long proxyGenerationTimeInNs;
+    private final long registrationTimeInNs;
+    private final int numberOfRegisteredModels;
+    private final long registeredAt;
+
+    BundleStartup(long bundleId, @Nonnull String bundleName) {
+        this(bundleId, bundleName, 0, 0, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    private BundleStartup(long bundleId,
+                          @Nonnull String bundleName,
+                          long scanStartedAt,
+                          long scanningTimeInNs,
+                          int numberOfLoadedClasses,
+                          int numberOfModelsFound,
+                          long metaDataTimeInNs,
+                          long proxyGenerationTimeInNs,
+                          long registrationTimeInNs,
+                          int numberOfRegisteredModels,
+                          long registeredAt) {
+        this.bundleId = bundleId;
+        this.bundleName = bundleName;
+        this.scanStartedAt = scanStartedAt;
+        this.scanningTimeInNs = scanningTimeInNs;
+        this.numberOfLoadedClasses = numberOfLoadedClasses;
+        this.numberOfModelsFound = numberOfModelsFound;
+        this.metaDataTimeInNs = metaDataTimeInNs;
+        this.proxyGenerationTimeInNs = proxyGenerationTimeInNs;
+        this.registrationTimeInNs = registrationTimeInNs;
+        this.numberOfRegisteredModels = numberOfRegisteredModels;
+        this.registeredAt = registeredAt;
+    }
+
+    @Nonnull
+    BundleStartup withScan(long scanStartedAt, long scanningTimeInNs, int numberOfLoadedClasses, int numberOfModelsFound) {
+        return new BundleStartup(this.bundleId, this.bundleName, scanStartedAt, scanningTimeInNs, numberOfLoadedClasses, numberOfModelsFound,
+                0, 0, 0, 0, 0);
+    }
+
+    @Nonnull
+    BundleStartup withRegistration(long metaDataTimeInNs, long proxyGenerationTimeInNs, long registrationTimeInNs, int numberOfRegisteredModels, long registeredAt) {
+        return new BundleStartup(this.bundleId, this.bundleName, this.scanStartedAt, this.scanningTimeInNs, this.numberOfLoadedClasses, this.numberOfModelsFound,
+                metaDataTimeInNs, proxyGenerationTimeInNs, registrationTimeInNs, numberOfRegisteredModels, registeredAt);
+    }
+
+    public long getBundleId() {
+        return bundleId;
+    }
+
+    /**
+     * @return the symbolic name and version of the bundle.
+     */
+    @Nonnull
+    public String getBundleName() {
+        return bundleName;
+    }
+
+    /**
+     * @return the start of the package scan in terms of {@link System#currentTimeMillis()}, or 0 if the bundle's models
+     * were not discovered by scanning the bundle's <code>Neba-Packages</code>, e.g. when they are provided by a custom
+     * {@link io.neba.api.spi.ResourceModelFactory}.
+     */
+    public long getScanStartedAt() {
+        return scanStartedAt;
+    }
+
+    /**
+     * @return the time spent finding and loading the model classes of the bundle.
+     */
+    public long getScanningTimeInNs() {
+        return scanningTimeInNs;
+    }
+
+    /**
+     * @return the number of classes loaded while looking for models.
+     */
+    public int getNumberOfLoadedClasses() {
+        return numberOfLoadedClasses;
+    }
+
+    /**
+     * @return the number of models found while scanning.
+     */
+    public int getNumberOfModelsFound() {
+        return numberOfModelsFound;
+    }
+
+    /**
+     * @return the time spent creating the {@link io.neba.core.resourcemodels.metadata.ResourceModelMetaData} of the
+     * bundle's models, excluding the {@link #getProxyGenerationTimeInNs() proxy generation}.
+     */
+    public long getMetaDataTimeInNs() {
+        return metaDataTimeInNs;
+    }
+
+    /**
+     * @return the time spent generating the lazy-loading proxy classes of the bundle's models.
+     */
+    public long getProxyGenerationTimeInNs() {
+        return proxyGenerationTimeInNs;
+    }
+
+    /**
+     * @return the time spent adding the bundle's models to the {@link ModelRegistry}.
+     */
+    public long getRegistrationTimeInNs() {
+        return registrationTimeInNs;
+    }
+
+    public int getNumberOfRegisteredModels() {
+        return numberOfRegisteredModels;
+    }
+
+    /**
+     * @return the time at which the bundle's models were registered in terms of {@link System#currentTimeMillis()},
+     * or 0 if they are not yet registered.
+     */
+    public long getRegisteredAt() {
+        return registeredAt;
+    }
+}
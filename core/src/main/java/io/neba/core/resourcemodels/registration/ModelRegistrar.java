@@ -19,6 +19,8 @@ package io.neba.core.resourcemodels.registration;
 import io.neba.api.spi.ResourceModelFactory;
 import io.neba.api.spi.ResourceModelFactory.ModelDefinition;
 import io.neba.core.resourcemodels.adaptation.ResourceToModelAdapterUpdater;
+import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
 import io.neba.core.util.OsgiModelSource;
 import org.osgi.framework.Bundle;
@@ -36,6 +38,8 @@ import java.lang.annotation.IncompleteAnnotationException;
 import java.util.Collection;
 
 import static io.neba.core.util.BundleUtil.displayNameOf;
+import static java.lang.System.currentTimeMillis;
+import static java.lang.System.nanoTime;
 import static org.apache.commons.lang3.StringUtils.join;
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -46,6 +50,7 @@ import static org.slf4j.LoggerFactory.getLogger;
  * Specifically, this service tracks all {@link ResourceModelFactory resource model factory services} and {@link #registerModels(Bundle, ResourceModelFactory) registers}
  * or {@link #unregister(Bundle) unregisters} their models using the {@link ModelRegistry}. Subsequently, it
  * {@link ResourceToModelAdapterUpdater#refresh() refreshes} the resource to model adapter factory to reflect the changes.
+ * The time spent registering the models of each bundle is recorded in the {@link StartupTimeline}.
  * </p>
  *
  * @author Olaf Otto
@@ -60,6 +65,8 @@ public class ModelRegistrar {
     private ResourceToModelAdapterUpdater resourceToModelAdapterUpdater;
     @Reference
     private ResourceModelMetaDataRegistrar resourceModelMetaDataRegistrar;
+    @Reference
+    private StartupTimeline startupTimeline;
 
     private ServiceTracker<ResourceModelFactory, ResourceModelFactory> tracker;
 
@@ -97,16 +104,36 @@ public class ModelRegistrar {
         final Collection<ModelDefinition<?>> modelDefinitions = factory.getModelDefinitions();
 
         logger.info("Registering {} resource models from bundle: " + displayNameOf(bundle) + " ...", modelDefinitions.size());
-        modelDefinitions.forEach(d -> {
+        long metaDataTimeInNs = 0, proxyGenerationTimeInNs = 0, registrationTimeInNs = 0;
+        for (ModelDefinition<?> d : modelDefinitions) {
             final OsgiModelSource<?> source = new OsgiModelSource<>(d, factory, bundle);
-            this.resourceModelMetaDataRegistrar.register(source);
+
+            final long metaDataStart = nanoTime();
+            final ResourceModelMetaData metaData = this.resourceModelMetaDataRegistrar.register(source);
+            final long registrationStart = nanoTime();
             this.registry.add(getTypes(d), source);
+            registrationTimeInNs += nanoTime() - registrationStart;
+
+            final long proxyGenerationTimeOfModelInNs = proxyGenerationTimeOf(metaData);
+            metaDataTimeInNs += registrationStart - metaDataStart - proxyGenerationTimeOfModelInNs;
+            proxyGenerationTimeInNs += proxyGenerationTimeOfModelInNs;
+
             logger.debug("Registered model {} as a model for the resource types {}.", d.getName(), join(getTypes(d), ","));
-        });
+        }
+
+        this.startupTimeline.modelsRegistered(bundle, metaDataTimeInNs, proxyGenerationTimeInNs, registrationTimeInNs, modelDefinitions.size(), currentTimeMillis());
 
         this.resourceToModelAdapterUpdater.refresh();
     }
 
+    private static long proxyGenerationTimeOf(ResourceModelMetaData metaData) {
+        long proxyGenerationTimeInNs = 0;
+        for (MappedFieldMetaData field : metaData.getMappableFields()) {
+            proxyGenerationTimeInNs += field.getProxyGenerationTimeInNs();
+        }
+        return proxyGenerationTimeInNs;
+    }
+
     @SuppressWarnings("deprecation")
     private String[] getTypes(ModelDefinition<?> d) {
         try {
@@ -16,6 +16,8 @@
 
 package io.neba.core.resourcemodels.registration;
 
+import io.neba.core.resourcemodels.mapping.MappingListeners;
+import io.neba.core.resourcemodels.tracing.FlightRecorderEvents;
 import io.neba.core.util.ConcurrentDistinctMultiValueMap;
 import io.neba.core.util.Key;
 import io.neba.core.util.MatchedBundlesPredicate;
@@ -26,6 +28,7 @@ import org.apache.sling.api.resource.Resource;
 import org.osgi.framework.Bundle;
 import org.osgi.service.component.annotations.Component;
 import org.osgi.service.component.annotations.Deactivate;
+import org.osgi.service.component.annotations.Reference;
 import org.slf4j.Logger;
 
 import javax.jcr.Node;
@@ -35,6 +38,8 @@ import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 
 import static io.neba.core.resourcemodels.registration.MappableTypeHierarchy.mappableTypeHierarchyOf;
 import static io.neba.core.util.BundleUtil.displayNameOf;
@@ -137,8 +142,13 @@ public class ModelRegistry {
 
     private final ConcurrentDistinctMultiValueMap<String, OsgiModelSource<?>> typeNameToModelSourcesMap = new ConcurrentDistinctMultiValueMap<>();
     private final ConcurrentDistinctMultiValueMap<Key, ResolvedModelSource<?>> lookupCache = new ConcurrentDistinctMultiValueMap<>();
+    private final LongAdder lookupCacheHits = new LongAdder();
+    private final LongAdder lookupCacheMisses = new LongAdder();
     private final Logger logger = getLogger(getClass());
 
+    @Reference
+    private MappingListeners mappingListeners;
+
     /**
      * Finds the most specific models for the given {@link Resource}. The model's model
      * name must match the provided model name.
@@ -157,12 +167,7 @@ public class ModelRegistry {
 
         Key key = key(resource, modelName);
 
-        Collection<ResolvedModelSource<?>> matchingModels = this.lookupCache.get(key);
-        if (matchingModels == null) {
-            matchingModels = lookupCache.computeIfAbsent(key, k -> resolveMostSpecificModelSources(resource, modelName));
-        }
-
-        return nullIfEmpty(matchingModels);
+        return nullIfEmpty(lookup(resource, key, traversal -> resolveMostSpecificModelSources(resource, modelName, traversal)));
     }
 
     /**
@@ -180,12 +185,7 @@ public class ModelRegistry {
 
         final Key key = key(resource);
 
-        Collection<ResolvedModelSource<?>> matchingModels = this.lookupCache.get(key);
-        if (matchingModels == null) {
-            matchingModels = lookupCache.computeIfAbsent(key, k -> resolveMostSpecificModelSources(resource));
-        }
-
-        return nullIfEmpty(matchingModels);
+        return nullIfEmpty(lookup(resource, key, traversal -> resolveMostSpecificModelSources(resource, traversal)));
     }
 
     /**
@@ -203,12 +203,7 @@ public class ModelRegistry {
 
         final Key key = key(resource, "allModels");
 
-        Collection<ResolvedModelSource<?>> matchingModels = this.lookupCache.get(key);
-        if (matchingModels == null) {
-            matchingModels = lookupCache.computeIfAbsent(key, k -> resolveModelSources(resource, null, false));
-        }
-
-        return nullIfEmpty(matchingModels);
+        return nullIfEmpty(lookup(resource, key, traversal -> resolveModelSources(resource, null, false, traversal)));
     }
 
     /**
@@ -229,12 +224,7 @@ public class ModelRegistry {
 
         final Key key = key(resource, targetType);
 
-        Collection<ResolvedModelSource<?>> matchingModels = this.lookupCache.get(key);
-        if (matchingModels == null) {
-            matchingModels = lookupCache.computeIfAbsent(key, k -> resolveMostSpecificModelSources(resource, targetType));
-        }
-
-        return nullIfEmpty(matchingModels);
+        return nullIfEmpty(lookup(resource, key, traversal -> resolveMostSpecificModelSources(resource, targetType, traversal)));
     }
 
     /**
@@ -305,26 +295,73 @@ public class ModelRegistry {
         this.logger.debug("Cache cleared.");
     }
 
+    /**
+     * @return the number of model lookups answered from the lookup cache.
+     */
+    public long getLookupCacheHits() {
+        return this.lookupCacheHits.sum();
+    }
+
+    /**
+     * @return the number of model lookups that had to resolve the models since they were not yet cached.
+     */
+    public long getLookupCacheMisses() {
+        return this.lookupCacheMisses.sum();
+    }
+
+    /**
+     * @return the number of lookup results currently cached.
+     */
+    public int getLookupCacheSize() {
+        return this.lookupCache.size();
+    }
+
+    private Collection<ResolvedModelSource<?>> lookup(Resource resource, Key key, Function<TypeTraversal, Collection<ResolvedModelSource<?>>> resolver) {
+        // null if the flight recorder event is disabled.
+        final Object lookupEvent = FlightRecorderEvents.beginModelLookup();
+        Collection<ResolvedModelSource<?>> matchingModels = this.lookupCache.get(key);
+        final boolean fromLookupCache = matchingModels != null;
+        int hierarchySteps = 0;
+        if (fromLookupCache) {
+            this.lookupCacheHits.increment();
+        } else {
+            this.lookupCacheMisses.increment();
+            final TypeTraversal traversal = new TypeTraversal();
+            matchingModels = this.lookupCache.computeIfAbsent(key, k -> resolver.apply(traversal));
+            hierarchySteps = traversal.steps;
+        }
+        if (!this.mappingListeners.isEmpty()) {
+            this.mappingListeners.modelsLookedUp(resource.getPath(), resource.getResourceType(), matchingModels == null ? 0 : matchingModels.size(), fromLookupCache);
+        }
+        if (lookupEvent != null) {
+            FlightRecorderEvents.endModelLookup(lookupEvent, resource.getPath(), resource.getResourceType(), fromLookupCache,
+                    matchingModels == null ? 0 : matchingModels.size(),
+                    hierarchySteps);
+        }
+        return matchingModels;
+    }
+
     private void clearRegisteredModels() {
         this.typeNameToModelSourcesMap.clear();
         this.logger.debug("Registry cleared.");
     }
 
     /**
-     * @see #resolveMostSpecificModelSources(org.apache.sling.api.resource.Resource, Class)
+     * @see #resolveMostSpecificModelSources(org.apache.sling.api.resource.Resource, Class, TypeTraversal)
      */
-    private Collection<ResolvedModelSource<?>> resolveMostSpecificModelSources(Resource resource) {
-        return resolveMostSpecificModelSources(resource, (Class<?>) null);
+    private Collection<ResolvedModelSource<?>> resolveMostSpecificModelSources(Resource resource, TypeTraversal traversal) {
+        return resolveMostSpecificModelSources(resource, (Class<?>) null, traversal);
     }
 
     /**
-     * @see #resolveModelSources(org.apache.sling.api.resource.Resource, Class, boolean)
+     * @see #resolveModelSources(org.apache.sling.api.resource.Resource, Class, boolean, TypeTraversal)
      */
     private Collection<ResolvedModelSource<?>> resolveMostSpecificModelSources(
             Resource resource,
-            Class<?> compatibleType) {
+            Class<?> compatibleType,
+            TypeTraversal traversal) {
 
-        return resolveModelSources(resource, compatibleType, true);
+        return resolveModelSources(resource, compatibleType, true, traversal);
     }
 
     /**
@@ -335,11 +372,13 @@ public class ModelRegistry {
      * @param compatibleType      can be <code>null</code>. If provided, only models
      *                            compatible to the given type are returned.
      * @param resolveMostSpecific whether to resolve only the most specific models.
+     * @param traversal           counts the mappable types traversed.
      * @return never <code>null</code> but rather an empty collection.
      */
-    private Collection<ResolvedModelSource<?>> resolveModelSources(Resource resource, Class<?> compatibleType, boolean resolveMostSpecific) {
+    private Collection<ResolvedModelSource<?>> resolveModelSources(Resource resource, Class<?> compatibleType, boolean resolveMostSpecific, TypeTraversal traversal) {
         Collection<ResolvedModelSource<?>> sources = new ArrayList<>(64);
         for (final String resourceType : mappableTypeHierarchyOf(resource)) {
+            ++traversal.steps;
             Collection<OsgiModelSource<?>> allSourcesForType = this.typeNameToModelSourcesMap.get(resourceType);
             Collection<OsgiModelSource<?>> sourcesForCompatibleType = filter(allSourcesForType, compatibleType);
             if (sourcesForCompatibleType != null && !sourcesForCompatibleType.isEmpty()) {
@@ -364,11 +403,13 @@ public class ModelRegistry {
      *
      * @param resource  must not be <code>null</code>.
      * @param modelName can be <code>null</code>.
+     * @param traversal counts the mappable types traversed.
      * @return never <code>null</code> but rather an empty collection.
      */
-    private Collection<ResolvedModelSource<?>> resolveMostSpecificModelSources(Resource resource, String modelName) {
+    private Collection<ResolvedModelSource<?>> resolveMostSpecificModelSources(Resource resource, String modelName, TypeTraversal traversal) {
         Collection<ResolvedModelSource<?>> sources = new ArrayList<>();
         for (final String resourceType : mappableTypeHierarchyOf(resource)) {
+            ++traversal.steps;
             Collection<OsgiModelSource<?>> allSourcesForType = this.typeNameToModelSourcesMap.get(resourceType);
             Collection<OsgiModelSource<?>> sourcesWithMatchingModelName = filter(allSourcesForType, modelName);
             if (sourcesWithMatchingModelName != null && !sourcesWithMatchingModelName.isEmpty()) {
@@ -383,4 +424,12 @@ public class ModelRegistry {
         }
         return unmodifiableCollection(sources);
     }
+
+    /**
+     * The number of {@link MappableTypeHierarchy mappable types} traversed while resolving the models for a resource,
+     * as reported in the model lookup {@link FlightRecorderEvents event}. Remains 0 if the lookup is answered from the lookup cache.
+     */
+    private static class TypeTraversal {
+        private int steps;
+    }
 }
@@ -39,10 +39,13 @@ import java.io.PrintWriter;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
@@ -53,12 +56,15 @@ import static io.neba.core.util.BundleUtil.displayNameOf;
 import static io.neba.core.util.ClassHierarchyIterator.hierarchyOf;
 import static io.neba.core.util.JsonUtil.toJson;
 import static java.lang.Character.isUpperCase;
+import static java.lang.String.format;
 import static java.util.Arrays.stream;
 import static java.util.Collections.singletonMap;
+import static java.util.Locale.ENGLISH;
 import static java.util.Optional.empty;
 import static java.util.Optional.of;
 import static org.apache.commons.io.IOUtils.closeQuietly;
 import static org.apache.commons.io.IOUtils.copy;
+import static org.apache.commons.lang3.StringEscapeUtils.escapeHtml4;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isEmpty;
 import static org.apache.commons.lang3.StringUtils.startsWith;
@@ -75,6 +81,8 @@ import static org.osgi.framework.Constants.SERVICE_VENDOR;
 /**
  * Shows a table with all detected type -&gt; model mappings in the felix console and allows
  * looking up resources adaptable to specific model types and model types adaptable to specific resources.
+ * Also shows the {@link StartupTimeline startup timeline} of the resource models, which is provided as JSON via
+ * <code>/api/startup</code> as well.
  *
  * @author Olaf Otto
  */
@@ -96,6 +104,7 @@ public class ModelRegistryConsolePlugin extends AbstractWebConsolePlugin {
     private static final String API_RESOURCES = "/resources";
     private static final String API_COMPONENTICON = "/componenticon";
     private static final String API_MODELTYPES = "/modeltypes";
+    private static final String API_STARTUP = "/startup";
     private static final String PARAM_TYPENAME = "modelTypeName";
     private static final String PARAM_PATH = "path";
 
@@ -105,6 +114,8 @@ public class ModelRegistryConsolePlugin extends AbstractWebConsolePlugin {
     private ResourceResolverFactory resourceResolverFactory;
     @Reference
     private ModelRegistry registry;
+    @Reference
+    private StartupTimeline startupTimeline;
 
     private boolean isComposumConsoleAvailable;
 
@@ -159,6 +170,11 @@ public class ModelRegistryConsolePlugin extends AbstractWebConsolePlugin {
 
         if (apiIdentifier.startsWith(API_MODELTYPES)) {
             provideAllModelTypes(res);
+            return;
+        }
+
+        if (apiIdentifier.startsWith(API_STARTUP)) {
+            provideStartupTimeline(res);
         }
     }
 
@@ -188,6 +204,77 @@ public class ModelRegistryConsolePlugin extends AbstractWebConsolePlugin {
         }
         writer.write("</tbody>");
         writer.write("</table>");
+
+        writeStartupTimeline(writer);
+    }
+
+    private void writeStartupTimeline(PrintWriter writer) {
+        List<AdapterFactoryRefresh> refreshes = this.startupTimeline.getAdapterFactoryRefreshes();
+        long refreshTimeInNs = 0;
+        for (AdapterFactoryRefresh refresh : refreshes) {
+            refreshTimeInNs += refresh.getDurationInNs();
+        }
+
+        writer.write("<h3>Startup timeline</h3>");
+        writer.write("<p class=\"statline\">Time spent discovering and registering the resource models of each bundle. " +
+                "The adapter factory was re-registered " + refreshes.size() + " time(s) recently, taking " + toMs(refreshTimeInNs) + " ms in total. " +
+                "<a href=\"" + getLabel() + API_PATH + API_STARTUP + "\">Download</a> as JSON.</p>");
+        writer.write("<table id=\"startup_table\" class=\"nicetable\"><thead><tr>" +
+                "<th>Bundle</th><th>Scan started</th><th>Scanning (ms)</th><th>Classes loaded</th><th>Models found</th>" +
+                "<th>Metadata (ms)</th><th>Proxy generation (ms)</th><th>Registration (ms)</th><th>Models registered</th><th>Ready after (ms)</th>" +
+                "</tr></thead><tbody>");
+        for (BundleStartup startup : this.startupTimeline.getBundles()) {
+            writer.write("<tr>" +
+                    "<td><a href=\"bundles/" + startup.getBundleId() + "\">" + escapeHtml4(startup.getBundleName()) + "</a></td>" +
+                    "<td>" + (startup.getScanStartedAt() == 0 ? "" : new Date(startup.getScanStartedAt())) + "</td>" +
+                    "<td>" + toMs(startup.getScanningTimeInNs()) + "</td>" +
+                    "<td>" + startup.getNumberOfLoadedClasses() + "</td>" +
+                    "<td>" + startup.getNumberOfModelsFound() + "</td>" +
+                    "<td>" + toMs(startup.getMetaDataTimeInNs()) + "</td>" +
+                    "<td>" + toMs(startup.getProxyGenerationTimeInNs()) + "</td>" +
+                    "<td>" + toMs(startup.getRegistrationTimeInNs()) + "</td>" +
+                    "<td>" + startup.getNumberOfRegisteredModels() + "</td>" +
+                    "<td>" + (startup.getScanStartedAt() == 0 || startup.getRegisteredAt() == 0 ? "" : startup.getRegisteredAt() - startup.getScanStartedAt()) + "</td>" +
+                    "</tr>");
+        }
+        writer.write("</tbody></table>");
+    }
+
+    private void provideStartupTimeline(HttpServletResponse res) throws IOException {
+        List<Map<String, Object>> bundles = new ArrayList<>();
+        for (BundleStartup startup : this.startupTimeline.getBundles()) {
+            Map<String, Object> bundle = new LinkedHashMap<>();
+            bundle.put("bundleId", startup.getBundleId());
+            bundle.put("bundleName", startup.getBundleName());
+            bundle.put("scanStartedAt", startup.getScanStartedAt());
+            bundle.put("scanningTimeInNs", startup.getScanningTimeInNs());
+            bundle.put("numberOfLoadedClasses", startup.getNumberOfLoadedClasses());
+            bundle.put("numberOfModelsFound", startup.getNumberOfModelsFound());
+            bundle.put("metaDataTimeInNs", startup.getMetaDataTimeInNs());
+            bundle.put("proxyGenerationTimeInNs", startup.getProxyGenerationTimeInNs());
+            bundle.put("registrationTimeInNs", startup.getRegistrationTimeInNs());
+            bundle.put("numberOfRegisteredModels", startup.getNumberOfRegisteredModels());
+            bundle.put("registeredAt", startup.getRegisteredAt());
+            bundles.add(bundle);
+        }
+
+        List<Map<String, Object>> refreshes = new ArrayList<>();
+        for (AdapterFactoryRefresh refresh : this.startupTimeline.getAdapterFactoryRefreshes()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            entry.put("occurredAt", refresh.getOccurredAt());
+            entry.put("durationInNs", refresh.getDurationInNs());
+            entry.put("numberOfAdapterTypes", refresh.getNumberOfAdapterTypes());
+            refreshes.add(entry);
+        }
+
+        Map<String, Object> timeline = new LinkedHashMap<>();
+        timeline.put("bundles", bundles);
+        timeline.put("adapterFactoryRefreshes", refreshes);
+        res.getWriter().write(toJson(timeline));
+    }
+
+    private static String toMs(long durationInNs) {
+        return format(ENGLISH, "%.3f", durationInNs / 1000000D);
     }
 
     private String buildLinkToResourceType(HttpServletRequest request, String type) {
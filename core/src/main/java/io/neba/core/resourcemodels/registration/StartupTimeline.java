@@ -0,0 +1,122 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.registration;
+
+import org.osgi.framework.Bundle;
+import org.osgi.service.component.annotations.Component;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.neba.core.util.BundleUtil.displayNameOf;
+import static java.util.Comparator.comparingLong;
+
+/**
+ * Records how long it took to discover and register the resource models of each bundle, from scanning the
+ * bundle's packages to registering the models in the {@link ModelRegistry}, as well as the subsequent
+ * {@link AdapterFactoryRefresh re-registrations} of the resource to model adapter factory. This allows telling
+ * how much of the startup time of an instance is spent on resource models and tracking it across releases.
+ * <br />
+ * For each bundle, only its latest start is retained.
+ *
+ * @author Olaf Otto
+ */
+@Component(service = StartupTimeline.class)
+public class StartupTimeline {
+    private static final int MAXIMUM_NUMBER_OF_ADAPTER_FACTORY_REFRESHES = 100;
+
+    private final Map<Long, BundleStartup> bundles = new ConcurrentHashMap<>();
+    private final Deque<AdapterFactoryRefresh> adapterFactoryRefreshes = new ArrayDeque<>();
+
+    /**
+     * Records that the packages of a bundle were scanned for resource models. This starts a new timeline for the bundle.
+     *
+     * @param bundle                must not be <code>null</code>.
+     * @param scanStartedAt         the start of the scan in terms of {@link System#currentTimeMillis()}.
+     * @param scanningTimeInNs      the duration of the scan.
+     * @param numberOfLoadedClasses the number of classes loaded during the scan.
+     * @param numberOfModelsFound   the number of models found.
+     */
+    public void bundleScanned(@Nonnull Bundle bundle, long scanStartedAt, long scanningTimeInNs, int numberOfLoadedClasses, int numberOfModelsFound) {
+        if (bundle == null) {
+            throw new IllegalArgumentException("Method argument bundle must not be null.");
+        }
+
+        this.bundles.put(bundle.getBundleId(), new BundleStartup(bundle.getBundleId(), displayNameOf(bundle))
+                .withScan(scanStartedAt, scanningTimeInNs, numberOfLoadedClasses, numberOfModelsFound));
+    }
+
+    /**
+     * Records that the resource models of a bundle were registered.
+     *
+     * @param bundle                   must not be <code>null</code>.
+     * @param metaDataTimeInNs         the time spent building model metadata, excluding proxy generation.
+     * @param proxyGenerationTimeInNs  the time spent generating lazy-loading proxy classes.
+     * @param registrationTimeInNs     the time spent adding the models to the registry.
+     * @param numberOfRegisteredModels the number of registered models.
+     * @param registeredAt             the end of the registration in terms of {@link System#currentTimeMillis()}.
+     */
+    public void modelsRegistered(@Nonnull Bundle bundle, long metaDataTimeInNs, long proxyGenerationTimeInNs, long registrationTimeInNs, int numberOfRegisteredModels, long registeredAt) {
+        if (bundle == null) {
+            throw new IllegalArgumentException("Method argument bundle must not be null.");
+        }
+
+        this.bundles.compute(bundle.getBundleId(), (id, startup) ->
+                (startup == null ? new BundleStartup(id, displayNameOf(bundle)) : startup)
+                        .withRegistration(metaDataTimeInNs, proxyGenerationTimeInNs, registrationTimeInNs, numberOfRegisteredModels, registeredAt));
+    }
+
+    /**
+     * Records that the resource to model adapter factory was re-registered.
+     *
+     * @param occurredAt           the start of the re-registration in terms of {@link System#currentTimeMillis()}.
+     * @param durationInNs         the duration of the re-registration.
+     * @param numberOfAdapterTypes the number of types the adapter factory adapts to.
+     */
+    public void adapterFactoryRefreshed(long occurredAt, long durationInNs, int numberOfAdapterTypes) {
+        synchronized (this.adapterFactoryRefreshes) {
+            if (this.adapterFactoryRefreshes.size() == MAXIMUM_NUMBER_OF_ADAPTER_FACTORY_REFRESHES) {
+                this.adapterFactoryRefreshes.removeFirst();
+            }
+            this.adapterFactoryRefreshes.addLast(new AdapterFactoryRefresh(occurredAt, durationInNs, numberOfAdapterTypes));
+        }
+    }
+
+    /**
+     * @return the startup of all recorded bundles, ordered by the start of their scan. Never <code>null</code>.
+     */
+    @Nonnull
+    public List<BundleStartup> getBundles() {
+        List<BundleStartup> bundles = new ArrayList<>(this.bundles.values());
+        bundles.sort(comparingLong(BundleStartup::getScanStartedAt).thenComparingLong(BundleStartup::getRegisteredAt));
+        return bundles;
+    }
+
+    /**
+     * @return the most recent re-registrations of the adapter factory, oldest first. Never <code>null</code>.
+     */
+    @Nonnull
+    public List<AdapterFactoryRefresh> getAdapterFactoryRefreshes() {
+        synchronized (this.adapterFactoryRefreshes) {
+            return new ArrayList<>(this.adapterFactoryRefreshes);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static io.neba.core.util.JsonUtil.toJson;
+import static java.lang.Math.max;
+import static java.util.Collections.singletonMap;
+
+/**
+ * Exports a {@link MappingTrace} in the
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">trace event format</a>
+ * understood by <code>chrome://tracing</code>, Perfetto and speedscope, which render the trace as a flame chart.
+ * Mappings and lazy loads are exported as complete events, cache hits as instant events. Events are written one by
+ * one since traces may contain thousands of nodes.
+ *
+ * @author Olaf Otto
+ */
+public class ChromeTraceExport {
+    /**
+     * @param trace  must not be <code>null</code>.
+     * @param writer must not be <code>null</code>.
+     */
+    public static void write(@Nonnull MappingTrace trace, @Nonnull Writer writer) throws IOException {
+        if (trace == null) {
+            throw new IllegalArgumentException("Method argument trace must not be null.");
+        }
+        if (writer == null) {
+            throw new IllegalArgumentException("Method argument writer must not be null.");
+        }
+
+        Map<String, Object> metaData = new LinkedHashMap<>();
+        metaData.put("id", trace.getId());
+        metaData.put("method", trace.getMethod());
+        metaData.put("uri", trace.getUri());
+        metaData.put("startedAt", trace.getStartedAt());
+        metaData.put("truncated", trace.isTruncated());
+
+        writer.write("{\"traceEvents\":[");
+        boolean first = true;
+        for (MappingTrace.Node node : trace.getRoots()) {
+            first = write(node, writer, first);
+        }
+        writer.write("],\"displayTimeUnit\":\"ms\",\"otherData\":");
+        writer.write(toJson(metaData));
+        writer.write('}');
+    }
+
+    private static boolean write(MappingTrace.Node node, Writer writer, boolean first) throws IOException {
+        Map<String, Object> event = new LinkedHashMap<>();
+        event.put("name", node.getName());
+        event.put("cat", node.getKind().name());
+        if (node.getKind() == MappingTrace.Kind.CACHE_HIT) {
+            event.put("ph", "i");
+            event.put("s", "t");
+        } else {
+            event.put("ph", "X");
+        }
+        event.put("ts", toMicroseconds(node.getStartTimeInNs()));
+        if (node.getKind() != MappingTrace.Kind.CACHE_HIT) {
+            event.put("dur", toMicroseconds(node.getDurationInNs()));
+        }
+        event.put("pid", 1);
+        event.put("tid", 1);
+        event.put("args", singletonMap("path", node.getPath()));
+
+        if (!first) {
+            writer.write(',');
+        }
+        writer.write(toJson(event));
+
+        for (MappingTrace.Node child : node.getChildren()) {
+            write(child, writer, false);
+        }
+        return false;
+    }
+
+    private static double toMicroseconds(long ns) {
+        return max(0, ns) / 1000D;
+    }
+
+    private ChromeTraceExport() {
+    }
+}
@@ -0,0 +1,113 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Emits Java Flight Recorder events for resource model mappings, model registry lookups, request-scoped
+ * cache lookups and JSON view rendering.
+ * <p>
+ * The NEBA core targets Java 8. This version of the class thus does not emit any events. The core bundle
+ * is a multi-release JAR containing a flight recorder based version of this class for Java 11 and later,
+ * see <code>src/main/java11</code>. All events are disabled by default and are enabled using the
+ * <code>META-INF/jfr/neba.jfc</code> flight recorder settings shipped with the core bundle.
+ * </p>
+ * <p>
+ * Events with a duration are started by the <code>begin...</code> methods, which return an opaque event
+ * handle, or <code>null</code> if the event is disabled. Callers must only collect the data for an event
+ * if the handle is not <code>null</code>, so that disabled events have no overhead.
+ * </p>
+ *
+ * @author Olaf Otto
+ */
+public final class FlightRecorderEvents {
+    /**
+     * @return a handle to provide to {@link #endMapping(Object, Class, String, int)}, or <code>null</code>
+     * if the event is disabled.
+     */
+    @CheckForNull
+    public static Object beginMapping() {
+        return null;
+    }
+
+    /**
+     * @param event        the handle obtained from {@link #beginMapping()}. No event is emitted if <code>null</code>.
+     * @param modelType    the type of the mapped model.
+     * @param resourcePath the path of the mapped resource.
+     * @param depth        the number of ongoing mappings, including this mapping.
+     */
+    public static void endMapping(@CheckForNull Object event, @Nonnull Class<?> modelType, @Nonnull String resourcePath, int depth) {
+    }
+
+    /**
+     * @return a handle to provide to {@link #endModelLookup(Object, String, String, boolean, int, int)}, or <code>null</code>
+     * if the event is disabled.
+     */
+    @CheckForNull
+    public static Object beginModelLookup() {
+        return null;
+    }
+
+    /**
+     * @param event           the handle obtained from {@link #beginModelLookup()}. No event is emitted if <code>null</code>.
+     * @param resourcePath    the path of the resource the models are looked up for.
+     * @param resourceType    the type of the resource the models are looked up for.
+     * @param fromLookupCache whether the lookup was answered from the model registry's lookup cache.
+     * @param numberOfModels  the number of models found.
+     * @param hierarchySteps  the number of mappable types traversed to resolve the models.
+     */
+    public static void endModelLookup(@CheckForNull Object event, @Nonnull String resourcePath, @CheckForNull String resourceType,
+                                      boolean fromLookupCache, int numberOfModels, int hierarchySteps) {
+    }
+
+    /**
+     * @return whether {@link #cacheLookup(String, Class, boolean)} emits an event. Callers must check this
+     * prior to collecting the event data.
+     */
+    public static boolean isCacheLookupEnabled() {
+        return false;
+    }
+
+    /**
+     * @param resourcePath the path of the resource a model was looked up for.
+     * @param modelType    the type of the cached model, or <code>null</code> if no model or a known <code>null</code> model was found.
+     * @param hit          whether the cache contained a model or a known <code>null</code> model.
+     */
+    public static void cacheLookup(@Nonnull String resourcePath, @CheckForNull Class<?> modelType, boolean hit) {
+    }
+
+    /**
+     * @return a handle to provide to {@link #endJsonViewRendering(Object, String, Class)}, or <code>null</code>
+     * if the event is disabled.
+     */
+    @CheckForNull
+    public static Object beginJsonViewRendering() {
+        return null;
+    }
+
+    /**
+     * @param event        the handle obtained from {@link #beginJsonViewRendering()}. No event is emitted if <code>null</code>.
+     * @param resourcePath the path of the rendered resource.
+     * @param modelType    the type of the model serialized to JSON.
+     */
+    public static void endJsonViewRendering(@CheckForNull Object event, @Nonnull String resourcePath, @Nonnull Class<?> modelType) {
+    }
+
+    private FlightRecorderEvents() {
+    }
+}
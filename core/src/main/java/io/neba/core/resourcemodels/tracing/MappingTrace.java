@@ -0,0 +1,314 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.lang.System.nanoTime;
+import static java.lang.Thread.currentThread;
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * The tree of resource model mappings that occurred during a single request, including the
+ * mapping durations, {@link io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache cache hits} and
+ * the loading of lazy fields. Traces are recorded by the {@link MappingTracer} via
+ * {@link io.neba.core.resourcemodels.mapping.NestedMappingSupport#beginTracing(MappingTrace)}.
+ * <p>
+ * Recording is synchronized since lazy fields may be loaded by other threads. Each thread has its own open nodes, such that
+ * the nodes recorded by different threads do not interleave: A node entered by a thread becomes a child of the node
+ * currently open in the same thread, or a root node, e.g. if a lazy field is loaded by another thread. A trace accepts at most
+ * {@link #MAXIMUM_NUMBER_OF_NODES} nodes to bound its memory footprint, see {@link #isTruncated()}.
+ * Once {@link #complete() completed}, a trace ignores any further events.
+ *
+ * @author Olaf Otto
+ */
+public class MappingTrace {
+    static final int MAXIMUM_NUMBER_OF_NODES = 5000;
+
+    /**
+     * The kind of a {@link Node}.
+     */
+    public enum Kind {
+        /**
+         * The mapping of a resource to a resource model.
+         */
+        MAPPING,
+        /**
+         * A resource model provided by the request-scoped resource model cache. Has no duration.
+         */
+        CACHE_HIT,
+        /**
+         * The loading of a lazy field or lazy-loading collection.
+         */
+        LAZY_LOAD
+    }
+
+    private final long id;
+    private final String method;
+    private final String uri;
+    private final long startedAt;
+    private final long startTimeInNs;
+    private final List<Node> roots = new ArrayList<>();
+    private final Map<Thread, OpenNodes> openNodes = new HashMap<>(4);
+
+    private int numberOfNodes = 0;
+    private boolean truncated = false;
+    private long durationInNs = -1;
+
+    /**
+     * @param id        the unique id of this trace.
+     * @param method    the HTTP method of the traced request. Must not be <code>null</code>.
+     * @param uri       the URI of the traced request. Must not be <code>null</code>.
+     * @param startedAt the start of the request in terms of {@link System#currentTimeMillis()}.
+     */
+    public MappingTrace(long id, @Nonnull String method, @Nonnull String uri, long startedAt) {
+        if (method == null) {
+            throw new IllegalArgumentException("Constructor parameter method must not be null.");
+        }
+        if (uri == null) {
+            throw new IllegalArgumentException("Constructor parameter uri must not be null.");
+        }
+        this.id = id;
+        this.method = method;
+        this.uri = uri;
+        this.startedAt = startedAt;
+        this.startTimeInNs = nanoTime();
+    }
+
+    /**
+     * Opens a new node, which becomes a child of the node currently open in this thread, if any.
+     * Must be followed by {@link #exit()} in the same thread.
+     *
+     * @param kind must not be <code>null</code>.
+     * @param name the name of the node, e.g. the model type name. Must not be <code>null</code>.
+     * @param path the path of the resource, must not be <code>null</code>.
+     */
+    public synchronized void enter(@Nonnull Kind kind, @Nonnull String name, @Nonnull String path) {
+        if (isComplete()) {
+            return;
+        }
+        OpenNodes openNodes = this.openNodes.computeIfAbsent(currentThread(), thread -> new OpenNodes());
+        if (openNodes.ignoredDepth != 0 || !hasCapacity()) {
+            ++openNodes.ignoredDepth;
+            return;
+        }
+        Node node = add(kind, name, path, openNodes);
+        openNodes.nodes.push(node);
+    }
+
+    /**
+     * Closes the node last {@link #enter(Kind, String, String) entered} in this thread.
+     */
+    public synchronized void exit() {
+        if (isComplete()) {
+            return;
+        }
+        final Thread thread = currentThread();
+        OpenNodes openNodes = this.openNodes.get(thread);
+        if (openNodes == null) {
+            return;
+        }
+        if (openNodes.ignoredDepth != 0) {
+            --openNodes.ignoredDepth;
+        } else {
+            close(openNodes.nodes.pop());
+        }
+        if (openNodes.ignoredDepth == 0 && openNodes.nodes.isEmpty()) {
+            this.openNodes.remove(thread);
+        }
+    }
+
+    /**
+     * Records a node without duration as a child of the node currently open in this thread, if any.
+     *
+     * @param kind must not be <code>null</code>.
+     * @param name the name of the node, e.g. the model type name. Must not be <code>null</code>.
+     * @param path the path of the resource, must not be <code>null</code>.
+     */
+    public synchronized void event(@Nonnull Kind kind, @Nonnull String name, @Nonnull String path) {
+        if (isComplete()) {
+            return;
+        }
+        OpenNodes openNodes = this.openNodes.get(currentThread());
+        if ((openNodes != null && openNodes.ignoredDepth != 0) || !hasCapacity()) {
+            return;
+        }
+        add(kind, name, path, openNodes).durationInNs = 0;
+    }
+
+    /**
+     * Ends recording. Nodes that are still open in any thread are closed.
+     */
+    synchronized void complete() {
+        if (isComplete()) {
+            return;
+        }
+        for (OpenNodes openNodes : this.openNodes.values()) {
+            while (!openNodes.nodes.isEmpty()) {
+                close(openNodes.nodes.pop());
+            }
+        }
+        this.openNodes.clear();
+        this.durationInNs = elapsedTimeInNs();
+    }
+
+    private Node add(Kind kind, String name, String path, @CheckForNull OpenNodes openNodes) {
+        Node node = new Node(kind, name, path, elapsedTimeInNs());
+        Node parent = openNodes == null ? null : openNodes.nodes.peek();
+        if (parent == null) {
+            this.roots.add(node);
+        } else {
+            parent.children.add(node);
+        }
+        ++this.numberOfNodes;
+        return node;
+    }
+
+    private void close(Node node) {
+        node.durationInNs = elapsedTimeInNs() - node.startTimeInNs;
+    }
+
+    private boolean hasCapacity() {
+        if (this.numberOfNodes < MAXIMUM_NUMBER_OF_NODES) {
+            return true;
+        }
+        this.truncated = true;
+        return false;
+    }
+
+    private long elapsedTimeInNs() {
+        return nanoTime() - this.startTimeInNs;
+    }
+
+    private boolean isComplete() {
+        return this.durationInNs != -1;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public String getUri() {
+        return uri;
+    }
+
+    /**
+     * @return the start of the request in terms of {@link System#currentTimeMillis()}.
+     */
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    /**
+     * @return the duration of the traced request in ns, or -1 if the trace is not yet complete.
+     */
+    public synchronized long getDurationInNs() {
+        return durationInNs;
+    }
+
+    /**
+     * @return the number of recorded nodes.
+     */
+    public synchronized int getNumberOfNodes() {
+        return numberOfNodes;
+    }
+
+    /**
+     * @return whether nodes were omitted since the trace reached its {@link #MAXIMUM_NUMBER_OF_NODES maximum size}.
+     */
+    public synchronized boolean isTruncated() {
+        return truncated;
+    }
+
+    /**
+     * @return the nodes without a parent, in the order they were recorded. Must only be traversed once the trace is
+     * {@link #getDurationInNs() complete}. Never <code>null</code>.
+     */
+    public synchronized List<Node> getRoots() {
+        return unmodifiableList(new ArrayList<>(this.roots));
+    }
+
+    /**
+     * The nodes currently open in a thread, most recently entered first.
+     */
+    private static class OpenNodes {
+        private final Deque<Node> nodes = new ArrayDeque<>();
+        // The number of entered, but not yet exited nodes that were omitted.
+        private int ignoredDepth = 0;
+    }
+
+    /**
+     * A node in the tree of recorded mappings.
+     *
+     * @author Olaf Otto
+     */
+    public static class Node {
+        private final Kind kind;
+        private final String name;
+        private final String path;
+        private final long startTimeInNs;
+        private final List<Node> children = new ArrayList<>(4);
+        private long durationInNs = -1;
+
+        private Node(Kind kind, String name, String path, long startTimeInNs) {
+            this.kind = kind;
+            this.name = name;
+            this.path = path;
+            this.startTimeInNs = startTimeInNs;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        /**
+         * @return the start of this node in ns, relative to the start of the trace.
+         */
+        public long getStartTimeInNs() {
+            return startTimeInNs;
+        }
+
+        /**
+         * @return the duration of this node in ns.
+         */
+        public long getDurationInNs() {
+            return durationInNs;
+        }
+
+        public List<Node> getChildren() {
+            return unmodifiableList(children);
+        }
+    }
+}
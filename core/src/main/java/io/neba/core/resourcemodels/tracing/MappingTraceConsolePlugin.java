@@ -0,0 +1,218 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import org.apache.felix.webconsole.AbstractWebConsolePlugin;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Reference;
+
+import javax.servlet.Servlet;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Date;
+import java.util.List;
+
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.CACHE_HIT;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.LAZY_LOAD;
+import static java.lang.String.format;
+import static java.util.Locale.ENGLISH;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static org.apache.commons.lang3.StringEscapeUtils.escapeHtml4;
+import static org.apache.commons.lang3.StringUtils.isBlank;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.math.NumberUtils.toLong;
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+
+/**
+ * Lists the {@link MappingTracer#getTraces() recorded mapping traces} and the
+ * {@link SlowMappingDetector#getSlowMappings() recent slow mappings} in the felix console and shows the tree of
+ * mappings of a selected trace. Traces can be downloaded in the {@link ChromeTraceExport Chrome trace event format}
+ * via <code>/api/trace/&lt;id&gt;</code>.
+ *
+ * @author Olaf Otto
+ */
+@Component(
+        service = Servlet.class,
+        property = {
+                "felix.webconsole.label=" + MappingTraceConsolePlugin.LABEL,
+                "service.description=Provides a felix console plugin showing the recorded resource model mapping traces and slow mappings.",
+                SERVICE_VENDOR + "=neba.io"
+        }
+)
+public class MappingTraceConsolePlugin extends AbstractWebConsolePlugin {
+    static final String LABEL = "mappingtraces";
+    private static final long serialVersionUID = 2931783466436527510L;
+    private static final String TRACE_API_PATH = "/api/trace/";
+    private static final String CLEAR_API_PATH = "/api/clear";
+    private static final String TRACE_PARAMETER = "trace";
+
+    @Reference
+    private MappingTracer tracer;
+    @Reference
+    private SlowMappingDetector slowMappingDetector;
+
+    @SuppressWarnings("unused")
+    public String getCategory() {
+        return "NEBA";
+    }
+
+    @Override
+    public String getLabel() {
+        return LABEL;
+    }
+
+    @Override
+    public String getTitle() {
+        return "Mapping traces";
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse res) throws ServletException, IOException {
+        String suffix = substringAfter(req.getRequestURI(), req.getServletPath() + "/" + getLabel());
+        if (!isBlank(suffix) && suffix.startsWith(TRACE_API_PATH)) {
+            exportTrace(toLong(suffix.substring(TRACE_API_PATH.length())), res);
+            return;
+        }
+        if (!isBlank(suffix) && suffix.startsWith(CLEAR_API_PATH)) {
+            this.tracer.clear();
+            this.slowMappingDetector.clear();
+            res.setContentType("application/json;charset=UTF-8");
+            res.getWriter().write("{\"success\": true}");
+            return;
+        }
+        super.doGet(req, res);
+    }
+
+    private void exportTrace(long id, HttpServletResponse res) throws IOException {
+        MappingTrace trace = this.tracer.getTrace(id);
+        if (trace == null) {
+            res.sendError(SC_NOT_FOUND, "There is no trace with id " + id + ".");
+            return;
+        }
+        res.setContentType("application/json;charset=UTF-8");
+        res.setHeader("Content-Disposition", "attachment; filename=\"neba-trace-" + id + ".json\"");
+        ChromeTraceExport.write(trace, res.getWriter());
+    }
+
+    @Override
+    protected void renderContent(HttpServletRequest req, HttpServletResponse res) throws IOException {
+        final String pluginRoot = req.getContextPath() + req.getServletPath() + '/' + LABEL;
+        final PrintWriter writer = res.getWriter();
+
+        String id = req.getParameter(TRACE_PARAMETER);
+        if (id != null) {
+            MappingTrace trace = this.tracer.getTrace(toLong(id));
+            if (trace == null) {
+                writer.write("<p>There is no trace with id " + escapeHtml4(id) + ". It may have been replaced by more recent traces.</p>");
+            } else {
+                writeTrace(trace, pluginRoot, writer);
+            }
+            writer.write("<p><a href=\"" + pluginRoot + "\">Back to all traces</a></p>");
+            return;
+        }
+
+        writeTraces(this.tracer.getTraces(), pluginRoot, writer);
+        writeSlowMappings(this.slowMappingDetector.getSlowMappings(), writer);
+    }
+
+    private static void writeTraces(List<MappingTrace> traces, String pluginRoot, PrintWriter writer) {
+        writer.write("<p class=\"statline\">" + traces.size() + " recent traces. Requests are traced according to the sampling rate " +
+                "configured for the NEBA mapping tracer, or if they carry the configured debug header.</p>");
+        writer.write("<table class=\"nicetable\"><thead><tr>" +
+                "<th>Id</th><th>Started</th><th>Method</th><th>URI</th><th>Duration (ms)</th><th>Nodes</th><th></th>" +
+                "</tr></thead><tbody>");
+        for (MappingTrace trace : traces) {
+            writer.write("<tr>" +
+                    "<td><a href=\"" + pluginRoot + "?" + TRACE_PARAMETER + "=" + trace.getId() + "\">" + trace.getId() + "</a></td>" +
+                    "<td>" + new Date(trace.getStartedAt()) + "</td>" +
+                    "<td>" + escapeHtml4(trace.getMethod()) + "</td>" +
+                    "<td>" + escapeHtml4(trace.getUri()) + "</td>" +
+                    "<td>" + toMs(trace.getDurationInNs()) + "</td>" +
+                    "<td>" + trace.getNumberOfNodes() + (trace.isTruncated() ? " (truncated)" : "") + "</td>" +
+                    "<td><a href=\"" + pluginRoot + TRACE_API_PATH + trace.getId() + "\">Download</a></td>" +
+                    "</tr>");
+        }
+        writer.write("</tbody></table>");
+    }
+
+    private static void writeSlowMappings(List<SlowMapping> slowMappings, PrintWriter writer) {
+        writer.write("<p class=\"statline\">" + slowMappings.size() + " recent slow mappings. Mappings are considered slow if they exceed " +
+                "the thresholds configured for the NEBA slow mapping detector.</p>");
+        writer.write("<table class=\"nicetable\"><thead><tr>" +
+                "<th>Occurred</th><th>Duration (ms)</th><th>Threshold (ms)</th><th>Model</th><th>Resource</th><th>Resource type</th>" +
+                "<th>Depth</th><th>Nested mappings</th><th>Mapping stack</th>" +
+                "</tr></thead><tbody>");
+        for (SlowMapping slowMapping : slowMappings) {
+            writer.write("<tr>" +
+                    "<td>" + new Date(slowMapping.getOccurredAt()) + "</td>" +
+                    "<td>" + toMs(slowMapping.getDurationInNs()) + "</td>" +
+                    "<td>" + toMs(slowMapping.getThresholdInNs()) + "</td>" +
+                    "<td>" + escapeHtml4(slowMapping.getModelType()) + "</td>" +
+                    "<td>" + escapeHtml4(slowMapping.getResourcePath()) + "</td>" +
+                    "<td>" + escapeHtml4(slowMapping.getResourceType()) + "</td>" +
+                    "<td>" + slowMapping.getDepth() + "</td>" +
+                    "<td>" + slowMapping.getNestedMappings() + "</td>" +
+                    "<td>");
+            for (String mapping : slowMapping.getMappingStack()) {
+                writer.write(escapeHtml4(mapping) + "<br />");
+            }
+            writer.write("</td></tr>");
+        }
+        writer.write("</tbody></table>");
+    }
+
+    private static void writeTrace(MappingTrace trace, String pluginRoot, PrintWriter writer) {
+        writer.write("<p class=\"statline\">" + escapeHtml4(trace.getMethod()) + ' ' + escapeHtml4(trace.getUri()) +
+                " started " + new Date(trace.getStartedAt()) + " took " + toMs(trace.getDurationInNs()) + " ms. " +
+                "<a href=\"" + pluginRoot + TRACE_API_PATH + trace.getId() + "\">Download</a> in the trace event format " +
+                "to analyze the trace using chrome://tracing or speedscope.</p>");
+        if (trace.isTruncated()) {
+            writer.write("<p>The trace reached its maximum size, subsequent mappings were omitted.</p>");
+        }
+        writer.write("<div class=\"ui-widget-content\">");
+        writeNodes(trace.getRoots(), writer);
+        writer.write("</div>");
+    }
+
+    private static void writeNodes(List<MappingTrace.Node> nodes, PrintWriter writer) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        writer.write("<ul>");
+        for (MappingTrace.Node node : nodes) {
+            writer.write("<li>");
+            if (node.getKind() == CACHE_HIT) {
+                writer.write("<em>cache hit</em> ");
+            } else {
+                writer.write("<strong>" + toMs(node.getDurationInNs()) + " ms</strong> ");
+                if (node.getKind() == LAZY_LOAD) {
+                    writer.write("<em>lazy load</em> ");
+                }
+            }
+            writer.write(escapeHtml4(node.getName()) + " &larr; " + escapeHtml4(node.getPath()));
+            writeNodes(node.getChildren(), writer);
+            writer.write("</li>");
+        }
+        writer.write("</ul>");
+    }
+
+    private static String toMs(long durationInNs) {
+        return format(ENGLISH, "%.3f", durationInNs / 1000000D);
+    }
+}
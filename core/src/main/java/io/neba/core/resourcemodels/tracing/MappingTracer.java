@@ -0,0 +1,213 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import io.neba.core.resourcemodels.mapping.NestedMappingSupport;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.component.annotations.Reference;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.FilterConfig;
+import javax.servlet.ServletException;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.lang.Math.max;
+import static java.util.Arrays.asList;
+import static java.util.Comparator.comparingLong;
+import static org.osgi.framework.Constants.SERVICE_RANKING;
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+
+/**
+ * Records a {@link MappingTrace} for a configurable fraction of all requests, and for requests carrying the
+ * configured debug header if they originate from an allowed address. The id of the trace is sent
+ * in the {@link #TRACE_ID_HEADER} response header. The most recent traces are retained in a bounded ring
+ * buffer and can be viewed using the {@link MappingTraceConsolePlugin mapping trace console}.
+ * <p>
+ * This filter is ranked above the {@link io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache}
+ * in order to include its cache hits in the trace.
+ *
+ * @author Olaf Otto
+ */
+@Component(
+        service = {Filter.class, MappingTracer.class},
+        property = {
+                SERVICE_VENDOR + "=neba.io",
+                "sling.filter.scope=REQUEST",
+                SERVICE_RANKING + ":Integer=10000"
+        }
+)
+@Designate(ocd = MappingTracer.Configuration.class)
+public class MappingTracer implements Filter {
+    static final String TRACE_ID_HEADER = "X-Neba-Trace-Id";
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Reference
+    private NestedMappingSupport nestedMappingSupport;
+
+    private volatile AtomicReferenceArray<MappingTrace> traces = new AtomicReferenceArray<>(0);
+    private double samplingRate;
+    private String debugHeader;
+    private Set<String> allowedAddresses;
+
+    @Activate
+    @Modified
+    protected void activate(Configuration configuration) {
+        this.samplingRate = configuration.samplingRate();
+        this.debugHeader = configuration.debugHeader();
+        this.allowedAddresses = new HashSet<>(asList(configuration.allowedAddresses()));
+        this.traces = new AtomicReferenceArray<>(max(0, configuration.capacity()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void doFilter(@Nonnull ServletRequest request, @Nonnull ServletResponse response, @Nonnull FilterChain chain) throws IOException, ServletException {
+        final AtomicReferenceArray<MappingTrace> traces = this.traces;
+
+        if (traces.length() == 0 ||
+                !(request instanceof HttpServletRequest) ||
+                !isTraced((HttpServletRequest) request) ||
+                this.nestedMappingSupport.getTrace() != null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        final HttpServletRequest httpServletRequest = (HttpServletRequest) request;
+        final MappingTrace trace = new MappingTrace(
+                this.sequence.incrementAndGet(),
+                httpServletRequest.getMethod(),
+                httpServletRequest.getRequestURI(),
+                System.currentTimeMillis());
+
+        if (response instanceof HttpServletResponse) {
+            ((HttpServletResponse) response).setHeader(TRACE_ID_HEADER, Long.toString(trace.getId()));
+        }
+
+        this.nestedMappingSupport.beginTracing(trace);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            this.nestedMappingSupport.endTracing();
+            trace.complete();
+            traces.set(indexOf(trace.getId(), traces), trace);
+        }
+    }
+
+    /**
+     * @return the retained traces, most recent first. Never <code>null</code>.
+     */
+    @Nonnull
+    public List<MappingTrace> getTraces() {
+        final AtomicReferenceArray<MappingTrace> traces = this.traces;
+        List<MappingTrace> result = new ArrayList<>(traces.length());
+        for (int i = 0; i < traces.length(); ++i) {
+            MappingTrace trace = traces.get(i);
+            if (trace != null) {
+                result.add(trace);
+            }
+        }
+        result.sort(comparingLong(MappingTrace::getId).reversed());
+        return result;
+    }
+
+    /**
+     * @param id the {@link MappingTrace#getId() id} of the trace.
+     * @return the trace, or <code>null</code> if no trace with the given id is retained.
+     */
+    @CheckForNull
+    public MappingTrace getTrace(long id) {
+        final AtomicReferenceArray<MappingTrace> traces = this.traces;
+        if (traces.length() == 0 || id < 1) {
+            return null;
+        }
+        MappingTrace trace = traces.get(indexOf(id, traces));
+        return trace != null && trace.getId() == id ? trace : null;
+    }
+
+    /**
+     * Removes all retained traces.
+     */
+    public void clear() {
+        this.traces = new AtomicReferenceArray<>(this.traces.length());
+    }
+
+    private boolean isTraced(HttpServletRequest request) {
+        if (this.debugHeader != null && !this.debugHeader.isEmpty() && request.getHeader(this.debugHeader) != null) {
+            return this.allowedAddresses.contains(request.getRemoteAddr());
+        }
+        return this.samplingRate > 0 && ThreadLocalRandom.current().nextDouble() < this.samplingRate;
+    }
+
+    private static int indexOf(long id, AtomicReferenceArray<MappingTrace> traces) {
+        return (int) (id % traces.length());
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+        // ignore
+    }
+
+    @Override
+    public void destroy() {
+        // ignore
+    }
+
+    @ObjectClassDefinition(name = "NEBA mapping tracer", description = "Records the tree of resource model mappings of selected requests, " +
+            "including mapping durations, cache hits and lazy loading. Traces can be viewed in the 'Mapping traces' tab of the Felix console.")
+    public @interface Configuration {
+        @AttributeDefinition(
+                name = "Sampling rate",
+                description = "The fraction of requests to trace, e.g. 0.001 to trace one in a thousand requests. 0 disables sampling.")
+        double samplingRate() default 0;
+
+        @AttributeDefinition(
+                name = "Debug header",
+                description = "Requests carrying this header are traced, provided they originate from one of the allowed addresses. " +
+                        "Leave empty to disable.")
+        String debugHeader() default "X-Neba-Trace";
+
+        @AttributeDefinition(
+                name = "Allowed addresses",
+                description = "The remote addresses from which requests may enforce tracing using the debug header.")
+        String[] allowedAddresses() default {"127.0.0.1", "0:0:0:0:0:0:0:1", "::1"};
+
+        @AttributeDefinition(
+                name = "Capacity",
+                description = "The number of most recent traces to retain. 0 disables tracing.")
+        int capacity() default 50;
+    }
+}
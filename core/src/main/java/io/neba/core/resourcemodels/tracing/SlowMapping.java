@@ -0,0 +1,113 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import javax.annotation.Nonnull;
+import java.util.List;
+
+import static java.util.Collections.unmodifiableList;
+
+/**
+ * A mapping whose duration exceeded the threshold of the {@link SlowMappingDetector}.
+ *
+ * @author Olaf Otto
+ */
+public class SlowMapping {
+    private final long occurredAt;
+    private final String modelType;
+    private final String resourcePath;
+    private final String resourceType;
+    private final long durationInNs;
+    private final long thresholdInNs;
+    private final int nestedMappings;
+    private final List<String> mappingStack;
+
+    SlowMapping(long occurredAt,
+                @Nonnull String modelType,
+                @Nonnull String resourcePath,
+                @Nonnull String resourceType,
+                long durationInNs,
+                long thresholdInNs,
+                int nestedMappings,
+                @Nonnull List<String> mappingStack) {
+        this.occurredAt = occurredAt;
+        this.modelType = modelType;
+        this.resourcePath = resourcePath;
+        this.resourceType = resourceType;
+        this.durationInNs = durationInNs;
+        this.thresholdInNs = thresholdInNs;
+        this.nestedMappings = nestedMappings;
+        this.mappingStack = unmodifiableList(mappingStack);
+    }
+
+    /**
+     * @return the end of the mapping in terms of {@link System#currentTimeMillis()}.
+     */
+    public long getOccurredAt() {
+        return occurredAt;
+    }
+
+    @Nonnull
+    public String getModelType() {
+        return modelType;
+    }
+
+    @Nonnull
+    public String getResourcePath() {
+        return resourcePath;
+    }
+
+    /**
+     * @return the resource type the model was resolved for, e.g. "components/teaser" or "cq:Page".
+     */
+    @Nonnull
+    public String getResourceType() {
+        return resourceType;
+    }
+
+    public long getDurationInNs() {
+        return durationInNs;
+    }
+
+    /**
+     * @return the threshold that was exceeded, in ns.
+     */
+    public long getThresholdInNs() {
+        return thresholdInNs;
+    }
+
+    /**
+     * @return the number of mappings that occurred during this mapping, including indirectly nested mappings.
+     */
+    public int getNestedMappings() {
+        return nestedMappings;
+    }
+
+    /**
+     * @return the depth of this mapping, i.e. 1 for a mapping without parent mappings.
+     */
+    public int getDepth() {
+        return mappingStack.size();
+    }
+
+    /**
+     * @return the ongoing mappings, starting with the outermost mapping and ending with this mapping. Never <code>null</code>.
+     */
+    @Nonnull
+    public List<String> getMappingStack() {
+        return mappingStack;
+    }
+}
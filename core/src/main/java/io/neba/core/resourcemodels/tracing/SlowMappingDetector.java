@@ -0,0 +1,260 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import io.neba.core.resourcemodels.mapping.Mapping;
+import org.osgi.service.component.annotations.Activate;
+import org.osgi.service.component.annotations.Component;
+import org.osgi.service.component.annotations.Modified;
+import org.osgi.service.metatype.annotations.AttributeDefinition;
+import org.osgi.service.metatype.annotations.Designate;
+import org.osgi.service.metatype.annotations.ObjectClassDefinition;
+import org.slf4j.Logger;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import static java.lang.Long.MAX_VALUE;
+import static java.lang.Math.max;
+import static java.lang.Math.min;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+import static org.apache.commons.lang3.StringUtils.join;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+import static org.apache.commons.lang3.math.NumberUtils.toLong;
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Detects {@link io.neba.api.annotations.ResourceModel resource model} mappings exceeding a configurable
+ * threshold, which may be overridden per model type. Unlike the averaged
+ * {@link io.neba.core.resourcemodels.metadata.ResourceModelStatistics}, each {@link SlowMapping} identifies the
+ * offending content by its resource path and resource type and retains the mapping stack at the time.
+ * <p>
+ * The most recent slow mappings are retained in a bounded ring buffer shown in the
+ * {@link MappingTraceConsolePlugin mapping trace console}. Slow mappings are also logged, however at most
+ * {@link Configuration#maximumReportsPerMinute()} times per minute in order not to flood the log during an incident.
+ * <p>
+ * Only the outermost mapping of a model type is checked: The duration of a mapping nested within an ongoing mapping of
+ * the same model type is not tracked, as it is already part of the duration of the enclosing mapping. A slow nested mapping
+ * is thus reported as a slow enclosing mapping of the same type.
+ *
+ * @author Olaf Otto
+ */
+@Component(
+        service = SlowMappingDetector.class,
+        property = SERVICE_VENDOR + "=neba.io"
+)
+@Designate(ocd = SlowMappingDetector.Configuration.class)
+public class SlowMappingDetector {
+    private static final long RATE_LIMIT_WINDOW_IN_MS = MINUTES.toMillis(1);
+
+    private final Logger logger = getLogger(getClass());
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicLong rateLimitWindowStart = new AtomicLong();
+    private final AtomicInteger reportsInRateLimitWindow = new AtomicInteger();
+    private final AtomicInteger suppressedReports = new AtomicInteger();
+
+    private volatile AtomicReferenceArray<SlowMapping> slowMappings = new AtomicReferenceArray<>(0);
+    // Replaced as a whole upon reconfiguration so that mappings never observe a partially applied configuration.
+    private volatile Thresholds thresholds = new Thresholds(MAX_VALUE, MAX_VALUE, emptyMap(), 0);
+
+    @Activate
+    @Modified
+    protected void activate(Configuration configuration) {
+        final long defaultThresholdInNs = toThresholdInNs(configuration.thresholdInMs());
+
+        Map<String, Long> typeThresholdsInNs = new HashMap<>();
+        long minimumThresholdInNs = defaultThresholdInNs;
+        for (String typeThreshold : configuration.typeThresholds()) {
+            String typeName = substringBefore(typeThreshold, "=").trim();
+            long thresholdInMs = toLong(substringAfter(typeThreshold, "=").trim(), -1);
+            if (typeName.isEmpty() || thresholdInMs < 0) {
+                this.logger.warn("Ignoring the invalid slow mapping threshold '" + typeThreshold + "', " +
+                        "expected <fully qualified model type name>=<threshold in ms>.");
+                continue;
+            }
+            long thresholdInNs = toThresholdInNs(thresholdInMs);
+            typeThresholdsInNs.put(typeName, thresholdInNs);
+            minimumThresholdInNs = min(minimumThresholdInNs, thresholdInNs);
+        }
+
+        this.thresholds = new Thresholds(defaultThresholdInNs, minimumThresholdInNs, typeThresholdsInNs, configuration.maximumReportsPerMinute());
+        this.slowMappings = new AtomicReferenceArray<>(max(0, configuration.capacity()));
+    }
+
+    /**
+     * Records the given mapping if its duration exceeds the threshold applicable to the mapped model type.
+     * Mappings nested within an ongoing mapping of the same model type are not passed to this method, see above.
+     *
+     * @param mapping      the completed mapping. Must not be <code>null</code>.
+     * @param durationInNs the duration of the mapping.
+     * @param mappingStack the ongoing mappings, starting with the outermost mapping and including the completed mapping.
+     *                     Must not be <code>null</code>.
+     */
+    @SuppressWarnings("rawtypes")
+    public void mappingCompleted(@Nonnull Mapping<?> mapping, long durationInNs, @Nonnull Iterable<? extends Mapping> mappingStack) {
+        final Thresholds thresholds = this.thresholds;
+        if (durationInNs < thresholds.minimumThresholdInNs) {
+            return;
+        }
+
+        final String typeName = mapping.getMetadata().getTypeName();
+        final Long typeThresholdInNs = thresholds.typeThresholdsInNs.get(typeName);
+        final long thresholdInNs = typeThresholdInNs == null ? thresholds.defaultThresholdInNs : typeThresholdInNs;
+        if (durationInNs < thresholdInNs) {
+            return;
+        }
+
+        List<String> stack = new ArrayList<>();
+        for (Mapping ongoingMapping : mappingStack) {
+            stack.add(ongoingMapping.getResourcePath() + " -> " + ongoingMapping.getMetadata().getTypeName());
+        }
+
+        SlowMapping slowMapping = new SlowMapping(
+                currentTimeMillis(),
+                typeName,
+                mapping.getResourcePath(),
+                mapping.getResourceType(),
+                durationInNs,
+                thresholdInNs,
+                mapping.getNestedMappings(),
+                stack);
+
+        record(slowMapping);
+        log(slowMapping, thresholds.maximumReportsPerMinute);
+    }
+
+    /**
+     * @return the retained slow mappings, most recent first. Never <code>null</code>.
+     */
+    @Nonnull
+    public List<SlowMapping> getSlowMappings() {
+        final AtomicReferenceArray<SlowMapping> slowMappings = this.slowMappings;
+        final long last = this.sequence.get();
+        final List<SlowMapping> result = new ArrayList<>(slowMappings.length());
+        for (long i = last; i > 0 && i > last - slowMappings.length(); --i) {
+            SlowMapping slowMapping = slowMappings.get((int) (i % slowMappings.length()));
+            if (slowMapping != null) {
+                result.add(slowMapping);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Removes all retained slow mappings.
+     */
+    public void clear() {
+        this.slowMappings = new AtomicReferenceArray<>(this.slowMappings.length());
+    }
+
+    private void record(SlowMapping slowMapping) {
+        final AtomicReferenceArray<SlowMapping> slowMappings = this.slowMappings;
+        if (slowMappings.length() == 0) {
+            return;
+        }
+        slowMappings.set((int) (this.sequence.incrementAndGet() % slowMappings.length()), slowMapping);
+    }
+
+    private void log(SlowMapping slowMapping, int maximumReportsPerMinute) {
+        if (!isWithinRateLimit(maximumReportsPerMinute)) {
+            this.suppressedReports.incrementAndGet();
+            return;
+        }
+
+        int suppressedReports = this.suppressedReports.getAndSet(0);
+        this.logger.warn("The mapping of " + slowMapping.getResourcePath() + " (" + slowMapping.getResourceType() + ") to " +
+                slowMapping.getModelType() + " took " + toMs(slowMapping.getDurationInNs()) + " ms, exceeding the threshold of " +
+                toMs(slowMapping.getThresholdInNs()) + " ms. Depth: " + slowMapping.getDepth() + ", nested mappings: " +
+                slowMapping.getNestedMappings() + ", mapping stack: " + join(slowMapping.getMappingStack(), " >> ") + "." +
+                (suppressedReports == 0 ? "" : " " + suppressedReports + " further slow mappings were not logged to avoid flooding the log."));
+    }
+
+    private boolean isWithinRateLimit(int maximumReportsPerMinute) {
+        final long now = currentTimeMillis();
+        final long windowStart = this.rateLimitWindowStart.get();
+        if (now - windowStart >= RATE_LIMIT_WINDOW_IN_MS && this.rateLimitWindowStart.compareAndSet(windowStart, now)) {
+            this.reportsInRateLimitWindow.set(0);
+        }
+        return this.reportsInRateLimitWindow.incrementAndGet() <= maximumReportsPerMinute;
+    }
+
+    private static long toThresholdInNs(long thresholdInMs) {
+        return thresholdInMs <= 0 ? MAX_VALUE : MILLISECONDS.toNanos(thresholdInMs);
+    }
+
+    private static long toMs(long durationInNs) {
+        return durationInNs / 1000000L;
+    }
+
+    /**
+     * The immutable thresholds resulting from the {@link Configuration}.
+     *
+     * @author Olaf Otto
+     */
+    private static final class Thresholds {
+        private final long defaultThresholdInNs;
+        // The lowest of all thresholds, allowing to dismiss most mappings with a single comparison.
+        private final long minimumThresholdInNs;
+        private final Map<String, Long> typeThresholdsInNs;
+        private final int maximumReportsPerMinute;
+
+        Thresholds(long defaultThresholdInNs, long minimumThresholdInNs, Map<String, Long> typeThresholdsInNs, int maximumReportsPerMinute) {
+            this.defaultThresholdInNs = defaultThresholdInNs;
+            this.minimumThresholdInNs = minimumThresholdInNs;
+            this.typeThresholdsInNs = unmodifiableMap(typeThresholdsInNs);
+            this.maximumReportsPerMinute = maximumReportsPerMinute;
+        }
+    }
+
+    @ObjectClassDefinition(name = "NEBA slow mapping detector", description = "Records and logs resource model mappings exceeding a threshold, " +
+            "including the path of the mapped resource and the mapping stack. Slow mappings can be viewed in the 'Mapping traces' tab of the Felix console.")
+    public @interface Configuration {
+        @AttributeDefinition(
+                name = "Threshold (ms)",
+                description = "Mappings taking at least this many milliseconds are considered slow. 0 disables the detection, except for " +
+                        "model types with a type-specific threshold.")
+        long thresholdInMs() default 250;
+
+        @AttributeDefinition(
+                name = "Type-specific thresholds",
+                description = "Thresholds overriding the above threshold for specific models in the form <fully qualified model type name>=<threshold in ms>, " +
+                        "e.g. com.acme.models.Navigation=1000. A threshold of 0 disables the detection for the model type.")
+        String[] typeThresholds() default {};
+
+        @AttributeDefinition(
+                name = "Capacity",
+                description = "The number of most recent slow mappings to retain.")
+        int capacity() default 100;
+
+        @AttributeDefinition(
+                name = "Maximum reports per minute",
+                description = "Slow mappings are logged at most this many times per minute. Further slow mappings are still retained, " +
+                        "and their number is included in the next log message.")
+        int maximumReportsPerMinute() default 10;
+    }
+}
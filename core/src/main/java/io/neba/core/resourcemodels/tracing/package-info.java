@@ -0,0 +1,24 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+/**
+ * The {@link io.neba.core.resourcemodels.tracing.MappingTracer} records the tree of resource model mappings
+ * of selected requests as a {@link io.neba.core.resourcemodels.tracing.MappingTrace}. Recent traces can be viewed
+ * using the {@link io.neba.core.resourcemodels.tracing.MappingTraceConsolePlugin mapping trace console} and exported
+ * for flame chart analysis via the {@link io.neba.core.resourcemodels.tracing.ChromeTraceExport}.
+ * On Java 11 and later, mappings, model lookups, cache lookups and JSON view rendering are additionally
+ * reported as Java Flight Recorder events by the {@link io.neba.core.resourcemodels.tracing.FlightRecorderEvents}.
+ */
+package io.neba.core.resourcemodels.tracing;
@@ -17,6 +17,7 @@ package io.neba.core.resourcemodels.views.json;
 
 import io.neba.api.services.ResourceModelResolver;
 import io.neba.core.resourcemodels.mapping.NestedMappingSupport;
+import io.neba.core.resourcemodels.tracing.FlightRecorderEvents;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.SlingHttpServletResponse;
 import org.apache.sling.api.servlets.SlingAllMethodsServlet;
@@ -41,6 +42,7 @@ import java.util.Enumeration;
 import java.util.regex.Pattern;
 
 import static io.neba.core.util.BundleUtil.displayNameOf;
+import static java.lang.System.nanoTime;
 import static java.util.regex.Pattern.compile;
 import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
@@ -65,6 +67,9 @@ public class JsonViewServlets extends SlingAllMethodsServlet implements BundleLi
     @Reference
     private NestedMappingSupport nestedMappingSupport;
 
+    @Reference
+    private JsonViewStatistics statistics;
+
     private Jackson2ModelSerializer serializer;
     private Configuration configuration;
     private String bundleName;
@@ -163,7 +168,14 @@ public class JsonViewServlets extends SlingAllMethodsServlet implements BundleLi
                 response.setHeader("Etag", etag);
             }
             response.setCharacterEncoding(this.configuration.encoding());
+            // null if the flight recorder event is disabled.
+            Object renderingEvent = FlightRecorderEvents.beginJsonViewRendering();
+            long start = nanoTime();
             serializer.serialize(response.getWriter(), model);
+            statistics.countRendering(nanoTime() - start);
+            if (renderingEvent != null) {
+                FlightRecorderEvents.endJsonViewRendering(renderingEvent, request.getResource().getPath(), model.getClass());
+            }
         } finally {
             nestedMappingSupport.endRecordingMappings();
         }
@@ -0,0 +1,60 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.views.json;
+
+import io.neba.core.resourcemodels.metadata.LatencyHistogram;
+import org.osgi.service.component.annotations.Component;
+
+import javax.annotation.Nonnull;
+
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+
+/**
+ * Records the time the {@link JsonViewServlets} spend rendering models to JSON. A single instance is shared by
+ * all configured JSON view servlets, such that the render durations represent all JSON views of the instance.
+ *
+ * @author Olaf Otto
+ */
+@Component(
+        service = JsonViewStatistics.class,
+        property = SERVICE_VENDOR + "=neba.io"
+)
+public class JsonViewStatistics {
+    private volatile LatencyHistogram renderDurations = new LatencyHistogram();
+
+    /**
+     * @param durationInNs the time it took to serialize a model to the response, in nanoseconds.
+     */
+    public void countRendering(long durationInNs) {
+        this.renderDurations.record(durationInNs);
+    }
+
+    /**
+     * @return a copy of the render durations recorded so far. The values of the histogram are sampled independently of each other
+     * and may thus not reflect renderings recorded concurrently to this invocation. Never <code>null</code>.
+     */
+    @Nonnull
+    public LatencyHistogram.Snapshot getRenderDurations() {
+        return this.renderDurations.snapshot();
+    }
+
+    /**
+     * Discards all recorded render durations.
+     */
+    public void reset() {
+        this.renderDurations = new LatencyHistogram();
+    }
+}
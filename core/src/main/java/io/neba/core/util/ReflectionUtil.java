@@ -18,6 +18,7 @@ package io.neba.core.util;
 
 import org.apache.commons.lang3.reflect.TypeUtils;
 
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Member;
 import java.lang.reflect.Method;
@@ -317,6 +318,24 @@ public final class ReflectionUtil {
         return method;
     }
 
+    /**
+     * Makes the {@link Constructor#setAccessible(boolean) accessible} only if it is not.
+     *
+     * @param constructor must not be <code>null</code>.
+     * @return the given constructor.
+     */
+    public static <T> Constructor<T> makeAccessible(Constructor<T> constructor) {
+        if (constructor == null) {
+            throw new IllegalArgumentException("Method argument constructor must not be null.");
+        }
+
+        if (isInaccessible(constructor) && !constructor.isAccessible()) {
+            constructor.setAccessible(true);
+        }
+
+        return constructor;
+    }
+
     private static boolean isInaccessible(Member member) {
         return !isPublic(member.getModifiers()) ||
                 !isPublic(member.getDeclaringClass().getModifiers());
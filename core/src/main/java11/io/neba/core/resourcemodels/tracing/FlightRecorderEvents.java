@@ -0,0 +1,156 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import jdk.jfr.EventType;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+
+/**
+ * Emits Java Flight Recorder events for resource model mappings, model registry lookups, request-scoped
+ * cache lookups and JSON view rendering. This is the Java 11+ version of this class contained in the
+ * multi-release core bundle, see the Java 8 version for the contract.
+ * <p>
+ * The flight recorder API may not be visible to the core bundle, e.g. if the <code>jdk.jfr</code> package is
+ * neither boot-delegated nor exported by the system bundle. In this case, no events are emitted. The event
+ * classes are thus only loaded once the availability of the API was verified.
+ * </p>
+ * <p>
+ * Whether an event is enabled is checked using its {@link EventType}, which is resolved once. Disabled events are
+ * thus never instantiated.
+ * </p>
+ *
+ * @author Olaf Otto
+ */
+public final class FlightRecorderEvents {
+    private static final boolean AVAILABLE = isFlightRecorderAvailable();
+
+    @CheckForNull
+    public static Object beginMapping() {
+        if (!AVAILABLE || !EventTypes.MAPPING.isEnabled()) {
+            return null;
+        }
+        MappingEvent event = new MappingEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endMapping(@CheckForNull Object event, @Nonnull Class<?> modelType, @Nonnull String resourcePath, int depth) {
+        if (event == null) {
+            return;
+        }
+        MappingEvent mappingEvent = (MappingEvent) event;
+        mappingEvent.end();
+        if (mappingEvent.shouldCommit()) {
+            mappingEvent.modelType = modelType;
+            mappingEvent.resourcePath = resourcePath;
+            mappingEvent.depth = depth;
+            mappingEvent.commit();
+        }
+    }
+
+    @CheckForNull
+    public static Object beginModelLookup() {
+        if (!AVAILABLE || !EventTypes.MODEL_LOOKUP.isEnabled()) {
+            return null;
+        }
+        ModelLookupEvent event = new ModelLookupEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endModelLookup(@CheckForNull Object event, @Nonnull String resourcePath, @CheckForNull String resourceType,
+                                      boolean fromLookupCache, int numberOfModels, int hierarchySteps) {
+        if (event == null) {
+            return;
+        }
+        ModelLookupEvent lookupEvent = (ModelLookupEvent) event;
+        lookupEvent.end();
+        if (lookupEvent.shouldCommit()) {
+            lookupEvent.resourcePath = resourcePath;
+            lookupEvent.resourceType = resourceType;
+            lookupEvent.fromLookupCache = fromLookupCache;
+            lookupEvent.numberOfModels = numberOfModels;
+            lookupEvent.hierarchySteps = hierarchySteps;
+            lookupEvent.commit();
+        }
+    }
+
+    public static boolean isCacheLookupEnabled() {
+        return AVAILABLE && EventTypes.CACHE_LOOKUP.isEnabled();
+    }
+
+    public static void cacheLookup(@Nonnull String resourcePath, @CheckForNull Class<?> modelType, boolean hit) {
+        if (!isCacheLookupEnabled()) {
+            return;
+        }
+        CacheLookupEvent event = new CacheLookupEvent();
+        if (event.shouldCommit()) {
+            event.resourcePath = resourcePath;
+            event.modelType = modelType;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    @CheckForNull
+    public static Object beginJsonViewRendering() {
+        if (!AVAILABLE || !EventTypes.JSON_VIEW_RENDERING.isEnabled()) {
+            return null;
+        }
+        JsonViewRenderingEvent event = new JsonViewRenderingEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endJsonViewRendering(@CheckForNull Object event, @Nonnull String resourcePath, @Nonnull Class<?> modelType) {
+        if (event == null) {
+            return;
+        }
+        JsonViewRenderingEvent renderingEvent = (JsonViewRenderingEvent) event;
+        renderingEvent.end();
+        if (renderingEvent.shouldCommit()) {
+            renderingEvent.resourcePath = resourcePath;
+            renderingEvent.modelType = modelType;
+            renderingEvent.commit();
+        }
+    }
+
+    private static boolean isFlightRecorderAvailable() {
+        try {
+            Class.forName("jdk.jfr.Event", false, FlightRecorderEvents.class.getClassLoader());
+            // Resolves the event types, which fails if the flight recorder is unusable.
+            Class.forName(EventTypes.class.getName(), true, FlightRecorderEvents.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The types of the events, only initialized once the availability of the flight recorder API was verified.
+     */
+    private static final class EventTypes {
+        private static final EventType MAPPING = EventType.getEventType(MappingEvent.class);
+        private static final EventType MODEL_LOOKUP = EventType.getEventType(ModelLookupEvent.class);
+        private static final EventType CACHE_LOOKUP = EventType.getEventType(CacheLookupEvent.class);
+        private static final EventType JSON_VIEW_RENDERING = EventType.getEventType(JsonViewRenderingEvent.class);
+    }
+
+    private FlightRecorderEvents() {
+    }
+}
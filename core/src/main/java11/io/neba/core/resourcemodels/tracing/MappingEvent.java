@@ -0,0 +1,47 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The mapping of a resource onto a resource model, including all nested mappings.
+ *
+ * @author Olaf Otto
+ */
+@Name("io.neba.Mapping")
+@Label("Resource Model Mapping")
+@Category({"NEBA", "Resource Models"})
+@Description("The mapping of a resource onto a resource model, including all nested mappings.")
+@Enabled(false)
+@StackTrace(false)
+class MappingEvent extends Event {
+    @Label("Model Type")
+    Class<?> modelType;
+
+    @Label("Resource Path")
+    String resourcePath;
+
+    @Label("Depth")
+    @Description("The number of ongoing mappings, including this mapping.")
+    int depth;
+}
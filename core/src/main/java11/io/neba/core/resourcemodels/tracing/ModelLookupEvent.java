@@ -0,0 +1,53 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The lookup of the models for a resource in the model registry.
+ *
+ * @author Olaf Otto
+ */
+@Name("io.neba.ModelLookup")
+@Label("Model Registry Lookup")
+@Category({"NEBA", "Resource Models"})
+@Description("The lookup of the models for a resource in the model registry.")
+@Enabled(false)
+@StackTrace(false)
+class ModelLookupEvent extends Event {
+    @Label("Resource Path")
+    String resourcePath;
+
+    @Label("Resource Type")
+    String resourceType;
+
+    @Label("From Lookup Cache")
+    boolean fromLookupCache;
+
+    @Label("Number Of Models")
+    int numberOfModels;
+
+    @Label("Hierarchy Steps")
+    @Description("The number of mappable types traversed to resolve the models. 0 if the lookup was answered from the lookup cache.")
+    int hierarchySteps;
+}
@@ -133,6 +133,9 @@
                         fields = [
                             {name: "averageMappingDuration", max: 0, label: '\u00D8 duration', unit: "ms"},
                             {name: "mappingDurationMedian", max: 0, label: 'Median', unit: "ms"},
+                            {name: "mappingDurationP90", max: 0, label: '90th percentile', unit: "ms"},
+                            {name: "mappingDurationP99", max: 0, label: '99th percentile', unit: "ms"},
+                            {name: "mappingDurationP999", max: 0, label: '99.9th percentile', unit: "ms"},
                             {name: "lazyFields", max: 0, label: 'Lazy fields'},
                             {name: "greedyFields", max: 0, label: 'Greedy fields'},
                             {name: "totalMappingDuration", max: 0, label: 'Total time', unit: "ms"},
@@ -231,7 +234,11 @@
                         var svg = wrapper.append('svg')
                             .attr('class', 'chart')
                             .attr('width', width + margin.left + margin.right)
-                            .attr('height', height + margin.top + margin.bottom);
+                            .attr('height', height + margin.top + margin.bottom)
+                            .attr('title', 'Click to show the throughput and latency of the last 15 minutes')
+                            .on('click', function () {
+                                toggleTimeline(wrapper, d.type, width + margin.left + margin.right);
+                            });
                         var starG = svg.append('g')
                             .datum(d)
                             .call(star)
@@ -257,17 +264,164 @@
                 // create and fade-in the new diagrams.
                 var existingPlots = d3.selectAll(".wrapper");
                 if (existingPlots.empty()) {
-                    d3.json("modelstatistics/api/statistics", visualizeData);
+                    d3.json(statisticsUrl(), visualizeData);
                 } else {
                     var n = 0;
                     existingPlots.transition().style("opacity", 0).remove().each(function() { ++n}).each("end", function() {
                         if (!--n) {
-                            d3.json("modelstatistics/api/statistics", visualizeData);
+                            d3.json(statisticsUrl(), visualizeData);
                         }
                     });
                 }
             };
 
+        // The statistics API URL, including the selected rolling window (if any).
+        function statisticsUrl(type) {
+            var window = $("#statisticsWindow").val(),
+                url = "modelstatistics/api/statistics" + (type ? "/" + encodeURIComponent(type) : "");
+            return window ? url + "?window=" + window : url;
+        }
+
+        // Shows or hides a chart of the model's instantiations per minute (bars) and
+        // 99th percentile mapping duration (line) during the last 15 minutes, followed by
+        // the sampled per-field mapping costs, if field profiling is enabled.
+        function toggleTimeline(wrapper, type, chartWidth) {
+            var existing = wrapper.select(".details");
+            if (!existing.empty()) {
+                existing.remove();
+                return;
+            }
+
+            d3.json(statisticsUrl(type), function (data) {
+                if (!data || !data.timeline) {
+                    return;
+                }
+
+                var timeline = data.timeline,
+                    margin = {top: 10, right: 40, bottom: 20, left: 40},
+                    width = chartWidth - margin.left - margin.right,
+                    height = 120 - margin.top - margin.bottom,
+                    x = d3.scale.ordinal().domain(timeline.map(function (t) { return t.since; })).rangeBands([0, width], 0.1),
+                    throughput = d3.scale.linear().domain([0, d3.max(timeline, function (t) { return t.instantiations; }) || 1]).range([height, 0]),
+                    latency = d3.scale.linear().domain([0, d3.max(timeline, function (t) { return t.mappingDurationP99; }) || 1]).range([height, 0]),
+                    time = d3.time.format("%H:%M");
+
+                var details = wrapper.append("div").attr("class", "details");
+
+                var svg = details.append("svg")
+                    .attr("class", "timeline")
+                    .attr("width", chartWidth)
+                    .attr("height", height + margin.top + margin.bottom)
+                    .append("g")
+                    .attr("transform", "translate(" + margin.left + "," + margin.top + ")");
+
+                svg.selectAll(".throughput")
+                    .data(timeline)
+                    .enter().append("rect")
+                    .attr("class", "throughput")
+                    .attr("x", function (t) { return x(t.since); })
+                    .attr("width", x.rangeBand())
+                    .attr("y", function (t) { return throughput(t.instantiations); })
+                    .attr("height", function (t) { return height - throughput(t.instantiations); })
+                    .append("title")
+                    .text(function (t) {
+                        return time(new Date(t.since)) + ": " + t.instantiations + " instantiations, " +
+                            "median " + t.mappingDurationMedian.toFixed(3) + " ms, 99th percentile " + t.mappingDurationP99.toFixed(3) + " ms";
+                    });
+
+                svg.append("path")
+                    .datum(timeline)
+                    .attr("class", "latency")
+                    .attr("d", d3.svg.line()
+                        .x(function (t) { return x(t.since) + x.rangeBand() / 2; })
+                        .y(function (t) { return latency(t.mappingDurationP99); }));
+
+                svg.append("g")
+                    .attr("class", "x axis")
+                    .attr("transform", "translate(0," + height + ")")
+                    .call(d3.svg.axis().scale(x).orient("bottom")
+                        .tickValues(x.domain().filter(function (_, i) { return i % 5 === 0; }))
+                        .tickFormat(function (since) { return time(new Date(since)); }));
+
+                svg.append("g")
+                    .attr("class", "y axis")
+                    .call(d3.svg.axis().scale(throughput).orient("left").ticks(3));
+
+                svg.append("g")
+                    .attr("class", "y axis")
+                    .attr("transform", "translate(" + width + ",0)")
+                    .call(d3.svg.axis().scale(latency).orient("right").ticks(3).tickFormat(function (v) { return v + "ms"; }));
+
+                showFieldBreakdown(details, data.fields, chartWidth);
+            });
+        }
+
+        // Renders the sampled mapping costs of each field, most expensive fields first.
+        function showFieldBreakdown(details, fields, width) {
+            if (!fields || !fields.length) {
+                return;
+            }
+
+            var columns = [
+                    {label: "Field", value: function (f) { return f.name; }},
+                    {label: "Kind", value: function (f) { return f.kind; }},
+                    {label: "Samples", value: function (f) { return f.mappings; }},
+                    {label: "Avg. mapping", value: function (f) { return f.averageMappingDuration.toFixed(3) + " ms"; }},
+                    {label: "99th perc.", value: function (f) { return f.mappingDurationP99.toFixed(3) + " ms"; }},
+                    {label: "Lazy loads", value: function (f) { return f.lazyLoads; }},
+                    {label: "Avg. lazy load", value: function (f) { return f.averageLazyLoadDuration.toFixed(3) + " ms"; }},
+                    {label: "Avg. custom mappers", value: function (f) { return f.averageCustomMappingDuration.toFixed(3) + " ms"; }},
+                    {label: "Avg. nested mappings", value: function (f) { return f.averageNestedMappings.toFixed(1); }},
+                    {label: "Lazy values loaded", value: function (f) { return f.lazyValuesCreated ? f.lazyValuesLoaded + " / " + f.lazyValuesCreated : ""; }},
+                    {label: "Avg. load delay", value: function (f) { return f.lazyValuesLoaded ? f.averageLazyValueLoadDelay.toFixed(3) + " ms" : ""; }}
+                ],
+                table = details.append("table")
+                    .attr("class", "fields")
+                    .style("width", width + "px");
+
+            table.append("tr").selectAll("th")
+                .data(columns)
+                .enter().append("th")
+                .text(function (c) { return c.label; });
+
+            table.selectAll("tr.field")
+                .data(fields)
+                .enter().append("tr")
+                .attr("class", "field")
+                .selectAll("td")
+                .data(function (f) { return columns.map(function (c) { return c.value(f); }); })
+                .enter().append("td")
+                .text(function (v) { return v; });
+        }
+
+        // Lists the recommendations to make lazy fields eager or eager fields lazy, if any.
+        function showRecommendations() {
+            d3.json("modelstatistics/api/recommendations", function (recommendations) {
+                var target = d3.select("#recommendations");
+                target.selectAll("*").remove();
+                if (!recommendations || !recommendations.length) {
+                    return;
+                }
+
+                var columns = ["type", "field", "recommendation", "reason"],
+                    table = target.append("table").attr("class", "fields");
+
+                table.append("tr").selectAll("th")
+                    .data(["Model", "Field", "Recommendation", "Reason"])
+                    .enter().append("th")
+                    .text(function (label) { return label; });
+
+                table.selectAll("tr.recommendation")
+                    .data(recommendations)
+                    .enter().append("tr")
+                    .attr("class", "recommendation")
+                    .selectAll("td")
+                    .data(function (r) { return columns.map(function (c) { return r[c]; }); })
+                    .enter().append("td")
+                    .text(function (v) { return v; });
+            });
+        }
+
         filter.valid = true;
 
         // Process filter changes, do not actually submit the form.
@@ -392,10 +546,14 @@
             $.ajax({
                 url: "modelstatistics/api/reset",
                 dataType: 'json',
-                success: function() { processFilterExpression(true) }
+                success: function() { processFilterExpression(true); showRecommendations(); }
             });
         });
 
+        $("#statisticsWindow").change(function() {
+            processFilterExpression(true);
+        });
+
         $("#helpWithExpressions")
         .click(function() {
             $("#expressionHelp").slideToggle(500, function() {
@@ -412,6 +570,7 @@
             .attr("title", "Apply this filter");
 
         processFilterExpression();
+        showRecommendations();
         provideDefaultValue();
     });
 })(jQuery.noConflict());
@@ -0,0 +1,219 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.metrics;
+
+import io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache;
+import io.neba.core.resourcemodels.metadata.LatencyHistogram;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
+import io.neba.core.resourcemodels.registration.ModelRegistry;
+import io.neba.core.resourcemodels.views.json.JsonViewStatistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
+import javax.management.openmbean.CompositeData;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.neba.core.metrics.NebaMetrics.OTHER_MODELS;
+import static javax.management.MBeanServerFactory.newMBeanServer;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+import static org.mockito.Mockito.doReturn;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class NebaMetricsTest {
+    private static class ModelA {}
+    private static class ModelB {}
+    private static class ModelC {}
+    private static class ModelD {}
+
+    @Mock
+    private ResourceModelMetaDataRegistrar metaDataRegistrar;
+    @Mock
+    private ModelRegistry modelRegistry;
+    @Mock
+    private RequestScopedResourceModelCache requestScopedResourceModelCache;
+    @Mock
+    private JsonViewStatistics jsonViewStatistics;
+    @Mock
+    private NebaMetrics.Configuration configuration;
+
+    private final List<ResourceModelMetaData> metaData = new ArrayList<>();
+    private List<ModelMetrics> modelMetrics;
+
+    @InjectMocks
+    private NebaMetrics testee;
+
+    @Before
+    public void setUp() {
+        doReturn(this.metaData).when(this.metaDataRegistrar).get();
+        withTopModels(20);
+    }
+
+    @Test
+    public void testModelsAreOrderedByInstantiations() {
+        withModel(ModelA.class, 1, 10_000);
+        withModel(ModelB.class, 3, 20_000);
+        withModel(ModelC.class, 2, 30_000);
+
+        getModelMetrics();
+
+        assertModelNamesAre(ModelB.class.getName(), ModelC.class.getName(), ModelA.class.getName());
+        assertThat(this.modelMetrics.get(0).getInstantiations()).isEqualTo(3);
+        assertThat(this.modelMetrics.get(0).getMappings()).isEqualTo(3);
+        assertThat(this.modelMetrics.get(0).getMaximumMappingDuration()).isEqualTo(.02D);
+    }
+
+    @Test
+    public void testModelsBeyondTopModelsAreAggregated() {
+        withTopModels(2);
+        withModel(ModelA.class, 1, 10_000);
+        withModel(ModelB.class, 4, 20_000);
+        withModel(ModelC.class, 3, 30_000);
+        withModel(ModelD.class, 2, 40_000);
+
+        getModelMetrics();
+
+        assertModelNamesAre(ModelB.class.getName(), ModelC.class.getName(), OTHER_MODELS);
+        ModelMetrics other = this.modelMetrics.get(2);
+        assertThat(other.getInstantiations()).isEqualTo(3);
+        assertThat(other.getMappings()).isEqualTo(3);
+        assertThat(other.getMaximumMappingDuration()).isEqualTo(.04D);
+    }
+
+    @Test
+    public void testIndividuallyReportedModelsRemainReportedIndividually() {
+        withTopModels(1);
+        withModel(ModelA.class, 2, 10_000);
+        withModel(ModelB.class, 1, 20_000);
+        getModelMetrics();
+        assertModelNamesAre(ModelA.class.getName(), OTHER_MODELS);
+
+        withAdditionalInstantiations(ModelB.class, 5);
+        getModelMetrics();
+
+        assertModelNamesAre(ModelA.class.getName(), OTHER_MODELS);
+        assertThat(this.modelMetrics.get(1).getInstantiations()).isEqualTo(6);
+    }
+
+    @Test
+    public void testAllModelsAreAggregatedWithoutTopModels() {
+        withTopModels(0);
+        withModel(ModelA.class, 1, 10_000);
+        withModel(ModelB.class, 1, 20_000);
+
+        getModelMetrics();
+
+        assertModelNamesAre(OTHER_MODELS);
+        assertThat(this.modelMetrics.get(0).getInstantiations()).isEqualTo(2);
+    }
+
+    @Test
+    public void testNoModelsYieldEmptyModelMetrics() {
+        getModelMetrics();
+        assertThat(this.modelMetrics).isEmpty();
+    }
+
+    @Test
+    public void testCacheMetricsAreProvided() {
+        doReturn(1L).when(this.modelRegistry).getLookupCacheHits();
+        doReturn(2L).when(this.modelRegistry).getLookupCacheMisses();
+        doReturn(3).when(this.modelRegistry).getLookupCacheSize();
+        doReturn(4L).when(this.requestScopedResourceModelCache).getCacheHits();
+        doReturn(5L).when(this.requestScopedResourceModelCache).getCacheMisses();
+
+        assertThat(this.testee.getModelLookupCacheHits()).isEqualTo(1);
+        assertThat(this.testee.getModelLookupCacheMisses()).isEqualTo(2);
+        assertThat(this.testee.getModelLookupCacheSize()).isEqualTo(3);
+        assertThat(this.testee.getRequestCacheHits()).isEqualTo(4);
+        assertThat(this.testee.getRequestCacheMisses()).isEqualTo(5);
+    }
+
+    @Test
+    public void testJsonViewMetricsAreProvidedInMs() {
+        withJsonViewRenderDurations(1_000_000, 2_000_000, 3_000_000);
+
+        assertThat(this.testee.getJsonViewRenderings()).isEqualTo(3);
+        assertThat(this.testee.getJsonViewRenderDurationMedian()).isCloseTo(2D, withinPercentage(5));
+        assertThat(this.testee.getMaximumJsonViewRenderDuration()).isEqualTo(3D);
+    }
+
+    @Test
+    public void testMetricsArePublishableAsMXBean() throws Exception {
+        withModel(ModelA.class, 2, 10_000);
+        withJsonViewRenderDurations(1_000_000);
+
+        MBeanServer server = newMBeanServer();
+        ObjectName name = new ObjectName("io.neba:type=Metrics");
+        server.registerMBean(new StandardMBean(this.testee, NebaMetricsMXBean.class, true), name);
+
+        CompositeData[] models = (CompositeData[]) server.getAttribute(name, "ModelMetrics");
+        assertThat(models).hasSize(1);
+        assertThat(models[0].get("model")).isEqualTo(ModelA.class.getName());
+        assertThat(models[0].get("instantiations")).isEqualTo(2L);
+        assertThat(server.getAttribute(name, "JsonViewRenderings")).isEqualTo(1L);
+    }
+
+    private void withJsonViewRenderDurations(long... durationsInNs) {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long duration : durationsInNs) {
+            histogram.record(duration);
+        }
+        doReturn(histogram.snapshot()).when(this.jsonViewStatistics).getRenderDurations();
+    }
+
+    private void withModel(Class<?> modelType, int instantiations, long durationInNs) {
+        ResourceModelMetaData metaData = new ResourceModelMetaData(modelType);
+        for (int i = 0; i < instantiations; ++i) {
+            metaData.getStatistics().countInstantiation().countMappingDuration(durationInNs);
+        }
+        this.metaData.add(metaData);
+    }
+
+    private void withAdditionalInstantiations(Class<?> modelType, int instantiations) {
+        ResourceModelMetaData metaData = this.metaData.stream()
+                .filter(m -> m.getTypeName().equals(modelType.getName()))
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+        for (int i = 0; i < instantiations; ++i) {
+            metaData.getStatistics().countInstantiation().countMappingDuration(1_000);
+        }
+    }
+
+    private void withTopModels(int topModels) {
+        doReturn(topModels).when(this.configuration).topModels();
+        this.testee.activate(this.configuration);
+    }
+
+    private void getModelMetrics() {
+        this.modelMetrics = this.testee.getModelMetrics();
+    }
+
+    private void assertModelNamesAre(String... names) {
+        assertThat(this.modelMetrics).extracting(ModelMetrics::getModel).containsExactly(names);
+    }
+}
@@ -0,0 +1,161 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.metrics;
+
+import io.neba.core.resourcemodels.metadata.LatencyHistogram;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
+import org.apache.sling.api.SlingHttpServletRequest;
+import org.apache.sling.api.SlingHttpServletResponse;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import static io.neba.core.metrics.PrometheusMetricsServlet.CONTENT_TYPE;
+import static io.neba.core.metrics.PrometheusMetricsServlet.escape;
+import static java.util.Collections.singletonList;
+import static javax.servlet.http.HttpServletResponse.SC_FORBIDDEN;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PrometheusMetricsServletTest {
+    private static class TestModel {}
+
+    @Mock
+    private NebaMetrics metrics;
+    @Mock
+    private SlingHttpServletRequest request;
+    @Mock
+    private SlingHttpServletResponse response;
+    @Mock
+    private PrometheusMetricsServlet.Configuration configuration;
+
+    private StringWriter out;
+
+    @InjectMocks
+    private PrometheusMetricsServlet testee;
+
+    @Before
+    public void setUp() {
+        this.out = new StringWriter();
+        this.testee.activate(this.configuration);
+    }
+
+    @Test
+    public void testResponseIsTextExpositionFormat() throws Exception {
+        get();
+        verify(this.response).setContentType(CONTENT_TYPE);
+        verify(this.response).setCharacterEncoding("UTF-8");
+    }
+
+    @Test
+    public void testModelMetricsAreLabeledWithModelName() throws Exception {
+        get();
+        assertOutputContains(
+                "# TYPE neba_model_instantiations_total counter\n" +
+                "neba_model_instantiations_total{model=\"" + TestModel.class.getName() + "\"} 1\n");
+        assertOutputContains("neba_model_cache_hits_total{model=\"" + TestModel.class.getName() + "\"} 1\n");
+    }
+
+    @Test
+    public void testMappingDurationsAreSummariesInSeconds() throws Exception {
+        get();
+        assertOutputContains("# TYPE neba_model_mapping_duration_seconds summary\n");
+        assertOutputContains("neba_model_mapping_duration_seconds{model=\"" + TestModel.class.getName() + "\",quantile=\"0.99\"} 0.001\n");
+        assertOutputContains("neba_model_mapping_duration_seconds_sum{model=\"" + TestModel.class.getName() + "\"} 0.001\n");
+        assertOutputContains("neba_model_mapping_duration_seconds_count{model=\"" + TestModel.class.getName() + "\"} 1\n");
+    }
+
+    @Test
+    public void testCacheMetricsAreExported() throws Exception {
+        get();
+        assertOutputContains("neba_registry_lookup_cache_hits_total 5\n");
+        assertOutputContains("neba_registry_lookup_cache_misses_total 6\n");
+        assertOutputContains("# TYPE neba_registry_lookup_cache_size gauge\nneba_registry_lookup_cache_size 7\n");
+        assertOutputContains("neba_request_cache_hits_total 8\n");
+        assertOutputContains("neba_request_cache_misses_total 9\n");
+    }
+
+    @Test
+    public void testJsonViewRenderDurationsAreExported() throws Exception {
+        get();
+        assertOutputContains("neba_json_view_render_duration_seconds{quantile=\"0.5\"} 0.0\n");
+        assertOutputContains("neba_json_view_render_duration_seconds_count 0\n");
+    }
+
+    @Test
+    public void testAnonymousRequestsAreForbiddenByDefault() throws Exception {
+        this.testee.doGet(this.request, this.response);
+
+        verify(this.response).sendError(eq(SC_FORBIDDEN), anyString());
+        verify(this.metrics, never()).getModelMetrics();
+    }
+
+    @Test
+    public void testAnonymousAccessCanBeAllowed() throws Exception {
+        doReturn(true).when(this.configuration).allowAnonymousAccess();
+        this.testee.activate(this.configuration);
+        withMetrics();
+
+        this.testee.doGet(this.request, this.response);
+
+        assertOutputContains("neba_request_cache_hits_total 8\n");
+    }
+
+    @Test
+    public void testLabelValueEscaping() {
+        assertThat(escape("a\\b\"c\nd")).isEqualTo("a\\\\b\\\"c\\nd");
+    }
+
+    private void assertOutputContains(String expected) {
+        assertThat(this.out.toString()).contains(expected);
+    }
+
+    private void get() throws Exception {
+        doReturn("BASIC").when(this.request).getAuthType();
+        withMetrics();
+        this.testee.doGet(this.request, this.response);
+    }
+
+    private void withMetrics() throws IOException {
+        doReturn(new PrintWriter(this.out)).when(this.response).getWriter();
+
+        ResourceModelMetaData metaData = new ResourceModelMetaData(TestModel.class);
+        metaData.getStatistics().countInstantiation().countCacheHit().countMappingDuration(1_000_000);
+        doReturn(singletonList(new ModelMetrics(metaData.getTypeName(), metaData.getStatistics().snapshot()))).when(this.metrics).getModelMetrics();
+
+        doReturn(LatencyHistogram.Snapshot.empty()).when(this.metrics).jsonViewRenderDurations();
+        doReturn(5L).when(this.metrics).getModelLookupCacheHits();
+        doReturn(6L).when(this.metrics).getModelLookupCacheMisses();
+        doReturn(7).when(this.metrics).getModelLookupCacheSize();
+        doReturn(8L).when(this.metrics).getRequestCacheHits();
+        doReturn(9L).when(this.metrics).getRequestCacheMisses();
+    }
+}
@@ -18,6 +18,7 @@ package io.neba.core.resourcemodels.adaptation;
 
 import io.neba.core.Eventual;
 import io.neba.core.resourcemodels.registration.ModelRegistry;
+import io.neba.core.resourcemodels.registration.StartupTimeline;
 import io.neba.core.util.OsgiModelSource;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.adapter.AdapterFactory;
@@ -38,6 +39,7 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
@@ -80,6 +82,8 @@ public class ResourceToModelAdapterUpdaterTest implements Eventual {
     private Bundle bundle;
     @Mock
     private ResourceToModelAdapterUpdater.Configuration configuration;
+    @Mock
+    private StartupTimeline startupTimeline;
 
     private List<OsgiModelSource<?>> modelSources;
     private Dictionary<String, Object> updatedProperties;
@@ -135,6 +139,17 @@ public class ResourceToModelAdapterUpdaterTest implements Eventual {
         verifyUpdaterRegistersModelAdapter();
     }
 
+    @Test
+    public void testUpdateIsRecordedInStartupTimeline() {
+        withSynchronousExecutor();
+        withActiveBundle();
+        withModel(TestModel.class);
+
+        signalRegistryChange();
+
+        verify(this.startupTimeline).adapterFactoryRefreshed(anyLong(), anyLong(), eq(2));
+    }
+
     @Test
     public void testUnregistrationOfAlreadyUnregisteredService() throws Exception {
         signalIllegalStateWhenUnregisteringService();
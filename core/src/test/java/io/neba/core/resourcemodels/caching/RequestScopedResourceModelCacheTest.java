@@ -17,9 +17,12 @@
 package io.neba.core.resourcemodels.caching;
 
 import io.neba.core.resourcemodels.caching.RequestScopedResourceModelCache.Configuration;
+import io.neba.core.resourcemodels.mapping.MappingListeners;
+import io.neba.core.resourcemodels.mapping.NestedMappingSupport;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
 import io.neba.core.resourcemodels.metadata.ResourceModelStatistics;
+import io.neba.core.resourcemodels.tracing.MappingTrace;
 import org.apache.sling.api.SlingHttpServletRequest;
 import org.apache.sling.api.request.RequestPathInfo;
 import org.apache.sling.api.resource.Resource;
@@ -35,8 +38,11 @@ import javax.servlet.FilterChain;
 import javax.servlet.ServletResponse;
 import java.util.Optional;
 
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.CACHE_HIT;
 import static io.neba.core.util.Key.key;
+import static java.lang.System.currentTimeMillis;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
@@ -70,6 +76,10 @@ public class RequestScopedResourceModelCacheTest {
     private ResourceModelMetaData resourceModelMetaData;
     @Mock
     private ResourceModelStatistics resourceModelStatistics;
+    @Mock
+    private NestedMappingSupport nestedMappingSupport;
+    @Mock
+    private MappingListeners mappingListeners;
 
     private Object model = new Object();
     private Class<?> modelType = Object.class;
@@ -114,6 +124,21 @@ public class RequestScopedResourceModelCacheTest {
         });
     }
 
+    @Test
+    public void testCacheHitsAndMissesAreCounted() throws Exception {
+        request(() -> {
+            withResourcePath("/junit/test/1");
+
+            lookupModelFromCache();
+            putModelInCache();
+            lookupModelFromCache();
+            lookupModelFromCache();
+        });
+
+        assertThat(this.testee.getCacheHits()).isEqualTo(2);
+        assertThat(this.testee.getCacheMisses()).isEqualTo(1);
+    }
+
     @Test
     public void testLookupOfDifferentResourcePaths() throws Exception {
         request(() -> {
@@ -407,6 +432,64 @@ public class RequestScopedResourceModelCacheTest {
         });
     }
 
+    @Test
+    public void testCacheHitIsRecordedInOngoingTrace() throws Exception {
+        MappingTrace trace = new MappingTrace(1, "GET", "/content/page.html", currentTimeMillis());
+        doReturn(trace).when(this.nestedMappingSupport).getTrace();
+
+        request(() -> {
+            withResourcePath("/junit/test/1");
+            putModelInCache();
+            lookupModelFromCache();
+            assertModelIsInCache();
+        });
+
+        assertThat(trace.getRoots()).hasSize(1);
+        MappingTrace.Node node = trace.getRoots().get(0);
+        assertThat(node.getKind()).isEqualTo(CACHE_HIT);
+        assertThat(node.getName()).isEqualTo(Object.class.getName());
+        assertThat(node.getPath()).isEqualTo("/junit/test/1");
+    }
+
+    @Test
+    public void testCacheHitsAndMissesAreReportedToMappingListeners() throws Exception {
+        request(() -> {
+            withResourcePath("/junit/test/1");
+            lookupModelFromCache();
+            putModelInCache();
+            lookupModelFromCache();
+        });
+
+        verify(this.mappingListeners).cacheMiss("/junit/test/1");
+        verify(this.mappingListeners).cacheHit("/junit/test/1", Object.class);
+    }
+
+    @Test
+    public void testKnownLookupFailureIsReportedToMappingListenersAsCacheHitWithoutModelType() throws Exception {
+        request(() -> {
+            withResourcePath("/junit/test/1");
+            withNullModel();
+            putModelInCache();
+            lookupModelFromCache();
+        });
+
+        verify(this.mappingListeners).cacheHit("/junit/test/1", null);
+    }
+
+    @Test
+    public void testCacheLookupsAreNotReportedWithoutMappingListeners() throws Exception {
+        doReturn(true).when(this.mappingListeners).isEmpty();
+
+        request(() -> {
+            lookupModelFromCache();
+            putModelInCache();
+            lookupModelFromCache();
+        });
+
+        verify(this.mappingListeners, never()).cacheMiss(any());
+        verify(this.mappingListeners, never()).cacheHit(any(), any());
+    }
+
     private void verifyCacheHitIsCounted() {
         verify(this.resourceModelStatistics).countCacheHit();
     }
@@ -19,34 +19,49 @@ import io.neba.api.annotations.ResourceModel;
 import io.neba.api.spi.ResourceModelFactory.ContentToModelMappingCallback;
 import io.neba.api.spi.ResourceModelFactory.ModelDefinition;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.osgi.framework.Bundle;
-import org.osgi.framework.BundleContext;
 
+import javax.annotation.PostConstruct;
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.Vector;
 
+import static io.neba.core.resourcemodels.factory.ModelFactory.MODEL_INDEX;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.clearInvocations;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Olaf Otto
  */
 @RunWith(MockitoJUnitRunner.class)
 public class ModelFactoryTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     @Mock
     private Bundle bundle;
     @Mock
-    private BundleContext bundleContext;
-    @Mock
     private ContentToModelMappingCallback<ModelClass> callback;
 
     private ModelFactory testee;
@@ -59,8 +74,6 @@ public class ModelFactoryTest {
                 .when(this.bundle)
                 .getHeaders();
 
-        doReturn(this.bundleContext).when(this.bundle).getBundleContext();
-
         // The actual protocol for OSGi bundles is "bundleresource:", but this protocol is not registered for unit tests.
         URL modelClassResource = new URL("file://bundleId.bundleVersion" + "/" + ModelClass.class.getName().replace('.', '/') + ".class");
         URL nonModelClassResource = new URL("file://bundleId.bundleVersion" + "/" + NonModelClass.class.getName().replace('.', '/') + ".class");
@@ -108,10 +121,144 @@ public class ModelFactoryTest {
         this.testee.getModelDefinitions().add(mock(ModelDefinition.class));
     }
 
+    @Test
+    public void testModelFactoryUsesModelIndexInsteadOfScanningPackages() throws Exception {
+        withModelIndex(ModelClass.class.getName(), NonModelClass.class.getName(), "some.other.package.Model");
+        withNebaPackages(ModelClass.class.getPackage().getName());
+        clearInvocations(this.bundle);
+
+        this.testee = new ModelFactory(this.bundle);
+
+        assertThat(this.testee.getModelDefinitions())
+                .hasSize(1);
+        assertThat(this.testee.getModelDefinitions().iterator().next().getType())
+                .isSameAs(ModelClass.class);
+        verify(this.bundle, never()).findEntries(anyString(), anyString(), anyBoolean());
+        verify(this.bundle, never()).loadClass("some.other.package.Model");
+        assertThat(this.testee.getNumberOfLoadedClasses()).isEqualTo(2);
+    }
+
+    @Test
+    public void testModelIndexEntriesOutsideOfNebaPackagesAreIgnored() throws Exception {
+        withModelIndex("first.package.NonModel", ModelClass.class.getName());
+        withNebaPackages("first.package");
+        doReturn(NonModelClass.class).when(this.bundle).loadClass("first.package.NonModel");
+        clearInvocations(this.bundle);
+
+        this.testee = new ModelFactory(this.bundle);
+
+        assertThat(this.testee.getModelDefinitions()).isEmpty();
+        verify(this.bundle, never()).loadClass(ModelClass.class.getName());
+    }
+
+    @Test
+    public void testNebaPackagesNotCoveredByModelIndexAreScanned() throws Exception {
+        withModelIndex(ModelClass.class.getName());
+        withNebaPackages(ModelClass.class.getPackage().getName() + ", first.package");
+        clearInvocations(this.bundle);
+
+        this.testee = new ModelFactory(this.bundle);
+
+        assertThat(this.testee.getModelDefinitions())
+                .extracting(definition -> (Object) definition.getType())
+                .containsExactly(ModelClass.class);
+        verify(this.bundle).findEntries("/first/package", "*.class", true);
+        verify(this.bundle, never()).findEntries("/" + ModelClass.class.getPackage().getName().replace('.', '/'), "*.class", true);
+    }
+
+    @Test
+    public void testInvalidModelsDoNotPreventCreationOfTheFactory() throws Exception {
+        withInvalidModels();
+
+        this.testee = new ModelFactory(this.bundle);
+
+        assertThat(this.testee.getModelDefinitions()).hasSize(3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testValidModelsCanBeProvidedDespiteOtherInvalidModels() throws Exception {
+        withInvalidModels();
+        this.testee = new ModelFactory(this.bundle);
+
+        ModelDefinition<ModelClass> definition = (ModelDefinition<ModelClass>) this.testee.getModelDefinitions().stream()
+                .filter(d -> d.getType() == ModelClass.class)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        assertThat(this.testee.provideModel(definition, this.callback)).isInstanceOf(ModelClass.class);
+    }
+
+    @Test(expected = InvalidModelException.class)
+    @SuppressWarnings("unchecked")
+    public void testProvidingInvalidModelFails() throws Exception {
+        withInvalidModels();
+        this.testee = new ModelFactory(this.bundle);
+
+        ModelDefinition<InvalidModelClass> definition = (ModelDefinition<InvalidModelClass>) this.testee.getModelDefinitions().stream()
+                .filter(d -> d.getType() == InvalidModelClass.class)
+                .findFirst()
+                .orElseThrow(IllegalStateException::new);
+
+        this.testee.provideModel(definition, mock(ContentToModelMappingCallback.class));
+    }
+
+    @Test
+    public void testInitializationOfModelInstantiatorsReportsAllInvalidModels() throws Exception {
+        withInvalidModels();
+        this.testee = new ModelFactory(this.bundle);
+
+        try {
+            this.testee.initializeModelInstantiators();
+        } catch (InvalidModelException e) {
+            assertThat(e.getSuppressed()).hasSize(1);
+            return;
+        }
+
+        fail("Since the bundle contains invalid models, initializing the model instantiators must fail.");
+    }
+
+    @Test
+    public void testInitializationOfModelInstantiatorsSucceedsForValidModels() {
+        this.testee.initializeModelInstantiators();
+    }
+
+    private void withInvalidModels() throws Exception {
+        withModelIndex(ModelClass.class.getName(), InvalidModelClass.class.getName(), OtherInvalidModelClass.class.getName());
+        withNebaPackages(ModelClass.class.getPackage().getName());
+        doReturn(InvalidModelClass.class).when(this.bundle).loadClass(InvalidModelClass.class.getName());
+        doReturn(OtherInvalidModelClass.class).when(this.bundle).loadClass(OtherInvalidModelClass.class.getName());
+    }
+
+    private void withNebaPackages(String packages) {
+        Dictionary<String, String> headers = new Hashtable<>();
+        headers.put("Neba-Packages", packages);
+        doReturn(headers).when(this.bundle).getHeaders();
+    }
+
+    private void withModelIndex(String... classNames) throws IOException {
+        File index = this.folder.newFile();
+        Files.write(index.toPath(), asList(classNames), UTF_8);
+        doReturn(index.toURI().toURL()).when(this.bundle).getEntry(MODEL_INDEX);
+    }
+
     @ResourceModel("some/type")
     public static class ModelClass {
     }
 
     public static class NonModelClass {
     }
+
+    @ResourceModel("some/type")
+    public static class InvalidModelClass {
+        private InvalidModelClass() {
+        }
+    }
+
+    @ResourceModel("some/type")
+    public static class OtherInvalidModelClass {
+        @PostConstruct
+        public static void init() {
+        }
+    }
 }
@@ -20,21 +20,20 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
-import org.osgi.framework.ServiceReference;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import java.lang.annotation.Retention;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 import java.util.Optional;
 
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
-import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 
 /**
@@ -43,7 +42,7 @@ import static org.mockito.Mockito.mock;
 @RunWith(MockitoJUnitRunner.class)
 public class ModelInstantiatorTest {
     @Mock
-    private BundleContext context;
+    private ServiceTrackers serviceTrackers;
 
     private TestModel modelInstance;
 
@@ -73,6 +72,7 @@ public class ModelInstantiatorTest {
     @Test
     public void testModelInstantiationFailsIfARequiredServiceDependencyForConstructorInjectionIsMissing() throws ReflectiveOperationException, InvalidSyntaxException {
         withOsgiService(ServiceInterface.class);
+        withoutOsgiService(OtherServiceInterface.class, null);
         withMetadataFor(TestModelWithInjectConstructor.class);
         try {
             createModelInstance();
@@ -170,6 +170,7 @@ public class ModelInstantiatorTest {
 
     @Test
     public void testResolutionOfMissingOptionalSetterDependency() throws ReflectiveOperationException {
+        withoutOsgiService(ServiceInterface.class, null);
         withMetadataFor(TestModelWithOptionalSetterDependency.class);
         createModelInstance();
         assertModelHasProperty("serviceInterface", Optional.empty());
@@ -185,6 +186,7 @@ public class ModelInstantiatorTest {
 
     @Test
     public void testResolutionOfMissingOptionalConstructorDependency() throws ReflectiveOperationException {
+        withoutOsgiService(ServiceInterface.class, null);
         withMetadataFor(TestModelWithOptionalConstructorDependency.class);
         createModelInstance();
         assertModelHasProperty("serviceInterface", Optional.empty());
@@ -232,6 +234,7 @@ public class ModelInstantiatorTest {
 
     @Test
     public void testDependenciesWithFilterAndListTypeYieldsEmptyListIfNoServiceInstancesExist() throws Exception {
+        withoutOsgiService(ServiceInterface.class, "(property=1)");
         withMetadataFor(TestModelWithFilteredListOfDependencies.class);
         createModelInstance();
         assertModelWasInjectedWithListOf();
@@ -261,6 +264,70 @@ public class ModelInstantiatorTest {
         assertThat(this.modelInstance).hasFieldOrPropertyWithValue("localPostConstructInvocation", 1);
     }
 
+    @Test
+    public void testExceptionsThrownByTheModelConstructorAreWrapped() throws ReflectiveOperationException {
+        withMetadataFor(TestModelWithFailingConstructor.class);
+        try {
+            createModelInstance();
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause()).hasMessage("THIS IS AN EXPECTED TEST EXCEPTION");
+            return;
+        }
+        fail("Since the model constructor throws an exception, creating the model must fail.");
+    }
+
+    @Test
+    public void testExceptionsThrownByPostConstructCallbacksAreWrapped() throws ReflectiveOperationException {
+        withMetadataFor(TestModelWithFailingPostConstructCallback.class);
+        createModelInstance();
+        try {
+            postProcessAfterInitialization();
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause()).hasMessage("THIS IS AN EXPECTED TEST EXCEPTION");
+            return;
+        }
+        fail("Since the post construct callback throws an exception, post-processing the model must fail.");
+    }
+
+    @Test
+    public void testExceptionsThrownByInjectionMethodsAreWrapped() throws ReflectiveOperationException, InvalidSyntaxException {
+        withOsgiService(ServiceInterface.class);
+        withMetadataFor(TestModelWithFailingSetter.class);
+        try {
+            createModelInstance();
+        } catch (InvocationTargetException e) {
+            assertThat(e.getCause()).hasMessage("THIS IS AN EXPECTED TEST EXCEPTION");
+            return;
+        }
+        fail("Since the @Inject method throws an exception, creating the model must fail.");
+    }
+
+    @Test
+    public void testErrorsThrownByTheModelConstructorAreNotWrapped() throws ReflectiveOperationException {
+        withMetadataFor(TestModelWithErrorInConstructor.class);
+        try {
+            createModelInstance();
+        } catch (AssertionError e) {
+            assertThat(e).hasMessage("THIS IS AN EXPECTED TEST ERROR");
+            return;
+        }
+        fail("Since the model constructor throws an error, creating the model must fail with that error.");
+    }
+
+    @Test
+    public void testFailuresToResolveServiceDependenciesAreNotWrapped() throws ReflectiveOperationException {
+        IllegalStateException closed = new IllegalStateException("THIS IS AN EXPECTED TEST EXCEPTION");
+        doThrow(closed).when(this.serviceTrackers).track(ServiceInterface.class, null);
+        withMetadataFor(TestModelWithSetterDependency.class);
+        try {
+            createModelInstance();
+        } catch (IllegalStateException e) {
+            assertThat(e).isSameAs(closed);
+            return;
+        }
+        fail("Since the service trackers fail, creating the model must fail with the exception of the service trackers.");
+    }
+
     @Test(expected = InvalidModelException.class)
     public void testModelWithInvalidFilterLeadsToInvalidModelException() {
         withMetadataFor(TestModelWithInvalidFilterDeclaration.class);
@@ -271,24 +338,23 @@ public class ModelInstantiatorTest {
     }
 
     private <T> T withOsgiService(Class<T> serviceType) throws InvalidSyntaxException {
-        @SuppressWarnings("unchecked")
-        ServiceReference<T> reference = mock(ServiceReference.class);
-        T instance = mock(serviceType);
-        doReturn(reference).when(this.context).getServiceReference(serviceType);
-        doReturn(instance).when(this.context).getService(reference);
-        doReturn(singleton(reference)).when(this.context).getServiceReferences(serviceType, null);
-        return instance;
+        return withOsgiService(serviceType, null);
     }
 
     private <T> T withOsgiService(Class<T> serviceType, String filter) throws InvalidSyntaxException {
-        @SuppressWarnings("unchecked")
-        ServiceReference<T> reference = mock(ServiceReference.class);
         T instance = mock(serviceType);
-        doReturn(singleton(reference)).when(this.context).getServiceReferences(serviceType, filter);
-        doReturn(instance).when(this.context).getService(reference);
+        TrackedServices trackedServices = mock(TrackedServices.class);
+        doReturn(new Object[]{instance}).when(trackedServices).getServices();
+        doReturn(trackedServices).when(this.serviceTrackers).track(serviceType, filter);
         return instance;
     }
 
+    private void withoutOsgiService(Class<?> serviceType, String filter) {
+        TrackedServices trackedServices = mock(TrackedServices.class);
+        doReturn(new Object[0]).when(trackedServices).getServices();
+        doReturn(trackedServices).when(this.serviceTrackers).track(serviceType, filter);
+    }
+
     private void assertModelIsInstantiatedUsing(String name) {
         assertThat(this.modelInstance.getConstructorSignature()).isEqualTo(name);
     }
@@ -300,7 +366,7 @@ public class ModelInstantiatorTest {
     }
 
     private void createModelInstance() throws ReflectiveOperationException {
-        this.modelInstance = this.testee.create(this.context);
+        this.modelInstance = this.testee.create(this.serviceTrackers);
     }
 
     private void postProcessAfterInitialization() throws IllegalAccessException, java.lang.reflect.InvocationTargetException {
@@ -598,6 +664,33 @@ public class ModelInstantiatorTest {
         }
     }
 
+    public static class TestModelWithFailingConstructor extends TestModel {
+        public TestModelWithFailingConstructor() {
+            throw new IllegalStateException("THIS IS AN EXPECTED TEST EXCEPTION");
+        }
+    }
+
+    public static class TestModelWithErrorInConstructor extends TestModel {
+        public TestModelWithErrorInConstructor() {
+            throw new AssertionError("THIS IS AN EXPECTED TEST ERROR");
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class TestModelWithFailingSetter extends TestModel {
+        @Inject
+        public void setServiceInterface(ServiceInterface serviceInterface) {
+            throw new IllegalStateException("THIS IS AN EXPECTED TEST EXCEPTION");
+        }
+    }
+
+    public static class TestModelWithFailingPostConstructCallback extends TestModel {
+        @PostConstruct
+        public void postConstruct() {
+            throw new IllegalStateException("THIS IS AN EXPECTED TEST EXCEPTION");
+        }
+    }
+
     private interface ServiceInterface {
     }
 
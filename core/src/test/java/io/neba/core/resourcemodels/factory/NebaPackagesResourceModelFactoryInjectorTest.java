@@ -17,33 +17,48 @@ package io.neba.core.resourcemodels.factory;
 
 import io.neba.api.annotations.ResourceModel;
 import io.neba.api.spi.ResourceModelFactory;
+import io.neba.core.resourcemodels.registration.StartupTimeline;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.BundleEvent;
 import org.osgi.framework.BundleListener;
+import org.osgi.framework.ServiceRegistration;
 import org.osgi.framework.Version;
 import org.osgi.service.component.ComponentContext;
+import org.slf4j.Logger;
 
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Dictionary;
 import java.util.Hashtable;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 
+import static org.apache.commons.lang3.reflect.FieldUtils.getField;
+import static org.apache.commons.lang3.reflect.FieldUtils.readField;
+import static org.apache.commons.lang3.reflect.FieldUtils.writeField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.osgi.framework.Bundle.ACTIVE;
+import static org.osgi.framework.Bundle.RESOLVED;
 import static org.osgi.framework.BundleEvent.STARTING;
+import static org.osgi.framework.BundleEvent.STOPPED;
 
 /**
  * @author Olaf Otto
@@ -56,13 +71,21 @@ public class NebaPackagesResourceModelFactoryInjectorTest {
     private Bundle bundle;
     @Mock
     private BundleContext bundleContext;
+    @Mock
+    private NebaPackagesResourceModelFactoryInjector.Configuration configuration;
+    @Mock
+    private ExecutorService executorService;
+    @Mock
+    private Logger logger;
+    @Mock
+    private StartupTimeline startupTimeline;
 
     private BundleListener registeredListener;
 
     private NebaPackagesResourceModelFactoryInjector testee;
 
     @Before
-    public void setUp() throws ClassNotFoundException, MalformedURLException {
+    public void setUp() throws ClassNotFoundException, MalformedURLException, IllegalAccessException {
         Dictionary<String, String> headers = new Hashtable<>();
         headers.put("Neba-Packages", "io.neba.core.resourcemodels.factory");
 
@@ -84,7 +107,10 @@ public class NebaPackagesResourceModelFactoryInjectorTest {
         doReturn(TestModel.class).when(bundle).loadClass(any());
 
         this.testee = new NebaPackagesResourceModelFactoryInjector();
-        this.testee.activate(this.componentContext);
+        this.testee.activate(this.componentContext, this.configuration);
+        this.testee.setExecutorService(this.executorService);
+        writeField(getField(NebaPackagesResourceModelFactoryInjector.class, "logger", true), this.testee, this.logger, true);
+        writeField(getField(NebaPackagesResourceModelFactoryInjector.class, "startupTimeline", true), this.testee, this.startupTimeline, true);
     }
 
     @Test
@@ -93,6 +119,12 @@ public class NebaPackagesResourceModelFactoryInjectorTest {
         verifyResourceModelFactoryServiceIsAddedForBundle();
     }
 
+    @Test
+    public void testScanningIsRecordedInStartupTimeline() {
+        startBundle();
+        verify(this.startupTimeline).bundleScanned(eq(this.bundle), anyLong(), anyLong(), eq(1), eq(1));
+    }
+
     @Test
     public void testModelFactoryIsNotRegisteredWhenNoModelsArePresent() {
         withoutNebaPackagesHeader();
@@ -107,6 +139,158 @@ public class NebaPackagesResourceModelFactoryInjectorTest {
         verifyNoResourceModelFactoryServiceIsAddedForBundle();
     }
 
+    @Test
+    public void testModelsArePreparedInTheBackgroundByDefault() {
+        withModelPreparationInBackground();
+        startBundle();
+        verifyResourceModelFactoryServiceIsAddedForBundle();
+        verifyModelsArePreparedInBackground();
+    }
+
+    @Test
+    public void testModelsAreNotPreparedInTheBackgroundIfDisabled() {
+        startBundle();
+        verifyResourceModelFactoryServiceIsAddedForBundle();
+        verifyModelsAreNotPreparedInBackground();
+    }
+
+    @Test
+    public void testInvalidModelsAreLoggedDuringBackgroundPreparation() throws ClassNotFoundException {
+        withModelPreparationInBackground();
+        withInvalidModel();
+        startBundle();
+
+        verifyResourceModelFactoryServiceIsAddedForBundle();
+        runBackgroundPreparation();
+        verify(this.logger).error(eq("The bundle test-bundle 1.0.0 contains invalid resource models. Providing these models will fail."), isA(InvalidModelException.class));
+    }
+
+    @Test
+    public void testModelsAreValidatedEagerlyIfConfigured() {
+        withEagerModelValidation();
+        startBundle();
+        verifyResourceModelFactoryServiceIsAddedForBundle();
+        verifyModelsAreNotPreparedInBackground();
+    }
+
+    @Test
+    public void testInvalidModelsPreventRegistrationOfModelFactoryDuringEagerValidation() throws ClassNotFoundException {
+        withEagerModelValidation();
+        withInvalidModel();
+        try {
+            startBundle();
+        } catch (InvalidModelException e) {
+            verifyNoResourceModelFactoryServiceIsAddedForBundle();
+            return;
+        }
+        fail("Since the bundle contains an invalid model and models are validated eagerly, starting the bundle must fail.");
+    }
+
+    @Test
+    public void testBundlesAreScannedAsynchronouslyIfConfigured() {
+        withAsynchronousScanning();
+        startBundle();
+        verifyNoResourceModelFactoryServiceIsAddedForBundle();
+
+        runAsynchronousScanning();
+
+        verifyResourceModelFactoryServiceIsAddedForBundle();
+    }
+
+    @Test
+    public void testModelFactoryIsNotRegisteredIfBundleIsStoppedBeforeAsynchronousScanningCompletes() {
+        withAsynchronousScanning();
+        startBundle();
+        stopBundle();
+
+        runAsynchronousScanning();
+
+        verifyNoResourceModelFactoryServiceIsAddedForBundle();
+    }
+
+    @Test
+    public void testFailuresDuringAsynchronousScanningAreLogged() throws ClassNotFoundException {
+        withAsynchronousScanning();
+        withEagerModelValidation();
+        withInvalidModel();
+        startBundle();
+
+        runAsynchronousScanning();
+
+        verifyNoResourceModelFactoryServiceIsAddedForBundle();
+        verify(this.logger).error(eq("Unable to register the resource models of bundle test-bundle 1.0.0."), isA(InvalidModelException.class));
+    }
+
+    @Test
+    public void testModelFactoryIsUnregisteredWhenBundleIsStopped() {
+        ServiceRegistration<?> registration = withServiceRegistration();
+        startBundle();
+
+        stopBundle();
+
+        verify(registration).unregister();
+    }
+
+    @Test
+    public void testScanningThreadsAreNamedDaemonThreadsTimingOutWhenIdle() throws Exception {
+        NebaPackagesResourceModelFactoryInjector injector = new NebaPackagesResourceModelFactoryInjector();
+        injector.activate(this.componentContext, this.configuration);
+        ThreadPoolExecutor executor = (ThreadPoolExecutor) readField(injector, "executorService", true);
+        try {
+            Thread scanningThread = executor.submit(Thread::currentThread).get();
+
+            assertThat(scanningThread.getName()).isEqualTo("NEBA resource model scanner 1");
+            assertThat(scanningThread.isDaemon()).isTrue();
+            assertThat(executor.allowsCoreThreadTimeOut()).isTrue();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private ServiceRegistration<?> withServiceRegistration() {
+        ServiceRegistration<?> registration = mock(ServiceRegistration.class);
+        doReturn(registration).when(this.bundleContext).registerService(eq(ResourceModelFactory.class), isA(ResourceModelFactory.class), isA(Dictionary.class));
+        return registration;
+    }
+
+    private void withAsynchronousScanning() {
+        doReturn(true).when(this.configuration).scanBundlesAsynchronously();
+    }
+
+    private void runAsynchronousScanning() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.executorService).submit(captor.capture());
+        captor.getValue().run();
+    }
+
+    private void withEagerModelValidation() {
+        doReturn(true).when(this.configuration).validateModelsEagerly();
+    }
+
+    private void withModelPreparationInBackground() {
+        doReturn(true).when(this.configuration).prepareModelsInBackground();
+    }
+
+    private void withInvalidModel() throws ClassNotFoundException {
+        doReturn(InvalidTestModel.class).when(bundle).loadClass(any());
+    }
+
+    private void runBackgroundPreparation() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+        verify(this.executorService).execute(captor.capture());
+        captor.getValue().run();
+    }
+
+    private void verifyModelsArePreparedInBackground() {
+        runBackgroundPreparation();
+        verify(this.logger, never()).error(any(), isA(Throwable.class));
+    }
+
+    private void verifyModelsAreNotPreparedInBackground() {
+        verify(this.executorService, never()).execute(any());
+    }
+
     private void withoutBundleContext() {
         doReturn(null).when(bundle).getBundleContext();
     }
@@ -128,7 +312,18 @@ public class NebaPackagesResourceModelFactoryInjectorTest {
         this.registeredListener.bundleChanged(new BundleEvent(STARTING, bundle));
     }
 
+    private void stopBundle() {
+        doReturn(RESOLVED).when(bundle).getState();
+        this.registeredListener.bundleChanged(new BundleEvent(STOPPED, bundle));
+    }
+
     @ResourceModel("some/model/type")
     public static class TestModel {
     }
+
+    @ResourceModel("some/model/type")
+    public static class InvalidTestModel {
+        private InvalidTestModel() {
+        }
+    }
 }
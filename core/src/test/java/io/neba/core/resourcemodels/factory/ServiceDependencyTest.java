@@ -20,13 +20,10 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
-import org.osgi.framework.BundleContext;
 import org.osgi.framework.InvalidSyntaxException;
-import org.osgi.framework.ServiceReference;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -34,6 +31,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
 
 /**
  * @author Olaf Otto
@@ -41,7 +39,9 @@ import static org.mockito.Mockito.mock;
 @RunWith(MockitoJUnitRunner.class)
 public class ServiceDependencyTest {
     @Mock
-    private BundleContext context;
+    private ServiceTrackers serviceTrackers;
+    @Mock
+    private TrackedServices trackedServices;
 
     private Filter filter;
     private Type serviceType;
@@ -138,6 +138,7 @@ public class ServiceDependencyTest {
     @Test
     public void testResolutionOfNonexistentOptionalServiceInterface() {
         withDependencyTo(parameterOf("setOptionalDependency"));
+        withExistingService(ServiceInterface.class, null, 0);
 
         createDependency();
         resolveService();
@@ -148,12 +149,48 @@ public class ServiceDependencyTest {
     public void testResolutionOfNonexistentListOfServiceInterface() {
         withDependencyTo(parameterOf("setDependencyList"));
         withFilter(filterOf("setDependencyList"));
+        withExistingService(ServiceInterface.class, "(property=name)", 0);
 
         createDependency();
         resolveService();
         assertDependencyIsResolvedToEmptyList();
     }
 
+    @Test
+    public void testResolutionWithoutFilterYieldsHighestRankedService() {
+        withDependencyTo(ServiceInterface.class);
+        withExistingService(ServiceInterface.class, null, 2);
+
+        createDependency();
+        resolveService();
+        assertDependencyWasResolved();
+    }
+
+    @Test
+    public void testResolutionOfListProvidesAllServicesInRankingOrder() {
+        withDependencyTo(parameterOf("setDependencyList"));
+        withFilter(filterOf("setDependencyList"));
+        Object[] services = withExistingService(ServiceInterface.class, "(property=name)", 3);
+
+        createDependency();
+        resolveService();
+
+        assertThat((List<?>) this.resolvedDependency).containsExactly(services);
+    }
+
+    @Test
+    public void testServicesAreTrackedOnlyOnce() {
+        withDependencyTo(ServiceInterface.class);
+        withExistingService(ServiceInterface.class);
+
+        createDependency();
+        resolveService();
+        resolveService();
+
+        verify(this.serviceTrackers).track(ServiceInterface.class, null);
+        assertDependencyWasResolved();
+    }
+
     @Test(expected = InvalidModelException.class)
     public void testMissingTypeParameterInServiceInterface() {
         withDependencyTo(parameterOf("setOptionalDependencyWithMissingTypeParameter"));
@@ -237,31 +274,30 @@ public class ServiceDependencyTest {
     }
 
     private void withExistingService(Class<?> serviceInterface) {
-        ServiceReference<?> reference = mock(ServiceReference.class);
-        doReturn(reference).when(this.context).getServiceReference(serviceInterface);
-        this.expectedDependency = mock(serviceInterface);
-        doReturn(this.expectedDependency).when(this.context).getService(reference);
+        withExistingService(serviceInterface, null, 1);
     }
 
-    private void withExistingService(Class<?> serviceInterface, String filter) throws InvalidSyntaxException {
+    private void withExistingService(Class<?> serviceInterface, String filter) {
         withExistingService(serviceInterface, filter, 1);
     }
 
-    private void withExistingService(Class<?> serviceInterface, String filter, int numberOfServices) throws InvalidSyntaxException {
-        List<ServiceReference<?>> references = new ArrayList<>();
+    /**
+     * @return the services, highest ranked first.
+     */
+    private Object[] withExistingService(Class<?> serviceInterface, String filter, int numberOfServices) {
+        Object[] services = new Object[numberOfServices];
         for (int i = 0; i < numberOfServices; ++i) {
-            references.add(mock(ServiceReference.class));
+            services[i] = mock(serviceInterface);
         }
-        doReturn(references).when(this.context).getServiceReferences(serviceInterface, filter);
-        references.forEach(r -> {
-            doReturn(mock(serviceInterface)).when(this.context).getService(r);
-        });
+        doReturn(this.trackedServices).when(this.serviceTrackers).track(serviceInterface, filter);
+        doReturn(services).when(this.trackedServices).getServices();
 
-        this.expectedDependency = references.isEmpty() ? null : this.context.getService(references.get(0));
+        this.expectedDependency = services.length == 0 ? null : services[0];
+        return services;
     }
 
     private void resolveService() {
-        this.resolvedDependency = this.testee.resolve(this.context);
+        this.resolvedDependency = this.testee.resolve(this.serviceTrackers);
     }
 
     private void createDependency() {
@@ -0,0 +1,106 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.factory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceListener;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class ServiceTrackersTest {
+    @Mock
+    private Bundle bundle;
+    @Mock
+    private BundleContext context;
+
+    private ServiceTrackers testee;
+
+    @Before
+    public void setUp() {
+        this.testee = new ServiceTrackers(this.bundle);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullBundle() {
+        new ServiceTrackers(null);
+    }
+
+    @Test
+    public void testTrackersAreSharedForTheSameServiceTypeAndFilter() throws Exception {
+        withBundleContext();
+
+        TrackedServices first = this.testee.track(ServiceInterface.class, "(property=1)");
+        TrackedServices second = this.testee.track(ServiceInterface.class, "(property=1)");
+
+        assertThat(first).isSameAs(second);
+        verify(this.context).addServiceListener(any(), anyString());
+    }
+
+    @Test
+    public void testDistinctTrackersAreUsedForDifferentFilters() throws Exception {
+        withBundleContext();
+
+        TrackedServices unfiltered = this.testee.track(ServiceInterface.class, null);
+        TrackedServices filtered = this.testee.track(ServiceInterface.class, "(property=1)");
+
+        assertThat(unfiltered).isNotSameAs(filtered);
+        verify(this.context, times(2)).addServiceListener(any(), anyString());
+    }
+
+    @Test
+    public void testClosingClosesAllTrackers() throws Exception {
+        withBundleContext();
+        this.testee.track(ServiceInterface.class, null);
+        this.testee.track(ServiceInterface.class, "(property=1)");
+
+        this.testee.close();
+
+        verify(this.context, times(2)).removeServiceListener(any(ServiceListener.class));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testServicesCannotBeTrackedAfterClosing() {
+        this.testee.close();
+        this.testee.track(ServiceInterface.class, null);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testServicesCannotBeTrackedWithoutBundleContext() {
+        this.testee.track(ServiceInterface.class, null);
+    }
+
+    private void withBundleContext() {
+        doReturn(this.context).when(this.bundle).getBundleContext();
+    }
+
+    private interface ServiceInterface {
+    }
+}
@@ -0,0 +1,260 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.factory;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceEvent;
+import org.osgi.framework.ServiceListener;
+import org.osgi.framework.ServiceReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.osgi.framework.ServiceEvent.MODIFIED;
+import static org.osgi.framework.ServiceEvent.REGISTERED;
+import static org.osgi.framework.ServiceEvent.UNREGISTERING;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class TrackedServicesTest {
+    private static final String TYPE_FILTER = "(objectClass=" + ServiceInterface.class.getName() + ")";
+
+    @Mock
+    private BundleContext context;
+    @Mock
+    private Bundle bundle;
+
+    private ServiceListener serviceListener;
+    private String filter;
+
+    private TrackedServices testee;
+
+    @Before
+    public void setUp() {
+        doReturn(this.bundle).when(this.context).getBundle();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullContext() {
+        new TrackedServices(null, ServiceInterface.class, null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullServiceType() {
+        new TrackedServices(this.context, null, null);
+    }
+
+    @Test
+    public void testNoServicesAreProvidedIfNoServicesExist() throws Exception {
+        openTracker();
+        assertServicesAre();
+    }
+
+    @Test
+    public void testInitiallyAvailableServicesAreProvidedHighestRankedFirst() throws Exception {
+        TestServiceReference low = withReference(1);
+        TestServiceReference high = withReference(10);
+        TestServiceReference medium = withReference(5);
+        withInitialReferences(TYPE_FILTER, low, high, medium);
+
+        openTracker();
+
+        assertServicesAre(high, medium, low);
+    }
+
+    @Test
+    public void testFilterIsCombinedWithServiceTypeFilter() throws Exception {
+        withFilter("(property=1)");
+        TestServiceReference reference = withReference(0);
+        withInitialReferences("(&" + TYPE_FILTER + "(property=1))", reference);
+
+        openTracker();
+
+        assertServicesAre(reference);
+    }
+
+    @Test
+    public void testServicesNotAssignableToTheBundleClassSpaceAreIgnored() throws Exception {
+        TestServiceReference reference = withReference(0);
+        reference.assignable = false;
+        withInitialReferences(TYPE_FILTER, reference);
+
+        openTracker();
+
+        assertServicesAre();
+        verify(this.context, never()).getService(reference);
+    }
+
+    @Test
+    public void testRegisteredServicesAreAdded() throws Exception {
+        TestServiceReference low = withReference(1);
+        withInitialReferences(TYPE_FILTER, low);
+        openTracker();
+
+        TestServiceReference high = withReference(2);
+        signal(REGISTERED, high);
+
+        assertServicesAre(high, low);
+    }
+
+    @Test
+    public void testServicesAreReorderedWhenTheirRankingChanges() throws Exception {
+        TestServiceReference first = withReference(2);
+        TestServiceReference second = withReference(1);
+        withInitialReferences(TYPE_FILTER, first, second);
+        openTracker();
+        assertServicesAre(first, second);
+
+        second.ranking = 3;
+        signal(MODIFIED, second);
+
+        assertServicesAre(second, first);
+    }
+
+    @Test
+    public void testUnregisteredServicesAreRemovedAndReleased() throws Exception {
+        TestServiceReference first = withReference(2);
+        TestServiceReference second = withReference(1);
+        withInitialReferences(TYPE_FILTER, first, second);
+        openTracker();
+
+        signal(UNREGISTERING, first);
+
+        assertServicesAre(second);
+        verify(this.context).ungetService(first);
+    }
+
+    @Test
+    public void testClosingTheTrackerReleasesAllServices() throws Exception {
+        TestServiceReference reference = withReference(0);
+        withInitialReferences(TYPE_FILTER, reference);
+        openTracker();
+
+        this.testee.close();
+
+        assertServicesAre();
+        verify(this.context).removeServiceListener(this.serviceListener);
+        verify(this.context).ungetService(reference);
+    }
+
+    @Test
+    public void testReleasingServicesToleratesInvalidBundleContext() throws Exception {
+        TestServiceReference reference = withReference(0);
+        withInitialReferences(TYPE_FILTER, reference);
+        openTracker();
+        doThrow(new IllegalStateException("THIS IS AN EXPECTED TEST EXCEPTION")).when(this.context).ungetService(reference);
+
+        this.testee.close();
+
+        assertServicesAre();
+    }
+
+    private void signal(int type, TestServiceReference reference) {
+        this.serviceListener.serviceChanged(new ServiceEvent(type, reference));
+    }
+
+    private void withFilter(String filter) {
+        this.filter = filter;
+    }
+
+    private TestServiceReference withReference(int ranking) {
+        TestServiceReference reference = new TestServiceReference(ranking);
+        doReturn(reference.service).when(this.context).getService(reference);
+        return reference;
+    }
+
+    private void withInitialReferences(String filter, ServiceReference<?>... references) throws Exception {
+        doReturn(references).when(this.context).getServiceReferences((String) isNull(), eq(filter));
+    }
+
+    private void openTracker() throws Exception {
+        this.testee = new TrackedServices(this.context, ServiceInterface.class, this.filter);
+        this.testee.open();
+
+        ArgumentCaptor<ServiceListener> captor = ArgumentCaptor.forClass(ServiceListener.class);
+        verify(this.context).addServiceListener(captor.capture(), any());
+        this.serviceListener = captor.getValue();
+    }
+
+    private void assertServicesAre(TestServiceReference... references) {
+        Object[] expected = new Object[references.length];
+        for (int i = 0; i < references.length; ++i) {
+            expected[i] = references[i].service;
+        }
+        assertThat(this.testee.getServices()).containsExactly(expected);
+    }
+
+    /**
+     * A service reference ordered by its ranking, mimicking the natural ordering of framework service references.
+     */
+    private class TestServiceReference implements ServiceReference<Object> {
+        private final Object service = new ServiceInterface() {
+        };
+        private int ranking;
+        private boolean assignable = true;
+
+        private TestServiceReference(int ranking) {
+            this.ranking = ranking;
+        }
+
+        @Override
+        public Object getProperty(String key) {
+            return null;
+        }
+
+        @Override
+        public String[] getPropertyKeys() {
+            return new String[0];
+        }
+
+        @Override
+        public Bundle getBundle() {
+            return bundle;
+        }
+
+        @Override
+        public Bundle[] getUsingBundles() {
+            return new Bundle[0];
+        }
+
+        @Override
+        public boolean isAssignableTo(Bundle bundle, String className) {
+            return this.assignable && bundle == TrackedServicesTest.this.bundle && ServiceInterface.class.getName().equals(className);
+        }
+
+        @Override
+        public int compareTo(Object reference) {
+            return Integer.compare(this.ranking, ((TestServiceReference) reference).ranking);
+        }
+    }
+
+    private interface ServiceInterface {
+    }
+}
@@ -16,6 +16,7 @@
 package io.neba.core.resourcemodels.mapping;
 
 import io.neba.api.spi.AnnotatedFieldMapper;
+import io.neba.core.resourcemodels.metadata.CustomMapperChain;
 import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
 import io.neba.core.util.Annotations;
 import org.apache.sling.api.resource.Resource;
@@ -32,12 +33,15 @@ import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
 
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static org.apache.commons.lang3.reflect.FieldUtils.getDeclaredField;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 /**
@@ -109,19 +113,11 @@ public class AnnotatedFieldMappersTest {
                 .getFieldType();
 
 
-        doReturn(this.field1)
-                .when(this.metadata1)
-                .getField();
-
         doReturn(this.field1.getType())
                 .when(this.metadata1)
                 .getType();
 
 
-        doReturn(this.field2)
-                .when(this.metadata2)
-                .getField();
-
         doReturn(this.field2.getType())
                 .when(this.metadata2)
                 .getType();
@@ -135,6 +131,9 @@ public class AnnotatedFieldMappersTest {
                 .when(this.metadata2)
                 .getAnnotations();
 
+        retainMapperChain(this.metadata1);
+        retainMapperChain(this.metadata2);
+
         final List<Annotation> ann1 = new ArrayList<>();
         ann1.add(annotation1);
         doAnswer(invocationOnMock -> ann1.iterator())
@@ -224,6 +223,27 @@ public class AnnotatedFieldMappersTest {
         verifyAnnotationsWhereQueriedOnlyOnce();
     }
 
+    @Test
+    public void testMapperChainIsRetainedInFieldMetadata() {
+        bind(this.mapper1);
+
+        assertMetadataHasMappers(this.metadata1, this.mapper1);
+
+        verify(this.metadata1).setCustomMapperChain(any());
+        assertThat(this.metadata1.getCustomMapperChain()).isNotNull();
+    }
+
+    @Test
+    public void testMapperChainIsResolvedAgainWhenMappersChange() {
+        bind(this.mapper2);
+        assertMetadataHasMappers(this.metadata2, this.mapper2);
+
+        bind(this.mapper3);
+        assertMetadataHasMappers(this.metadata2, this.mapper2, this.mapper3);
+
+        verify(this.metadata2, times(2)).getAnnotations();
+    }
+
     @Test
     public void testAdditionAndRemovalOfMappersForSameAnnotationType() {
         bind(this.mapper2);
@@ -238,6 +258,15 @@ public class AnnotatedFieldMappersTest {
         assertMetadataHasMappers(this.metadata2);
     }
 
+    private void retainMapperChain(MappedFieldMetaData metadata) {
+        final AtomicReference<CustomMapperChain<?>> chain = new AtomicReference<>();
+        doAnswer(invocationOnMock -> {
+            chain.set(invocationOnMock.getArgument(0));
+            return null;
+        }).when(metadata).setCustomMapperChain(any());
+        doAnswer(invocationOnMock -> chain.get()).when(metadata).getCustomMapperChain();
+    }
+
     private void verifyAnnotationsWhereQueriedOnlyOnce() {
         verify(this.metadata1).getAnnotations();
     }
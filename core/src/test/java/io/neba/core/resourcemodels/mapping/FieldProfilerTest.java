@@ -0,0 +1,73 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.mapping;
+
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+
+import static java.util.concurrent.Executors.newSingleThreadExecutor;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Olaf Otto
+ */
+public class FieldProfilerTest {
+    @Test(expected = IllegalArgumentException.class)
+    public void testSampleRateMustBePositive() {
+        new FieldProfiler(0);
+    }
+
+    @Test
+    public void testSampleRateOfOneSamplesAllMappings() {
+        FieldProfiler testee = new FieldProfiler(1);
+        for (int i = 0; i < 100; ++i) {
+            assertThat(testee.sample()).isTrue();
+        }
+    }
+
+    @Test
+    public void testSamplingSelectsAFractionOfAllMappings() {
+        FieldProfiler testee = new FieldProfiler(10);
+        int samples = 0;
+        for (int i = 0; i < 10000; ++i) {
+            if (testee.sample()) {
+                ++samples;
+            }
+        }
+        assertThat(samples).isBetween(500, 1500);
+    }
+
+    @Test
+    public void testMappingsAreCountedPerThread() throws Exception {
+        FieldProfiler testee = new FieldProfiler(1);
+        testee.countMapping();
+        testee.countMapping();
+
+        ExecutorService executor = newSingleThreadExecutor();
+        try {
+            long mappingsOfOtherThread = executor.submit(() -> {
+                testee.countMapping();
+                return testee.getMappings();
+            }).get();
+            assertThat(mappingsOfOtherThread).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(testee.getMappings()).isEqualTo(2);
+    }
+}
@@ -16,6 +16,7 @@
 
 package io.neba.core.resourcemodels.mapping;
 
+import io.neba.api.annotations.Prefetch;
 import io.neba.api.resourcemodels.Lazy;
 import io.neba.api.spi.AnnotatedFieldMapper;
 import io.neba.api.spi.PlaceholderVariableResolver;
@@ -23,6 +24,10 @@ import io.neba.api.spi.ResourceModelFactory;
 import io.neba.core.resourcemodels.mapping.testmodels.OtherTestResourceModel;
 import io.neba.core.resourcemodels.mapping.testmodels.TestResourceModel;
 import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
+import io.neba.core.resourcemodels.metadata.MappedFieldStatistics;
+import io.neba.core.resourcemodels.metadata.PrefetchMetaData;
+import io.neba.core.resourcemodels.metadata.PrimitiveFieldType;
+import io.neba.core.resourcemodels.tracing.MappingTrace;
 import io.neba.core.util.Annotations;
 import io.neba.core.util.ResourcePaths;
 import org.apache.sling.api.resource.Resource;
@@ -50,12 +55,15 @@ import java.util.concurrent.Callable;
 
 import static io.neba.api.spi.AnnotatedFieldMapper.OngoingMapping;
 import static io.neba.core.resourcemodels.mapping.AnnotatedFieldMappers.AnnotationMapping;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.LAZY_LOAD;
 import static java.lang.Boolean.FALSE;
-import static java.util.Collections.emptyList;
+import static java.lang.System.currentTimeMillis;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.lang3.ClassUtils.primitiveToWrapper;
 import static org.apache.commons.lang3.StringUtils.substringAfterLast;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
@@ -87,6 +95,8 @@ public class FieldValueMappingCallbackTest {
     private PlaceholderVariableResolvers placeholderVariableResolvers;
     @Mock
     private ResourcePaths.ResourcePath path;
+    @Mock
+    private MappedFieldStatistics fieldStatistics;
     private Resource resource;
     private Resource parentOfResourceTargetedByMapping;
     private Resource resourceTargetedByMapping;
@@ -95,6 +105,8 @@ public class FieldValueMappingCallbackTest {
     private Object mappedFieldOfTypeObject;
     @SuppressWarnings("unused")
     private String mappedFieldOfTypeString;
+    private int mappedFieldOfTypeInt;
+    private long mappedFieldOfTypeLong;
 
     private Field mappedField;
 
@@ -102,6 +114,10 @@ public class FieldValueMappingCallbackTest {
     private Object model = this;
 
     private OngoingMapping<?, ?> ongoingMapping;
+    private FieldProfiler profiler;
+    private MappingTrace trace;
+    private MappingListeners listeners;
+    private SubtreePrefetcher prefetcher;
 
     @Before
     @SuppressWarnings("unchecked")
@@ -111,7 +127,7 @@ public class FieldValueMappingCallbackTest {
         doAnswer((Answer<Object>) inv -> ((Callable<Object>) inv.getArguments()[0]).call())
                 .when(this.mappedFieldMetadata)
                 .getLazyLoadingProxy(isA(Callable.class));
-        doReturn(emptyList()).when(this.annotatedFieldMappers).get(isA(MappedFieldMetaData.class));
+        doReturn(new AnnotationMapping[0]).when(this.annotatedFieldMappers).get(isA(MappedFieldMetaData.class));
         doReturn(this.path).when(this.mappedFieldMetadata).getPath();
     }
 
@@ -231,6 +247,55 @@ public class FieldValueMappingCallbackTest {
         assertFieldIsMapped();
     }
 
+    /**
+     * Primitive fields are written using type-specialized accessors. If the raw property value
+     * already has the boxed field type, no conversion by the value map takes place.
+     */
+    @Test
+    public void testDirectMappingOfPrimitiveIntFieldUsesRawPropertyValue() throws Exception {
+        withMappedField("mappedFieldOfTypeInt");
+        withPrimitivePropertyField(int.class);
+        withRawPropertyValue(5);
+
+        mapField();
+
+        assertThat(this.mappedFieldOfTypeInt).isEqualTo(5);
+        verify(this.valueMap, never()).get(eq("field"), eq(Integer.class));
+    }
+
+    /**
+     * If the raw property value type differs from the boxed field type, the
+     * value map is used to convert the property value.
+     */
+    @Test
+    public void testDirectMappingOfPrimitiveLongFieldConvertsDifferingPropertyValueType() throws Exception {
+        withMappedField("mappedFieldOfTypeLong");
+        withPrimitivePropertyField(long.class);
+        withRawPropertyValue("7");
+        withPropertyValue(7L);
+
+        mapField();
+
+        assertThat(this.mappedFieldOfTypeLong).isEqualTo(7L);
+    }
+
+    /**
+     * Primitive fields with custom field mappers must be provided to the mappers as boxed values.
+     */
+    @Test
+    public void testPrimitiveFieldWithCustomMapperIsNotMappedDirectly() throws Exception {
+        withMappedField("mappedFieldOfTypeInt");
+        withCustomFieldMapperMappingTo(3);
+        withPrimitivePropertyField(int.class);
+        withPropertyValue(1);
+
+        mapField();
+
+        assertCustomFieldMapperIsUsedToMapField();
+        assertThat(this.mappedFieldOfTypeInt).isEqualTo(3);
+        verify(this.valueMap, never()).get(eq("field"));
+    }
+
     /**
      * <pre>
      *     &#64;{@link io.neba.api.annotations.ResourceModel}(types = ...)
@@ -504,6 +569,66 @@ public class FieldValueMappingCallbackTest {
         assertMappedFieldValueIsCollectionContainingTargetValue();
     }
 
+    /**
+     * Children {@link io.neba.api.annotations.Prefetch prefetched} by the ongoing mapping are not listed again.
+     */
+    @Test
+    public void testPrefetchedChildrenAreUsed() {
+        withField(Collection.class);
+        withCollectionTypedField();
+        withInstantiableCollectionTypedField();
+        withTypeParameter(Resource.class);
+        withChildrenAnnotationPresent();
+        withResourceTargetedByMapping(child("field"));
+        withPrefetchedSubtree(this.resource);
+
+        mapField();
+
+        assertMappedFieldValueIsCollectionWithResourcesWithPaths(resourceTargetedByMapping.getPath());
+        verify(this.resource).listChildren();
+    }
+
+    /**
+     * Lazy fields retain the content prefetched by the mapping and use it after the mapping has ended.
+     */
+    @Test
+    public void testPrefetchedChildrenAreUsedWhenLazyLoadingAfterMappingHasEnded() {
+        withField(Collection.class);
+        withLazyField();
+        withCollectionTypedField();
+        withInstantiableCollectionTypedField();
+        withTypeParameter(Resource.class);
+        withChildrenAnnotationPresent();
+        withResourceTargetedByMapping(child("field"));
+        withPrefetchedSubtree(this.resource);
+
+        mapField();
+        this.prefetcher.end();
+        loadLazyField();
+
+        assertMappedFieldValueIsCollectionWithResourcesWithPaths(resourceTargetedByMapping.getPath());
+        verify(this.resource).listChildren();
+    }
+
+    /**
+     * The properties of a resource {@link io.neba.api.annotations.Prefetch prefetched} by the ongoing mapping,
+     * e.g. by the mapping of a parent model, are not obtained again.
+     */
+    @Test
+    public void testPrefetchedPropertiesAreUsed() {
+        Resource parent = mock(Resource.class);
+        doReturn("/test/resource").when(parent).getPath();
+        doReturn(this.resourceResolver).when(parent).getResourceResolver();
+        doAnswer(inv -> singletonList(this.resource).iterator()).when(parent).listChildren();
+        withPrefetchedSubtree(parent);
+
+        mapPropertyField(String.class, "value");
+
+        assertFieldIsMapped();
+        verify(this.resource).adaptTo(ValueMap.class);
+        verify(this.valueMap).size();
+    }
+
     /**
      * Tests that {@link AnnotatedFieldMapper annotated field mappers} are supported on
      * {@link Lazy lazy-loading} resource model fields, i.e. that these mappers are invoked when the
@@ -1321,6 +1446,128 @@ public class FieldValueMappingCallbackTest {
         assertOngoingMappingDataIsAccurate();
     }
 
+    @Test
+    public void testFieldMappingIsNotProfiledWithoutProfiler() {
+        mapPropertyField(String.class, "PropertyValue");
+        verify(this.mappedFieldMetadata, never()).getStatistics();
+    }
+
+    @Test
+    public void testProfiledFieldMappingIsRecordedInFieldStatistics() {
+        withFieldProfiling();
+
+        mapPropertyField(String.class, "PropertyValue");
+
+        verify(this.fieldStatistics).countMapping(anyLong(), eq(0L));
+        verify(this.fieldStatistics, never()).countCustomMapping(anyLong());
+    }
+
+    @Test
+    public void testProfiledFieldMappingRecordsNestedMappings() {
+        withFieldProfiling();
+        withResourceTargetedByMapping(child("field"));
+        doAnswer(inv -> {
+            this.profiler.countMapping();
+            this.profiler.countMapping();
+            return new TestResourceModel();
+        }).when(this.resourceTargetedByMapping).adaptTo(TestResourceModel.class);
+
+        mapChildResourceField(TestResourceModel.class);
+
+        verify(this.fieldStatistics).countMapping(anyLong(), eq(2L));
+    }
+
+    @Test
+    public void testProfiledCustomMappingIsRecordedInFieldStatistics() {
+        withFieldProfiling();
+        withCustomFieldMapperMappingTo("CustomMappedValue");
+
+        mapPropertyField(String.class, "PropertyValue");
+
+        verify(this.fieldStatistics).countCustomMapping(anyLong());
+    }
+
+    @Test
+    public void testProfiledLazyLoadingIsRecordedInFieldStatistics() {
+        withFieldProfiling();
+        withResourceTargetedByMapping("/path/stored/in/property");
+        withLazyField();
+
+        mapSingleReferenceField(Resource.class, "/path/stored/in/property");
+        verify(this.fieldStatistics, never()).countLazyLoad(anyLong(), anyLong());
+
+        loadLazyField();
+        verify(this.fieldStatistics).countLazyLoad(anyLong(), eq(0L));
+    }
+
+    @Test
+    public void testCreationAndLoadingOfLazyFieldValueIsCounted() {
+        withFieldProfiling();
+        withResourceTargetedByMapping("/path/stored/in/property");
+        withLazyField();
+
+        mapSingleReferenceField(Resource.class, "/path/stored/in/property");
+        verify(this.fieldStatistics).countLazyValueCreation();
+        verify(this.fieldStatistics, never()).countLazyValueLoad(anyLong());
+
+        loadLazyField();
+        verify(this.fieldStatistics).countLazyValueLoad(anyLong());
+    }
+
+    @Test
+    public void testCreationAndLoadingOfLazyLoadingCollectionIsCounted() {
+        withFieldProfiling();
+        String[] referencedResources = new String[]{"/path/stored/in/property"};
+        withMockResources(referencedResources);
+        mapReferenceCollectionField(Collection.class, Resource.class, referencedResources);
+
+        verify(this.fieldStatistics).countLazyValueCreation();
+        verify(this.fieldStatistics).countLazyValueLoad(anyLong());
+    }
+
+    @Test
+    public void testLazyValuesAreNotCountedIfMappingIsNotProfiled() {
+        withResourceTargetedByMapping("/path/stored/in/property");
+        withLazyField();
+
+        mapSingleReferenceField(Resource.class, "/path/stored/in/property");
+        loadLazyField();
+
+        verify(this.fieldStatistics, never()).countLazyValueCreation();
+        verify(this.fieldStatistics, never()).countLazyValueLoad(anyLong());
+    }
+
+    @Test
+    public void testLazyLoadingIsRecordedInTrace() {
+        withTracing();
+        withResourceTargetedByMapping("/path/stored/in/property");
+        withLazyField();
+
+        mapSingleReferenceField(Resource.class, "/path/stored/in/property");
+        assertThat(this.trace.getRoots()).isEmpty();
+
+        loadLazyField();
+        assertThat(this.trace.getRoots()).hasSize(1);
+        MappingTrace.Node node = this.trace.getRoots().get(0);
+        assertThat(node.getKind()).isEqualTo(LAZY_LOAD);
+        assertThat(node.getName()).isEqualTo(getClass().getName() + "#mappedFieldOfTypeObject");
+        assertThat(node.getPath()).isEqualTo("/content/resource");
+        assertThat(node.getDurationInNs()).isNotNegative();
+    }
+
+    @Test
+    public void testLazyLoadingIsReportedToMappingListeners() {
+        withMappingListeners();
+        withResourceTargetedByMapping("/path/stored/in/property");
+        withLazyField();
+
+        mapSingleReferenceField(Resource.class, "/path/stored/in/property");
+        verify(this.listeners, never()).lazyLoadTriggered(any(), any(), any());
+
+        loadLazyField();
+        verify(this.listeners).lazyLoadTriggered(getClass(), "mappedFieldOfTypeObject", "/content/resource");
+    }
+
     /**
      * To prevent implementations of field mappers from having to worry about instantiating
      * suitable collection types for collection-typed fields, NEBA extends its guarantee (mappable collection-typed
@@ -1406,7 +1653,7 @@ public class FieldValueMappingCallbackTest {
         Collection<AnnotationMapping> mappings = new ArrayList<>();
         mappings.add(mapping);
 
-        doReturn(mappings).when(this.annotatedFieldMappers).get(isA(MappedFieldMetaData.class));
+        doReturn(mappings.toArray(new AnnotationMapping[0])).when(this.annotatedFieldMappers).get(isA(MappedFieldMetaData.class));
 
         Answer retainMappingContext = invocationOnMock -> {
             ongoingMapping = (OngoingMapping) invocationOnMock.getArguments()[0];
@@ -1639,6 +1886,16 @@ public class FieldValueMappingCallbackTest {
         doReturn(true).when(this.mappedFieldMetadata).isPropertyType();
     }
 
+    private void withPrimitivePropertyField(Class<?> fieldType) {
+        withField(fieldType);
+        withPropertyTypedField();
+        doReturn(PrimitiveFieldType.of(fieldType)).when(this.mappedFieldMetadata).getPrimitiveFieldType();
+    }
+
+    private void withRawPropertyValue(Object value) {
+        doReturn(value).when(this.valueMap).get(eq("field"));
+    }
+
     private <T> void withPropertyValue(T value) {
         Class<?> type = value == null ? this.mappedFieldMetadata.getType() : value.getClass();
         // primitive types are boxed before retrieval from the value map.
@@ -1657,8 +1914,31 @@ public class FieldValueMappingCallbackTest {
         doReturn(annotations).when(this.mappedFieldMetadata).getAnnotations();
     }
 
+    private void withFieldProfiling() {
+        this.profiler = new FieldProfiler(1);
+        doReturn(this.fieldStatistics).when(this.mappedFieldMetadata).getStatistics();
+    }
+
+    private void withTracing() {
+        this.trace = new MappingTrace(1, "GET", "/content/page.html", currentTimeMillis());
+        doReturn("/content/resource").when(this.resource).getPath();
+    }
+
+    private void withMappingListeners() {
+        this.listeners = mock(MappingListeners.class);
+        doReturn("/content/resource").when(this.resource).getPath();
+    }
+
+    private void withPrefetchedSubtree(Resource resource) {
+        Prefetch prefetch = mock(Prefetch.class);
+        doReturn(1).when(prefetch).depth();
+        doReturn(new String[0]).when(prefetch).names();
+        this.prefetcher = new SubtreePrefetcher();
+        this.prefetcher.prefetch(resource, new PrefetchMetaData(prefetch, Object.class));
+    }
+
     private void mapField() {
-        new FieldValueMappingCallback(this.model, this.resource, this.factory, this.annotatedFieldMappers, this.placeholderVariableResolvers)
+        new FieldValueMappingCallback(this.model, this.resource, this.factory, this.annotatedFieldMappers, this.placeholderVariableResolvers, this.profiler, this.trace, this.listeners, this.prefetcher)
                 .doWith(this.mappedFieldMetadata);
     }
 
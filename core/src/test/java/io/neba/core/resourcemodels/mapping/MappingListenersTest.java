@@ -0,0 +1,132 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.mapping;
+
+import io.neba.api.spi.MappingListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import static org.apache.commons.lang3.reflect.FieldUtils.getField;
+import static org.apache.commons.lang3.reflect.FieldUtils.writeField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MappingListenersTest {
+    @Mock
+    private MappingListener listener;
+    @Mock
+    private MappingListener otherListener;
+    @Mock
+    private Logger logger;
+
+    private MappingListeners testee;
+
+    @Before
+    public void setUp() throws Exception {
+        this.testee = new MappingListeners();
+        writeField(getField(MappingListeners.class, "logger", true), this.testee, this.logger);
+    }
+
+    @Test
+    public void testListenersAreEmptyByDefault() {
+        assertThat(this.testee.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testListenersAreNotEmptyAfterBind() {
+        this.testee.bind(this.listener);
+        assertThat(this.testee.isEmpty()).isFalse();
+    }
+
+    @Test
+    public void testListenersAreEmptyAfterUnbind() {
+        this.testee.bind(this.listener);
+        this.testee.unbind(this.listener);
+        assertThat(this.testee.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testUnbindingOfNullListenerIsTolerated() {
+        this.testee.unbind(null);
+        assertThat(this.testee.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void testAllNotificationsAreDispatchedToAllListeners() {
+        this.testee.bind(this.listener);
+        this.testee.bind(this.otherListener);
+
+        notifyListeners();
+
+        verifyListenerIsNotified(this.listener);
+        verifyListenerIsNotified(this.otherListener);
+    }
+
+    @Test
+    public void testUnboundListenerIsNoLongerNotified() {
+        this.testee.bind(this.listener);
+        this.testee.bind(this.otherListener);
+        this.testee.unbind(this.listener);
+
+        notifyListeners();
+
+        verifyNoInteractions(this.listener);
+        verifyListenerIsNotified(this.otherListener);
+    }
+
+    @Test
+    public void testFailingListenerDoesNotPreventNotificationOfOtherListeners() {
+        RuntimeException failure = new IllegalStateException("THIS IS AN EXPECTED TEST EXCEPTION");
+        doThrow(failure).when(this.listener).mappingStarted(String.class, "/junit/path", 1);
+        this.testee.bind(this.listener);
+        this.testee.bind(this.otherListener);
+
+        this.testee.mappingStarted(String.class, "/junit/path", 1);
+
+        verify(this.otherListener).mappingStarted(String.class, "/junit/path", 1);
+        verify(this.logger).error(isA(String.class), eq(failure));
+    }
+
+    private void notifyListeners() {
+        this.testee.mappingStarted(String.class, "/junit/path", 1);
+        this.testee.mappingCompleted(String.class, "/junit/path", 1, 100L);
+        this.testee.cacheHit("/junit/path", String.class);
+        this.testee.cacheMiss("/junit/path");
+        this.testee.modelsLookedUp("/junit/path", "junit/type", 2, true);
+        this.testee.lazyLoadTriggered(String.class, "field", "/junit/path");
+    }
+
+    private static void verifyListenerIsNotified(MappingListener listener) {
+        verify(listener).mappingStarted(String.class, "/junit/path", 1);
+        verify(listener).mappingCompleted(String.class, "/junit/path", 1, 100L);
+        verify(listener).cacheHit("/junit/path", String.class);
+        verify(listener).cacheMiss("/junit/path");
+        verify(listener).modelsLookedUp("/junit/path", "junit/type", 2, true);
+        verify(listener).lazyLoadTriggered(String.class, "field", "/junit/path");
+    }
+}
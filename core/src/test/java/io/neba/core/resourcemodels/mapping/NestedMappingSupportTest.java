@@ -17,6 +17,7 @@
 package io.neba.core.resourcemodels.mapping;
 
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
+import io.neba.core.resourcemodels.tracing.MappingTrace;
 import org.assertj.core.data.MapEntry;
 import org.junit.Before;
 import org.junit.Test;
@@ -24,6 +25,11 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.MAPPING;
+import static java.lang.System.currentTimeMillis;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.doReturn;
@@ -38,6 +44,7 @@ public class NestedMappingSupportTest {
     private Mapping<?> alreadyOngoingMapping;
     @SuppressWarnings("rawtypes")
     private Iterable<Mapping> ongoingMappings;
+    private MappingTrace trace;
 
     @InjectMocks
     private NestedMappingSupport testee;
@@ -106,6 +113,42 @@ public class NestedMappingSupportTest {
         assertMappingForCurrentResourceModelTypeExists();
     }
 
+    @Test
+    public void testCycleDetectionForEqualMappingsOfTheSameResource() {
+        ResourceModelMetaData metaData = mock(ResourceModelMetaData.class);
+        Mapping<Object> first = new Mapping<>("/content/path", metaData, "some/type");
+        Mapping<Object> second = new Mapping<>("/content/path", metaData, "some/type");
+
+        assertThat(this.testee.push(first)).isNull();
+        assertThat(this.testee.push(second)).isSameAs(first);
+        assertThat(this.testee.push(new Mapping<>("/content/other/path", metaData, "some/type"))).isNull();
+    }
+
+    @Test
+    public void testDeeplyNestedMappingsOfManyResourceModels() {
+        List<Mapping<?>> mappings = new ArrayList<>();
+        for (int i = 0; i < 200; ++i) {
+            withNewMapping();
+            mappings.add(this.mapping);
+            beginMapping();
+            assertMappingWasNotAlreadyStarted();
+        }
+
+        getOngoingMappings();
+        assertThat(this.ongoingMappings).containsExactlyElementsOf(mappings);
+
+        for (int i = mappings.size() - 1; i >= 0; --i) {
+            Mapping<?> mapping = mappings.get(i);
+            assertThat(this.testee.peek()).isSameAs(mapping);
+            assertThat(this.testee.hasOngoingMapping(mapping.getMetadata())).isTrue();
+            endMapping();
+            assertThat(this.testee.hasOngoingMapping(mapping.getMetadata())).isFalse();
+        }
+
+        getOngoingMappings();
+        assertOngoingMappingsAreEmpty();
+    }
+
     @Test
     public void testNoMappingsAreRecordedByDefault() {
         beginMapping();
@@ -175,6 +218,125 @@ public class NestedMappingSupportTest {
         assertNoModelsWhereRecorded();
     }
 
+    @Test
+    public void testNestedMappingsAreAttributedToAllParentMappings() {
+        Mapping<Object> parent = new Mapping<>("/content/parent", mock(ResourceModelMetaData.class), "some/type");
+        Mapping<Object> child = new Mapping<>("/content/parent/child", mock(ResourceModelMetaData.class), "some/type");
+        Mapping<Object> grandChild = new Mapping<>("/content/parent/child/child", mock(ResourceModelMetaData.class), "some/type");
+        Mapping<Object> otherChild = new Mapping<>("/content/parent/other", mock(ResourceModelMetaData.class), "some/type");
+
+        this.testee.push(parent);
+        this.testee.push(child);
+        this.testee.push(grandChild);
+        this.testee.pop();
+        this.testee.pop();
+        this.testee.push(otherChild);
+        this.testee.pop();
+        this.testee.pop();
+
+        assertThat(parent.getNestedMappings()).isEqualTo(3);
+        assertThat(child.getNestedMappings()).isEqualTo(1);
+        assertThat(grandChild.getNestedMappings()).isZero();
+        assertThat(otherChild.getNestedMappings()).isZero();
+    }
+
+    @Test
+    public void testNoTraceIsAvailableByDefault() {
+        assertThat(this.testee.getTrace()).isNull();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBeginTracingDoesNotAcceptNull() {
+        this.testee.beginTracing(null);
+    }
+
+    @Test
+    public void testNestedMappingsAreTracedWhenTracingIsStarted() {
+        beginTracing();
+        assertThat(this.testee.getTrace()).isSameAs(this.trace);
+
+        withNewTracedMapping("/content/parent", "ParentModel");
+        beginMapping();
+        withNewTracedMapping("/content/parent/child", "ChildModel");
+        beginMapping();
+        endMapping();
+        endMapping();
+
+        endTracing();
+        assertThat(this.testee.getTrace()).isNull();
+
+        assertThat(this.trace.getRoots()).hasSize(1);
+        MappingTrace.Node parent = this.trace.getRoots().get(0);
+        assertThat(parent.getKind()).isEqualTo(MAPPING);
+        assertThat(parent.getName()).isEqualTo("ParentModel");
+        assertThat(parent.getPath()).isEqualTo("/content/parent");
+        assertThat(parent.getChildren()).extracting(MappingTrace.Node::getName).containsExactly("ChildModel");
+    }
+
+    @Test
+    public void testNoMoreMappingsAreTracedAfterTracingIsStopped() {
+        beginTracing();
+        endTracing();
+
+        beginMapping();
+        endMapping();
+
+        assertThat(this.trace.getRoots()).isEmpty();
+    }
+
+    @Test
+    public void testReadingTheMappingStackWithoutOngoingMappingDoesNotRetainThreadLocalState() {
+        getOngoingMappings();
+        assertOngoingMappingsAreEmpty();
+        assertThat(this.testee.getMappingDepth()).isZero();
+        assertThat(this.testee.peek()).isNull();
+        assertNoMappingForCurrentResourceModelTypeExists();
+
+        // A mapping stack retained by the reads above would neither record nor trace subsequent mappings.
+        beginRecordingMappings();
+        beginTracing();
+        withNewTracedMapping("/content/parent", "ParentModel");
+        beginMapping();
+        endMapping();
+
+        assertRecordedMappingsAre(entry(this.mapping.getMappedModel(), this.mapping));
+        assertThat(this.trace.getRoots()).extracting(MappingTrace.Node::getName).containsExactly("ParentModel");
+    }
+
+    @Test
+    public void testMappingStackIsACopyOfTheOngoingMappings() {
+        List<Mapping<?>> mappings = new ArrayList<>();
+        for (int i = 0; i < 3; ++i) {
+            withNewMapping();
+            mappings.add(this.mapping);
+            beginMapping();
+        }
+
+        getOngoingMappings();
+
+        endMapping();
+        withNewMapping();
+        beginMapping();
+
+        assertThat(this.ongoingMappings).containsExactlyElementsOf(mappings);
+    }
+
+    private void beginTracing() {
+        this.trace = new MappingTrace(1, "GET", "/content/page.html", currentTimeMillis());
+        this.testee.beginTracing(this.trace);
+    }
+
+    private void endTracing() {
+        this.testee.endTracing();
+    }
+
+    private void withNewTracedMapping(String path, String typeName) {
+        withNewMapping();
+        doReturn(path).when(this.mapping).getResourcePath();
+        ResourceModelMetaData metaData = this.mapping.getMetadata();
+        doReturn(typeName).when(metaData).getTypeName();
+    }
+
     private void assertNoModelsWhereRecorded() {
         assertThat(this.testee.getRecordedMappings()).isNull();
     }
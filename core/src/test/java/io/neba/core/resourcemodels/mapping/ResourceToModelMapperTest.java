@@ -16,18 +16,23 @@
 
 package io.neba.core.resourcemodels.mapping;
 
+import io.neba.api.annotations.Prefetch;
 import io.neba.api.spi.AopSupport;
 import io.neba.api.spi.ResourceModelFactory;
 import io.neba.api.spi.ResourceModelFactory.ContentToModelMappingCallback;
 import io.neba.api.spi.ResourceModelPostProcessor;
 import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
+import io.neba.core.resourcemodels.metadata.MappedFieldStatistics;
+import io.neba.core.resourcemodels.metadata.PrefetchMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
 import io.neba.core.resourcemodels.metadata.ResourceModelStatistics;
+import io.neba.core.resourcemodels.tracing.SlowMappingDetector;
 import io.neba.core.util.OsgiModelSource;
 import io.neba.core.util.ResolvedModelSource;
 import io.neba.core.util.ResourcePaths;
 import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
 import org.apache.sling.api.resource.ValueMap;
 import org.junit.Before;
 import org.junit.Test;
@@ -38,11 +43,14 @@ import org.mockito.junit.MockitoJUnitRunner;
 
 import java.lang.reflect.Field;
 
+import static java.util.Collections.emptyIterator;
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.isA;
-import static org.mockito.Mockito.anyInt;
+import static org.mockito.Mockito.anyLong;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -83,13 +91,16 @@ public class ResourceToModelMapperTest {
     @Mock
     private ResourceModelStatistics resourceModelStatistics;
     @Mock
-    @SuppressWarnings("unused") // Required for injection into testee
     private AnnotatedFieldMappers annotatedFieldMappers;
     @Mock
     @SuppressWarnings("unused") // Required for injection into testee
     private PlaceholderVariableResolvers placeholderVariableResolvers;
     @Mock
     private Mapping<Object> ongoingMapping;
+    @Mock
+    private SlowMappingDetector slowMappingDetector;
+    @Mock
+    private MappingListeners mappingListeners;
 
     private TestModel model;
     private Class<?> modelType;
@@ -97,6 +108,7 @@ public class ResourceToModelMapperTest {
     private TestModel modelReturnedFromPostProcessor;
     private TestModel mappedModel;
     private AopSupport aopSupport;
+    private MappedFieldMetaData mappedFieldMetaData;
 
     @InjectMocks
     private ResourceToModelMapper testee;
@@ -142,6 +154,35 @@ public class ResourceToModelMapperTest {
         assertMappedModelHasProperty("mapped", "value");
     }
 
+    @Test
+    public void testFieldsAreNotProfiledByDefault() throws Exception {
+        withModelWithMappableField();
+        mapResourceToModel();
+        verify(this.mappedFieldMetaData, never()).getStatistics();
+    }
+
+    @Test
+    public void testFieldsAreProfiledIfFieldProfilingIsEnabled() throws Exception {
+        withModelWithMappableField();
+        MappedFieldStatistics fieldStatistics = withFieldStatistics();
+        withFieldProfilingSampleRate(1);
+
+        mapResourceToModel();
+
+        verify(fieldStatistics).countMapping(anyLong(), eq(0L));
+    }
+
+    @Test
+    public void testFieldProfilingCanBeDisabled() throws Exception {
+        withModelWithMappableField();
+        withFieldProfilingSampleRate(1);
+        withFieldProfilingSampleRate(0);
+
+        mapResourceToModel();
+
+        verify(this.mappedFieldMetaData, never()).getStatistics();
+    }
+
     @Test
     public void testPostProcessingWithoutChangedModel() {
         withPostProcessor(mock(ResourceModelPostProcessor.class));
@@ -235,6 +276,40 @@ public class ResourceToModelMapperTest {
         verifyMappingDurationIsNotTracked();
     }
 
+    @Test
+    public void testTrackedMappingDurationIsPassedToSlowMappingDetector() {
+        mapResourceToModel();
+        verify(this.slowMappingDetector).mappingCompleted(isA(Mapping.class), anyLong(), any());
+    }
+
+    @Test
+    public void testUntrackedMappingDurationIsNotPassedToSlowMappingDetector() {
+        withOngoingMappingForSameResourceModel();
+        mapResourceToModel();
+        verify(this.slowMappingDetector, never()).mappingCompleted(any(), anyLong(), any());
+    }
+
+    @Test
+    public void testMappingListenersAreNotifiedAboutMapping() {
+        doReturn(2).when(this.nestedMappingSupport).getMappingDepth();
+
+        mapResourceToModel();
+
+        verify(this.mappingListeners).mappingStarted(TestModel.class, "/resource/path", 2);
+        verify(this.mappingListeners).mappingCompleted(eq(TestModel.class), eq("/resource/path"), eq(2), anyLong());
+    }
+
+    @Test
+    public void testMappingListenersAreNotNotifiedIfNoListenerIsRegistered() {
+        doReturn(true).when(this.mappingListeners).isEmpty();
+
+        mapResourceToModel();
+
+        verify(this.nestedMappingSupport, never()).getMappingDepth();
+        verify(this.mappingListeners, never()).mappingStarted(any(), any(), anyInt());
+        verify(this.mappingListeners, never()).mappingCompleted(any(), any(), anyInt(), anyLong());
+    }
+
     @Test
     public void testRemovalOfNullPostProcessorDoesNotCauseException() {
         this.testee.unbindProcessor(null);
@@ -250,8 +325,71 @@ public class ResourceToModelMapperTest {
         verifyNumberOfSubsequentMappingsIs(1);
     }
 
+    @Test
+    public void testSubtreeIsNotPrefetchedWithoutPrefetchMetaData() {
+        mapResourceToModel();
+        verify(this.resource, never()).listChildren();
+    }
+
+    @Test
+    public void testSubtreeIsPrefetchedUpToConfiguredDepth() {
+        Resource child = withChild(this.resource, "child");
+        Resource grandChild = withChild(child, "grandChild");
+        withNoChildren(grandChild);
+        withPrefetch(2);
+
+        mapResourceToModel();
+
+        verify(child).adaptTo(ValueMap.class);
+        verify(grandChild).adaptTo(ValueMap.class);
+        verify(grandChild, never()).listChildren();
+    }
+
+    @Test
+    public void testPrefetchOnlyDescendsIntoResourcesWithConfiguredNames() {
+        Resource included = withChild(this.resource, "jcr:content");
+        withNoChildren(included);
+        withPrefetch(2, "jcr:content");
+
+        mapResourceToModel();
+
+        verify(included).adaptTo(ValueMap.class);
+        verify(included).listChildren();
+    }
+
+    @Test
+    public void testPrefetchSkipsResourcesWithOtherNames() {
+        Resource excluded = withChild(this.resource, "other");
+        withPrefetch(2, "jcr:content");
+
+        mapResourceToModel();
+
+        verify(excluded, never()).adaptTo(ValueMap.class);
+        verify(excluded, never()).listChildren();
+    }
+
+    private void withPrefetch(int depth, String... names) {
+        Prefetch prefetch = mock(Prefetch.class);
+        doReturn(depth).when(prefetch).depth();
+        doReturn(names).when(prefetch).names();
+        doReturn(new PrefetchMetaData(prefetch, this.modelType)).when(this.modelMetaData).getPrefetch();
+        doReturn(mock(ResourceResolver.class)).when(this.resource).getResourceResolver();
+    }
+
+    private Resource withChild(Resource parent, String name) {
+        Resource child = mock(Resource.class);
+        doReturn(name).when(child).getName();
+        doReturn(parent.getPath() + '/' + name).when(child).getPath();
+        doReturn(singletonList(child).iterator()).when(parent).listChildren();
+        return child;
+    }
+
+    private void withNoChildren(Resource resource) {
+        doReturn(emptyIterator()).when(resource).listChildren();
+    }
+
     private void verifyNumberOfSubsequentMappingsIs(int mappings) {
-        verify(this.resourceModelStatistics, times(mappings)).countSubsequentMapping();
+        verify(this.resourceModelStatistics, times(mappings)).countSubsequentMapping(anyLong());
     }
 
     private void withOngoingMappingForSameResourceModel() {
@@ -259,11 +397,11 @@ public class ResourceToModelMapperTest {
     }
 
     private void verifyMappingDurationIsTracked() {
-        verify(this.resourceModelStatistics).countMappingDuration(anyInt());
+        verify(this.resourceModelStatistics).countMappingDuration(anyLong(), anyLong());
     }
 
     private void verifyMappingDurationIsNotTracked() {
-        verify(this.resourceModelStatistics, never()).countMappingDuration(anyInt());
+        verify(this.resourceModelStatistics, never()).countMappingDuration(anyLong(), anyLong());
     }
 
     private void withParentMapping() {
@@ -279,11 +417,11 @@ public class ResourceToModelMapperTest {
     }
 
     private void verifyModelInstantiationIsCounted() {
-        verify(this.resourceModelStatistics).countInstantiation();
+        verify(this.resourceModelStatistics).countInstantiation(anyLong());
     }
 
     private void verifyModelInstantiationIsNotCounted() {
-        verify(this.resourceModelStatistics, never()).countInstantiation();
+        verify(this.resourceModelStatistics, never()).countInstantiation(anyLong());
     }
 
     private void verifyMapperObtainsModelFromAopSupport() {
@@ -338,6 +476,18 @@ public class ResourceToModelMapperTest {
         doReturn(properties).when(this.resource).adaptTo(ValueMap.class);
     }
 
+    private MappedFieldStatistics withFieldStatistics() {
+        MappedFieldStatistics fieldStatistics = mock(MappedFieldStatistics.class);
+        doReturn(fieldStatistics).when(this.mappedFieldMetaData).getStatistics();
+        return fieldStatistics;
+    }
+
+    private void withFieldProfilingSampleRate(int sampleRate) {
+        ResourceToModelMapper.Configuration configuration = mock(ResourceToModelMapper.Configuration.class);
+        doReturn(sampleRate).when(configuration).fieldProfilingSampleRate();
+        this.testee.activate(configuration);
+    }
+
     private void withModelWithMappableField() throws NoSuchFieldException {
         this.model = new TestModelWithMappableField();
 
@@ -346,11 +496,13 @@ public class ResourceToModelMapperTest {
         field.setAccessible(true);
 
         MappedFieldMetaData mappedFieldMetaData = mock(MappedFieldMetaData.class);
+        this.mappedFieldMetaData = mappedFieldMetaData;
         doReturn(true).when(mappedFieldMetaData).isPropertyType();
         doReturn("mapped").when(path).getPath();
         doReturn(path).when(mappedFieldMetaData).getPath();
         doReturn(String.class).when(mappedFieldMetaData).getType();
         doReturn(field).when(mappedFieldMetaData).getField();
+        doReturn(new AnnotatedFieldMappers.AnnotationMapping[0]).when(this.annotatedFieldMappers).get(mappedFieldMetaData);
 
         doReturn(new MappedFieldMetaData[]{ mappedFieldMetaData }).when(this.modelMetaData).getMappableFields();
     }
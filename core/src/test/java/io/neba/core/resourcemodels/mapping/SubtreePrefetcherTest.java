@@ -0,0 +1,235 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.mapping;
+
+import io.neba.api.annotations.Prefetch;
+import io.neba.core.resourcemodels.metadata.PrefetchMetaData;
+import org.apache.sling.api.resource.Resource;
+import org.apache.sling.api.resource.ResourceResolver;
+import org.apache.sling.api.resource.ValueMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SubtreePrefetcherTest {
+    @Mock
+    private ResourceResolver resolver;
+
+    private Resource page;
+    private Resource content;
+    private Resource component;
+    private ValueMap componentProperties;
+
+    private SubtreePrefetcher testee;
+
+    @Before
+    public void setUp() {
+        this.component = resource("/page/jcr:content/component", this.resolver);
+        this.componentProperties = mock(ValueMap.class);
+        doReturn(this.componentProperties).when(this.component).adaptTo(ValueMap.class);
+        this.content = resource("/page/jcr:content", this.resolver, this.component);
+        this.page = resource("/page", this.resolver, this.content);
+
+        this.testee = new SubtreePrefetcher();
+    }
+
+    @Test
+    public void testPropertiesOfPrefetchedResourcesAreRead() {
+        prefetch(this.page, prefetch(2));
+
+        verify(this.componentProperties).size();
+    }
+
+    @Test
+    public void testPrefetchedChildrenAndPropertiesAreProvided() {
+        prefetch(this.page, prefetch(2));
+
+        SubtreePrefetcher.Prefetched prefetched = this.testee.current();
+        assertThat(prefetched).isNotNull();
+        assertThat(prefetched.getChildren(this.page)).containsExactly(this.content);
+        assertThat(prefetched.getChildren(this.content)).containsExactly(this.component);
+        assertThat(prefetched.getChildren(this.component)).isNull();
+        assertThat(prefetched.getProperties(this.component)).isSameAs(this.componentProperties);
+        assertThat(prefetched.getProperties(this.page)).isNull();
+    }
+
+    @Test
+    public void testNothingIsProvidedWithoutPrefetch() {
+        assertThat(this.testee.current()).isNull();
+    }
+
+    @Test
+    public void testPrefetchedContentIsNotProvidedForResourcesOfOtherResolvers() {
+        prefetch(this.page, prefetch(2));
+
+        Resource pageOfOtherResolver = resource("/page", mock(ResourceResolver.class), this.content);
+        assertThat(this.testee.current().getChildren(pageOfOtherResolver)).isNull();
+    }
+
+    @Test
+    public void testSubtreeIsNotPrefetchedAgainWhileMappingIsOngoing() {
+        PrefetchMetaData prefetch = prefetch(2);
+
+        prefetch(this.page, prefetch);
+        prefetch(this.page, prefetch);
+
+        verify(this.page, times(1)).listChildren();
+        verify(this.componentProperties, times(1)).size();
+    }
+
+    @Test
+    public void testPrefetchedContentIsDiscardedWhenMappingEnds() {
+        PrefetchMetaData prefetch = prefetch(2);
+        prefetch(this.page, prefetch);
+
+        end();
+        assertThat(this.testee.current()).isNull();
+
+        prefetch(this.page, prefetch);
+        verify(this.page, times(2)).listChildren();
+    }
+
+    @Test
+    public void testSubtreesOfOtherResolversAreNotPrefetchedWhileMappingIsOngoing() {
+        PrefetchMetaData prefetch = prefetch(1);
+        prefetch(this.page, prefetch);
+
+        Resource pageOfOtherResolver = resource("/page", mock(ResourceResolver.class), this.content);
+        prefetch(pageOfOtherResolver, prefetch);
+        verify(pageOfOtherResolver, never()).listChildren();
+
+        end();
+        prefetch(pageOfOtherResolver, prefetch);
+        verify(pageOfOtherResolver).listChildren();
+    }
+
+    @Test
+    public void testSubtreeWithinPrefetchedSubtreeIsNotPrefetchedAgain() {
+        prefetch(this.page, prefetch(2));
+        prefetch(this.content, prefetch(1));
+
+        verify(this.content, times(1)).listChildren();
+    }
+
+    @Test
+    public void testDeeperPrefetchOfPrefetchedSubtreeIsPerformed() {
+        prefetch(this.content, prefetch(1));
+        prefetch(this.page, prefetch(2));
+
+        verify(this.page).listChildren();
+        verify(this.content, times(1)).listChildren();
+    }
+
+    @Test
+    public void testSubtreePrefetchedWithNameRestrictionsIsPrefetchedAgainWithoutRestrictions() {
+        prefetch(this.page, prefetch(2, "jcr:content"));
+        verify(this.componentProperties, never()).size();
+
+        prefetch(this.page, prefetch(2));
+
+        verify(this.componentProperties).size();
+        verify(this.page, times(1)).listChildren();
+    }
+
+    @Test
+    public void testSubtreePrefetchedWithoutRestrictionsIsNotPrefetchedAgainWithRestrictions() {
+        prefetch(this.page, prefetch(2));
+        prefetch(this.page, prefetch(2, "jcr:content"));
+
+        verify(this.page, times(1)).listChildren();
+    }
+
+    @Test
+    public void testResourcesWithoutResolverAreNotPrefetched() {
+        Resource resource = resource("/other", null);
+
+        prefetch(resource, prefetch(1));
+
+        verify(resource, never()).listChildren();
+        assertThat(this.testee.current()).isNull();
+    }
+
+    @Test
+    public void testResumedContentIsProvidedUntilTheLoadEnds() {
+        prefetch(this.page, prefetch(2));
+        SubtreePrefetcher.Prefetched prefetched = this.testee.current();
+        end();
+
+        Object value = this.testee.resume(prefetched, () -> {
+            assertThat(this.testee.current()).isSameAs(prefetched);
+            // The end of mappings performed by the load does not discard the resumed content.
+            end();
+            assertThat(this.testee.current()).isSameAs(prefetched);
+            return "value";
+        });
+
+        assertThat(value).isEqualTo("value");
+        assertThat(this.testee.current()).isNull();
+    }
+
+    @Test
+    public void testResumingContentDuringOngoingMappingRetainsContentOfOngoingMapping() {
+        prefetch(this.page, prefetch(1));
+        SubtreePrefetcher.Prefetched prefetched = this.testee.current();
+        end();
+        prefetch(this.content, prefetch(1));
+        SubtreePrefetcher.Prefetched ongoing = this.testee.current();
+
+        this.testee.resume(prefetched, () -> assertThat(this.testee.current()).isSameAs(ongoing));
+
+        assertThat(this.testee.current()).isSameAs(ongoing);
+    }
+
+    private void prefetch(Resource resource, PrefetchMetaData prefetch) {
+        this.testee.prefetch(resource, prefetch);
+    }
+
+    private void end() {
+        this.testee.end();
+    }
+
+    private static PrefetchMetaData prefetch(int depth, String... names) {
+        Prefetch prefetch = mock(Prefetch.class);
+        doReturn(depth).when(prefetch).depth();
+        doReturn(names).when(prefetch).names();
+        return new PrefetchMetaData(prefetch, Object.class);
+    }
+
+    private static Resource resource(String path, ResourceResolver resolver, Resource... children) {
+        Resource resource = mock(Resource.class, withSettings().lenient());
+        doReturn(path).when(resource).getPath();
+        doReturn(path.substring(path.lastIndexOf('/') + 1)).when(resource).getName();
+        doReturn(resolver).when(resource).getResourceResolver();
+        doAnswer(i -> asList(children).iterator()).when(resource).listChildren();
+        return resource;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.metadata;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.neba.core.resourcemodels.metadata.LatencyHistogram.HIGHEST_TRACKABLE_VALUE;
+import static io.neba.core.resourcemodels.metadata.LatencyHistogram.NUMBER_OF_BUCKETS;
+import static io.neba.core.resourcemodels.metadata.LatencyHistogram.bucketIndexOf;
+import static io.neba.core.resourcemodels.metadata.LatencyHistogram.lowerBoundOf;
+import static io.neba.core.resourcemodels.metadata.LatencyHistogram.upperBoundOf;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
+
+/**
+ * @author Olaf Otto
+ */
+public class LatencyHistogramTest {
+    private LatencyHistogram testee;
+
+    @Before
+    public void setUp() {
+        this.testee = new LatencyHistogram();
+    }
+
+    @Test
+    public void testBucketsAreContiguousAndContainTheirValues() {
+        for (int i = 0; i < NUMBER_OF_BUCKETS - 1; ++i) {
+            assertThat(upperBoundOf(i)).isEqualTo(lowerBoundOf(i + 1));
+            assertThat(bucketIndexOf(lowerBoundOf(i))).isEqualTo(i);
+            assertThat(bucketIndexOf(upperBoundOf(i) - 1)).isEqualTo(i);
+        }
+        assertThat(bucketIndexOf(HIGHEST_TRACKABLE_VALUE)).isEqualTo(NUMBER_OF_BUCKETS - 1);
+    }
+
+    @Test
+    public void testRelativeBucketWidthIsBounded() {
+        for (int i = 16; i < NUMBER_OF_BUCKETS; ++i) {
+            double relativeWidth = (upperBoundOf(i) - lowerBoundOf(i)) / (double) lowerBoundOf(i);
+            assertThat(relativeWidth).isLessThanOrEqualTo(1 / 16D);
+        }
+    }
+
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram.Snapshot snapshot = this.testee.snapshot();
+
+        assertThat(snapshot.getCount()).isZero();
+        assertThat(snapshot.getTotalDuration()).isZero();
+        assertThat(snapshot.getMinimumDuration()).isZero();
+        assertThat(snapshot.getMaximumDuration()).isZero();
+        assertThat(snapshot.getAverageDuration()).isZero();
+        assertThat(snapshot.getPercentile(99)).isZero();
+    }
+
+    @Test
+    public void testExactAggregates() {
+        record(100, 200, 300, 1_000_000);
+
+        LatencyHistogram.Snapshot snapshot = this.testee.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(4);
+        assertThat(snapshot.getTotalDuration()).isEqualTo(1_000_600);
+        assertThat(snapshot.getMinimumDuration()).isEqualTo(100);
+        assertThat(snapshot.getMaximumDuration()).isEqualTo(1_000_000);
+        assertThat(snapshot.getAverageDuration()).isEqualTo(250_150);
+    }
+
+    @Test
+    public void testPercentilesAreAccurateAcrossMagnitudes() {
+        for (int i = 1; i <= 100; ++i) {
+            record(i * 10_000L);
+        }
+        record(5_000_000_000L);
+
+        LatencyHistogram.Snapshot snapshot = this.testee.snapshot();
+
+        assertThat(snapshot.getPercentile(50)).isCloseTo(510_000, withinPercentage(4));
+        assertThat(snapshot.getPercentile(90)).isCloseTo(910_000, withinPercentage(4));
+        assertThat(snapshot.getPercentile(99)).isCloseTo(1_000_000, withinPercentage(4));
+        assertThat(snapshot.getPercentile(100)).isEqualTo(5_000_000_000D);
+    }
+
+    @Test
+    public void testPercentilesDoNotExceedExtrema() {
+        record(1000);
+
+        LatencyHistogram.Snapshot snapshot = this.testee.snapshot();
+
+        assertThat(snapshot.getPercentile(0)).isEqualTo(1000);
+        assertThat(snapshot.getPercentile(99.9)).isEqualTo(1000);
+    }
+
+    @Test
+    public void testNegativeDurationsAreCountedAsZero() {
+        record(-1);
+
+        LatencyHistogram.Snapshot snapshot = this.testee.snapshot();
+
+        assertThat(snapshot.getCount()).isEqualTo(1);
+        assertThat(snapshot.getMaximumDuration()).isZero();
+    }
+
+    @Test
+    public void testExcessiveDurationsAreCountedAsHighestTrackableValue() {
+        record(Long.MAX_VALUE);
+
+        LatencyHistogram.Snapshot snapshot = this.testee.snapshot();
+
+        assertThat(snapshot.getCounts()[NUMBER_OF_BUCKETS - 1]).isEqualTo(1);
+        assertThat(snapshot.getMaximumDuration()).isEqualTo(HIGHEST_TRACKABLE_VALUE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentileIsRejected() {
+        this.testee.snapshot().getPercentile(100.1);
+    }
+
+    private void record(long... durations) {
+        for (long duration : durations) {
+            this.testee.record(duration);
+        }
+    }
+}
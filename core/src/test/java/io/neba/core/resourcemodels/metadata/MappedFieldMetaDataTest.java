@@ -60,6 +60,22 @@ public class MappedFieldMetaDataTest {
         createMetadataForTestModelFieldWithName("this.field.does.not.exist");
     }
 
+    @Test
+    public void testMappingKind() {
+        assertMappingKindOfFieldIs("stringField", "property");
+        assertMappingKindOfFieldIs("thisResource", "@This");
+        assertMappingKindOfFieldIs("referencedResource", "@Reference");
+        assertMappingKindOfFieldIs("childrenAsResources", "@Children");
+        assertMappingKindOfFieldIs("lazyChildContentResourcesAsResources", "lazy @Children");
+        assertMappingKindOfFieldIs("lazyReferenceToChildAsOtherModel", "lazy resource");
+    }
+
+    @Test
+    public void testFieldStatisticsAreProvided() {
+        createMetadataForTestModelFieldWithName("stringField");
+        assertThat(this.testee.getStatistics()).isNotNull();
+    }
+
     @Test
 	public void testPathAnnotationUsageOnPropertyField() {
 		createMetadataForTestModelFieldWithName("stringFieldWithRelativePathAnnotation");
@@ -293,6 +309,21 @@ public class MappedFieldMetaDataTest {
         assertLazyLoadingCallbackWasCalledExactlyOnceDuringTestExecution();
     }
 
+    @Test
+    public void testDetectionOfPrimitiveFieldType() {
+        createMetadataForTestModelFieldWithName("primitiveIntField");
+        assertPrimitiveFieldTypeIs(PrimitiveFieldType.INT);
+
+        createMetadataForTestModelFieldWithName("primitiveBooleanField");
+        assertPrimitiveFieldTypeIs(PrimitiveFieldType.BOOLEAN);
+    }
+
+    @Test
+    public void testNonPrimitiveFieldHasNoPrimitiveFieldType() {
+        createMetadataForTestModelFieldWithName("stringField");
+        assertPrimitiveFieldTypeIs(null);
+    }
+
     @Test
     public void testResolutionOfArrayComponentType() {
         createMetadataForTestModelFieldWithName("collectionOfStrings");
@@ -359,6 +390,10 @@ public class MappedFieldMetaDataTest {
         this.lazyLoadingProxy = this.testee.getLazyLoadingProxy(this.callbackForLazyLoading);
     }
 
+    private void assertPrimitiveFieldTypeIs(PrimitiveFieldType type) {
+        assertThat(this.testee.getPrimitiveFieldType()).isEqualTo(type);
+    }
+
     private void assertFieldTypeIs(Class<?> type) {
         assertThat(this.testee.getType()).isEqualTo(type);
     }
@@ -455,6 +490,11 @@ public class MappedFieldMetaDataTest {
 		assertThat(this.testee.isPropertyType()).isFalse();
 	}
 
+    private void assertMappingKindOfFieldIs(String fieldName, String kind) {
+        createMetadataForTestModelFieldWithName(fieldName);
+        assertThat(this.testee.getMappingKind()).isEqualTo(kind);
+    }
+
 	private void createMetadataForTestModelFieldWithName(String fieldName) {
         Field field = findField(this.modelType, fieldName);
         this.testee = new MappedFieldMetaData(field, this.modelType);
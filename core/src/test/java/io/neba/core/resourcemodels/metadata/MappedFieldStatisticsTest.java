@@ -0,0 +1,132 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.metadata;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Olaf Otto
+ */
+public class MappedFieldStatisticsTest {
+    private MappedFieldStatistics testee;
+    private MappedFieldStatistics.Snapshot snapshot;
+
+    @Before
+    public void setUp() {
+        this.testee = new MappedFieldStatistics();
+    }
+
+    @Test
+    public void testMappingsAndLazyLoadsAreRecordedSeparately() {
+        this.testee.countMapping(100, 1);
+        this.testee.countMapping(300, 0);
+        this.testee.countLazyLoad(1000, 5);
+
+        snapshot();
+
+        assertThat(this.snapshot.getMappingDurations().getCount()).isEqualTo(2);
+        assertThat(this.snapshot.getMappingDurations().getTotalDuration()).isEqualTo(400);
+        assertThat(this.snapshot.getLazyLoadDurations().getCount()).isEqualTo(1);
+        assertThat(this.snapshot.getLazyLoadDurations().getTotalDuration()).isEqualTo(1000);
+        assertThat(this.snapshot.getNestedMappings()).isEqualTo(6);
+        assertThat(this.snapshot.getAverageNestedMappings()).isEqualTo(2D);
+    }
+
+    @Test
+    public void testCustomMappingsAreRecorded() {
+        this.testee.countCustomMapping(50);
+        snapshot();
+        assertThat(this.snapshot.getCustomMappingDurations().getCount()).isEqualTo(1);
+        assertThat(this.snapshot.getCustomMappingDurations().getMaximumDuration()).isEqualTo(50);
+    }
+
+    @Test
+    public void testAverageNestedMappingsWithoutSamplesIsZero() {
+        snapshot();
+        assertThat(this.snapshot.getAverageNestedMappings()).isZero();
+    }
+
+    @Test
+    public void testLazyValueCreationAndLoadingIsRecorded() {
+        this.testee.countLazyValueCreation();
+        this.testee.countLazyValueCreation();
+        this.testee.countLazyValueCreation();
+        this.testee.countLazyValueCreation();
+        this.testee.countLazyValueLoad(200);
+
+        snapshot();
+
+        assertThat(this.snapshot.getLazyValuesCreated()).isEqualTo(4);
+        assertThat(this.snapshot.getLazyValuesLoaded()).isEqualTo(1);
+        assertThat(this.snapshot.getLazyValueLoadDelays().getTotalDuration()).isEqualTo(200);
+        assertThat(this.snapshot.getLazyValueLoadRatio()).isEqualTo(0.25D);
+    }
+
+    @Test
+    public void testLazyValueLoadRatioWithoutLazyValuesIsZero() {
+        snapshot();
+        assertThat(this.snapshot.getLazyValueLoadRatio()).isZero();
+    }
+
+    @Test
+    public void testLazyValueLoadRatioDoesNotExceedOne() {
+        this.testee.countLazyValueCreation();
+        this.testee.countLazyValueLoad(100);
+        this.testee.countLazyValueLoad(100);
+
+        snapshot();
+
+        assertThat(this.snapshot.getLazyValueLoadRatio()).isEqualTo(1D);
+    }
+
+    @Test
+    public void testStatisticsWithoutRecordedDataAreEmpty() {
+        snapshot();
+
+        assertThat(this.snapshot.getMappingDurations().getCount()).isZero();
+        assertThat(this.snapshot.getLazyLoadDurations().getCount()).isZero();
+        assertThat(this.snapshot.getCustomMappingDurations().getCount()).isZero();
+        assertThat(this.snapshot.getLazyValueLoadDelays().getCount()).isZero();
+        assertThat(this.snapshot.getNestedMappings()).isZero();
+        assertThat(this.snapshot.getLazyValuesCreated()).isZero();
+    }
+
+    @Test
+    public void testResetDiscardsStatistics() {
+        this.testee.countMapping(100, 1);
+        this.testee.countLazyLoad(100, 1);
+        this.testee.countCustomMapping(100);
+        this.testee.countLazyValueCreation();
+        this.testee.countLazyValueLoad(100);
+
+        this.testee.reset();
+        snapshot();
+
+        assertThat(this.snapshot.getMappingDurations().getCount()).isZero();
+        assertThat(this.snapshot.getLazyLoadDurations().getCount()).isZero();
+        assertThat(this.snapshot.getCustomMappingDurations().getCount()).isZero();
+        assertThat(this.snapshot.getNestedMappings()).isZero();
+        assertThat(this.snapshot.getLazyValuesCreated()).isZero();
+        assertThat(this.snapshot.getLazyValuesLoaded()).isZero();
+    }
+
+    private void snapshot() {
+        this.snapshot = this.testee.snapshot();
+    }
+}
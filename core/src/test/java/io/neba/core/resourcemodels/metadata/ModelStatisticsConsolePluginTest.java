@@ -35,9 +35,15 @@ import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 
+import static java.util.Arrays.asList;
+import static javax.servlet.http.HttpServletResponse.SC_BAD_REQUEST;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -98,8 +104,8 @@ public class ModelStatisticsConsolePluginTest {
 
     @Test
     public void testRetrievalOfAllStatistics() throws Exception {
-        addStatistics("junit.test.type.NameOne", 123456L, 100L, 5, 0, 1000, 10, 20, new int[]{1, 2, 4, 8, 16}, new int[]{10, 20, 4, 1, 0});
-        addStatistics("junit.test.type.NameTwo", 234567L, 200L, 10, 1, 1000, 20, 40, new int[]{2, 4, 8, 16, 23}, new int[]{20, 40, 8, 2, 0});
+        addStatistics("junit.test.type.NameOne", 123456L, 100L, 5, 0, 1000, 10, 20, mappingDurations(15, 10, 16, 20, 32, 4));
+        addStatistics("junit.test.type.NameTwo", 234567L, 200L, 10, 1, 1000, 20, 40, mappingDurations(15, 20, 16, 40, 32, 8));
         withRequestPath("/system/console/modelstatistics/api/statistics");
         doGet();
         assertResponseIsEqualTo("[" +
@@ -116,6 +122,9 @@ public class ModelStatisticsConsolePluginTest {
                                     "\"maximumMappingDuration\":20.0," +
                                     "\"minimumMappingDuration\":0.0," +
                                     "\"mappingDurationMedian\":5.0," +
+                                    "\"mappingDurationP90\":7.0," +
+                                    "\"mappingDurationP99\":8.0," +
+                                    "\"mappingDurationP999\":9.0," +
                                     "\"cacheHits\":0" +
                                     "}," +
 
@@ -132,6 +141,9 @@ public class ModelStatisticsConsolePluginTest {
                                     "\"maximumMappingDuration\":40.0," +
                                     "\"minimumMappingDuration\":1.0," +
                                     "\"mappingDurationMedian\":10.0," +
+                                    "\"mappingDurationP90\":7.0," +
+                                    "\"mappingDurationP99\":8.0," +
+                                    "\"mappingDurationP999\":9.0," +
                                     "\"cacheHits\":0" +
                                     "}" +
                                 "]");
@@ -139,7 +151,8 @@ public class ModelStatisticsConsolePluginTest {
 
     @Test
     public void testRetrievalOfStatisticsForSpecificType() throws Exception {
-        addStatistics("junit.test.type.NameOne", 123456L, 100L, 5, 0, 1000, 10, 20, new int[]{1, 2, 4, 8, 16}, new int[]{10, 20, 4, 1, 0});
+        addStatistics("junit.test.type.NameOne", 123456L, 100L, 5, 0, 1000, 10, 20, mappingDurations(15, 10, 16, 20, 32, 4));
+        withTimeline(new ResourceModelStatistics.Snapshot(60000L, 3, 0, 0, LatencyHistogram.Snapshot.empty()));
         withRequestPath("/system/console/modelstatistics/api/statistics/junit.test.type.NameOne");
         doGet();
         assertResponseIsEqualTo("{" +
@@ -155,21 +168,206 @@ public class ModelStatisticsConsolePluginTest {
                         "\"maximumMappingDuration\":20.0," +
                         "\"minimumMappingDuration\":0.0," +
                         "\"mappingDurationMedian\":5.0," +
+                        "\"mappingDurationP90\":7.0," +
+                        "\"mappingDurationP99\":8.0," +
+                        "\"mappingDurationP999\":9.0," +
                         "\"cacheHits\":0," +
                         "\"mappingDurationFrequencies\":{" +
-                            "\"[0, 1)\":10," +
-                             "\"[1, 2)\":20," +
-                             "\"[2, 4)\":4," +
-                             "\"[4, 8)\":1," +
-                             "\"[8, 16)\":0" +
-                         "}" +
+                            "\"[15ns, 16ns)\":10," +
+                             "\"[16ns, 17ns)\":20," +
+                             "\"[32ns, 34ns)\":4" +
+                         "}," +
+                        "\"timeline\":[" +
+                            "{" +
+                            "\"since\":60000," +
+                            "\"instantiations\":3," +
+                            "\"mappingDurationMedian\":0.0," +
+                            "\"mappingDurationP99\":0.0" +
+                            "}" +
+                        "]," +
+                        "\"fields\":[]" +
                        "}");
     }
 
+    @Test
+    public void testRetrievalOfFieldStatisticsForSpecificType() throws Exception {
+        addStatistics("junit.test.type.NameOne");
+        MappedFieldMetaData unsampledField = mockField();
+        MappedFieldMetaData sampledField = mockField();
+        doReturn(getClass().getDeclaredField("modelMetaData")).when(sampledField).getField();
+        doReturn("@Children").when(sampledField).getMappingKind();
+        sampledField.getStatistics().countMapping(2_000_000, 0);
+        sampledField.getStatistics().countLazyLoad(4_000_000, 3);
+        doReturn(new MappedFieldMetaData[]{unsampledField, sampledField}).when(this.modelMetaData).getMappableFields();
+        withRequestPath("/system/console/modelstatistics/api/statistics/junit.test.type.NameOne");
+
+        doGet();
+
+        assertResponseContains("\"fields\":[{" +
+                "\"name\":\"modelMetaData\"," +
+                "\"kind\":\"@Children\"," +
+                "\"mappings\":1," +
+                "\"averageMappingDuration\":2.0," +
+                "\"mappingDurationP99\":2.0," +
+                "\"lazyLoads\":1," +
+                "\"averageLazyLoadDuration\":4.0," +
+                "\"averageCustomMappingDuration\":0.0," +
+                "\"averageNestedMappings\":1.5," +
+                "\"lazyValuesCreated\":0," +
+                "\"lazyValuesLoaded\":0," +
+                "\"averageLazyValueLoadDelay\":0.0," +
+                "\"totalDuration\":6.0" +
+                "}]");
+    }
+
+    @Test
+    public void testUsageOfLazyValuesIsProvidedForUnsampledFields() throws Exception {
+        addStatistics("junit.test.type.NameOne");
+        MappedFieldMetaData lazyField = mockField();
+        doReturn(getClass().getDeclaredField("modelMetaData")).when(lazyField).getField();
+        doReturn("lazy resource").when(lazyField).getMappingKind();
+        lazyField.getStatistics().countLazyValueCreation();
+        lazyField.getStatistics().countLazyValueCreation();
+        lazyField.getStatistics().countLazyValueLoad(3_000_000);
+        doReturn(new MappedFieldMetaData[]{lazyField}).when(this.modelMetaData).getMappableFields();
+        withRequestPath("/system/console/modelstatistics/api/statistics/junit.test.type.NameOne");
+
+        doGet();
+
+        assertResponseContains("\"fields\":[{" +
+                "\"name\":\"modelMetaData\"," +
+                "\"kind\":\"lazy resource\"," +
+                "\"mappings\":0," +
+                "\"averageMappingDuration\":0.0," +
+                "\"mappingDurationP99\":0.0," +
+                "\"lazyLoads\":0," +
+                "\"averageLazyLoadDuration\":0.0," +
+                "\"averageCustomMappingDuration\":0.0," +
+                "\"averageNestedMappings\":0.0," +
+                "\"lazyValuesCreated\":2," +
+                "\"lazyValuesLoaded\":1," +
+                "\"averageLazyValueLoadDelay\":3.0," +
+                "\"totalDuration\":0.0" +
+                "}]");
+    }
+
+    @Test
+    public void testRecommendationToMakeAlwaysLoadedLazyFieldEager() throws Exception {
+        MappedFieldMetaData lazyField = mockField("modelMetaData");
+        withLazyValues(lazyField, 100, 100);
+        withModel("junit.test.type.Model", lazyField);
+        withRequestPath("/system/console/modelstatistics/api/recommendations");
+
+        doGet();
+
+        assertResponseIsEqualTo("[{" +
+                "\"type\":\"junit.test.type.Model\"," +
+                "\"field\":\"modelMetaData\"," +
+                "\"recommendation\":\"make eager\"," +
+                "\"reason\":\"Loaded 100 of 100 times, on average 1.000 ms after the mapping. The lazy loading is pure overhead.\"" +
+                "}]");
+    }
+
+    @Test
+    public void testRecommendationToMakeEagerFieldsLazyIfLazyFieldIsNeverLoaded() throws Exception {
+        MappedFieldMetaData lazyField = mockField("modelMetaData");
+        withLazyValues(lazyField, 200, 0);
+        MappedFieldMetaData eagerField = mockField("request");
+        doReturn("resource").when(eagerField).getMappingKind();
+        MappedFieldMetaData propertyField = mockField("response");
+        doReturn("property").when(propertyField).getMappingKind();
+        withModel("junit.test.type.Model", lazyField, eagerField, propertyField);
+        withRequestPath("/system/console/modelstatistics/api/recommendations");
+
+        doGet();
+
+        assertResponseIsEqualTo("[{" +
+                "\"type\":\"junit.test.type.Model\"," +
+                "\"field\":\"modelMetaData\"," +
+                "\"recommendation\":\"never loaded\"," +
+                "\"reason\":\"Never loaded in 200 sampled mappings. The field may be obsolete.\"" +
+                "},{" +
+                "\"type\":\"junit.test.type.Model\"," +
+                "\"field\":\"request\"," +
+                "\"recommendation\":\"make lazy\"," +
+                "\"reason\":\"The lazy field(s) modelMetaData of this model were never loaded in 200 sampled mappings, " +
+                "suggesting that this eagerly mapped content is unused as well.\"" +
+                "}]");
+    }
+
+    @Test
+    public void testNoRecommendationsAreMadeForFewLazyValues() throws Exception {
+        MappedFieldMetaData lazyField = mockField("modelMetaData");
+        withLazyValues(lazyField, 99, 99);
+        withModel(null, lazyField);
+        withRequestPath("/system/console/modelstatistics/api/recommendations");
+
+        doGet();
+
+        assertResponseIsEqualTo("[]");
+    }
+
+    @Test
+    public void testNoRecommendationsAreMadeForOccasionallyLoadedLazyValues() throws Exception {
+        MappedFieldMetaData lazyField = mockField("modelMetaData");
+        withLazyValues(lazyField, 100, 50);
+        withModel(null, lazyField);
+        withRequestPath("/system/console/modelstatistics/api/recommendations");
+
+        doGet();
+
+        assertResponseIsEqualTo("[]");
+    }
+
+    @Test
+    public void testResetClearsFieldStatistics() throws Exception {
+        addStatistics("junit.test.type.NameOne");
+        MappedFieldMetaData field = mockField();
+        field.getStatistics().countMapping(1000, 0);
+        doReturn(new MappedFieldMetaData[]{field}).when(this.modelMetaData).getMappableFields();
+        withRequestPath("/system/console/modelstatistics/api/reset");
+
+        doGet();
+
+        assertThat(field.getStatistics().snapshot().getMappingDurations().getCount()).isZero();
+    }
+
+    @Test
+    public void testRetrievalOfStatisticsForRollingWindow() throws Exception {
+        addStatistics("junit.test.type.NameOne");
+        withRequestPath("/system/console/modelstatistics/api/statistics");
+        withRequestParameter("window", "5");
+
+        doGet();
+
+        verify(this.modelMetaData.getStatistics()).snapshot(5);
+        verify(this.modelMetaData.getStatistics(), never()).snapshot();
+    }
+
+    @Test
+    public void testInvalidRollingWindowIsRejected() throws Exception {
+        withRequestPath("/system/console/modelstatistics/api/statistics");
+        withRequestParameter("window", "16");
+
+        doGet();
+
+        verify(this.response).sendError(eq(SC_BAD_REQUEST), anyString());
+    }
+
+    @Test
+    public void testNonNumericRollingWindowIsRejected() throws Exception {
+        withRequestPath("/system/console/modelstatistics/api/statistics");
+        withRequestParameter("window", "five");
+
+        doGet();
+
+        verify(this.response).sendError(eq(SC_BAD_REQUEST), anyString());
+    }
+
     @Test
     public void testResetOfStatistics() throws Exception {
-        addStatistics("junit.test.type.NameOne", 1, 1L, 1, 1, 1, 1, 1, new int[]{}, new int[]{});
-        addStatistics("junit.test.type.NameTwo", 1, 1L, 1, 1, 1, 1, 1, new int[]{}, new int[]{});
+        addStatistics("junit.test.type.NameOne", 1, 1L, 1, 1, 1, 1, 1, mappingDurations());
+        addStatistics("junit.test.type.NameTwo", 1, 1L, 1, 1, 1, 1, 1, mappingDurations());
 
         withRequestPath("/system/console/modelstatistics/api/reset");
         doGet();
@@ -221,26 +419,56 @@ public class ModelStatisticsConsolePluginTest {
         assertResponseContains("\"greedyFields\":0");
     }
 
-    private void withGreedyField() {
+    private MappedFieldMetaData mockField(String name) throws NoSuchFieldException {
+        MappedFieldMetaData mappedFieldMetaData = mockField();
+        doReturn(getClass().getDeclaredField(name)).when(mappedFieldMetaData).getField();
+        return mappedFieldMetaData;
+    }
+
+    private static void withLazyValues(MappedFieldMetaData field, int created, int loaded) {
+        for (int i = 0; i < created; ++i) {
+            field.getStatistics().countLazyValueCreation();
+        }
+        for (int i = 0; i < loaded; ++i) {
+            field.getStatistics().countLazyValueLoad(1_000_000);
+        }
+    }
+
+    private void withModel(String typeName, MappedFieldMetaData... fields) {
+        ResourceModelMetaData metaData = mock(ResourceModelMetaData.class);
+        if (typeName != null) {
+            doReturn(typeName).when(metaData).getTypeName();
+        }
+        doReturn(fields).when(metaData).getMappableFields();
+        this.metadataList.add(metaData);
+    }
+
+    private MappedFieldMetaData mockField() {
         MappedFieldMetaData mappedFieldMetaData = mock(MappedFieldMetaData.class);
+        doReturn(new MappedFieldStatistics()).when(mappedFieldMetaData).getStatistics();
+        return mappedFieldMetaData;
+    }
+
+    private void withGreedyField() {
+        MappedFieldMetaData mappedFieldMetaData = mockField();
         doReturn(new MappedFieldMetaData[]{ mappedFieldMetaData }).when(this.modelMetaData).getMappableFields();
     }
 
     private void withCollectionTypedReference() {
-        MappedFieldMetaData mappedFieldMetaData = mock(MappedFieldMetaData.class);
+        MappedFieldMetaData mappedFieldMetaData = mockField();
         doReturn(true).when(mappedFieldMetaData).isReference();
         doReturn(true).when(mappedFieldMetaData).isInstantiableCollectionType();
         doReturn(new MappedFieldMetaData[]{ mappedFieldMetaData }).when(this.modelMetaData).getMappableFields();
     }
 
     private void withChildrenAnnotationOnField() {
-        MappedFieldMetaData mappedFieldMetaData = mock(MappedFieldMetaData.class);
+        MappedFieldMetaData mappedFieldMetaData = mockField();
         doReturn(true).when(mappedFieldMetaData).isChildrenAnnotationPresent();
         doReturn(new MappedFieldMetaData[]{ mappedFieldMetaData }).when(this.modelMetaData).getMappableFields();
     }
 
     private void withLazyField() {
-        MappedFieldMetaData mappedFieldMetaData = mock(MappedFieldMetaData.class);
+        MappedFieldMetaData mappedFieldMetaData = mockField();
         doReturn(true).when(mappedFieldMetaData).isLazy();
         doReturn(new MappedFieldMetaData[]{ mappedFieldMetaData }).when(this.modelMetaData).getMappableFields();
     }
@@ -254,7 +482,7 @@ public class ModelStatisticsConsolePluginTest {
     }
 
     private void addStatistics(String modelTypeName) {
-        addStatistics(modelTypeName, 0, 0, 0, 0, 0, 0, 0, new int[]{}, new int[]{});
+        addStatistics(modelTypeName, 0, 0, 0, 0, 0, 0, 0, mappingDurations());
     }
 
     private void addStatistics(String typeName,
@@ -265,30 +493,54 @@ public class ModelStatisticsConsolePluginTest {
                                double totalMappingDuration,
                                double averageMappingDuration,
                                double maximumMappingDuration,
-                               int[] mappingDurationIntervalBoundaries,
-                               int[] mappingDurationFrequencies) {
+                               LatencyHistogram.Snapshot mappingDurations) {
 
         ResourceModelMetaData metaData = mock(ResourceModelMetaData.class);
         ResourceModelStatistics statistics = mock(ResourceModelStatistics.class);
+        ResourceModelStatistics.Snapshot snapshot = mock(ResourceModelStatistics.Snapshot.class);
         MappedFieldMetaData[] mappableFields = new MappedFieldMetaData[0];
 
-        doReturn(mappingDurationMedian).when(statistics).getMappingDurationMedian();
-        doReturn(minimumMappingDuration).when(statistics).getMinimumMappingDuration();
-        doReturn(averageMappingDuration).when(statistics).getAverageMappingDuration();
-        doReturn(totalMappingDuration).when(statistics).getTotalMappingDuration();
-        doReturn(maximumMappingDuration).when(statistics).getMaximumMappingDuration();
+        doReturn(mappingDurationMedian).when(snapshot).getMappingDurationMedian();
+        doReturn(7D).when(snapshot).getMappingDurationPercentile(90);
+        doReturn(8D).when(snapshot).getMappingDurationPercentile(99);
+        doReturn(9D).when(snapshot).getMappingDurationPercentile(99.9);
+        doReturn(minimumMappingDuration).when(snapshot).getMinimumMappingDuration();
+        doReturn(averageMappingDuration).when(snapshot).getAverageMappingDuration();
+        doReturn(totalMappingDuration).when(snapshot).getTotalMappingDuration();
+        doReturn(maximumMappingDuration).when(snapshot).getMaximumMappingDuration();
         doReturn(mappableFields).when(metaData).getMappableFields();
+        doReturn(snapshot).when(statistics).snapshot();
+        doReturn(snapshot).when(statistics).snapshot(anyInt());
         doReturn(statistics).when(metaData).getStatistics();
         doReturn(typeName).when(metaData).getTypeName();
-        doReturn(since).when(statistics).getSince();
-        doReturn(mappings).when(statistics).getNumberOfMappings();
-        doReturn(mappingDurationIntervalBoundaries).when(statistics).getMappingDurationIntervalBoundaries();
-        doReturn(mappingDurationFrequencies).when(statistics).getMappingDurationFrequencies();
+        doReturn(since).when(snapshot).getSince();
+        doReturn(mappings).when(snapshot).getNumberOfMappings();
+        doReturn(mappingDurations).when(snapshot).getMappingDurations();
 
         this.modelMetaData = metaData;
         this.metadataList.add(metaData);
     }
 
+    private void withTimeline(ResourceModelStatistics.Snapshot... intervals) {
+        ResourceModelStatistics statistics = this.modelMetaData.getStatistics();
+        doReturn(asList(intervals)).when(statistics).timeline();
+    }
+
+    private void withRequestParameter(String name, String value) {
+        doReturn(value).when(this.request).getParameter(name);
+    }
+
+    /**
+     * @param bucketIndexAndCount pairs of bucket index and count.
+     */
+    private static LatencyHistogram.Snapshot mappingDurations(int... bucketIndexAndCount) {
+        long[] counts = new long[LatencyHistogram.NUMBER_OF_BUCKETS];
+        for (int i = 0; i < bucketIndexAndCount.length; i += 2) {
+            counts[bucketIndexAndCount[i]] = bucketIndexAndCount[i + 1];
+        }
+        return new LatencyHistogram.Snapshot(counts, 0, 0, 0);
+    }
+
     private void withRequestPath(String requestPath) {
         when(this.request.getServletPath()).thenReturn("/system/console");
         when(this.request.getRequestURI()).thenReturn(requestPath);
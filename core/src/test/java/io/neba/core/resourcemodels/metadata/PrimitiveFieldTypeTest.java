@@ -0,0 +1,136 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+
+package io.neba.core.resourcemodels.metadata;
+
+import org.apache.sling.api.resource.ValueMap;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import java.lang.reflect.Field;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class PrimitiveFieldTypeTest {
+    @Mock
+    private ValueMap properties;
+
+    @SuppressWarnings("unused")
+    private boolean booleanField;
+    @SuppressWarnings("unused")
+    private int intField;
+    @SuppressWarnings("unused")
+    private double doubleField;
+
+    private boolean mapped;
+
+    @Before
+    public void setUp() {
+        this.mapped = false;
+    }
+
+    @Test
+    public void testResolutionOfPrimitiveFieldTypes() {
+        assertThat(PrimitiveFieldType.of(boolean.class)).isEqualTo(PrimitiveFieldType.BOOLEAN);
+        assertThat(PrimitiveFieldType.of(byte.class)).isEqualTo(PrimitiveFieldType.BYTE);
+        assertThat(PrimitiveFieldType.of(char.class)).isEqualTo(PrimitiveFieldType.CHAR);
+        assertThat(PrimitiveFieldType.of(short.class)).isEqualTo(PrimitiveFieldType.SHORT);
+        assertThat(PrimitiveFieldType.of(int.class)).isEqualTo(PrimitiveFieldType.INT);
+        assertThat(PrimitiveFieldType.of(long.class)).isEqualTo(PrimitiveFieldType.LONG);
+        assertThat(PrimitiveFieldType.of(float.class)).isEqualTo(PrimitiveFieldType.FLOAT);
+        assertThat(PrimitiveFieldType.of(double.class)).isEqualTo(PrimitiveFieldType.DOUBLE);
+    }
+
+    @Test
+    public void testNonPrimitiveTypesHaveNoPrimitiveFieldType() {
+        assertThat(PrimitiveFieldType.of(null)).isNull();
+        assertThat(PrimitiveFieldType.of(void.class)).isNull();
+        assertThat(PrimitiveFieldType.of(Integer.class)).isNull();
+        assertThat(PrimitiveFieldType.of(String.class)).isNull();
+    }
+
+    @Test
+    public void testRawPropertyValueOfMatchingTypeIsWrittenWithoutConversion() throws Exception {
+        withRawProperty("booleanField", true);
+
+        map(PrimitiveFieldType.BOOLEAN, "booleanField");
+
+        assertFieldWasMapped();
+        assertThat(this.booleanField).isTrue();
+        verify(this.properties, never()).get(eq("booleanField"), any(Class.class));
+    }
+
+    @Test
+    public void testPropertyValueOfDifferentTypeIsConvertedByValueMap() throws Exception {
+        withRawProperty("intField", 10L);
+        doReturn(10).when(this.properties).get("intField", Integer.class);
+
+        map(PrimitiveFieldType.INT, "intField");
+
+        assertFieldWasMapped();
+        assertThat(this.intField).isEqualTo(10);
+    }
+
+    @Test
+    public void testFieldIsNotWrittenIfPropertyDoesNotExist() throws Exception {
+        this.doubleField = 1.5D;
+
+        map(PrimitiveFieldType.DOUBLE, "doubleField");
+
+        assertFieldWasNotMapped();
+        assertThat(this.doubleField).isEqualTo(1.5D);
+    }
+
+    @Test
+    public void testFieldIsNotWrittenIfPropertyIsNotConvertible() throws Exception {
+        withRawProperty("intField", "not a number");
+
+        map(PrimitiveFieldType.INT, "intField");
+
+        assertFieldWasNotMapped();
+        assertThat(this.intField).isZero();
+    }
+
+    private void withRawProperty(String name, Object value) {
+        doReturn(value).when(this.properties).get(name);
+    }
+
+    private void map(PrimitiveFieldType type, String fieldName) throws NoSuchFieldException {
+        Field field = getClass().getDeclaredField(fieldName);
+        field.setAccessible(true);
+        this.mapped = type.map(this.properties, fieldName, field, this);
+    }
+
+    private void assertFieldWasMapped() {
+        assertThat(this.mapped).isTrue();
+    }
+
+    private void assertFieldWasNotMapped() {
+        assertThat(this.mapped).isFalse();
+    }
+}
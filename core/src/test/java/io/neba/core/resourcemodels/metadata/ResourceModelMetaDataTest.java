@@ -16,6 +16,7 @@
 
 package io.neba.core.resourcemodels.metadata;
 
+import io.neba.api.annotations.Prefetch;
 import io.neba.core.resourcemodels.mapping.testmodels.ExtendedTestResourceModel;
 import io.neba.core.resourcemodels.mapping.testmodels.TestResourceModel;
 import org.junit.Before;
@@ -82,11 +83,51 @@ public class ResourceModelMetaDataTest {
         assertMetadataEqualsMetadataOf(TestResourceModel.class);
     }
 
+    @Test
+    public void testModelsWithoutPrefetchAnnotationHaveNoPrefetchMetaData() {
+        assertThat(this.testee.getPrefetch()).isNull();
+    }
+
+    @Test
+    public void testPrefetchAnnotationIsRetained() {
+        createMetadataFor(PrefetchingModel.class);
+
+        assertThat(this.testee.getPrefetch()).isNotNull();
+        assertThat(this.testee.getPrefetch().getDepth()).isEqualTo(3);
+        assertThat(this.testee.getPrefetch().includes("jcr:content")).isTrue();
+        assertThat(this.testee.getPrefetch().includes("other")).isFalse();
+    }
+
+    @Test
+    public void testPrefetchWithoutNamesIncludesAllResources() {
+        createMetadataFor(PrefetchingAllModel.class);
+
+        assertThat(this.testee.getPrefetch().getDepth()).isEqualTo(1);
+        assertThat(this.testee.getPrefetch().includes("anything")).isTrue();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrefetchDepthIsRejected() {
+        createMetadataFor(InvalidPrefetchingModel.class);
+    }
+
     @Test
     public void testToStringRepresentation() {
         assertThat(this.testee.toString()).isEqualTo("ResourceModelMetaData[" + TestResourceModel.class.getName() + "]");
     }
 
+    @Prefetch(depth = 3, names = "jcr:content")
+    private static class PrefetchingModel {
+    }
+
+    @Prefetch
+    private static class PrefetchingAllModel {
+    }
+
+    @Prefetch(depth = 0)
+    private static class InvalidPrefetchingModel {
+    }
+
     private void assertMetadataEqualsMetadataOf(Class<?> otherModel) {
         MappedFieldMetaData[] mappableFields = this.testee.getMappableFields();
         MethodMetaData[] afterMappingMethods = this.testee.getAfterMappingMethods();
@@ -19,8 +19,18 @@ package io.neba.core.resourcemodels.metadata;
 import org.junit.Before;
 import org.junit.Test;
 
-import static java.lang.Integer.MAX_VALUE;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static io.neba.core.resourcemodels.metadata.ResourceModelStatistics.INTERVAL_IN_MS;
+import static io.neba.core.resourcemodels.metadata.ResourceModelStatistics.MAXIMUM_WINDOW;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.withinPercentage;
 
 /**
  * @author Olaf Otto
@@ -31,6 +41,8 @@ public class ResourceModelStatisticsTest {
     private double maximumDuration;
     private double minimumDuration;
 
+    private long now;
+
     private ResourceModelStatistics testee;
     private long numberOfMappings;
 
@@ -40,77 +52,49 @@ public class ResourceModelStatisticsTest {
     }
 
     @Test
-    public void testMedianCalculationWithEvenMappingCountAndNormalDistribution() {
-        withDurations(1, 1,   // Interval [1, 2)
-                      2, 2,   // Interval [2, 4) -> mean is 3
-                      3, 3);  // Interval [2, 4)
+    public void testMedianCalculation() {
+        withDurationsInMs(1, 1, 2, 2, 3, 3, 3);
         calculateMedian();
-        // Median is the mean of 3 + 3 (the center most samples)
-        assertMedianIs(3D);
+        assertMedianIsApproximately(2D);
     }
 
     @Test
-    public void testMedianCalculationWithEvenMappingCountAndUnevenDistribution() {
-        withDurations(1, 1,               // Interval [1, 2)
-                      2, 2, 3, 3,         // Interval [2, 4) -> mean 3
-                      108, 108, 109, 109, // Interval [64, 128) -> mean 96
-                      250, 250            // Interval [128, 256)
-                      );
+    public void testMedianCalculationWithSubMillisecondDurations() {
+        withDurationsInNs(200_000, 250_000, 300_000);
         calculateMedian();
-        // Median is the mean of 3 + 96 (the average of the center most intervals)
-        assertMedianIs(49.5);
+        assertMedianIsApproximately(.25D);
     }
 
     @Test
-    public void testMedianCalculationWithUnEvenMappingCountAndNormalDistribution() {
-        withDurations(1,         // Interval [1, 2)
-                      2, 3,      // Interval [2, 4)
-                      4, 5, 6, 7 // Interval [4, 8) -> mean 6
-                      );
-        calculateMedian();
-        // Median is the center element (6)
-        assertMedianIs(6D);
-    }
-
-    @Test
-    public void testMedianCalculationWithUnevenMappingCountAndUnevenDistribution() {
-        withDurations(1, 1, 1, 1, 1,   // Interval [1, 2)
-                      2, 3,            // Interval [2, 4) -> mean 3
-                      4, 5, 6, 7       // Interval [4, 8)
-                      );
-        calculateMedian();
-        // Median is the center element (3)
-        assertMedianIs(3D);
+    public void testPercentileCalculation() {
+        for (int i = 1; i <= 1000; ++i) {
+            withDurationsInNs(i * 1000L);
+        }
+        assertThat(this.testee.snapshot().getMappingDurationPercentile(90)).isCloseTo(.9D, withinPercentage(5));
+        assertThat(this.testee.snapshot().getMappingDurationPercentile(99)).isCloseTo(.99D, withinPercentage(5));
+        assertThat(this.testee.snapshot().getMappingDurationPercentile(99.9)).isCloseTo(.999D, withinPercentage(5));
+        assertThat(this.testee.snapshot().getMappingDurationPercentile(100)).isEqualTo(1D);
     }
 
     @Test
     public void testAverageCalculation() {
-        withDurations(1,          // interval [1, 2) -> average 1.5
-                      2, 3,       // interval [2, 4) -> average 3
-                      4, 5, 6, 7  // interval [4, 8) -> average 6
-                        );
+        withDurationsInMs(1, 2, 3, 4, 5, 6, 7);
         calculateAverage();
-        // = (1 * 1.5 + 2 * 3 + 4 * 6) / 7
-        assertAverageIs(4.5D);
+        assertAverageIs(4D);
     }
 
     @Test
     public void testAverageCalculationWithZeroDuration() {
-        withDurations(0, 0, // interval [0, 1) -> average .5
-                1, 1,       // interval [1, 2) -> average 1.5
-                4, 5, 6, 7  // interval [4, 8) -> average 6
-        );
+        withDurationsInMs(0, 0, 1, 1, 4, 5, 6, 7);
         calculateAverage();
-        // = (2 * 0.5 + 2 * 1.5 + 4 * 6) / 8
-        assertAverageIs(3.5D);
+        assertAverageIs(3D);
     }
 
     @Test
     public void testMaximumMappingDurationCalculation() {
-        withDurations(0, 2, 250, 0, 5, 6, 7, 199);
+        withDurationsInMs(0, 2, 250, 0, 5, 6, 7, 199);
         calculateMaximumMappingDuration();
-        // The maximum is the average of the maximum interval ([128, 256))
-        assertMaximumMappingDurationIs(192);
+        assertMaximumMappingDurationIs(250);
     }
 
     @Test
@@ -121,9 +105,9 @@ public class ResourceModelStatisticsTest {
 
     @Test
     public void testMinimumMappingDurationCalculation() {
-        withDurations(1, 2, 3, 4, 250, 6, 7, 1);
+        withDurationsInMs(1, 2, 3, 4, 250, 6, 7, 1);
         calculateMinimumMappingDuration();
-        assertMinimumMappingDurationIs(1.5);
+        assertMinimumMappingDurationIs(1);
     }
 
     @Test
@@ -134,12 +118,8 @@ public class ResourceModelStatisticsTest {
 
     @Test
     public void testTotalMappingTimeCalculation() {
-        int[] durations = {290, 180, 290, 300, 300, 310, 330, 270, 270, 180, 330};
-        withDurations(durations);
-
-        // The total duration is not precise, at it is based on interval average,ut
-        // it ha a finite error given a sufficiently distributed data set.
-        assertThat(this.testee.getTotalMappingDuration()).isEqualTo(3840);
+        withDurationsInMs(290, 180, 290, 300, 300, 310, 330, 270, 270, 180, 330);
+        assertThat(this.testee.snapshot().getTotalMappingDuration()).isEqualTo(3050);
     }
 
     @Test
@@ -150,11 +130,10 @@ public class ResourceModelStatisticsTest {
     }
 
     @Test
-    public void testFallbackWhenMappingDurationExceedsFrequencyTableBoundaries() {
-        withDurations(1, 1, MAX_VALUE);
+    public void testFallbackWhenMappingDurationExceedsHistogramBoundaries() {
+        withDurationsInNs(1000, Long.MAX_VALUE);
         calculateMaximumMappingDuration();
-        // The average of [2^14, 2^15), the right-most interval.
-        assertMaximumMappingDurationIs(24576);
+        assertMaximumMappingDurationIs(LatencyHistogram.HIGHEST_TRACKABLE_VALUE / 1000_000D);
     }
 
     @Test
@@ -185,7 +164,7 @@ public class ResourceModelStatisticsTest {
     public void testReset() {
         countCacheHit();
         countInstantiation();
-        withDurations(1, 1);
+        withDurationsInMs(1, 1);
         withMappings(2);
 
         calculateMinimumMappingDuration();
@@ -193,7 +172,7 @@ public class ResourceModelStatisticsTest {
 
         assertNumberOfInstantiationsIs(1);
         assertNumberOfCacheHitsIs(1);
-        assertMinimumMappingDurationIs(1.5F);
+        assertMinimumMappingDurationIs(1);
         assertNumberOfMappingsIs(2);
 
         reset();
@@ -207,6 +186,220 @@ public class ResourceModelStatisticsTest {
         assertNumberOfMappingsIs(0);
     }
 
+    @Test
+    public void testConcurrentUpdatesAreNotLost() throws Exception {
+        final int threads = 8;
+        final int updatesPerThread = 10000;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; ++i) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int j = 0; j < updatesPerThread; ++j) {
+                        this.testee.countInstantiation();
+                        this.testee.countSubsequentMapping();
+                        this.testee.countCacheHit();
+                        this.testee.countMappingDuration(j % 4 * 1000L);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        ResourceModelStatistics.Snapshot snapshot = this.testee.snapshot();
+        long expected = (long) threads * updatesPerThread;
+        assertThat(snapshot.getInstantiations()).isEqualTo(expected);
+        assertThat(snapshot.getNumberOfMappings()).isEqualTo(expected);
+        assertThat(snapshot.getCacheHits()).isEqualTo(expected);
+        assertThat(snapshot.getMappingDurations().getCount()).isEqualTo(expected);
+    }
+
+    @Test
+    public void testSnapshotIsNotAffectedBySubsequentUpdatesOrReset() {
+        countInstantiation();
+        withDurationsInMs(1);
+
+        ResourceModelStatistics.Snapshot snapshot = this.testee.snapshot();
+
+        countInstantiation();
+        withDurationsInMs(1);
+        reset();
+
+        assertThat(snapshot.getInstantiations()).isEqualTo(1);
+        assertThat(snapshot.getMappingDurations().getCount()).isEqualTo(1);
+    }
+
+    @Test
+    public void testRollingWindowOnlyContainsCompletedIntervalsWithinTheWindow() {
+        withClock();
+
+        atMinute(0);
+        countInstantiation();
+        withDurationsInMs(10);
+
+        atMinute(10);
+        countInstantiation();
+        countInstantiation();
+        withDurationsInMs(1, 1);
+
+        atMinute(11);
+        countInstantiation();
+
+        ResourceModelStatistics.Snapshot lastMinute = this.testee.snapshot(1);
+        assertThat(lastMinute.getInstantiations()).isEqualTo(2);
+        assertThat(lastMinute.getMaximumMappingDuration()).isEqualTo(1);
+        assertThat(lastMinute.getSince()).isEqualTo(10 * INTERVAL_IN_MS);
+
+        ResourceModelStatistics.Snapshot lastFifteenMinutes = this.testee.snapshot(15);
+        assertThat(lastFifteenMinutes.getInstantiations()).isEqualTo(3);
+        assertThat(lastFifteenMinutes.getMaximumMappingDuration()).isEqualTo(10);
+
+        assertThat(this.testee.snapshot().getInstantiations()).isEqualTo(4);
+    }
+
+    @Test
+    public void testIntervalsOutsideOfTheRingBufferAreNotCounted() {
+        withClock();
+
+        atMinute(1);
+        countInstantiation();
+
+        atMinute(1 + MAXIMUM_WINDOW + 1);
+        countInstantiation();
+
+        // Minute 1 now lies outside of the window, and its ring buffer slot was reused.
+        assertThat(this.testee.snapshot(MAXIMUM_WINDOW).getInstantiations()).isEqualTo(0);
+
+        atMinute(1 + MAXIMUM_WINDOW + 2);
+        assertThat(this.testee.snapshot(1).getInstantiations()).isEqualTo(1);
+    }
+
+    @Test
+    public void testTimelineContainsAllRecentIntervals() {
+        withClock();
+
+        atMinute(20);
+        countInstantiation();
+        atMinute(22);
+        countInstantiation();
+        countInstantiation();
+        atMinute(23);
+
+        List<ResourceModelStatistics.Snapshot> timeline = this.testee.timeline();
+
+        assertThat(timeline).hasSize(MAXIMUM_WINDOW);
+        assertThat(timeline.get(0).getSince()).isEqualTo(8 * INTERVAL_IN_MS);
+        assertThat(timeline).extracting(ResourceModelStatistics.Snapshot::getInstantiations)
+                .containsExactly(0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 1L, 0L, 2L);
+    }
+
+    @Test
+    public void testSnapshotsCanBeMerged() {
+        ResourceModelStatistics other = new ResourceModelStatistics();
+        this.testee.countInstantiation().countCacheHit().countMappingDuration(1_000_000);
+        other.countInstantiation().countSubsequentMapping().countMappingDuration(3_000_000);
+
+        ResourceModelStatistics.Snapshot merged = this.testee.snapshot().merge(other.snapshot());
+
+        assertThat(merged.getInstantiations()).isEqualTo(2);
+        assertThat(merged.getCacheHits()).isEqualTo(1);
+        assertThat(merged.getNumberOfMappings()).isEqualTo(1);
+        assertThat(merged.getMappingDurations().getCount()).isEqualTo(2);
+        assertThat(merged.getMaximumMappingDuration()).isEqualTo(3D);
+        assertThat(merged.getMinimumMappingDuration()).isEqualTo(1D);
+    }
+
+    @Test
+    public void testResetClearsRollingWindows() {
+        withClock();
+
+        atMinute(1);
+        countInstantiation();
+        reset();
+        atMinute(2);
+
+        assertThat(this.testee.snapshot(1).getInstantiations()).isEqualTo(0);
+    }
+
+    @Test
+    public void testResetStartsNewStatisticsAtTheCurrentTime() {
+        atMinute(1);
+        withClock();
+        countInstantiation();
+        atMinute(2);
+        countInstantiation();
+
+        assertThat(this.testee.snapshot().getSince()).isEqualTo(INTERVAL_IN_MS + 1);
+        assertThat(this.testee.snapshot().getInstantiations()).isEqualTo(2);
+
+        atMinute(3);
+        reset();
+
+        assertThat(this.testee.snapshot().getSince()).isEqualTo(3 * INTERVAL_IN_MS + 1);
+        assertThat(this.testee.snapshot().getInstantiations()).isZero();
+
+        countInstantiation();
+
+        assertThat(this.testee.snapshot().getSince()).isEqualTo(3 * INTERVAL_IN_MS + 1);
+        assertThat(this.testee.snapshot().getInstantiations()).isEqualTo(1);
+    }
+
+    @Test
+    public void testStatisticsWithoutRecordedDataAreEmpty() {
+        withClock();
+        atMinute(5);
+
+        assertThat(this.testee.snapshot().getInstantiations()).isZero();
+        assertThat(this.testee.snapshot(MAXIMUM_WINDOW).getInstantiations()).isZero();
+        assertThat(this.testee.snapshot(MAXIMUM_WINDOW).getSince()).isEqualTo((5 - MAXIMUM_WINDOW) * INTERVAL_IN_MS);
+        assertThat(this.testee.timeline()).hasSize(MAXIMUM_WINDOW)
+                .extracting(ResourceModelStatistics.Snapshot::getInstantiations)
+                .containsOnly(0L);
+    }
+
+    @Test
+    public void testCountsAreAttributedToTheProvidedTime() {
+        withClock();
+        atMinute(3);
+
+        this.testee.countInstantiation(INTERVAL_IN_MS)
+                .countSubsequentMapping(INTERVAL_IN_MS)
+                .countMappingDuration(1_000_000, INTERVAL_IN_MS);
+
+        List<ResourceModelStatistics.Snapshot> timeline = this.testee.timeline();
+        ResourceModelStatistics.Snapshot minuteOne = timeline.get(MAXIMUM_WINDOW - 2);
+        assertThat(minuteOne.getSince()).isEqualTo(INTERVAL_IN_MS);
+        assertThat(minuteOne.getInstantiations()).isEqualTo(1);
+        assertThat(minuteOne.getNumberOfMappings()).isEqualTo(1);
+        assertThat(minuteOne.getMappingDurations().getCount()).isEqualTo(1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowMustNotExceedMaximumWindow() {
+        this.testee.snapshot(MAXIMUM_WINDOW + 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWindowMustBePositive() {
+        this.testee.snapshot(0);
+    }
+
+    private void withClock() {
+        this.testee = new ResourceModelStatistics(() -> this.now);
+    }
+
+    private void atMinute(long minute) {
+        this.now = minute * INTERVAL_IN_MS + 1;
+    }
+
     private void reset() {
         this.testee.reset();
     }
@@ -216,7 +409,7 @@ public class ResourceModelStatisticsTest {
     }
 
     private void assertNumberOfCacheHitsIs(int expected) {
-        assertThat(this.testee.getCacheHits()).isEqualTo(expected);
+        assertThat(this.testee.snapshot().getCacheHits()).isEqualTo(expected);
     }
 
     private void countInstantiation() {
@@ -224,7 +417,7 @@ public class ResourceModelStatisticsTest {
     }
 
     private void assertNumberOfInstantiationsIs(long expected) {
-        assertThat(this.testee.getInstantiations()).isEqualTo(expected);
+        assertThat(this.testee.snapshot().getInstantiations()).isEqualTo(expected);
     }
 
     private void assertNumberOfMappingsIs(int expected) {
@@ -236,7 +429,7 @@ public class ResourceModelStatisticsTest {
     }
 
     private void calculateMinimumMappingDuration() {
-        this.minimumDuration = this.testee.getMinimumMappingDuration();
+        this.minimumDuration = this.testee.snapshot().getMinimumMappingDuration();
     }
 
     private void assertMaximumMappingDurationIs(double duration) {
@@ -244,15 +437,15 @@ public class ResourceModelStatisticsTest {
     }
 
     private void calculateMaximumMappingDuration() {
-        this.maximumDuration = this.testee.getMaximumMappingDuration();
+        this.maximumDuration = this.testee.snapshot().getMaximumMappingDuration();
     }
 
-    private void assertMedianIs(double median) {
-        assertThat(this.median).isEqualTo(median);
+    private void assertMedianIsApproximately(double median) {
+        assertThat(this.median).isCloseTo(median, withinPercentage(5));
     }
 
     private void calculateMedian() {
-        this.median = this.testee.getMappingDurationMedian();
+        this.median = this.testee.snapshot().getMappingDurationMedian();
     }
 
     private void assertAverageIs(double average) {
@@ -260,11 +453,17 @@ public class ResourceModelStatisticsTest {
     }
 
     private void calculateAverage() {
-        this.average = this.testee.getAverageMappingDuration();
+        this.average = this.testee.snapshot().getAverageMappingDuration();
     }
 
-    private void withDurations(int... durations) {
+    private void withDurationsInMs(int... durations) {
         for (int duration : durations) {
+            this.testee.countMappingDuration(duration * 1000_000L);
+        }
+    }
+
+    private void withDurationsInNs(long... durations) {
+        for (long duration : durations) {
             this.testee.countMappingDuration(duration);
         }
     }
@@ -276,6 +475,6 @@ public class ResourceModelStatisticsTest {
     }
 
     private void calculateNumberOfMappings() {
-        this.numberOfMappings = this.testee.getNumberOfMappings();
+        this.numberOfMappings = this.testee.snapshot().getNumberOfMappings();
     }
 }
@@ -4,6 +4,8 @@ import io.neba.api.annotations.ResourceModel;
 import io.neba.api.spi.ResourceModelFactory;
 import io.neba.api.spi.ResourceModelFactory.ModelDefinition;
 import io.neba.core.resourcemodels.adaptation.ResourceToModelAdapterUpdater;
+import io.neba.core.resourcemodels.metadata.MappedFieldMetaData;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
 import io.neba.core.resourcemodels.metadata.ResourceModelMetaDataRegistrar;
 import io.neba.core.util.OsgiModelSource;
 import org.junit.Before;
@@ -26,6 +28,7 @@ import java.util.List;
 
 import static java.util.Collections.singletonList;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
@@ -53,6 +56,8 @@ public class ModelRegistrarTest {
     private ServiceReference<?> referenceToModelFactory;
     @Mock
     private Bundle bundle;
+    @Mock
+    private StartupTimeline startupTimeline;
 
     private String[] modelResourceTypes;
     private ServiceListener listener;
@@ -107,6 +112,15 @@ public class ModelRegistrarTest {
         verifyResourceModelIsRegistered();
     }
 
+    @Test
+    public void testRegistrationIsRecordedInStartupTimeline() throws Exception {
+        withExistingResourceModelInModelFactoryService();
+
+        activate();
+
+        verify(this.startupTimeline).modelsRegistered(eq(this.bundle), anyLong(), eq(10L), anyLong(), eq(1), anyLong());
+    }
+
     private void changeModelFactoryService() {
         this.listener.serviceChanged(new ServiceEvent(MODIFIED, this.referenceToModelFactory));
     }
@@ -187,6 +201,12 @@ public class ModelRegistrarTest {
         doReturn(factory).when(this.context).getService(referenceToModelFactory);
         List<ModelDefinition<?>> modelDefinitions = singletonList(modelDefinition);
         doReturn(modelDefinitions).when(factory).getModelDefinitions();
+
+        ResourceModelMetaData metaData = mock(ResourceModelMetaData.class);
+        MappedFieldMetaData mappedField = mock(MappedFieldMetaData.class);
+        doReturn(10L).when(mappedField).getProxyGenerationTimeInNs();
+        doReturn(new MappedFieldMetaData[]{mappedField}).when(metaData).getMappableFields();
+        doReturn(metaData).when(this.resourceModelMetaDataRegistrar).register(any());
     }
 
     private void activate() {
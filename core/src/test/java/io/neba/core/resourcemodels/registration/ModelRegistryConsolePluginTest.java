@@ -59,6 +59,7 @@ import java.util.Map;
 import java.util.Set;
 
 import static java.lang.System.arraycopy;
+import static java.util.Collections.singletonList;
 import static org.apache.commons.io.IOUtils.toByteArray;
 import static org.apache.commons.lang3.StringUtils.substringAfterLast;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -117,6 +118,8 @@ public class ModelRegistryConsolePluginTest {
     private BundleContext bundleContext;
     @Mock
     private Version version;
+    @Mock
+    private StartupTimeline startupTimeline;
 
     private URL resourceUrl;
     private Writer internalWriter;
@@ -310,6 +313,34 @@ public class ModelRegistryConsolePluginTest {
         assertResponseIs("[\"io.neba.core.resourcemodels.registration.ModelRegistryConsolePluginTest$Model\"]");
     }
 
+    @Test
+    public void testStartupTimelineApi() throws Exception {
+        withBundleStartup();
+        withAdapterFactoryRefresh();
+
+        get("/system/console/modelregistry/api/startup");
+
+        verifyResponseHasContentType("application/json;charset=UTF-8");
+        assertResponseIs("{" +
+                "\"bundles\":[{\"bundleId\":123,\"bundleName\":\"test.bundle 1.0.0\",\"scanStartedAt\":1000,\"scanningTimeInNs\":2000000," +
+                "\"numberOfLoadedClasses\":10,\"numberOfModelsFound\":2,\"metaDataTimeInNs\":3000000,\"proxyGenerationTimeInNs\":1000000," +
+                "\"registrationTimeInNs\":500000,\"numberOfRegisteredModels\":2,\"registeredAt\":1010}]," +
+                "\"adapterFactoryRefreshes\":[{\"occurredAt\":1020,\"durationInNs\":4000000,\"numberOfAdapterTypes\":5}]" +
+                "}");
+    }
+
+    @Test
+    public void testRenderingOfStartupTimeline() throws Exception {
+        withBundleStartup();
+        withAdapterFactoryRefresh();
+
+        renderContent();
+
+        assertResponseContains("The adapter factory was re-registered 1 time(s) recently, taking 4.000 ms in total.");
+        assertResponseContains("<td><a href=\"bundles/123\">test.bundle 1.0.0</a></td>");
+        assertResponseContains("<td>2.000</td><td>10</td><td>2</td><td>3.000</td><td>1.000</td><td>0.500</td><td>2</td><td>10</td>");
+    }
+
     @Test
     public void testListChildrenViaResourcesApi() throws Exception {
         withPathResource("/junit/test");
@@ -445,6 +476,17 @@ public class ModelRegistryConsolePluginTest {
         assertResponseContains("cq:Page");
     }
 
+    private void withBundleStartup() {
+        BundleStartup startup = new BundleStartup(123L, "test.bundle 1.0.0")
+                .withScan(1000L, 2000000L, 10, 2)
+                .withRegistration(3000000L, 1000000L, 500000L, 2, 1010L);
+        doReturn(singletonList(startup)).when(this.startupTimeline).getBundles();
+    }
+
+    private void withAdapterFactoryRefresh() {
+        doReturn(singletonList(new AdapterFactoryRefresh(1020L, 4000000L, 5))).when(this.startupTimeline).getAdapterFactoryRefreshes();
+    }
+
     private void assertResponseDoesNotContainContain(String notExpected) {
         assertThat(this.renderedResponse).doesNotContain(notExpected);
     }
@@ -17,6 +17,7 @@
 package io.neba.core.resourcemodels.registration;
 
 import io.neba.api.annotations.ResourceModel;
+import io.neba.core.resourcemodels.mapping.MappingListeners;
 import io.neba.core.util.OsgiModelSource;
 import io.neba.core.util.ResolvedModelSource;
 import org.apache.sling.api.resource.Resource;
@@ -37,7 +38,12 @@ import java.util.HashSet;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 /**
@@ -57,6 +63,8 @@ public class ModelRegistryTest {
 	private Bundle bundle;
     @Mock
     private ResourceResolver resolver;
+    @Mock
+    private MappingListeners mappingListeners;
 
     private Set<ResourceModel> resourceModelAnnotations;
     private long bundleId;
@@ -157,6 +165,50 @@ public class ModelRegistryTest {
         assertNumberOfLookedUpModelSourcesIs(1);
     }
 
+    @Test
+    public void testLookupCacheHitsAndMissesAreCounted() {
+        withResourceModel("some/resourcetype");
+        withModelSourcesForAllResourceModels();
+
+        lookupMostSpecificModelSources(mockResourceWithResourceType("some/resourcetype"));
+
+        assertThat(this.testee.getLookupCacheHits()).isEqualTo(0);
+        assertThat(this.testee.getLookupCacheMisses()).isEqualTo(1);
+        assertThat(this.testee.getLookupCacheSize()).isEqualTo(1);
+
+        lookupMostSpecificModelSources(mockResourceWithResourceType("some/resourcetype"));
+        lookupMostSpecificModelSources(mockResourceWithResourceType("other/resourcetype"));
+
+        assertThat(this.testee.getLookupCacheHits()).isEqualTo(1);
+        assertThat(this.testee.getLookupCacheMisses()).isEqualTo(2);
+        assertThat(this.testee.getLookupCacheSize()).isEqualTo(2);
+    }
+
+    @Test
+    public void testLookupsAreReportedToMappingListeners() {
+        withResourceModel("some/resourcetype");
+        withModelSourcesForAllResourceModels();
+        Resource resource = mockResourceWithResourceType("some/resourcetype");
+        when(resource.getPath()).thenReturn("/junit/test");
+
+        lookupMostSpecificModelSources(resource);
+        lookupMostSpecificModelSources(resource);
+
+        verify(this.mappingListeners).modelsLookedUp("/junit/test", "some/resourcetype", 1, false);
+        verify(this.mappingListeners).modelsLookedUp("/junit/test", "some/resourcetype", 1, true);
+    }
+
+    @Test
+    public void testLookupsAreNotReportedWithoutMappingListeners() {
+        when(this.mappingListeners.isEmpty()).thenReturn(true);
+        withResourceModel("some/resourcetype");
+        withModelSourcesForAllResourceModels();
+
+        lookupMostSpecificModelSources(mockResourceWithResourceType("some/resourcetype"));
+
+        verify(this.mappingListeners, never()).modelsLookedUp(any(), any(), anyInt(), anyBoolean());
+    }
+
     @Test
     public void testMultipleMappingsToSameResourceType() {
         withResourceModel("some/resourcetype");
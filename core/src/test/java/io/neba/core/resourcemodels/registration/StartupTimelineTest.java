@@ -0,0 +1,133 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.registration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.Bundle;
+import org.osgi.framework.Version;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class StartupTimelineTest {
+    @Mock
+    private Bundle bundle;
+
+    private StartupTimeline testee;
+
+    @Before
+    public void setUp() {
+        doReturn(1L).when(this.bundle).getBundleId();
+        doReturn("test.bundle").when(this.bundle).getSymbolicName();
+        doReturn(new Version(1, 0, 0)).when(this.bundle).getVersion();
+
+        this.testee = new StartupTimeline();
+    }
+
+    @Test
+    public void testTimelineIsInitiallyEmpty() {
+        assertThat(this.testee.getBundles()).isEmpty();
+        assertThat(this.testee.getAdapterFactoryRefreshes()).isEmpty();
+    }
+
+    @Test
+    public void testScanAndRegistrationAreRecorded() {
+        this.testee.bundleScanned(this.bundle, 1000L, 200L, 10, 2);
+        this.testee.modelsRegistered(this.bundle, 300L, 100L, 50L, 2, 1010L);
+
+        assertThat(this.testee.getBundles()).hasSize(1);
+        BundleStartup startup = this.testee.getBundles().get(0);
+        assertThat(startup.getBundleId()).isEqualTo(1L);
+        assertThat(startup.getBundleName()).isEqualTo("test.bundle 1.0.0");
+        assertThat(startup.getScanStartedAt()).isEqualTo(1000L);
+        assertThat(startup.getScanningTimeInNs()).isEqualTo(200L);
+        assertThat(startup.getNumberOfLoadedClasses()).isEqualTo(10);
+        assertThat(startup.getNumberOfModelsFound()).isEqualTo(2);
+        assertThat(startup.getMetaDataTimeInNs()).isEqualTo(300L);
+        assertThat(startup.getProxyGenerationTimeInNs()).isEqualTo(100L);
+        assertThat(startup.getRegistrationTimeInNs()).isEqualTo(50L);
+        assertThat(startup.getNumberOfRegisteredModels()).isEqualTo(2);
+        assertThat(startup.getRegisteredAt()).isEqualTo(1010L);
+    }
+
+    @Test
+    public void testRegistrationWithoutScanIsRecorded() {
+        this.testee.modelsRegistered(this.bundle, 300L, 100L, 50L, 2, 1010L);
+
+        BundleStartup startup = this.testee.getBundles().get(0);
+        assertThat(startup.getScanStartedAt()).isZero();
+        assertThat(startup.getNumberOfRegisteredModels()).isEqualTo(2);
+    }
+
+    @Test
+    public void testRescanStartsANewTimeline() {
+        this.testee.bundleScanned(this.bundle, 1000L, 200L, 10, 2);
+        this.testee.modelsRegistered(this.bundle, 300L, 100L, 50L, 2, 1010L);
+
+        this.testee.bundleScanned(this.bundle, 2000L, 100L, 5, 1);
+
+        assertThat(this.testee.getBundles()).hasSize(1);
+        BundleStartup startup = this.testee.getBundles().get(0);
+        assertThat(startup.getScanStartedAt()).isEqualTo(2000L);
+        assertThat(startup.getNumberOfRegisteredModels()).isZero();
+        assertThat(startup.getRegisteredAt()).isZero();
+    }
+
+    @Test
+    public void testBundlesAreOrderedByStartOfScan() {
+        Bundle other = mock(Bundle.class);
+        doReturn(2L).when(other).getBundleId();
+        doReturn("other.bundle").when(other).getSymbolicName();
+        doReturn(new Version(1, 0, 0)).when(other).getVersion();
+
+        this.testee.bundleScanned(this.bundle, 2000L, 200L, 10, 2);
+        this.testee.bundleScanned(other, 1000L, 200L, 10, 2);
+
+        assertThat(this.testee.getBundles())
+                .extracting(BundleStartup::getBundleId)
+                .containsExactly(2L, 1L);
+    }
+
+    @Test
+    public void testOnlyRecentAdapterFactoryRefreshesAreRetained() {
+        for (int i = 0; i < 101; ++i) {
+            this.testee.adapterFactoryRefreshed(i, 10L, i);
+        }
+
+        assertThat(this.testee.getAdapterFactoryRefreshes()).hasSize(100);
+        assertThat(this.testee.getAdapterFactoryRefreshes().get(0).getOccurredAt()).isEqualTo(1L);
+        assertThat(this.testee.getAdapterFactoryRefreshes().get(99).getNumberOfAdapterTypes()).isEqualTo(100);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullBundleForScan() {
+        this.testee.bundleScanned(null, 0, 0, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullBundleForRegistration() {
+        this.testee.modelsRegistered(null, 0, 0, 0, 0, 0);
+    }
+}
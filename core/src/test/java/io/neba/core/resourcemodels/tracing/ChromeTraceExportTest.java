@@ -0,0 +1,83 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.CACHE_HIT;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.MAPPING;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Olaf Otto
+ */
+public class ChromeTraceExportTest {
+    private MappingTrace trace;
+    private String json;
+
+    @Before
+    public void setUp() {
+        this.trace = new MappingTrace(7, "GET", "/content/page.html", 123456L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExportDoesNotAcceptNullTrace() throws IOException {
+        ChromeTraceExport.write(null, new StringWriter());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExportDoesNotAcceptNullWriter() throws IOException {
+        ChromeTraceExport.write(this.trace, null);
+    }
+
+    @Test
+    public void testExportOfEmptyTrace() throws IOException {
+        this.trace.complete();
+        export();
+
+        assertThat(this.json).isEqualTo("{\"traceEvents\":[],\"displayTimeUnit\":\"ms\"," +
+                "\"otherData\":{\"id\":7,\"method\":\"GET\",\"uri\":\"/content/page.html\",\"startedAt\":123456,\"truncated\":false}}");
+    }
+
+    @Test
+    public void testExportOfNestedNodes() throws IOException {
+        this.trace.enter(MAPPING, "Parent", "/content/parent");
+        this.trace.event(CACHE_HIT, "Cached", "/content/cached");
+        this.trace.enter(MAPPING, "Child", "/content/parent/child");
+        this.trace.exit();
+        this.trace.exit();
+        this.trace.complete();
+
+        export();
+
+        assertThat(this.json)
+                .startsWith("{\"traceEvents\":[{\"name\":\"Parent\",\"cat\":\"MAPPING\",\"ph\":\"X\",\"ts\":")
+                .contains("\"pid\":1,\"tid\":1,\"args\":{\"path\":\"/content/parent\"}},{\"name\":\"Cached\",\"cat\":\"CACHE_HIT\",\"ph\":\"i\",\"s\":\"t\",\"ts\":")
+                .contains("\"args\":{\"path\":\"/content/cached\"}},{\"name\":\"Child\",\"cat\":\"MAPPING\",\"ph\":\"X\"")
+                .contains("\"args\":{\"path\":\"/content/parent/child\"}}],\"displayTimeUnit\":\"ms\"");
+        assertThat(this.json.split("\"dur\":")).hasSize(3);
+    }
+
+    private void export() throws IOException {
+        StringWriter writer = new StringWriter();
+        ChromeTraceExport.write(this.trace, writer);
+        this.json = writer.toString();
+    }
+}
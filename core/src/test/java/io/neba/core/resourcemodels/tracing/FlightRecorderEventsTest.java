@@ -0,0 +1,47 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Tests the Java 8 version of the {@link FlightRecorderEvents}, which never emits events.
+ *
+ * @author Olaf Otto
+ */
+public class FlightRecorderEventsTest {
+    @Test
+    public void testEventsWithDurationAreDisabled() {
+        assertThat(FlightRecorderEvents.beginMapping()).isNull();
+        assertThat(FlightRecorderEvents.beginModelLookup()).isNull();
+        assertThat(FlightRecorderEvents.beginJsonViewRendering()).isNull();
+    }
+
+    @Test
+    public void testCacheLookupEventIsDisabled() {
+        assertThat(FlightRecorderEvents.isCacheLookupEnabled()).isFalse();
+    }
+
+    @Test
+    public void testEndingDisabledEventsIsTolerated() {
+        FlightRecorderEvents.endMapping(null, String.class, "/junit/path", 1);
+        FlightRecorderEvents.endModelLookup(null, "/junit/path", "junit/type", true, 1, 0);
+        FlightRecorderEvents.endJsonViewRendering(null, "/junit/path", String.class);
+        FlightRecorderEvents.cacheLookup("/junit/path", String.class, true);
+    }
+}
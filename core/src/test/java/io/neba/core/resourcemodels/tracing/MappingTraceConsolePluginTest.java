@@ -0,0 +1,187 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.CACHE_HIT;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.LAZY_LOAD;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.MAPPING;
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MappingTraceConsolePluginTest {
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private MappingTracer tracer;
+    @Mock
+    private SlowMappingDetector slowMappingDetector;
+
+    private MappingTrace trace;
+    private Writer internalWriter;
+    private String renderedResponse;
+
+    @InjectMocks
+    private MappingTraceConsolePlugin testee;
+
+    @Before
+    public void setUp() throws Exception {
+        this.internalWriter = new StringWriter();
+        doReturn(new PrintWriter(this.internalWriter)).when(this.response).getWriter();
+
+        this.trace = new MappingTrace(42, "GET", "/content/page.html?q=<script>", 123456L);
+        this.trace.enter(MAPPING, "io.neba.Parent", "/content/parent");
+        this.trace.event(CACHE_HIT, "io.neba.Cached", "/content/cached");
+        this.trace.enter(LAZY_LOAD, "io.neba.Parent#children", "/content/parent");
+        this.trace.exit();
+        this.trace.exit();
+        this.trace.complete();
+    }
+
+    @Test
+    public void testPluginMetadata() {
+        assertThat(this.testee.getLabel()).isEqualTo("mappingtraces");
+        assertThat(this.testee.getTitle()).isEqualTo("Mapping traces");
+        assertThat(this.testee.getCategory()).isEqualTo("NEBA");
+    }
+
+    @Test
+    public void testRenderingOfTraceList() throws Exception {
+        doReturn(singletonList(this.trace)).when(this.tracer).getTraces();
+
+        renderContent();
+
+        assertResponseContains("1 recent traces");
+        assertResponseContains("<a href=\"/system/console/mappingtraces?trace=42\">42</a>");
+        assertResponseContains("<td>/content/page.html?q=&lt;script&gt;</td>");
+        assertResponseContains("<td>3</td>");
+        assertResponseContains("<a href=\"/system/console/mappingtraces/api/trace/42\">Download</a>");
+    }
+
+    @Test
+    public void testRenderingOfSlowMappings() throws Exception {
+        SlowMapping slowMapping = new SlowMapping(123456L, "io.neba.Child", "/content/parent/child", "components/child",
+                300000000L, 250000000L, 12, asList("/content/parent -> io.neba.Parent", "/content/parent/child -> io.neba.Child"));
+        doReturn(singletonList(slowMapping)).when(this.slowMappingDetector).getSlowMappings();
+
+        renderContent();
+
+        assertResponseContains("1 recent slow mappings");
+        assertResponseContains("<td>300.000</td><td>250.000</td><td>io.neba.Child</td><td>/content/parent/child</td>" +
+                "<td>components/child</td><td>2</td><td>12</td>" +
+                "<td>/content/parent -&gt; io.neba.Parent<br />/content/parent/child -&gt; io.neba.Child<br /></td>");
+    }
+
+    @Test
+    public void testRenderingOfTraceTree() throws Exception {
+        doReturn("42").when(this.request).getParameter("trace");
+        doReturn(this.trace).when(this.tracer).getTrace(42);
+
+        renderContent();
+
+        assertResponseContains("GET /content/page.html?q=&lt;script&gt;");
+        assertResponseContains("io.neba.Parent &larr; /content/parent<ul><li><em>cache hit</em> io.neba.Cached &larr; /content/cached</li>");
+        assertResponseContains("<em>lazy load</em> io.neba.Parent#children &larr; /content/parent</li></ul></li></ul>");
+    }
+
+    @Test
+    public void testRenderingOfUnknownTrace() throws Exception {
+        doReturn("<1>").when(this.request).getParameter("trace");
+
+        renderContent();
+
+        assertResponseContains("There is no trace with id &lt;1&gt;.");
+    }
+
+    @Test
+    public void testExportOfTrace() throws Exception {
+        doReturn(this.trace).when(this.tracer).getTrace(42);
+        withRequestPath("/system/console/mappingtraces/api/trace/42");
+
+        doGet();
+
+        verify(this.response).setContentType("application/json;charset=UTF-8");
+        verify(this.response).setHeader("Content-Disposition", "attachment; filename=\"neba-trace-42.json\"");
+        assertThat(this.renderedResponse).startsWith("{\"traceEvents\":[{\"name\":\"io.neba.Parent\"");
+    }
+
+    @Test
+    public void testExportOfUnknownTrace() throws Exception {
+        withRequestPath("/system/console/mappingtraces/api/trace/1");
+
+        doGet();
+
+        verify(this.response).sendError(eq(SC_NOT_FOUND), anyString());
+    }
+
+    @Test
+    public void testClearingOfTraces() throws Exception {
+        withRequestPath("/system/console/mappingtraces/api/clear");
+
+        doGet();
+
+        verify(this.tracer).clear();
+        verify(this.slowMappingDetector).clear();
+        assertThat(this.renderedResponse).isEqualTo("{\"success\": true}");
+    }
+
+    private void assertResponseContains(String fragment) {
+        assertThat(this.renderedResponse).contains(fragment);
+    }
+
+    private void withRequestPath(String requestPath) {
+        doReturn("/system/console").when(this.request).getServletPath();
+        doReturn(requestPath).when(this.request).getRequestURI();
+    }
+
+    private void renderContent() throws IOException {
+        doReturn("").when(this.request).getContextPath();
+        doReturn("/system/console").when(this.request).getServletPath();
+        this.testee.renderContent(this.request, this.response);
+        this.renderedResponse = this.internalWriter.toString();
+    }
+
+    private void doGet() throws ServletException, IOException {
+        this.testee.doGet(this.request, this.response);
+        this.renderedResponse = this.internalWriter.toString();
+    }
+}
@@ -0,0 +1,186 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.CACHE_HIT;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.LAZY_LOAD;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.Kind.MAPPING;
+import static io.neba.core.resourcemodels.tracing.MappingTrace.MAXIMUM_NUMBER_OF_NODES;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Olaf Otto
+ */
+public class MappingTraceTest {
+    private MappingTrace testee;
+
+    @Before
+    public void setUp() {
+        this.testee = new MappingTrace(1, "GET", "/content/page.html", 123456L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorDoesNotAcceptNullMethod() {
+        new MappingTrace(1, null, "/content/page.html", 123456L);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorDoesNotAcceptNullUri() {
+        new MappingTrace(1, "GET", null, 123456L);
+    }
+
+    @Test
+    public void testRequestDataIsRetained() {
+        assertThat(this.testee.getId()).isEqualTo(1);
+        assertThat(this.testee.getMethod()).isEqualTo("GET");
+        assertThat(this.testee.getUri()).isEqualTo("/content/page.html");
+        assertThat(this.testee.getStartedAt()).isEqualTo(123456L);
+    }
+
+    @Test
+    public void testTraceIsIncompleteUntilCompleted() {
+        assertThat(this.testee.getDurationInNs()).isEqualTo(-1);
+        this.testee.complete();
+        assertThat(this.testee.getDurationInNs()).isNotNegative();
+    }
+
+    @Test
+    public void testNestedNodesFormTree() {
+        this.testee.enter(MAPPING, "Parent", "/content/parent");
+        this.testee.event(CACHE_HIT, "Cached", "/content/parent/cached");
+        this.testee.enter(LAZY_LOAD, "Parent#children", "/content/parent");
+        this.testee.enter(MAPPING, "Child", "/content/parent/child");
+        this.testee.exit();
+        this.testee.exit();
+        this.testee.exit();
+        this.testee.enter(MAPPING, "Other", "/content/other");
+        this.testee.exit();
+        this.testee.complete();
+
+        assertThat(this.testee.getNumberOfNodes()).isEqualTo(5);
+        assertThat(this.testee.getRoots()).extracting(MappingTrace.Node::getName).containsExactly("Parent", "Other");
+
+        MappingTrace.Node parent = this.testee.getRoots().get(0);
+        assertThat(parent.getKind()).isEqualTo(MAPPING);
+        assertThat(parent.getPath()).isEqualTo("/content/parent");
+        assertThat(parent.getChildren()).extracting(MappingTrace.Node::getKind).containsExactly(CACHE_HIT, LAZY_LOAD);
+
+        MappingTrace.Node cacheHit = parent.getChildren().get(0);
+        assertThat(cacheHit.getDurationInNs()).isZero();
+
+        MappingTrace.Node lazyLoad = parent.getChildren().get(1);
+        assertThat(lazyLoad.getChildren()).extracting(MappingTrace.Node::getName).containsExactly("Child");
+        assertThat(lazyLoad.getStartTimeInNs()).isGreaterThanOrEqualTo(parent.getStartTimeInNs());
+        assertThat(lazyLoad.getDurationInNs()).isLessThanOrEqualTo(parent.getDurationInNs());
+    }
+
+    @Test
+    public void testNodesOfOtherThreadsDoNotInterleave() throws InterruptedException {
+        this.testee.enter(MAPPING, "Parent", "/content/parent");
+
+        Thread lazyLoader = new Thread(() -> {
+            this.testee.enter(LAZY_LOAD, "Other#field", "/content/other");
+            this.testee.enter(MAPPING, "OtherChild", "/content/other/child");
+            this.testee.exit();
+        });
+        lazyLoader.start();
+        lazyLoader.join();
+
+        this.testee.enter(MAPPING, "Child", "/content/parent/child");
+        this.testee.exit();
+        this.testee.exit();
+        this.testee.complete();
+
+        assertThat(this.testee.getRoots()).extracting(MappingTrace.Node::getName).containsExactly("Parent", "Other#field");
+
+        MappingTrace.Node parent = this.testee.getRoots().get(0);
+        assertThat(parent.getChildren()).extracting(MappingTrace.Node::getName).containsExactly("Child");
+
+        MappingTrace.Node lazyLoad = this.testee.getRoots().get(1);
+        assertThat(lazyLoad.getChildren()).extracting(MappingTrace.Node::getName).containsExactly("OtherChild");
+        assertThat(lazyLoad.getDurationInNs()).isNotNegative();
+    }
+
+    @Test
+    public void testExitWithoutOpenNodeIsIgnored() {
+        this.testee.exit();
+        this.testee.enter(MAPPING, "Model", "/content/resource");
+        this.testee.exit();
+        this.testee.exit();
+        this.testee.complete();
+
+        assertThat(this.testee.getRoots()).extracting(MappingTrace.Node::getName).containsExactly("Model");
+    }
+
+    @Test
+    public void testCompletionClosesOpenNodes() {
+        this.testee.enter(MAPPING, "Parent", "/content/parent");
+        this.testee.enter(MAPPING, "Child", "/content/parent/child");
+        this.testee.complete();
+
+        MappingTrace.Node parent = this.testee.getRoots().get(0);
+        assertThat(parent.getDurationInNs()).isNotNegative();
+        assertThat(parent.getChildren().get(0).getDurationInNs()).isNotNegative();
+    }
+
+    @Test
+    public void testNodesAreIgnoredAfterCompletion() {
+        this.testee.complete();
+        this.testee.enter(MAPPING, "Model", "/content/resource");
+        this.testee.event(CACHE_HIT, "Model", "/content/resource");
+        this.testee.exit();
+
+        assertThat(this.testee.getRoots()).isEmpty();
+    }
+
+    @Test
+    public void testTraceIsTruncatedWhenMaximumNumberOfNodesIsReached() {
+        for (int i = 0; i < MAXIMUM_NUMBER_OF_NODES; ++i) {
+            this.testee.event(CACHE_HIT, "Model", "/content/resource");
+        }
+        assertThat(this.testee.isTruncated()).isFalse();
+
+        this.testee.enter(MAPPING, "Omitted", "/content/omitted");
+        this.testee.enter(MAPPING, "OmittedChild", "/content/omitted/child");
+        this.testee.exit();
+        this.testee.exit();
+        this.testee.complete();
+
+        assertThat(this.testee.isTruncated()).isTrue();
+        assertThat(this.testee.getNumberOfNodes()).isEqualTo(MAXIMUM_NUMBER_OF_NODES);
+        assertThat(this.testee.getRoots()).hasSize(MAXIMUM_NUMBER_OF_NODES);
+    }
+
+    @Test
+    public void testChildrenOfOmittedNodesAreOmitted() {
+        for (int i = 0; i < MAXIMUM_NUMBER_OF_NODES - 1; ++i) {
+            this.testee.event(CACHE_HIT, "Model", "/content/resource");
+        }
+        this.testee.enter(MAPPING, "Parent", "/content/parent");
+        this.testee.exit();
+        this.testee.enter(MAPPING, "Omitted", "/content/omitted");
+        this.testee.event(CACHE_HIT, "OmittedChild", "/content/omitted/child");
+        this.testee.exit();
+        this.testee.complete();
+
+        MappingTrace.Node last = this.testee.getRoots().get(MAXIMUM_NUMBER_OF_NODES - 1);
+        assertThat(last.getName()).isEqualTo("Parent");
+        assertThat(last.getChildren()).isEmpty();
+    }
+}
@@ -0,0 +1,224 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import io.neba.core.resourcemodels.mapping.NestedMappingSupport;
+import io.neba.core.resourcemodels.tracing.MappingTracer.Configuration;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+import static io.neba.core.resourcemodels.tracing.MappingTracer.TRACE_ID_HEADER;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class MappingTracerTest {
+    @Mock
+    private NestedMappingSupport nestedMappingSupport;
+    @Mock
+    private HttpServletRequest request;
+    @Mock
+    private HttpServletResponse response;
+    @Mock
+    private FilterChain chain;
+
+    private double samplingRate = 0;
+    private String remoteAddress = "127.0.0.1";
+    private int capacity = 50;
+
+    @InjectMocks
+    private MappingTracer testee;
+
+    @Test
+    public void testRequestsAreNotTracedByDefault() throws Exception {
+        activate();
+        filter();
+
+        verifyRequestIsNotTraced();
+    }
+
+    @Test
+    public void testRequestWithDebugHeaderFromAllowedAddressIsTraced() throws Exception {
+        withRequest();
+        activate();
+        withDebugHeader();
+        filter();
+
+        verifyRequestIsTraced();
+        verify(this.response).setHeader(TRACE_ID_HEADER, "1");
+        assertThat(this.testee.getTraces()).hasSize(1);
+
+        MappingTrace trace = this.testee.getTrace(1);
+        assertThat(trace).isNotNull();
+        assertThat(trace.getMethod()).isEqualTo("GET");
+        assertThat(trace.getUri()).isEqualTo("/content/page.html");
+        assertThat(trace.getDurationInNs()).isNotNegative();
+    }
+
+    @Test
+    public void testRequestWithDebugHeaderFromOtherAddressIsNotTraced() throws Exception {
+        withRemoteAddress("10.0.0.1");
+        activate();
+        withDebugHeader();
+        filter();
+
+        verifyRequestIsNotTraced();
+    }
+
+    @Test
+    public void testRequestsAreSampled() throws Exception {
+        withRequest();
+        withSamplingRate(1);
+        activate();
+        filter();
+
+        verifyRequestIsTraced();
+        assertThat(this.testee.getTraces()).hasSize(1);
+    }
+
+    @Test
+    public void testTracingIsDisabledWithoutCapacity() throws Exception {
+        withSamplingRate(1);
+        withCapacity(0);
+        activate();
+        filter();
+
+        verifyRequestIsNotTraced();
+        assertThat(this.testee.getTrace(1)).isNull();
+    }
+
+    @Test
+    public void testOnlyMostRecentTracesAreRetained() throws Exception {
+        withRequest();
+        withSamplingRate(1);
+        withCapacity(2);
+        activate();
+
+        filter();
+        filter();
+        filter();
+
+        assertThat(this.testee.getTraces()).extracting(MappingTrace::getId).containsExactly(3L, 2L);
+        assertThat(this.testee.getTrace(1)).isNull();
+        assertThat(this.testee.getTrace(3)).isNotNull();
+    }
+
+    @Test
+    public void testTracesCanBeCleared() throws Exception {
+        withRequest();
+        withSamplingRate(1);
+        activate();
+        filter();
+
+        this.testee.clear();
+
+        assertThat(this.testee.getTraces()).isEmpty();
+    }
+
+    @Test
+    public void testRequestIsNotTracedIfTraceIsAlreadyOngoing() throws Exception {
+        withSamplingRate(1);
+        activate();
+        doReturn(mock(MappingTrace.class)).when(this.nestedMappingSupport).getTrace();
+
+        filter();
+
+        verify(this.nestedMappingSupport, never()).beginTracing(any());
+    }
+
+    @Test
+    public void testTracingEndsIfRequestProcessingFails() throws Exception {
+        withRequest();
+        withSamplingRate(1);
+        activate();
+        doThrow(new ServletException("THIS IS AN EXPECTED TEST EXCEPTION")).when(this.chain).doFilter(this.request, this.response);
+
+        try {
+            filter();
+        } catch (ServletException e) {
+            // expected
+        }
+
+        verify(this.nestedMappingSupport).endTracing();
+        assertThat(this.testee.getTraces()).hasSize(1);
+    }
+
+    private void verifyRequestIsTraced() throws IOException, ServletException {
+        verify(this.nestedMappingSupport).beginTracing(any());
+        verify(this.nestedMappingSupport).endTracing();
+        verify(this.chain).doFilter(this.request, this.response);
+    }
+
+    private void verifyRequestIsNotTraced() throws IOException, ServletException {
+        verify(this.nestedMappingSupport, never()).beginTracing(any());
+        verify(this.response, never()).setHeader(anyString(), anyString());
+        verify(this.chain).doFilter(this.request, this.response);
+        assertThat(this.testee.getTraces()).isEmpty();
+    }
+
+    private void withRequest() {
+        doReturn("GET").when(this.request).getMethod();
+        doReturn("/content/page.html").when(this.request).getRequestURI();
+    }
+
+    private void withDebugHeader() {
+        doReturn("true").when(this.request).getHeader("X-Neba-Trace");
+        doReturn(this.remoteAddress).when(this.request).getRemoteAddr();
+    }
+
+    private void withRemoteAddress(String remoteAddress) {
+        this.remoteAddress = remoteAddress;
+    }
+
+    private void withSamplingRate(double samplingRate) {
+        this.samplingRate = samplingRate;
+    }
+
+    private void withCapacity(int capacity) {
+        this.capacity = capacity;
+    }
+
+    private void filter() throws IOException, ServletException {
+        this.testee.doFilter(this.request, this.response, this.chain);
+    }
+
+    private void activate() {
+        Configuration configuration = mock(Configuration.class);
+        doReturn(this.samplingRate).when(configuration).samplingRate();
+        doReturn("X-Neba-Trace").when(configuration).debugHeader();
+        doReturn(new String[]{"127.0.0.1", "::1"}).when(configuration).allowedAddresses();
+        doReturn(this.capacity).when(configuration).capacity();
+        this.testee.activate(configuration);
+    }
+}
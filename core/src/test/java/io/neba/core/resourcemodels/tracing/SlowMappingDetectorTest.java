@@ -0,0 +1,242 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.tracing;
+
+import io.neba.core.resourcemodels.mapping.Mapping;
+import io.neba.core.resourcemodels.metadata.ResourceModelMetaData;
+import io.neba.core.resourcemodels.tracing.SlowMappingDetector.Configuration;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.slf4j.Logger;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.Arrays.asList;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.apache.commons.lang3.reflect.FieldUtils.getField;
+import static org.apache.commons.lang3.reflect.FieldUtils.readField;
+import static org.apache.commons.lang3.reflect.FieldUtils.writeField;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.endsWith;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class SlowMappingDetectorTest {
+    @Mock
+    private Logger logger;
+    @Mock
+    private Configuration configuration;
+    @Mock
+    private Mapping<?> parentMapping;
+    @Mock
+    private ResourceModelMetaData parentMetaData;
+    @Mock
+    private Mapping<?> mapping;
+    @Mock
+    private ResourceModelMetaData metaData;
+
+    @InjectMocks
+    private SlowMappingDetector testee;
+
+    @Before
+    public void setUp() throws Exception {
+        Field field = getField(SlowMappingDetector.class, "logger", true);
+        writeField(field, this.testee, this.logger);
+
+        doReturn(100L).when(this.configuration).thresholdInMs();
+        doReturn(new String[0]).when(this.configuration).typeThresholds();
+        doReturn(10).when(this.configuration).capacity();
+        doReturn(10).when(this.configuration).maximumReportsPerMinute();
+    }
+
+    @Test
+    public void testMappingBelowThresholdIsIgnored() {
+        activate();
+        mappingCompleted(99);
+
+        assertThat(this.testee.getSlowMappings()).isEmpty();
+        verify(this.logger, never()).warn(anyString());
+    }
+
+    @Test
+    public void testMappingExceedingThresholdIsRecordedAndLogged() {
+        withMappings();
+        activate();
+        mappingCompleted(150);
+
+        assertThat(this.testee.getSlowMappings()).hasSize(1);
+        SlowMapping slowMapping = this.testee.getSlowMappings().get(0);
+        assertThat(slowMapping.getModelType()).isEqualTo("io.neba.Child");
+        assertThat(slowMapping.getResourcePath()).isEqualTo("/content/parent/child");
+        assertThat(slowMapping.getResourceType()).isEqualTo("components/child");
+        assertThat(slowMapping.getDurationInNs()).isEqualTo(MILLISECONDS.toNanos(150));
+        assertThat(slowMapping.getThresholdInNs()).isEqualTo(MILLISECONDS.toNanos(100));
+        assertThat(slowMapping.getNestedMappings()).isEqualTo(7);
+        assertThat(slowMapping.getDepth()).isEqualTo(2);
+        assertThat(slowMapping.getMappingStack()).containsExactly("/content/parent -> io.neba.Parent", "/content/parent/child -> io.neba.Child");
+
+        verify(this.logger).warn("The mapping of /content/parent/child (components/child) to io.neba.Child took 150 ms, exceeding the threshold of 100 ms. " +
+                "Depth: 2, nested mappings: 7, mapping stack: /content/parent -> io.neba.Parent >> /content/parent/child -> io.neba.Child.");
+    }
+
+    @Test
+    public void testTypeSpecificThresholdOverridesThreshold() {
+        withMappings();
+        doReturn(new String[]{"io.neba.Child = 200", "io.neba.Other=10"}).when(this.configuration).typeThresholds();
+        activate();
+
+        mappingCompleted(150);
+        assertThat(this.testee.getSlowMappings()).isEmpty();
+
+        mappingCompleted(200);
+        assertThat(this.testee.getSlowMappings()).extracting(SlowMapping::getThresholdInNs).containsExactly(MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testTypeSpecificThresholdAppliesIfDetectionIsDisabledGlobally() {
+        withMappings();
+        doReturn(0L).when(this.configuration).thresholdInMs();
+        doReturn(new String[]{"io.neba.Child=50"}).when(this.configuration).typeThresholds();
+        activate();
+
+        mappingCompleted(60);
+        assertThat(this.testee.getSlowMappings()).hasSize(1);
+    }
+
+    @Test
+    public void testDetectionCanBeDisabled() {
+        doReturn(0L).when(this.configuration).thresholdInMs();
+        activate();
+        mappingCompleted(100000);
+
+        assertThat(this.testee.getSlowMappings()).isEmpty();
+    }
+
+    @Test
+    public void testReconfigurationReplacesAllThresholds() {
+        withMappings();
+        doReturn(new String[]{"io.neba.Child=50"}).when(this.configuration).typeThresholds();
+        activate();
+
+        doReturn(200L).when(this.configuration).thresholdInMs();
+        doReturn(new String[0]).when(this.configuration).typeThresholds();
+        activate();
+
+        mappingCompleted(150);
+        assertThat(this.testee.getSlowMappings()).isEmpty();
+
+        mappingCompleted(200);
+        assertThat(this.testee.getSlowMappings()).extracting(SlowMapping::getThresholdInNs).containsExactly(MILLISECONDS.toNanos(200));
+    }
+
+    @Test
+    public void testInvalidTypeThresholdIsIgnored() {
+        doReturn(new String[]{"io.neba.Child", "=5"}).when(this.configuration).typeThresholds();
+        activate();
+
+        verify(this.logger, times(2)).warn(contains("Ignoring the invalid slow mapping threshold"));
+    }
+
+    @Test
+    public void testOnlyMostRecentSlowMappingsAreRetained() {
+        withMappings();
+        doReturn(2).when(this.configuration).capacity();
+        activate();
+
+        mappingCompleted(101);
+        mappingCompleted(102);
+        mappingCompleted(103);
+
+        assertThat(this.testee.getSlowMappings())
+                .extracting(SlowMapping::getDurationInNs)
+                .containsExactly(MILLISECONDS.toNanos(103), MILLISECONDS.toNanos(102));
+    }
+
+    @Test
+    public void testSlowMappingsCanBeCleared() {
+        withMappings();
+        activate();
+        mappingCompleted(101);
+
+        this.testee.clear();
+
+        assertThat(this.testee.getSlowMappings()).isEmpty();
+    }
+
+    @Test
+    public void testLoggingIsRateLimited() {
+        withMappings();
+        doReturn(2).when(this.configuration).maximumReportsPerMinute();
+        activate();
+
+        mappingCompleted(101);
+        mappingCompleted(102);
+        mappingCompleted(103);
+        mappingCompleted(104);
+
+        verify(this.logger, times(2)).warn(anyString());
+        assertThat(this.testee.getSlowMappings()).hasSize(4);
+    }
+
+    @Test
+    public void testNumberOfSuppressedReportsIsLoggedWithNextReport() throws Exception {
+        withMappings();
+        doReturn(1).when(this.configuration).maximumReportsPerMinute();
+        activate();
+
+        mappingCompleted(101);
+        mappingCompleted(102);
+        mappingCompleted(103);
+        // Start a new rate limit window
+        ((AtomicLong) readField(this.testee, "rateLimitWindowStart", true)).set(0);
+        mappingCompleted(104);
+
+        verify(this.logger).warn(endsWith(" 2 further slow mappings were not logged to avoid flooding the log."));
+    }
+
+    private void withMappings() {
+        doReturn("/content/parent").when(this.parentMapping).getResourcePath();
+        doReturn(this.parentMetaData).when(this.parentMapping).getMetadata();
+        doReturn("io.neba.Parent").when(this.parentMetaData).getTypeName();
+
+        doReturn("/content/parent/child").when(this.mapping).getResourcePath();
+        doReturn("components/child").when(this.mapping).getResourceType();
+        doReturn(7).when(this.mapping).getNestedMappings();
+        doReturn(this.metaData).when(this.mapping).getMetadata();
+        doReturn("io.neba.Child").when(this.metaData).getTypeName();
+    }
+
+    private void mappingCompleted(long durationInMs) {
+        this.testee.mappingCompleted(this.mapping, MILLISECONDS.toNanos(durationInMs), asList(this.parentMapping, this.mapping));
+    }
+
+    private void activate() {
+        this.testee.activate(this.configuration);
+    }
+}
@@ -53,6 +53,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
@@ -72,6 +73,8 @@ public class JsonViewServletsTest {
     @Mock
     private NestedMappingSupport nestedMappingSupport;
     @Mock
+    private JsonViewStatistics statistics;
+    @Mock
     private Resource resource;
     @Mock
     private ResourceMetadata resourceMetadata;
@@ -216,6 +219,19 @@ public class JsonViewServletsTest {
         assertJsonIs("{\"test\":\"Test value\"}");
     }
 
+    @Test
+    public void testRenderDurationIsCounted() throws IOException {
+        serveRequest();
+        verify(this.statistics).countRendering(anyLong());
+    }
+
+    @Test
+    public void testRenderDurationIsNotCountedIfNoModelIsRendered() throws IOException {
+        withMissingModel();
+        serveRequest();
+        verify(this.statistics, never()).countRendering(anyLong());
+    }
+
     @Test
     public void testBeginAndEndRecordMappingsHappensBeforeModelResolutionAndAfterJsonSerialization() throws IOException {
         InOrder inOrder = inOrder(this.nestedMappingSupport, this.resourceModelResolver, this.response);
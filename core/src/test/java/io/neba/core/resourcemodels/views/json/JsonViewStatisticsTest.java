@@ -0,0 +1,50 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.core.resourcemodels.views.json;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Olaf Otto
+ */
+public class JsonViewStatisticsTest {
+    private JsonViewStatistics testee;
+
+    @Before
+    public void setUp() {
+        this.testee = new JsonViewStatistics();
+    }
+
+    @Test
+    public void testRenderingsAreCounted() {
+        this.testee.countRendering(100);
+        this.testee.countRendering(300);
+
+        assertThat(this.testee.getRenderDurations().getCount()).isEqualTo(2);
+        assertThat(this.testee.getRenderDurations().getTotalDuration()).isEqualTo(400);
+        assertThat(this.testee.getRenderDurations().getMaximumDuration()).isEqualTo(300);
+    }
+
+    @Test
+    public void testResetDiscardsRenderDurations() {
+        this.testee.countRendering(100);
+        this.testee.reset();
+        assertThat(this.testee.getRenderDurations().getCount()).isZero();
+    }
+}
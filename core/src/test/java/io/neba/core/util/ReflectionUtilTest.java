@@ -21,6 +21,7 @@ import org.junit.Test;
 
 import javax.inject.Inject;
 import java.io.Serializable;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
@@ -114,6 +115,9 @@ public class ReflectionUtilTest<T extends ReflectionUtilTest<?, ?, ?, ?, ?>, K,
     private static class PrivateClass {
         public String publicField;
 
+        public PrivateClass() {
+        }
+
         public void publicMethod() {
         }
     }
@@ -124,6 +128,9 @@ public class ReflectionUtilTest<T extends ReflectionUtilTest<?, ?, ?, ?, ?>, K,
         protected String protectedField;
         protected String privateField;
 
+        public PublicClass() {
+        }
+
         public void publicMethod() {
         }
 
@@ -366,6 +373,24 @@ public class ReflectionUtilTest<T extends ReflectionUtilTest<?, ?, ?, ?, ?>, K,
         assertMethodWasMadeAccessible();
     }
 
+    @Test
+    public void testMakeAccessibleOnPublicClassPublicConstructor() throws Exception {
+        Constructor<PublicClass> constructor = PublicClass.class.getDeclaredConstructor();
+
+        makeAccessible(constructor);
+
+        assertThat(constructor.isAccessible()).isFalse();
+    }
+
+    @Test
+    public void testMakeAccessibleOnPrivateClassPublicConstructor() throws Exception {
+        Constructor<PrivateClass> constructor = PrivateClass.class.getDeclaredConstructor();
+
+        makeAccessible(constructor);
+
+        assertThat(constructor.isAccessible()).isTrue();
+    }
+
     private void assertMethodWasMadeAccessible() {
         assertThat(method.isAccessible()).isTrue();
     }
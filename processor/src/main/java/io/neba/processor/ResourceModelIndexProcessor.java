@@ -0,0 +1,151 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.tools.FileObject;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.lang.model.element.ElementKind.CLASS;
+import static javax.tools.Diagnostic.Kind.ERROR;
+import static javax.tools.StandardLocation.CLASS_OUTPUT;
+
+/**
+ * Writes the binary names of all classes annotated with
+ * <code>@io.neba.api.annotations.ResourceModel</code> to {@link #MODEL_INDEX}.
+ * NEBA uses this index to discover the resource models of a bundle without having to
+ * scan and load all classes within the bundle's <code>Neba-Packages</code>. The index replaces scanning for
+ * every <code>Neba-Packages</code> entry containing an indexed class, thus all resource models of these packages must be
+ * compiled with this processor. Packages without indexed classes are still scanned.
+ * <br />
+ * Only classes directly annotated with <code>@ResourceModel</code> are indexed - the index is
+ * a list of candidates, NEBA still verifies each class at runtime.
+ * <br />
+ * Incremental compilations (e.g. by an IDE) only process the changed sources. The
+ * index is thus merged with an already existing index: Previously indexed types are retained
+ * as long as they still exist and are still annotated with <code>@ResourceModel</code>.
+ *
+ * @author Olaf Otto
+ */
+// Processes all sources: An incremental compilation without any @ResourceModel must still update the existing index.
+@SupportedAnnotationTypes("*")
+public class ResourceModelIndexProcessor extends AbstractProcessor {
+    static final String RESOURCE_MODEL_ANNOTATION = "io.neba.api.annotations.ResourceModel";
+    /**
+     * The class path location of the generated index. Must correspond with the location read by NEBA at runtime.
+     */
+    public static final String MODEL_INDEX = "META-INF/neba/models";
+
+    private final Set<String> modelTypeNames = new TreeSet<>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        if (roundEnv.processingOver()) {
+            writeIndex();
+            return false;
+        }
+
+        for (TypeElement annotation : annotations) {
+            if (!RESOURCE_MODEL_ANNOTATION.contentEquals(annotation.getQualifiedName())) {
+                continue;
+            }
+            for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+                if (element.getKind() == CLASS) {
+                    this.modelTypeNames.add(this.processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString());
+                }
+            }
+        }
+
+        // Other processors may process @ResourceModel as well.
+        return false;
+    }
+
+    private void writeIndex() {
+        boolean indexExists = mergeExistingIndex();
+
+        if (this.modelTypeNames.isEmpty() && !indexExists) {
+            return;
+        }
+
+        try {
+            FileObject index = this.processingEnv.getFiler().createResource(CLASS_OUTPUT, "", MODEL_INDEX);
+            try (Writer writer = new OutputStreamWriter(index.openOutputStream(), UTF_8)) {
+                for (String name : this.modelTypeNames) {
+                    writer.write(name);
+                    writer.write('\n');
+                }
+            }
+        } catch (IOException e) {
+            this.processingEnv.getMessager().printMessage(ERROR, "Unable to write the resource model index " + MODEL_INDEX + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Adds all types of an index written by a previous compilation to the {@link #modelTypeNames}, provided
+     * the types still exist and are still resource models.
+     *
+     * @return whether an index already existed.
+     */
+    private boolean mergeExistingIndex() {
+        try {
+            FileObject index = this.processingEnv.getFiler().getResource(CLASS_OUTPUT, "", MODEL_INDEX);
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openInputStream(), UTF_8))) {
+                String name;
+                while ((name = reader.readLine()) != null) {
+                    retainIfResourceModel(name.trim());
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            // There is no existing index, or the compiler does not support reading from the class output.
+            return false;
+        }
+    }
+
+    private void retainIfResourceModel(String binaryName) {
+        if (binaryName.isEmpty()) {
+            return;
+        }
+        TypeElement type = this.processingEnv.getElementUtils().getTypeElement(binaryName.replace('$', '.'));
+        if (type == null || type.getKind() != CLASS) {
+            return;
+        }
+        for (AnnotationMirror annotation : type.getAnnotationMirrors()) {
+            if (RESOURCE_MODEL_ANNOTATION.contentEquals(((TypeElement) annotation.getAnnotationType().asElement()).getQualifiedName())) {
+                this.modelTypeNames.add(binaryName);
+                return;
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.processor;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.neba.processor.ResourceModelIndexProcessor.MODEL_INDEX;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static javax.tools.ToolProvider.getSystemJavaCompiler;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * @author Olaf Otto
+ */
+public class ResourceModelIndexProcessorTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File sources;
+    private File classes;
+    private List<File> sourceFiles;
+
+    @Before
+    public void setUp() throws Exception {
+        this.sources = this.folder.newFolder("sources");
+        this.classes = this.folder.newFolder("classes");
+        this.sourceFiles = new ArrayList<>();
+
+        withSource("io/neba/api/annotations/ResourceModel.java",
+                "package io.neba.api.annotations;\n" +
+                "import java.lang.annotation.*;\n" +
+                "@Retention(RetentionPolicy.RUNTIME) @Target({ElementType.TYPE, ElementType.ANNOTATION_TYPE})\n" +
+                "public @interface ResourceModel { String[] value() default {}; }");
+    }
+
+    @Test
+    public void testIndexContainsResourceModelsIncludingNestedClasses() throws Exception {
+        withSource("com/acme/Model.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"some/type\")\n" +
+                "public class Model {\n" +
+                "  @io.neba.api.annotations.ResourceModel(\"other/type\")\n" +
+                "  public static class Nested {}\n" +
+                "}");
+        withSource("com/acme/NoModel.java",
+                "package com.acme;\n" +
+                "public class NoModel {}");
+
+        compile();
+
+        assertIndexContains("com.acme.Model", "com.acme.Model$Nested");
+    }
+
+    @Test
+    public void testAnnotationsAndInterfacesAreNotIndexed() throws Exception {
+        withSource("com/acme/Stereotype.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"some/type\")\n" +
+                "public @interface Stereotype {}");
+        withSource("com/acme/Model.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"some/type\")\n" +
+                "public class Model {}");
+
+        compile();
+
+        assertIndexContains("com.acme.Model");
+    }
+
+    @Test
+    public void testNoIndexIsWrittenWithoutResourceModels() throws Exception {
+        withSource("com/acme/NoModel.java",
+                "package com.acme;\n" +
+                "public class NoModel {}");
+
+        compile();
+
+        assertThat(new File(this.classes, MODEL_INDEX)).doesNotExist();
+    }
+
+    @Test
+    public void testIncrementalCompilationRetainsPreviouslyIndexedModels() throws Exception {
+        withSource("com/acme/Model.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"some/type\")\n" +
+                "public class Model {}");
+        compile();
+
+        incrementalCompilationOf("com/acme/OtherModel.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"other/type\")\n" +
+                "public class OtherModel {}");
+
+        assertIndexContains("com.acme.Model", "com.acme.OtherModel");
+    }
+
+    @Test
+    public void testIncrementalCompilationRemovesTypesThatAreNoLongerResourceModels() throws Exception {
+        withSource("com/acme/Model.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"some/type\")\n" +
+                "public class Model {}");
+        withSource("com/acme/OtherModel.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"other/type\")\n" +
+                "public class OtherModel {}");
+        compile();
+
+        incrementalCompilationOf("com/acme/OtherModel.java",
+                "package com.acme;\n" +
+                "public class OtherModel {}");
+
+        assertIndexContains("com.acme.Model");
+    }
+
+    @Test
+    public void testIncrementalCompilationRemovesTypesThatNoLongerExist() throws Exception {
+        withSource("com/acme/Model.java",
+                "package com.acme;\n" +
+                "@io.neba.api.annotations.ResourceModel(\"some/type\")\n" +
+                "public class Model {}");
+        compile();
+        assertThat(new File(this.classes, "com/acme/Model.class").delete()).isTrue();
+
+        incrementalCompilationOf("com/acme/NoModel.java",
+                "package com.acme;\n" +
+                "public class NoModel {}");
+
+        assertIndexContains();
+    }
+
+    private void incrementalCompilationOf(String path, String source) throws IOException {
+        this.sourceFiles.clear();
+        withSource(path, source);
+        compile();
+    }
+
+    private void assertIndexContains(String... typeNames) throws IOException {
+        File index = new File(this.classes, MODEL_INDEX);
+        assertThat(index).exists();
+        assertThat(Files.readAllLines(index.toPath(), UTF_8)).containsExactly(typeNames);
+    }
+
+    private void compile() throws IOException {
+        JavaCompiler compiler = getSystemJavaCompiler();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, UTF_8)) {
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    fileManager,
+                    null,
+                    asList("-d", this.classes.getAbsolutePath(), "-classpath", this.classes.getAbsolutePath()),
+                    null,
+                    fileManager.getJavaFileObjectsFromFiles(this.sourceFiles));
+            task.setProcessors(asList(new ResourceModelIndexProcessor()));
+            assertThat(task.call()).isTrue();
+        }
+    }
+
+    private void withSource(String path, String source) throws IOException {
+        File file = new File(this.sources, path);
+        assertThat(file.getParentFile().mkdirs() || file.getParentFile().isDirectory()).isTrue();
+        Files.write(file.toPath(), source.getBytes(UTF_8));
+        this.sourceFiles.add(file);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.blueprint;
+
+import org.eclipse.gemini.blueprint.context.BundleContextAware;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.cm.ManagedService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.Math.max;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.osgi.framework.Constants.SERVICE_DESCRIPTION;
+import static org.osgi.framework.Constants.SERVICE_PID;
+import static org.osgi.framework.Constants.SERVICE_VENDOR;
+
+/**
+ * Executes all {@link org.springframework.scheduling.annotation.Async asynchronous} operations of the NEBA
+ * spring integration, such as the {@link ContextShutdownHandler context shutdown handling}, using a bounded thread pool.
+ * Unlike the {@link FelixTaskExecutor}, which remains responsible for context creation and refresh, this executor never blocks
+ * the calling thread unless the pool and its queue are saturated.
+ * <br />
+ * The executor is configurable via the OSGi configuration with the {@link #PID}:
+ * <ul>
+ *     <li>{@link #POOL_SIZE}: The maximum number of threads, default 4.</li>
+ *     <li>{@link #QUEUE_CAPACITY}: The maximum number of queued tasks, default 1000. Tasks exceeding the capacity
+ *     are executed by the calling thread.</li>
+ *     <li>{@link #USE_VIRTUAL_THREADS}: Execute each task in a new virtual thread instead, default false.
+ *     Only effective when running on Java 21 or later.</li>
+ *     <li>{@link #PROPAGATE_REQUEST_CONTEXT}: Expose the {@link RequestContextHolder request attributes}
+ *     and {@link LocaleContextHolder locale context} of the submitting thread to the task, default false.
+ *     Tasks must not use the request after it was completed.</li>
+ *     <li>{@link #SHUTDOWN_TIMEOUT_IN_SECONDS}: How long to wait for running tasks when the context is destroyed, default 10.</li>
+ * </ul>
+ *
+ * @author Olaf Otto
+ */
+@Service("defaultExecutor")
+public class BackgroundTaskExecutor implements TaskExecutor, ManagedService, BundleContextAware {
+    static final String PID = "io.neba.spring.blueprint.BackgroundTaskExecutor";
+    static final String POOL_SIZE = "poolSize";
+    static final String QUEUE_CAPACITY = "queueCapacity";
+    static final String USE_VIRTUAL_THREADS = "useVirtualThreads";
+    static final String PROPAGATE_REQUEST_CONTEXT = "propagateRequestContext";
+    static final String SHUTDOWN_TIMEOUT_IN_SECONDS = "shutdownTimeoutInSeconds";
+
+    private static final int DEFAULT_POOL_SIZE = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_IN_SECONDS = 10;
+
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+    private final AtomicInteger threadNumber = new AtomicInteger();
+
+    private BundleContext context;
+    private ServiceRegistration<?> configurationRegistration;
+
+    private volatile ExecutorService executor = newThreadPool(DEFAULT_POOL_SIZE, DEFAULT_QUEUE_CAPACITY);
+    private volatile boolean propagateRequestContext = false;
+    private volatile long shutdownTimeoutInSeconds = DEFAULT_SHUTDOWN_TIMEOUT_IN_SECONDS;
+    private int poolSize = DEFAULT_POOL_SIZE;
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private boolean useVirtualThreads = false;
+
+    @Override
+    public void execute(Runnable task) {
+        if (task == null) {
+            throw new IllegalArgumentException("Method argument task must not be null.");
+        }
+
+        Runnable runnable = this.propagateRequestContext ? withRequestContextOfCurrentThread(task) : task;
+        ExecutorService executor = this.executor;
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            // The executor may have been replaced due to a configuration change in the meantime.
+            ExecutorService current = this.executor;
+            if (current == executor) {
+                throw new TaskRejectedException("Unable to execute " + task + ", the executor has been shut down.", e);
+            }
+            current.execute(runnable);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public synchronized void updated(Dictionary properties) {
+        boolean useVirtualThreads = booleanValue(properties, USE_VIRTUAL_THREADS);
+        int poolSize = max(1, intValue(properties, POOL_SIZE, DEFAULT_POOL_SIZE));
+        int queueCapacity = max(1, intValue(properties, QUEUE_CAPACITY, DEFAULT_QUEUE_CAPACITY));
+
+        this.propagateRequestContext = booleanValue(properties, PROPAGATE_REQUEST_CONTEXT);
+        this.shutdownTimeoutInSeconds = max(0, intValue(properties, SHUTDOWN_TIMEOUT_IN_SECONDS, (int) DEFAULT_SHUTDOWN_TIMEOUT_IN_SECONDS));
+
+        if (useVirtualThreads == this.useVirtualThreads && queueCapacity == this.queueCapacity) {
+            if (!useVirtualThreads && poolSize != this.poolSize) {
+                resize((ThreadPoolExecutor) this.executor, poolSize);
+                this.poolSize = poolSize;
+            }
+            return;
+        }
+
+        ExecutorService replacement = useVirtualThreads ? newVirtualThreadExecutor() : null;
+        if (replacement == null) {
+            replacement = newThreadPool(poolSize, queueCapacity);
+            useVirtualThreads = false;
+        }
+
+        ExecutorService previous = this.executor;
+        this.executor = replacement;
+        this.poolSize = poolSize;
+        this.queueCapacity = queueCapacity;
+        this.useVirtualThreads = useVirtualThreads;
+
+        // Previously submitted tasks are still executed.
+        previous.shutdown();
+    }
+
+    @PostConstruct
+    public void registerConfiguration() {
+        Hashtable<String, Object> properties = new Hashtable<>();
+        properties.put(SERVICE_PID, PID);
+        properties.put(SERVICE_DESCRIPTION, "Configures the executor for asynchronous operations of the NEBA spring integration.");
+        properties.put(SERVICE_VENDOR, "neba.io");
+        this.configurationRegistration = this.context.registerService(ManagedService.class.getName(), this, properties);
+    }
+
+    /**
+     * Waits up to the configured {@link #SHUTDOWN_TIMEOUT_IN_SECONDS shutdown timeout} for running and queued tasks to complete,
+     * then interrupts the remaining tasks.
+     */
+    @PreDestroy
+    public void shutdown() {
+        if (this.configurationRegistration != null) {
+            try {
+                this.configurationRegistration.unregister();
+            } catch (IllegalStateException e) {
+                this.logger.trace("Cannot unregister the executor configuration service. The service may already have been unregistered.", e);
+            }
+            this.configurationRegistration = null;
+        }
+
+        ExecutorService executor = this.executor;
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(this.shutdownTimeoutInSeconds, SECONDS)) {
+                this.logger.warn("Asynchronous tasks did not complete within {} seconds, interrupting them.", this.shutdownTimeoutInSeconds);
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void setBundleContext(BundleContext bundleContext) {
+        this.context = bundleContext;
+    }
+
+    private ExecutorService newThreadPool(int poolSize, int queueCapacity) {
+        ThreadFactory threadFactory = task -> {
+            Thread thread = new Thread(task, "neba-spring-task-" + this.threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                poolSize, poolSize, 60L, SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity),
+                threadFactory,
+                this::executeInCallingThread);
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    private void executeInCallingThread(Runnable task, ThreadPoolExecutor pool) {
+        if (pool.isShutdown()) {
+            throw new RejectedExecutionException("The executor has been shut down.");
+        }
+        this.logger.warn("All {} threads are busy and {} tasks are queued, executing {} in the calling thread.",
+                pool.getMaximumPoolSize(), pool.getQueue().size(), task);
+        task.run();
+    }
+
+    private ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            this.logger.warn("Virtual threads are not supported by the Java runtime, using a thread pool instead.");
+            return null;
+        }
+    }
+
+    private static void resize(ThreadPoolExecutor pool, int poolSize) {
+        // The core pool size must never exceed the maximum pool size.
+        if (poolSize > pool.getMaximumPoolSize()) {
+            pool.setMaximumPoolSize(poolSize);
+            pool.setCorePoolSize(poolSize);
+        } else {
+            pool.setCorePoolSize(poolSize);
+            pool.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    /**
+     * The request context of the submitting thread is exposed to the task and the previous context of the executing thread
+     * is restored afterwards, as the task may be executed by the submitting thread if the executor is saturated.
+     */
+    private static Runnable withRequestContextOfCurrentThread(Runnable task) {
+        final RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        final LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+
+        if (requestAttributes == null && localeContext == null) {
+            return task;
+        }
+
+        return () -> {
+            RequestAttributes previousRequestAttributes = RequestContextHolder.getRequestAttributes();
+            LocaleContext previousLocaleContext = LocaleContextHolder.getLocaleContext();
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            LocaleContextHolder.setLocaleContext(localeContext);
+            try {
+                task.run();
+            } finally {
+                RequestContextHolder.setRequestAttributes(previousRequestAttributes);
+                LocaleContextHolder.setLocaleContext(previousLocaleContext);
+            }
+        };
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static int intValue(Dictionary properties, String key, int defaultValue) {
+        Object value = properties == null ? null : properties.get(key);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value.toString().trim());
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    private static boolean booleanValue(Dictionary properties, String key) {
+        Object value = properties == null ? null : properties.get(key);
+        return value != null && Boolean.parseBoolean(value.toString().trim());
+    }
+}
@@ -26,6 +26,7 @@ import org.springframework.stereotype.Service;
  * context state change tasks, such as context creation or refresh.
  *
  * @author Olaf Otto
+ * @see BackgroundTaskExecutor
  */
 @Service("taskExecutor")
 public class FelixTaskExecutor implements TaskExecutor {
@@ -28,6 +28,7 @@ import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.servlet.DispatcherServlet;
 import org.springframework.web.servlet.HandlerAdapter;
 import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerExecutionChain;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.handler.BeanNameUrlHandlerMapping;
 import org.springframework.web.servlet.mvc.HttpRequestHandlerAdapter;
@@ -64,14 +65,23 @@ import static org.springframework.beans.factory.BeanFactoryUtils.GENERATED_BEAN_
  * @author Olaf Otto
  */
 public class BundleSpecificDispatcherServlet extends DispatcherServlet implements ApplicationListener<ApplicationEvent> {
+    /**
+     * Holds the {@link ResolvedHandler handler} resolved by {@link #hasHandlerFor(HttpServletRequest)} for
+     * subsequent use in {@link #getHandler(HttpServletRequest)}.
+     */
+    private static final String RESOLVED_HANDLER = BundleSpecificDispatcherServlet.class.getName() + ".resolvedHandler";
+
     private final ServletConfig servletConfig;
     private final ConfigurableListableBeanFactory factory;
     private final ServletResolver servletResolver;
+    private final ViewScriptCache viewScriptCache;
 
     private boolean initialized = false;
+    private volatile HandlerRoutes routes = HandlerRoutes.NONE;
 
     BundleSpecificDispatcherServlet(ServletConfig servletConfig,
                                     ServletResolver servletResolver,
+                                    ViewScriptCache viewScriptCache,
                                     ConfigurableListableBeanFactory factory) {
 
         super();
@@ -84,10 +94,14 @@ public class BundleSpecificDispatcherServlet extends DispatcherServlet implement
         if (servletResolver == null) {
             throw new IllegalArgumentException("method parameter servletResolver must not be null");
         }
+        if (viewScriptCache == null) {
+            throw new IllegalArgumentException("method parameter viewScriptCache must not be null");
+        }
 
         this.servletConfig = servletConfig;
         this.factory = factory;
         this.servletResolver = servletResolver;
+        this.viewScriptCache = viewScriptCache;
 
         setPublishEvents(true);
         setDispatchOptionsRequest(true);
@@ -117,6 +131,7 @@ public class BundleSpecificDispatcherServlet extends DispatcherServlet implement
 
                 // Picks up the previously registered MVC infrastructure
                 onRefresh(applicationContext);
+                this.routes = HandlerRoutes.of(getHandlerMappings());
 
                 this.initialized = true;
             }
@@ -200,7 +215,7 @@ public class BundleSpecificDispatcherServlet extends DispatcherServlet implement
     private void addNebaViewResolver() {
         this.factory.registerSingleton(
                 generateBeanNameFor(NebaViewResolver.class),
-                new NebaViewResolver(this.servletResolver));
+                new NebaViewResolver(this.servletResolver, this.viewScriptCache));
     }
 
     /**
@@ -246,6 +261,10 @@ public class BundleSpecificDispatcherServlet extends DispatcherServlet implement
     }
 
     /**
+     * Requests not matching the {@link HandlerRoutes routes} of this servlet are rejected without resolving a handler.
+     * Otherwise, the resolved handler is retained in the request and re-used when this servlet
+     * {@link #service(javax.servlet.ServletRequest, javax.servlet.ServletResponse) services} the request.
+     *
      * @param request must not be <code>null</code>.
      */
     public boolean hasHandlerFor(HttpServletRequest request) {
@@ -253,14 +272,51 @@ public class BundleSpecificDispatcherServlet extends DispatcherServlet implement
             throw new IllegalArgumentException("Method argument request must not be null.");
         }
 
-        if (!this.initialized) {
+        if (!this.initialized || !this.routes.mayMatch(request)) {
             return false;
         }
 
+        HandlerExecutionChain handler;
         try {
-            return super.getHandler(request) != null;
+            handler = super.getHandler(request);
         } catch (Exception e) {
             throw new RuntimeException("Unable to lookup a handler for " + request + ".", e);
         }
+
+        if (handler == null) {
+            return false;
+        }
+
+        request.setAttribute(RESOLVED_HANDLER, new ResolvedHandler(this, handler));
+        return true;
+    }
+
+    /**
+     * Uses the handler {@link #hasHandlerFor(HttpServletRequest) previously resolved} by this servlet for the request, if any.
+     * The resolved handler is only used once, i.e. subsequent dispatches of the same request, e.g. forwards, are resolved anew.
+     */
+    @Override
+    protected HandlerExecutionChain getHandler(@Nonnull HttpServletRequest request) throws Exception {
+        Object resolvedHandler = request.getAttribute(RESOLVED_HANDLER);
+        if (resolvedHandler instanceof ResolvedHandler) {
+            request.removeAttribute(RESOLVED_HANDLER);
+            if (((ResolvedHandler) resolvedHandler).servlet == this) {
+                return ((ResolvedHandler) resolvedHandler).handler;
+            }
+        }
+        return super.getHandler(request);
+    }
+
+    /**
+     * @author Olaf Otto
+     */
+    private static class ResolvedHandler {
+        private final BundleSpecificDispatcherServlet servlet;
+        private final HandlerExecutionChain handler;
+
+        ResolvedHandler(BundleSpecificDispatcherServlet servlet, HandlerExecutionChain handler) {
+            this.servlet = servlet;
+            this.handler = handler;
+        }
     }
 }
@@ -0,0 +1,188 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.mvc;
+
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.AbstractHandlerMapping;
+import org.springframework.web.servlet.handler.AbstractUrlHandlerMapping;
+import org.springframework.web.servlet.mvc.condition.PatternsRequestCondition;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfoHandlerMapping;
+import org.springframework.web.util.UrlPathHelper;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.servlet.http.HttpServletRequest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
+import static java.util.Locale.ENGLISH;
+import static java.util.stream.Collectors.toSet;
+
+/**
+ * An index of the request methods and paths the {@link HandlerMapping handler mappings} of a
+ * {@link BundleSpecificDispatcherServlet} may provide a handler for. The index is built when the servlet's context is refreshed
+ * and serves as a conservative pre-filter: If the routes do not {@link #mayMatch(HttpServletRequest) match} a request,
+ * none of the handler mappings has a handler for it and the comparatively expensive handler resolution can be skipped.
+ * <br />
+ * Mapped paths are indexed by their static prefix, i.e. the part preceding the first wildcard or URI template variable.
+ * Prefixes are compared case-insensitively and thus also match suffix pattern and trailing slash variants of the mapped paths.
+ * Handler mappings whose mappings cannot be inspected, or which have a default handler, match all requests.
+ *
+ * @author Olaf Otto
+ */
+final class HandlerRoutes {
+    static final HandlerRoutes NONE = new HandlerRoutes(emptyList(), false);
+
+    private final List<MappingRoutes> mappingRoutes;
+    private final boolean matchesAll;
+
+    @Nonnull
+    static HandlerRoutes of(@CheckForNull List<HandlerMapping> handlerMappings) {
+        if (handlerMappings == null) {
+            return NONE;
+        }
+
+        List<MappingRoutes> mappingRoutes = new ArrayList<>(handlerMappings.size());
+        for (HandlerMapping handlerMapping : handlerMappings) {
+            MappingRoutes routes = routesOf(handlerMapping);
+            if (routes == null) {
+                return new HandlerRoutes(emptyList(), true);
+            }
+            mappingRoutes.add(routes);
+        }
+
+        return new HandlerRoutes(mappingRoutes, false);
+    }
+
+    /**
+     * @return the routes of the given mapping, or <code>null</code> if the mapping may match any request.
+     */
+    @CheckForNull
+    private static MappingRoutes routesOf(HandlerMapping handlerMapping) {
+        if (!(handlerMapping instanceof AbstractHandlerMapping) || ((AbstractHandlerMapping) handlerMapping).getDefaultHandler() != null) {
+            return null;
+        }
+
+        List<Route> routes = new ArrayList<>();
+
+        if (handlerMapping instanceof RequestMappingInfoHandlerMapping) {
+            for (RequestMappingInfo info : ((RequestMappingInfoHandlerMapping) handlerMapping).getHandlerMethods().keySet()) {
+                PatternsRequestCondition patternsCondition = info.getPatternsCondition();
+                if (patternsCondition == null) {
+                    return null;
+                }
+
+                Set<String> methods = info.getMethodsCondition().getMethods().stream().map(Enum::name).collect(toSet());
+                Set<String> patterns = patternsCondition.getPatterns();
+                if (patterns.isEmpty()) {
+                    routes.add(new Route("", methods));
+                }
+                for (String pattern : patterns) {
+                    routes.add(new Route(staticPrefixOf(pattern), methods));
+                }
+            }
+        } else if (handlerMapping instanceof AbstractUrlHandlerMapping) {
+            AbstractUrlHandlerMapping urlHandlerMapping = (AbstractUrlHandlerMapping) handlerMapping;
+            for (String pattern : urlHandlerMapping.getHandlerMap().keySet()) {
+                routes.add(new Route(staticPrefixOf(pattern), emptySet()));
+            }
+            if (urlHandlerMapping.getRootHandler() != null) {
+                routes.add(new Route("/", emptySet()));
+            }
+        } else {
+            return null;
+        }
+
+        return new MappingRoutes(((AbstractHandlerMapping) handlerMapping).getUrlPathHelper(), routes);
+    }
+
+    private static String staticPrefixOf(String pattern) {
+        int end = pattern.length();
+        for (int i = 0; i < pattern.length(); ++i) {
+            char c = pattern.charAt(i);
+            if (c == '*' || c == '?' || c == '{') {
+                end = i;
+                break;
+            }
+        }
+        return pattern.substring(0, end).toLowerCase(ENGLISH);
+    }
+
+    private HandlerRoutes(List<MappingRoutes> mappingRoutes, boolean matchesAll) {
+        this.mappingRoutes = mappingRoutes;
+        this.matchesAll = matchesAll;
+    }
+
+    /**
+     * @param request must not be <code>null</code>.
+     * @return whether any of the handler mappings may provide a handler for the request.
+     */
+    boolean mayMatch(@Nonnull HttpServletRequest request) {
+        if (this.matchesAll) {
+            return true;
+        }
+
+        final String method = request.getMethod();
+        for (MappingRoutes routes : this.mappingRoutes) {
+            // The lookup path depends on the configuration of the respective handler mapping.
+            String lookupPath = routes.urlPathHelper.getLookupPathForRequest(request).toLowerCase(ENGLISH);
+            for (Route route : routes.routes) {
+                if (route.matches(method, lookupPath)) {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static class MappingRoutes {
+        private final UrlPathHelper urlPathHelper;
+        private final Collection<Route> routes;
+
+        MappingRoutes(UrlPathHelper urlPathHelper, Collection<Route> routes) {
+            this.urlPathHelper = urlPathHelper;
+            this.routes = routes;
+        }
+    }
+
+    private static class Route {
+        private final String pathPrefix;
+        private final Set<String> methods;
+
+        Route(String pathPrefix, Set<String> methods) {
+            this.pathPrefix = pathPrefix;
+            this.methods = methods;
+        }
+
+        /**
+         * Like the request method condition of request mappings, <code>HEAD</code> matches <code>GET</code> mappings,
+         * and <code>OPTIONS</code> requests, including CORS pre-flight requests, are matched regardless of the mapped methods.
+         */
+        boolean matches(String method, String lookupPath) {
+            return lookupPath.startsWith(this.pathPrefix) && (
+                    this.methods.isEmpty() ||
+                            this.methods.contains(method) ||
+                            "OPTIONS".equals(method) ||
+                            "HEAD".equals(method) && this.methods.contains("GET"));
+        }
+    }
+}
@@ -47,7 +47,8 @@ import static org.springframework.beans.factory.BeanFactoryUtils.GENERATED_BEAN_
 /**
  * Dispatches controller requests to the bundle-specific {@link BundleSpecificDispatcherServlet dispatcher servlet}. The first
  * {@link BundleSpecificDispatcherServlet#hasHandlerFor(javax.servlet.http.HttpServletRequest)} responsible servlet} wins.
- * If no servlet is responsible, a 404 response is returned.<br />
+ * If no servlet is responsible, a 404 response is returned. The servlets only resolve handlers for requests matching the
+ * {@link HandlerRoutes routes} of their handler mappings and re-use the resolved handler when servicing the request.<br />
  * {@link #enableMvc(org.springframework.beans.factory.config.ConfigurableListableBeanFactory, org.osgi.framework.BundleContext) Enables}
  * and {@link #disableMvc(org.osgi.framework.Bundle) disables} MVC capabilities in bundles
  * via the injection of the {@link BundleSpecificDispatcherServlet} into the {@link ConfigurableListableBeanFactory bean factory}
@@ -65,6 +66,8 @@ public class MvcServlet extends SlingAllMethodsServlet {
     private ServletContext servletContext;
     @Autowired
     private ServletResolver servletResolver;
+    @Autowired
+    private ViewScriptCache viewScriptCache;
 
     /**
      * Enables MVC capabilities in the given factory by injecting a {@link BundleSpecificDispatcherServlet}.
@@ -105,7 +108,7 @@ public class MvcServlet extends SlingAllMethodsServlet {
     }
 
     BundleSpecificDispatcherServlet createBundleSpecificDispatcherServlet(ConfigurableListableBeanFactory factory, ServletConfig config) {
-        return new BundleSpecificDispatcherServlet(config, this.servletResolver, factory);
+        return new BundleSpecificDispatcherServlet(config, this.servletResolver, this.viewScriptCache, factory);
     }
 
     @Override
@@ -35,20 +35,27 @@ import static org.springframework.web.servlet.view.UrlBasedViewResolver.REDIRECT
 
 /**
  * Supports "redirect:" and "forward:" views and falls back to eh {@link SlingServletView} for a provided view name.
+ * The paths of the scripts resolved for view names, as well as the absence of scripts, are cached in the {@link ViewScriptCache}.
  *
  * @author Olaf Otto
  */
 public class NebaViewResolver implements ViewResolver, Ordered {
     private final ServletResolver servletResolver;
+    private final ViewScriptCache viewScriptCache;
 
     /**
      * @param servletResolver must not be <code>null</code>.
+     * @param viewScriptCache must not be <code>null</code>.
      */
-    public NebaViewResolver(ServletResolver servletResolver) {
+    public NebaViewResolver(ServletResolver servletResolver, ViewScriptCache viewScriptCache) {
         if (servletResolver == null) {
             throw new IllegalArgumentException("Method argument servletResolver must not be null.");
         }
+        if (viewScriptCache == null) {
+            throw new IllegalArgumentException("Method argument viewScriptCache must not be null.");
+        }
         this.servletResolver = servletResolver;
+        this.viewScriptCache = viewScriptCache;
     }
 
     /**
@@ -78,6 +85,24 @@ public class NebaViewResolver implements ViewResolver, Ordered {
     private SlingServletView resolveScriptingView(String resourceType) {
         final ResourceResolver resourceResolver = ((SlingHttpServletRequest) ((ServletRequestAttributes) getRequestAttributes()).getRequest()).getResourceResolver();
 
+        // Only the script path is cached: The script servlet may be bound to the resource resolver it was resolved with,
+        // and is thus always resolved using the resource resolver of the current request.
+        final ResolvedScript[] resolvedScript = new ResolvedScript[1];
+        String scriptPath = this.viewScriptCache.get(resourceResolver, resourceType, type -> {
+            resolvedScript[0] = resolveScript(resourceResolver, type);
+            return resolvedScript[0] == null ? null : resolvedScript[0].path;
+        });
+
+        if (scriptPath == null) {
+            return null;
+        }
+
+        Servlet servlet = resolvedScript[0] == null ? getServlet(resourceResolver, scriptPath) : resolvedScript[0].servlet;
+        return servlet == null ? null : new SlingServletView(resourceType, servlet);
+    }
+
+    private ResolvedScript resolveScript(ResourceResolver resourceResolver, String resourceType) {
+
         // Support script inheritance by traversing the type hierarchy of the resource.
         // The type hierarchy is also traversed by the Servlet Resolver, but the resolver
         // only does this compliant to the Sling Script resolution when invoked with a HTTP request.
@@ -92,10 +117,10 @@ public class NebaViewResolver implements ViewResolver, Ordered {
             if (separatorPos != -1) {
                 // Since the view resolution is not sensitive to request state, resolve the default view name
                 // for a resource type, e.g. "myType" in app/components/myType, for instance app/components/myType/myType.html
-                String defaultScriptName = currentResourceType.substring(separatorPos);
-                Servlet servlet = getServlet(resourceResolver, currentResourceType, defaultScriptName);
+                String scriptPath = currentResourceType + currentResourceType.substring(separatorPos);
+                Servlet servlet = getServlet(resourceResolver, scriptPath);
                 if (servlet != null) {
-                    return new SlingServletView(resourceType, servlet);
+                    return new ResolvedScript(scriptPath, servlet);
                 }
             }
             currentResourceType = resourceResolver.getParentResourceType(currentResourceType);
@@ -104,9 +129,9 @@ public class NebaViewResolver implements ViewResolver, Ordered {
         return null;
     }
 
-    private Servlet getServlet(ResourceResolver resourceResolver, String type, String defaultScriptName) {
+    private Servlet getServlet(ResourceResolver resourceResolver, String scriptPath) {
         try {
-            return servletResolver.resolveServlet(resourceResolver, type + defaultScriptName);
+            return servletResolver.resolveServlet(resourceResolver, scriptPath);
         } catch (SlingException e) {
             // Ignore as this is expected for nonexistent scripts as per API contract
             return null;
@@ -123,4 +148,14 @@ public class NebaViewResolver implements ViewResolver, Ordered {
     public int getOrder() {
         return MAX_VALUE - 1;
     }
+
+    private static class ResolvedScript {
+        private final String path;
+        private final Servlet servlet;
+
+        private ResolvedScript(String path, Servlet servlet) {
+            this.path = path;
+            this.servlet = servlet;
+        }
+    }
 }
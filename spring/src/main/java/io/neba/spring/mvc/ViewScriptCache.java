@@ -0,0 +1,112 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.mvc;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.osgi.service.event.Event;
+import org.osgi.service.event.EventHandler;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.lang.String.join;
+import static java.lang.String.valueOf;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Caches the paths of the scripts {@link NebaViewResolver} resolves for view names, including the absence of a script for a view name.
+ * Shared by the view resolvers of all MVC-enabled bundles.
+ * <br />
+ * Which scripts can be resolved depends on the user and search paths of the resource resolver used for the resolution.
+ * Script paths are thus cached per user and search paths. The script servlets themselves are not cached as they may be bound to
+ * the (request-scoped) resource resolver they were resolved with.
+ * <br />
+ * As both the scripts and the resource type hierarchy used to find them may change at runtime, this cache is exported as an
+ * {@link EventHandler} for resource and resource provider events (see <code>META-INF/spring/extender/context.xml</code>) and is
+ * cleared whenever such an event occurs outside of locations known not to contain scripts or resource types,
+ * such as /content or /var.
+ *
+ * @author Olaf Otto
+ */
+@Service
+public class ViewScriptCache implements EventHandler {
+    /**
+     * View names may stem from request data. The cache is thus cleared once it reaches this size.
+     */
+    static final int MAX_SIZE = 1000;
+
+    private final Map<String, Optional<String>> scriptPaths = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param resourceResolver must not be <code>null</code>. The resolver used to resolve the script.
+     * @param viewName         must not be <code>null</code>.
+     * @param resolution       must not be <code>null</code>. Resolves the script path for the view name using the resource resolver if it is not cached.
+     * @return the cached or resolved script path, or <code>null</code> if there is no script for the view name.
+     */
+    @CheckForNull
+    String get(@Nonnull ResourceResolver resourceResolver, @Nonnull String viewName, @Nonnull Function<String, String> resolution) {
+        final String key = keyOf(resourceResolver, viewName);
+        Optional<String> cached = this.scriptPaths.get(key);
+        if (cached != null) {
+            return cached.orElse(null);
+        }
+
+        // Scripts resolved while the cache is cleared must not be cached, as they may already be stale.
+        final long generation = this.generation.get();
+        String scriptPath = resolution.apply(viewName);
+
+        if (this.generation.get() == generation) {
+            if (this.scriptPaths.size() >= MAX_SIZE) {
+                this.scriptPaths.clear();
+            }
+            this.scriptPaths.put(key, ofNullable(scriptPath));
+            if (this.generation.get() != generation) {
+                this.scriptPaths.remove(key);
+            }
+        }
+
+        return scriptPath;
+    }
+
+    /**
+     * Removes all cached scripts.
+     */
+    public void clear() {
+        this.generation.incrementAndGet();
+        this.scriptPaths.clear();
+    }
+
+    @Override
+    public void handleEvent(Event event) {
+        clear();
+    }
+
+    int size() {
+        return this.scriptPaths.size();
+    }
+
+    private static String keyOf(ResourceResolver resourceResolver, String viewName) {
+        String[] searchPath = resourceResolver.getSearchPath();
+        return valueOf(resourceResolver.getUserID()) + '\n' + (searchPath == null ? "" : join(",", searchPath)) + '\n' + viewName;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.resourcemodels.registration;
+
+import org.eclipse.gemini.blueprint.context.BundleContextAware;
+import org.springframework.beans.factory.Aware;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.FactoryBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
+import org.springframework.beans.factory.annotation.Lookup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.AbstractBeanFactory;
+import org.springframework.context.ApplicationListener;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.util.HashSet;
+import java.util.Set;
+
+import static java.lang.reflect.Modifier.isAbstract;
+import static java.util.Arrays.asList;
+import static org.springframework.beans.BeanUtils.instantiateClass;
+import static org.springframework.beans.factory.config.AutowireCapableBeanFactory.AUTOWIRE_NO;
+import static org.springframework.core.annotation.AnnotationUtils.findAnnotation;
+import static org.springframework.util.ObjectUtils.isEmpty;
+import static org.springframework.util.ReflectionUtils.doWithMethods;
+import static org.springframework.util.ReflectionUtils.makeAccessible;
+
+/**
+ * Creates instances of prototype-scoped resource model beans without running through the entire
+ * {@link org.springframework.beans.factory.BeanFactory#getBean(String, Class) bean creation} of the bean factory,
+ * i.e. without merging the bean definition, resolving the constructor and running the post processor chain
+ * for every single model.
+ * <br />
+ * Instead, the models' constructor is resolved once and the models are solely
+ * {@link org.springframework.beans.factory.config.AutowireCapableBeanFactory#autowireBean(Object) autowired}
+ * after instantiation. Spring caches the autowiring metadata of the model type after the first injection.
+ * <br />
+ * This is only equivalent to the regular bean creation if nothing but the autowiring applies to the model.
+ * Thus, {@link #forBean(ConfigurableListableBeanFactory, String, Class)} only yields a creator if the bean definition
+ * is entirely plain, the model does not use any lifecycle callbacks and the factory uses no
+ * {@link BeanPostProcessor post processors} other than the well-known infrastructure post processors listed in
+ * {@link #KNOWN_POST_PROCESSORS}. Specifically, any kind of AOP disqualifies a model from this creation.
+ *
+ * @author Olaf Otto
+ */
+final class PrototypeModelCreator {
+    /**
+     * The post processors that do nothing but autowiring and invoking the lifecycle callbacks or
+     * {@link Aware} interfaces excluded by {@link #isPlain(Class)}.
+     */
+    static final Set<String> KNOWN_POST_PROCESSORS = new HashSet<>(asList(
+            "org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor",
+            "org.springframework.beans.factory.annotation.RequiredAnnotationBeanPostProcessor",
+            "org.springframework.context.annotation.CommonAnnotationBeanPostProcessor",
+            "org.springframework.context.annotation.ConfigurationClassPostProcessor$ImportAwareBeanPostProcessor",
+            "org.springframework.context.support.ApplicationContextAwareProcessor",
+            "org.springframework.context.support.ApplicationListenerDetector",
+            "org.springframework.context.support.PostProcessorRegistrationDelegate$BeanPostProcessorChecker",
+            "org.springframework.context.weaving.LoadTimeWeaverAwareProcessor",
+            "org.springframework.web.context.support.ServletContextAwareProcessor",
+            "org.eclipse.gemini.blueprint.context.support.BundleContextAwareProcessor"
+    ));
+
+    private final ConfigurableListableBeanFactory factory;
+    private final Constructor<?> constructor;
+
+    /**
+     * @return a creator for the given bean, or <code>null</code> if the bean
+     * must be obtained using {@link org.springframework.beans.factory.BeanFactory#getBean(String, Class)}.
+     */
+    @CheckForNull
+    static PrototypeModelCreator forBean(@Nonnull ConfigurableListableBeanFactory factory, @Nonnull String beanName, @Nonnull Class<?> beanType) {
+        if (!(factory instanceof AbstractBeanFactory) || !usesKnownPostProcessorsOnly((AbstractBeanFactory) factory)) {
+            return null;
+        }
+
+        BeanDefinition beanDefinition;
+        try {
+            beanDefinition = factory.getMergedBeanDefinition(beanName);
+        } catch (NoSuchBeanDefinitionException e) {
+            return null;
+        }
+
+        if (!isPlainPrototype(beanDefinition, beanType) || !isPlain(beanType)) {
+            return null;
+        }
+
+        Constructor<?>[] constructors = beanType.getDeclaredConstructors();
+        if (constructors.length != 1 || constructors[0].getParameterCount() != 0) {
+            return null;
+        }
+
+        return new PrototypeModelCreator(factory, constructors[0]);
+    }
+
+    private static boolean usesKnownPostProcessorsOnly(AbstractBeanFactory factory) {
+        for (BeanPostProcessor postProcessor : factory.getBeanPostProcessors()) {
+            if (!KNOWN_POST_PROCESSORS.contains(postProcessor.getClass().getName())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPlainPrototype(BeanDefinition beanDefinition, Class<?> beanType) {
+        if (!(beanDefinition instanceof AbstractBeanDefinition)) {
+            return false;
+        }
+
+        AbstractBeanDefinition definition = (AbstractBeanDefinition) beanDefinition;
+        return definition.isPrototype() &&
+                !definition.isAbstract() &&
+                !definition.isSynthetic() &&
+                beanType.getName().equals(definition.getBeanClassName()) &&
+                definition.getInstanceSupplier() == null &&
+                definition.getFactoryBeanName() == null &&
+                definition.getFactoryMethodName() == null &&
+                !definition.hasConstructorArgumentValues() &&
+                definition.getPropertyValues().isEmpty() &&
+                !definition.hasMethodOverrides() &&
+                definition.getAutowireMode() == AUTOWIRE_NO &&
+                definition.getInitMethodName() == null &&
+                definition.getDestroyMethodName() == null &&
+                isEmpty(definition.getDependsOn());
+    }
+
+    private static boolean isPlain(Class<?> beanType) {
+        if (isAbstract(beanType.getModifiers()) ||
+                Aware.class.isAssignableFrom(beanType) ||
+                BundleContextAware.class.isAssignableFrom(beanType) ||
+                InitializingBean.class.isAssignableFrom(beanType) ||
+                DisposableBean.class.isAssignableFrom(beanType) ||
+                FactoryBean.class.isAssignableFrom(beanType) ||
+                ApplicationListener.class.isAssignableFrom(beanType)) {
+            return false;
+        }
+
+        final boolean[] hasCallbacks = {false};
+        doWithMethods(beanType, method -> hasCallbacks[0] |= isCallback(method));
+        return !hasCallbacks[0];
+    }
+
+    private static boolean isCallback(Method method) {
+        return findAnnotation(method, PostConstruct.class) != null ||
+                findAnnotation(method, PreDestroy.class) != null ||
+                findAnnotation(method, Lookup.class) != null;
+    }
+
+    private PrototypeModelCreator(ConfigurableListableBeanFactory factory, Constructor<?> constructor) {
+        this.factory = factory;
+        makeAccessible(constructor);
+        this.constructor = constructor;
+    }
+
+    @Nonnull
+    Object create() {
+        Object model = instantiateClass(this.constructor);
+        this.factory.autowireBean(model);
+        return model;
+    }
+}
@@ -23,20 +23,35 @@ import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.lang.annotation.IncompleteAnnotationException;
+import java.net.URL;
 import java.util.Hashtable;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static java.util.Arrays.stream;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.osgi.framework.Constants.SERVICE_DESCRIPTION;
 import static org.osgi.framework.Constants.SERVICE_VENDOR;
 import static org.springframework.beans.factory.BeanFactoryUtils.beanNamesForTypeIncludingAncestors;
@@ -47,6 +62,11 @@ import static org.springframework.beans.factory.BeanFactoryUtils.beanNamesForTyp
  * searches} the factory's bean definitions for beans annotated with
  * {@link ResourceModel}. The discovered models are published via a dedicated {@link ResourceModelFactory} for
  * the provided bundle.
+ * <br />
+ * If the bundle contains a {@link #MODEL_INDEX model index}, e.g. generated at build time by the NEBA annotation processor,
+ * only bean definitions whose bean class is listed in the index are considered. Bean definitions without a bean class,
+ * e.g. factory method beans, are always considered, as their type is unknown until resolved. Otherwise,
+ * the type and annotations of all beans in the factory are examined.
  *
  * @author Olaf Otto
  * @see ResourceModelFactory
@@ -54,6 +74,12 @@ import static org.springframework.beans.factory.BeanFactoryUtils.beanNamesForTyp
  */
 @Service
 public class SpringModelRegistrar {
+    /**
+     * The class path location of the resource model index. Corresponds to the index
+     * generated by the NEBA annotation processor.
+     */
+    static final String MODEL_INDEX = "META-INF/neba/models";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final Map<Bundle, ServiceRegistration<?>> bundlesWithModels = new ConcurrentHashMap<>();
 
@@ -62,7 +88,7 @@ public class SpringModelRegistrar {
         logger.info("Discovering resource models in bundle {}  ...", bundle.getSymbolicName());
 
         final List<SpringBasedModelDefinition> modelDefinitions =
-                stream(beanNamesForTypeIncludingAncestors(factory, Object.class))
+                findCandidateBeanNames(bundle, factory)
                         .map(beanName -> {
                             final Class<?> modelType = factory.getType(beanName);
                             if (modelType == null) {
@@ -91,6 +117,56 @@ public class SpringModelRegistrar {
         ));
     }
 
+    private Stream<String> findCandidateBeanNames(Bundle bundle, ConfigurableListableBeanFactory factory) {
+        Set<String> indexedModelTypes = readModelIndex(bundle);
+        if (indexedModelTypes == null) {
+            return stream(beanNamesForTypeIncludingAncestors(factory, Object.class));
+        }
+
+        // The index only lists the models of this bundle and is thus only applied to the bundle's own bean definitions.
+        Set<String> beanNames = new LinkedHashSet<>();
+        for (String beanName : factory.getBeanDefinitionNames()) {
+            BeanDefinition definition = factory.getBeanDefinition(beanName);
+            if (definition.isAbstract()) {
+                continue;
+            }
+            String beanClassName = definition.getBeanClassName();
+            if (beanClassName == null || indexedModelTypes.contains(beanClassName)) {
+                beanNames.add(beanName);
+            }
+        }
+
+        // Models of ancestor factories may stem from other bundles and are searched conventionally.
+        BeanFactory parent = factory.getParentBeanFactory();
+        if (parent instanceof ListableBeanFactory) {
+            beanNames.addAll(asList(beanNamesForTypeIncludingAncestors((ListableBeanFactory) parent, Object.class)));
+        }
+
+        logger.debug("Found {} resource model candidates in the model index of bundle {}.", beanNames.size(), bundle.getSymbolicName());
+        return beanNames.stream();
+    }
+
+    /**
+     * @return the binary names of the classes listed in the bundle's {@link #MODEL_INDEX}, or
+     * <code>null</code> if the bundle has no index.
+     */
+    @CheckForNull
+    private static Set<String> readModelIndex(Bundle bundle) {
+        URL index = bundle.getEntry(MODEL_INDEX);
+        if (index == null) {
+            return null;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(index.openStream(), UTF_8))) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .collect(toSet());
+        } catch (IOException | UncheckedIOException e) {
+            throw new IllegalStateException("Unable to read the resource model index " + index + " of bundle " + bundle + ".", e);
+        }
+    }
+
     private ResourceModel getResourceModelAnnotation(ConfigurableListableBeanFactory factory, String n, Class<?> beanType) {
         try {
             return factory.findAnnotationOnBean(n, ResourceModel.class);
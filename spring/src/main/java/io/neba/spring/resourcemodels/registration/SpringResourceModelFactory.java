@@ -22,13 +22,23 @@ import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static io.neba.spring.resourcemodels.registration.PrototypeModelCreator.forBean;
 
 /**
  * Retrieves resource model beans from a {@link org.springframework.beans.factory.ListableBeanFactory#getBean(String, Class) bean factory}.
+ * <br />
+ * Once the configuration of the bean factory is {@link ConfigurableListableBeanFactory#isConfigurationFrozen() frozen},
+ * the way a model is created is determined once per model definition: Plain prototype-scoped models are created
+ * by a {@link PrototypeModelCreator}, all other models are obtained from the bean factory.
  */
 class SpringResourceModelFactory implements ResourceModelFactory {
     private final List<SpringBasedModelDefinition> modelDefinitions;
     private final ConfigurableListableBeanFactory factory;
+    private final Map<SpringBasedModelDefinition, Supplier<?>> modelCreation = new ConcurrentHashMap<>();
 
     SpringResourceModelFactory(List<SpringBasedModelDefinition> modelDefinitions, ConfigurableListableBeanFactory factory) {
         this.modelDefinitions = modelDefinitions;
@@ -48,7 +58,29 @@ class SpringResourceModelFactory implements ResourceModelFactory {
         }
 
         SpringBasedModelDefinition springBasedModelDefinition = (SpringBasedModelDefinition) modelDefinition;
-        T bean = factory.getBean(springBasedModelDefinition.getBeanName(), modelDefinition.getType());
+
+        @SuppressWarnings("unchecked")
+        T bean = (T) modelCreationFor(springBasedModelDefinition).get();
         return callback.map(bean);
     }
+
+    private Supplier<?> modelCreationFor(SpringBasedModelDefinition modelDefinition) {
+        Supplier<?> creation = this.modelCreation.get(modelDefinition);
+        if (creation != null) {
+            return creation;
+        }
+
+        // Post processors may still be added as long as the configuration is not frozen.
+        if (!this.factory.isConfigurationFrozen()) {
+            return () -> this.factory.getBean(modelDefinition.getBeanName(), modelDefinition.getType());
+        }
+
+        return this.modelCreation.computeIfAbsent(modelDefinition, definition -> {
+            PrototypeModelCreator creator = forBean(this.factory, definition.getBeanName(), definition.getType());
+            if (creator == null) {
+                return () -> this.factory.getBean(definition.getBeanName(), definition.getType());
+            }
+            return creator::create;
+        });
+    }
 }
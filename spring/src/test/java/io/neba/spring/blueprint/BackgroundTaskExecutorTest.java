@@ -0,0 +1,215 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.blueprint;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.osgi.framework.BundleContext;
+import org.osgi.framework.ServiceRegistration;
+import org.osgi.service.cm.ManagedService;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Dictionary;
+import java.util.Hashtable;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+/**
+ * @author Olaf Otto
+ */
+@RunWith(MockitoJUnitRunner.class)
+public class BackgroundTaskExecutorTest {
+    @Mock
+    private BundleContext context;
+    @Mock
+    private ServiceRegistration<?> registration;
+
+    private Dictionary<String, Object> configuration = new Hashtable<>();
+
+    private BackgroundTaskExecutor testee;
+
+    @Before
+    public void setUp() {
+        this.testee = new BackgroundTaskExecutor();
+        this.testee.setBundleContext(this.context);
+    }
+
+    @After
+    public void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        LocaleContextHolder.resetLocaleContext();
+        this.testee.shutdown();
+    }
+
+    @Test
+    public void testTasksAreExecutedInBackgroundThread() throws InterruptedException {
+        assertThat(executeAndGetThread()).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullTask() {
+        this.testee.execute(null);
+    }
+
+    @Test
+    public void testConfigurationIsRegisteredAsManagedService() {
+        doReturn(this.registration).when(this.context).registerService(eq(ManagedService.class.getName()), eq(this.testee), any());
+
+        this.testee.registerConfiguration();
+        this.testee.shutdown();
+
+        verify(this.registration).unregister();
+    }
+
+    @Test
+    public void testRequestContextIsNotPropagatedByDefault() throws InterruptedException {
+        withRequestContext();
+
+        assertThat(executeAndGetRequestAttributes()).isNull();
+    }
+
+    @Test
+    public void testRequestContextIsPropagatedIfConfigured() throws InterruptedException {
+        RequestAttributes attributes = withRequestContext();
+        withConfiguration(BackgroundTaskExecutor.PROPAGATE_REQUEST_CONTEXT, "true");
+
+        assertThat(executeAndGetRequestAttributes()).isSameAs(attributes);
+    }
+
+    @Test
+    public void testPoolSizeCanBeReconfigured() throws InterruptedException {
+        withConfiguration(BackgroundTaskExecutor.POOL_SIZE, 2);
+
+        assertThat(executeAndGetThread()).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void testQueueCapacityCanBeReconfigured() throws InterruptedException {
+        withConfiguration(BackgroundTaskExecutor.QUEUE_CAPACITY, 10);
+
+        assertThat(executeAndGetThread()).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void testVirtualThreadsFallBackToPoolIfUnsupported() throws InterruptedException {
+        withConfiguration(BackgroundTaskExecutor.USE_VIRTUAL_THREADS, true);
+
+        assertThat(executeAndGetThread()).isNotSameAs(Thread.currentThread());
+    }
+
+    @Test
+    public void testSaturatedExecutorExecutesTasksInCallingThread() throws InterruptedException {
+        withConfiguration(BackgroundTaskExecutor.POOL_SIZE, 1);
+        withConfiguration(BackgroundTaskExecutor.QUEUE_CAPACITY, 1);
+
+        CountDownLatch blocked = new CountDownLatch(1);
+        this.testee.execute(() -> await(blocked));
+        this.testee.execute(() -> await(blocked));
+
+        try {
+            assertThat(executeAndGetThread()).isSameAs(Thread.currentThread());
+        } finally {
+            blocked.countDown();
+        }
+    }
+
+    @Test
+    public void testShutdownWaitsForRunningTasks() {
+        AtomicReference<Boolean> completed = new AtomicReference<>(false);
+        this.testee.execute(() -> {
+            sleep();
+            completed.set(true);
+        });
+
+        this.testee.shutdown();
+
+        assertThat(completed.get()).isTrue();
+    }
+
+    @Test(expected = TaskRejectedException.class)
+    public void testTasksAreRejectedAfterShutdown() {
+        this.testee.shutdown();
+        this.testee.execute(() -> {});
+    }
+
+    private RequestAttributes withRequestContext() {
+        RequestAttributes attributes = mock(RequestAttributes.class);
+        RequestContextHolder.setRequestAttributes(attributes);
+        LocaleContextHolder.setLocale(Locale.GERMAN);
+        return attributes;
+    }
+
+    private void withConfiguration(String key, Object value) {
+        this.configuration.put(key, value);
+        this.testee.updated(this.configuration);
+    }
+
+    private Thread executeAndGetThread() throws InterruptedException {
+        AtomicReference<Thread> thread = new AtomicReference<>();
+        execute(() -> thread.set(Thread.currentThread()));
+        return thread.get();
+    }
+
+    private RequestAttributes executeAndGetRequestAttributes() throws InterruptedException {
+        AtomicReference<RequestAttributes> attributes = new AtomicReference<>();
+        execute(() -> attributes.set(RequestContextHolder.getRequestAttributes()));
+        return attributes.get();
+    }
+
+    private void execute(Runnable task) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        this.testee.execute(() -> {
+            try {
+                task.run();
+            } finally {
+                done.countDown();
+            }
+        });
+        assertThat(done.await(5, SECONDS)).isTrue();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep() {
+        try {
+            Thread.sleep(200);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -36,7 +36,9 @@ import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.multipart.MultipartResolver;
 import org.springframework.web.servlet.HandlerAdapter;
+import org.springframework.web.method.HandlerMethod;
 import org.springframework.web.servlet.HandlerExceptionResolver;
+import org.springframework.web.servlet.HandlerExecutionChain;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.ViewResolver;
 import org.springframework.web.servlet.handler.BeanNameUrlHandlerMapping;
@@ -46,6 +48,7 @@ import org.springframework.web.servlet.mvc.method.annotation.ExceptionHandlerExc
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerAdapter;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 import org.springframework.web.servlet.mvc.support.DefaultHandlerExceptionResolver;
+import org.springframework.web.util.UrlPathHelper;
 
 import javax.servlet.ServletConfig;
 import javax.servlet.ServletException;
@@ -55,7 +58,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import static java.util.Collections.singletonMap;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -67,10 +72,13 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
 import static org.springframework.web.servlet.DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME;
+import static org.springframework.web.servlet.mvc.method.RequestMappingInfo.paths;
 
 /**
  * @author Olaf Otto
@@ -88,12 +96,15 @@ public class BundleSpecificDispatcherServletTest {
     @Mock
     private ServletResolver servletResolver;
     @Mock
+    private ViewScriptCache viewScriptCache;
+    @Mock
     private SlingMvcServletRequest request;
     @Mock
     private SlingHttpServletResponse response;
 
     private List<HandlerMethodArgumentResolver> registeredArgumentResolvers = new ArrayList<>();
     private HandlerMapping handlerMapping;
+    private UrlPathHelper urlPathHelper;
 
     private BundleSpecificDispatcherServlet testee;
 
@@ -122,7 +133,7 @@ public class BundleSpecificDispatcherServletTest {
         };
         doAnswer(createMock).when(this.factory).createBean(isA(Class.class));
 
-        this.testee = new BundleSpecificDispatcherServlet(this.servletConfig, this.servletResolver, this.factory);
+        this.testee = new BundleSpecificDispatcherServlet(this.servletConfig, this.servletResolver, this.viewScriptCache, this.factory);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -132,17 +143,22 @@ public class BundleSpecificDispatcherServletTest {
 
     @Test(expected = IllegalArgumentException.class)
     public void testHandlingOfNullFactoryInConstructor() {
-        new BundleSpecificDispatcherServlet(mock(ServletConfig.class), this.servletResolver, null);
+        new BundleSpecificDispatcherServlet(mock(ServletConfig.class), this.servletResolver, this.viewScriptCache, null);
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testHandlingOfNullServletConfigInConstructor() {
-        new BundleSpecificDispatcherServlet(null, this.servletResolver, mock(ConfigurableListableBeanFactory.class));
+        new BundleSpecificDispatcherServlet(null, this.servletResolver, this.viewScriptCache, mock(ConfigurableListableBeanFactory.class));
     }
 
     @Test(expected = IllegalArgumentException.class)
     public void testHandlingOfNullServletResolverInConstructor() {
-        new BundleSpecificDispatcherServlet(mock(ServletConfig.class), null, mock(ConfigurableListableBeanFactory.class));
+        new BundleSpecificDispatcherServlet(mock(ServletConfig.class), null, this.viewScriptCache, mock(ConfigurableListableBeanFactory.class));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testHandlingOfNullViewScriptCacheInConstructor() {
+        new BundleSpecificDispatcherServlet(mock(ServletConfig.class), this.servletResolver, null, mock(ConfigurableListableBeanFactory.class));
     }
 
     @Test
@@ -347,6 +363,63 @@ public class BundleSpecificDispatcherServletTest {
         verifyHandlerMappingIsUsedForRequest();
     }
 
+    @Test
+    public void testHandlerResolvedByHasHandlerForIsReusedWhenServicingTheRequest() throws Exception {
+        withExistingHandlerMapping();
+        withRequestAttributes();
+        signalContextRefreshed();
+
+        assertServletHasHandlerForRequest();
+        HandlerExecutionChain handler = this.testee.getHandler(this.request);
+
+        assertThat(handler).isNotNull();
+        verify(this.handlerMapping).getHandler(eq(this.request));
+    }
+
+    @Test
+    public void testResolvedHandlerIsOnlyReusedOnce() throws Exception {
+        withExistingHandlerMapping();
+        withRequestAttributes();
+        signalContextRefreshed();
+
+        assertServletHasHandlerForRequest();
+        this.testee.getHandler(this.request);
+        this.testee.getHandler(this.request);
+
+        verify(this.handlerMapping, times(2)).getHandler(eq(this.request));
+    }
+
+    @Test
+    public void testHandlerMappingsAreNotUsedForRequestsNotMatchingTheirRoutes() throws Exception {
+        withExistingRequestMappingHandlerMappingFor("/some/path");
+        withLookupPath("/other/path");
+        withMethod("GET");
+        signalContextRefreshed();
+
+        // The handler resolution would fail, as the handler mapping is a mock.
+        assertServletHasNoHandlerForRequest();
+    }
+
+    private void withExistingRequestMappingHandlerMappingFor(String pattern) {
+        RequestMappingHandlerMapping mapping = mockExistingBean(RequestMappingHandlerMapping.class);
+        doReturn(null).when(mapping).getDefaultHandler();
+        doReturn(singletonMap(paths(pattern).methods(GET).build(), mock(HandlerMethod.class))).when(mapping).getHandlerMethods();
+        this.urlPathHelper = mock(UrlPathHelper.class);
+        doReturn(this.urlPathHelper).when(mapping).getUrlPathHelper();
+        this.handlerMapping = mapping;
+    }
+
+    private void withLookupPath(String path) {
+        doReturn(path).when(this.urlPathHelper).getLookupPathForRequest(this.request);
+    }
+
+    private void withRequestAttributes() {
+        Map<String, Object> attributes = new HashMap<>();
+        doAnswer(i -> attributes.put(i.getArgument(0), i.getArgument(1))).when(this.request).setAttribute(anyString(), any());
+        doAnswer(i -> attributes.get(i.<String>getArgument(0))).when(this.request).getAttribute(anyString());
+        doAnswer(i -> attributes.remove(i.<String>getArgument(0))).when(this.request).removeAttribute(anyString());
+    }
+
     private void verifyBeanIsFetchedFromApplicationContext(String beanName) {
         verify(this.applicationContext).getBean(beanName);
     }
@@ -0,0 +1,160 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.mvc;
+
+import org.junit.Test;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.handler.SimpleUrlHandlerMapping;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Collections.singletonMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.springframework.web.bind.annotation.RequestMethod.GET;
+import static org.springframework.web.bind.annotation.RequestMethod.POST;
+
+/**
+ * @author Olaf Otto
+ */
+public class HandlerRoutesTest {
+    private final List<HandlerMapping> handlerMappings = new ArrayList<>();
+    private final Map<RequestMappingInfo, HandlerMethod> requestMappings = new HashMap<>();
+
+    private HandlerRoutes testee;
+
+    @Test
+    public void testAbsentHandlerMappingsMatchNothing() {
+        this.testee = HandlerRoutes.of(null);
+
+        assertRouteDoesNotMatch("GET", "/some/path");
+    }
+
+    @Test
+    public void testMappedPathIsMatched() {
+        withRequestMapping("/some/path", GET);
+
+        assertRouteMatches("GET", "/some/path");
+        assertRouteMatches("GET", "/some/path.json");
+        assertRouteMatches("GET", "/some/path/");
+        assertRouteMatches("GET", "/SOME/PATH");
+        assertRouteDoesNotMatch("GET", "/other/path");
+    }
+
+    @Test
+    public void testPatternsAreMatchedByTheirStaticPrefix() {
+        withRequestMapping("/some/{variable}/path", GET);
+
+        assertRouteMatches("GET", "/some/value/path");
+        assertRouteDoesNotMatch("GET", "/other/value/path");
+    }
+
+    @Test
+    public void testRequestMethodsAreMatched() {
+        withRequestMapping("/some/path", POST);
+
+        assertRouteMatches("POST", "/some/path");
+        assertRouteMatches("OPTIONS", "/some/path");
+        assertRouteDoesNotMatch("GET", "/some/path");
+    }
+
+    @Test
+    public void testHeadRequestsMatchGetMappings() {
+        withRequestMapping("/some/path", GET);
+
+        assertRouteMatches("HEAD", "/some/path");
+    }
+
+    @Test
+    public void testMappingsWithoutMethodsMatchAllMethods() {
+        withRequestMapping("/some/path");
+
+        assertRouteMatches("DELETE", "/some/path");
+    }
+
+    @Test
+    public void testMappingsWithoutPatternsMatchAllPaths() {
+        withRequestMapping(null, GET);
+
+        assertRouteMatches("GET", "/any/path");
+    }
+
+    @Test
+    public void testUrlHandlerMappingsAreMatched() {
+        SimpleUrlHandlerMapping urlHandlerMapping = new SimpleUrlHandlerMapping();
+        urlHandlerMapping.setUrlMap(singletonMap("/some/**", new Object()));
+        urlHandlerMapping.setApplicationContext(new StaticApplicationContext());
+        this.handlerMappings.add(urlHandlerMapping);
+
+        assertRouteMatches("PUT", "/some/deep/path");
+        assertRouteDoesNotMatch("PUT", "/other/path");
+    }
+
+    @Test
+    public void testMappingsWithDefaultHandlerMatchAllRequests() {
+        SimpleUrlHandlerMapping urlHandlerMapping = new SimpleUrlHandlerMapping();
+        urlHandlerMapping.setDefaultHandler(new Object());
+        this.handlerMappings.add(urlHandlerMapping);
+
+        assertRouteMatches("GET", "/any/path");
+    }
+
+    @Test
+    public void testUnknownHandlerMappingsMatchAllRequests() {
+        withRequestMapping("/some/path", GET);
+        this.handlerMappings.add(mock(HandlerMapping.class));
+
+        assertRouteMatches("GET", "/any/path");
+    }
+
+    private void withRequestMapping(String path, RequestMethod... methods) {
+        RequestMappingInfo.Builder info = path == null ? RequestMappingInfo.paths() : RequestMappingInfo.paths(path);
+        this.requestMappings.put(info.methods(methods).build(), mock(HandlerMethod.class));
+
+        if (this.handlerMappings.isEmpty()) {
+            RequestMappingHandlerMapping handlerMapping = mock(RequestMappingHandlerMapping.class);
+            doReturn(this.requestMappings).when(handlerMapping).getHandlerMethods();
+            doReturn(new UrlPathHelper()).when(handlerMapping).getUrlPathHelper();
+            this.handlerMappings.add(handlerMapping);
+        }
+    }
+
+    private void assertRouteMatches(String method, String path) {
+        assertThat(mayMatch(method, path)).describedAs(method + " " + path).isTrue();
+    }
+
+    private void assertRouteDoesNotMatch(String method, String path) {
+        assertThat(mayMatch(method, path)).describedAs(method + " " + path).isFalse();
+    }
+
+    private boolean mayMatch(String method, String path) {
+        if (this.testee == null) {
+            this.testee = HandlerRoutes.of(this.handlerMappings);
+        }
+        return this.testee.mayMatch(new MockHttpServletRequest(method, path));
+    }
+}
@@ -67,6 +67,9 @@ public class MvcServletTest {
     @Mock
     @SuppressWarnings("unused") // injected into testee
     private ServletResolver servletResolver;
+    @Mock
+    @SuppressWarnings("unused") // injected into testee
+    private ViewScriptCache viewScriptCache;
 
     private BundleSpecificDispatcherServlet injectedDispatcherServlet;
 
@@ -24,7 +24,6 @@ import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.web.context.request.ServletRequestAttributes;
@@ -47,6 +46,8 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.springframework.web.context.request.RequestContextHolder.resetRequestAttributes;
 import static org.springframework.web.context.request.RequestContextHolder.setRequestAttributes;
@@ -69,7 +70,8 @@ public class NebaViewResolverTest {
 
     private View resolvedView;
 
-    @InjectMocks
+    private ViewScriptCache viewScriptCache = new ViewScriptCache();
+
     private NebaViewResolver testee;
 
     @Before
@@ -87,6 +89,8 @@ public class NebaViewResolverTest {
                 .getResourceResolver();
 
         setRequestAttributes(new ServletRequestAttributes(this.request));
+
+        this.testee = new NebaViewResolver(this.servletResolver, this.viewScriptCache);
     }
 
     @After
@@ -96,7 +100,12 @@ public class NebaViewResolverTest {
 
     @Test(expected = IllegalArgumentException.class)
     public void testConstructorRequiresNonNullServletResolver() {
-        new NebaViewResolver(null);
+        new NebaViewResolver(null, this.viewScriptCache);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructorRequiresNonNullViewScriptCache() {
+        new NebaViewResolver(this.servletResolver, null);
     }
 
     @Test(expected = IllegalArgumentException.class)
@@ -182,6 +191,61 @@ public class NebaViewResolverTest {
         assertViewIsNull();
     }
 
+    @Test
+    public void testResolvedScriptsAreCached() {
+        withSuperType("app/components/myComponent", "app/components/superType");
+        withDefaultScriptForType("app/components/superType");
+
+        resolve("app/components/myComponent");
+        resolve("app/components/myComponent");
+
+        // The type hierarchy is only traversed once, the cached script is resolved with the resolver of the current request.
+        verifyViewResolverResolvesScript("app/components/myComponent/myComponent");
+        verify(this.servletResolver, times(2)).resolveServlet(this.resourceResolver, "app/components/superType/superType");
+        assertViewHasType(SlingServletView.class);
+    }
+
+    @Test
+    public void testAbsenceOfScriptsIsCached() {
+        withExceptionDuringServletResolution();
+
+        resolve("some/type");
+        resolve("some/type");
+
+        verifyViewResolverResolvesScript("some/type/type");
+        assertViewIsNull();
+    }
+
+    @Test
+    public void testScriptsAreResolvedAgainAfterCacheIsCleared() {
+        withDefaultScriptForType("app/components/myComponent");
+
+        resolve("app/components/myComponent");
+        this.viewScriptCache.clear();
+        resolve("app/components/myComponent");
+
+        verify(this.servletResolver, times(2)).resolveServlet(this.resourceResolver, "app/components/myComponent/myComponent");
+        assertViewHasType(SlingServletView.class);
+    }
+
+    @Test
+    public void testCachedScriptIsResolvedWithTheResourceResolverOfTheCurrentRequest() {
+        withSuperType("app/components/myComponent", "app/components/superType");
+        withDefaultScriptForType("app/components/superType");
+        resolve("app/components/myComponent");
+
+        ResourceResolver otherResolver = mock(ResourceResolver.class);
+        Servlet otherScript = mock(Servlet.class);
+        doReturn(otherResolver).when(this.request).getResourceResolver();
+        doReturn(otherScript).when(this.servletResolver).resolveServlet(otherResolver, "app/components/superType/superType");
+
+        resolve("app/components/myComponent");
+
+        verify(this.servletResolver, never()).resolveServlet(otherResolver, "app/components/myComponent/myComponent");
+        assertThat(this.resolvedView).isInstanceOf(SlingServletView.class);
+        assertThat(this.resolvedView).hasFieldOrPropertyWithValue("servlet", otherScript);
+    }
+
     /**
      * View resolvers are  {@link org.springframework.core.Ordered}. NEBA's resource resolver shall be a fallback with higher
      * order than Spring's default {@link InternalResourceViewResolver} to override it but allow overriding by custom, higher-ranking
@@ -0,0 +1,149 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.mvc;
+
+import org.apache.sling.api.resource.ResourceResolver;
+import org.junit.Before;
+import org.junit.Test;
+import org.osgi.service.event.Event;
+
+import java.util.HashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+
+/**
+ * @author Olaf Otto
+ */
+public class ViewScriptCacheTest {
+    private final String script = "/apps/some/type/type";
+    private final AtomicInteger resolutions = new AtomicInteger();
+    private final ResourceResolver resourceResolver = mock(ResourceResolver.class);
+
+    private ViewScriptCache testee = new ViewScriptCache();
+
+    @Before
+    public void setUp() {
+        withResolver(this.resourceResolver, "user", "/apps/", "/libs/");
+    }
+
+    @Test
+    public void testResolvedScriptIsCached() {
+        assertThat(get("some/type", this.script)).isEqualTo(this.script);
+        assertThat(get("some/type", null)).isEqualTo(this.script);
+
+        assertNumberOfResolutionsIs(1);
+    }
+
+    @Test
+    public void testAbsenceOfScriptIsCached() {
+        assertThat(get("some/type", null)).isNull();
+        assertThat(get("some/type", this.script)).isNull();
+
+        assertNumberOfResolutionsIs(1);
+    }
+
+    @Test
+    public void testEventsClearTheCache() {
+        get("some/type", null);
+
+        this.testee.handleEvent(new Event("org/apache/sling/api/resource/Resource/CHANGED", new HashMap<>()));
+
+        assertThat(get("some/type", this.script)).isEqualTo(this.script);
+        assertNumberOfResolutionsIs(2);
+    }
+
+    @Test
+    public void testScriptsResolvedWhileTheCacheIsClearedAreNotCached() {
+        this.testee.get(this.resourceResolver, "some/type", type -> {
+            this.resolutions.incrementAndGet();
+            this.testee.clear();
+            return this.script;
+        });
+
+        assertThat(this.testee.size()).isZero();
+        assertNumberOfResolutionsIs(1);
+    }
+
+    @Test
+    public void testCacheIsClearedWhenReachingMaximumSize() {
+        for (int i = 0; i < ViewScriptCache.MAX_SIZE; ++i) {
+            get("type/" + i, this.script);
+        }
+        assertThat(this.testee.size()).isEqualTo(ViewScriptCache.MAX_SIZE);
+
+        get("one/more", this.script);
+
+        assertThat(this.testee.size()).isEqualTo(1);
+    }
+
+    @Test
+    public void testScriptsAreCachedPerUser() {
+        ResourceResolver otherResolver = mock(ResourceResolver.class);
+        withResolver(otherResolver, "otherUser", "/apps/", "/libs/");
+
+        assertThat(get(otherResolver, "some/type", null)).isNull();
+        assertThat(get(this.resourceResolver, "some/type", this.script)).isEqualTo(this.script);
+
+        assertNumberOfResolutionsIs(2);
+    }
+
+    @Test
+    public void testScriptsAreCachedPerSearchPath() {
+        ResourceResolver otherResolver = mock(ResourceResolver.class);
+        withResolver(otherResolver, "user", "/libs/");
+
+        assertThat(get(otherResolver, "some/type", null)).isNull();
+        assertThat(get(this.resourceResolver, "some/type", this.script)).isEqualTo(this.script);
+
+        assertNumberOfResolutionsIs(2);
+    }
+
+    @Test
+    public void testScriptsAreSharedBetweenResolversOfTheSameUserAndSearchPath() {
+        ResourceResolver otherResolver = mock(ResourceResolver.class);
+        withResolver(otherResolver, "user", "/apps/", "/libs/");
+
+        assertThat(get(otherResolver, "some/type", this.script)).isEqualTo(this.script);
+        assertThat(get(this.resourceResolver, "some/type", null)).isEqualTo(this.script);
+
+        assertNumberOfResolutionsIs(1);
+    }
+
+    private void withResolver(ResourceResolver resolver, String userId, String... searchPath) {
+        doReturn(userId).when(resolver).getUserID();
+        doReturn(searchPath).when(resolver).getSearchPath();
+    }
+
+    private String get(String viewName, String resolvedScript) {
+        return get(this.resourceResolver, viewName, resolvedScript);
+    }
+
+    private String get(ResourceResolver resolver, String viewName, String resolvedScript) {
+        Function<String, String> resolution = type -> {
+            this.resolutions.incrementAndGet();
+            return resolvedScript;
+        };
+        return this.testee.get(resolver, viewName, resolution);
+    }
+
+    private void assertNumberOfResolutionsIs(int expected) {
+        assertThat(this.resolutions.get()).isEqualTo(expected);
+    }
+}
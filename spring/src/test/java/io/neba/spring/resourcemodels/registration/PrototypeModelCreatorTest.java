@@ -0,0 +1,195 @@
+/*
+  Copyright 2013 the original author or authors.
+
+  Licensed under the Apache License, Version 2.0 the "License";
+  you may not use this file except in compliance with the License.
+  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+  Unless required by applicable law or agreed to in writing, software
+  distributed under the License is distributed on an "AS IS" BASIS,
+  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+  See the License for the specific language governing permissions and
+  limitations under the License.
+*/
+package io.neba.spring.resourcemodels.registration;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.framework.autoproxy.InfrastructureAdvisorAutoProxyCreator;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.AutowiredAnnotationBeanPostProcessor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.CommonAnnotationBeanPostProcessor;
+
+import javax.annotation.PostConstruct;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.beans.factory.config.AutowireCapableBeanFactory.AUTOWIRE_BY_TYPE;
+import static org.springframework.beans.factory.config.BeanDefinition.SCOPE_PROTOTYPE;
+
+/**
+ * @author Olaf Otto
+ */
+public class PrototypeModelCreatorTest {
+    @SuppressWarnings("unused")
+    public static class Dependency {
+    }
+
+    @SuppressWarnings("unused")
+    public static class PlainModel {
+        @Autowired
+        private Dependency dependency;
+    }
+
+    @SuppressWarnings("unused")
+    public static class ModelWithPostConstruct {
+        @PostConstruct
+        public void init() {
+        }
+    }
+
+    public static class AwareModel implements BeanFactoryAware {
+        @Override
+        public void setBeanFactory(BeanFactory beanFactory) {
+        }
+    }
+
+    @SuppressWarnings("unused")
+    public static class ModelWithConstructorInjection {
+        private final Dependency dependency;
+
+        public ModelWithConstructorInjection(Dependency dependency) {
+            this.dependency = dependency;
+        }
+    }
+
+    private DefaultListableBeanFactory factory;
+    private PrototypeModelCreator testee;
+
+    @Before
+    public void setUp() {
+        this.factory = new DefaultListableBeanFactory();
+        AutowiredAnnotationBeanPostProcessor autowiring = new AutowiredAnnotationBeanPostProcessor();
+        autowiring.setBeanFactory(this.factory);
+        this.factory.addBeanPostProcessor(autowiring);
+        this.factory.registerBeanDefinition("dependency", new RootBeanDefinition(Dependency.class));
+    }
+
+    @Test
+    public void testPlainPrototypeIsCreatedAndAutowired() {
+        withPrototype(PlainModel.class);
+        createTestee(PlainModel.class);
+
+        assertTesteeIsCreated();
+        Object first = this.testee.create();
+        Object second = this.testee.create();
+
+        assertThat(first).isInstanceOf(PlainModel.class).isNotSameAs(second);
+        assertThat(((PlainModel) first).dependency).isSameAs(this.factory.getBean(Dependency.class));
+    }
+
+    @Test
+    public void testCommonAnnotationPostProcessorIsSupported() {
+        this.factory.addBeanPostProcessor(new CommonAnnotationBeanPostProcessor());
+        withPrototype(PlainModel.class);
+        createTestee(PlainModel.class);
+
+        assertTesteeIsCreated();
+    }
+
+    @Test
+    public void testSingletonsAreNotSupported() {
+        this.factory.registerBeanDefinition("model", new RootBeanDefinition(PlainModel.class));
+        createTestee(PlainModel.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testUnknownPostProcessorsPreventCreation() {
+        this.factory.addBeanPostProcessor(new InfrastructureAdvisorAutoProxyCreator());
+        withPrototype(PlainModel.class);
+        createTestee(PlainModel.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testLifecycleCallbacksPreventCreation() {
+        withPrototype(ModelWithPostConstruct.class);
+        createTestee(ModelWithPostConstruct.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testAwareModelsAreNotSupported() {
+        withPrototype(AwareModel.class);
+        createTestee(AwareModel.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testConstructorInjectionIsNotSupported() {
+        withPrototype(ModelWithConstructorInjection.class);
+        createTestee(ModelWithConstructorInjection.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testCustomAutowiringIsNotSupported() {
+        RootBeanDefinition definition = prototypeDefinitionOf(PlainModel.class);
+        definition.setAutowireMode(AUTOWIRE_BY_TYPE);
+        this.factory.registerBeanDefinition("model", definition);
+        createTestee(PlainModel.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testInitMethodsAreNotSupported() {
+        RootBeanDefinition definition = prototypeDefinitionOf(PlainModel.class);
+        definition.setInitMethodName("toString");
+        this.factory.registerBeanDefinition("model", definition);
+        createTestee(PlainModel.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    @Test
+    public void testMissingBeanDefinitionIsNotSupported() {
+        this.factory.registerSingleton("model", new PlainModel());
+        createTestee(PlainModel.class);
+
+        assertTesteeIsNotCreated();
+    }
+
+    private void withPrototype(Class<?> type) {
+        this.factory.registerBeanDefinition("model", prototypeDefinitionOf(type));
+    }
+
+    private static RootBeanDefinition prototypeDefinitionOf(Class<?> type) {
+        RootBeanDefinition definition = new RootBeanDefinition(type);
+        definition.setScope(SCOPE_PROTOTYPE);
+        return definition;
+    }
+
+    private void createTestee(Class<?> type) {
+        this.testee = PrototypeModelCreator.forBean(this.factory, "model", type);
+    }
+
+    private void assertTesteeIsCreated() {
+        assertThat(this.testee).isNotNull();
+    }
+
+    private void assertTesteeIsNotCreated() {
+        assertThat(this.testee).isNull();
+    }
+}
@@ -19,7 +19,9 @@ package io.neba.spring.resourcemodels.registration;
 import io.neba.api.annotations.ResourceModel;
 import io.neba.api.spi.ResourceModelFactory;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -28,12 +30,21 @@ import org.osgi.framework.Bundle;
 import org.osgi.framework.BundleContext;
 import org.osgi.framework.ServiceRegistration;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.support.GenericBeanDefinition;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.annotation.IncompleteAnnotationException;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Dictionary;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
+import static io.neba.spring.resourcemodels.registration.SpringModelRegistrar.MODEL_INDEX;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
@@ -41,7 +52,9 @@ import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -50,12 +63,16 @@ import static org.mockito.Mockito.when;
  */
 @RunWith(MockitoJUnitRunner.class)
 public class SpringModelRegistrarTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
     private ConfigurableListableBeanFactory factory;
     @Mock
     private Bundle bundle;
     @Mock
     private BundleContext context;
     private Set<String> beanNamesInApplicationContext = new HashSet<>();
+    private List<String> beanDefinitionNames = new ArrayList<>();
     private ResourceModelFactory publishedService;
     private ServiceRegistration serviceRegistration;
 
@@ -143,6 +160,64 @@ public class SpringModelRegistrarTest {
         assertModelIsPublishedWithName("bean2");
     }
 
+    @Test
+    public void testModelIndexRestrictsDiscoveryToIndexedBeanClasses() throws IOException {
+        withBeanFactory();
+        withModelIndex(ModelBean.class.getName());
+        withBeanDefinition("model", ModelBean.class.getName());
+        withBeanDefinition("otherBean", "some.other.BeanClass");
+        withBeanDefinition("factoryMethodBean", null);
+        withResolvableModelType();
+        mockResourceModelWithBeanName("model");
+
+        registerResourceModels();
+
+        assertModelIsPublishedWithName("model");
+        verify(this.factory, never()).getType("otherBean");
+        verify(this.factory, never()).findAnnotationOnBean("otherBean", ResourceModel.class);
+        verify(this.factory, never()).getBeanNamesForType(Object.class);
+    }
+
+    @Test
+    public void testModelIndexIsNotAppliedToModelsOfParentFactories() throws IOException {
+        withBeanFactory();
+        withParentFactoryContainingBeans("parentModel");
+        withModelIndex(ModelBean.class.getName());
+        withBeanDefinition("model", ModelBean.class.getName());
+        withResolvableModelType();
+        mockResourceModelWithBeanName("model");
+        mockResourceModelWithBeanName("parentModel");
+
+        registerResourceModels();
+
+        assertAllModelsArePublishedViaModelFactory();
+    }
+
+    private void withParentFactoryContainingBeans(String... beanNames) {
+        ConfigurableListableBeanFactory parent = mock(ConfigurableListableBeanFactory.class);
+        // The parent's models stem from other bundles and are thus not contained in this bundle's index.
+        GenericBeanDefinition definition = new GenericBeanDefinition();
+        definition.setBeanClassName("some.other.bundles.Model");
+        lenient().doReturn(definition).when(parent).getBeanDefinition(any());
+        lenient().doReturn(beanNames).when(parent).getBeanDefinitionNames();
+        doReturn(beanNames).when(parent).getBeanNamesForType(Object.class);
+        doReturn(parent).when(this.factory).getParentBeanFactory();
+    }
+
+    private void withModelIndex(String... classNames) throws IOException {
+        File index = this.folder.newFile();
+        Files.write(index.toPath(), asList(classNames), UTF_8);
+        doReturn(index.toURI().toURL()).when(this.bundle).getEntry(MODEL_INDEX);
+    }
+
+    private void withBeanDefinition(String beanName, String beanClassName) {
+        GenericBeanDefinition definition = new GenericBeanDefinition();
+        definition.setBeanClassName(beanClassName);
+        doReturn(definition).when(this.factory).getBeanDefinition(beanName);
+        this.beanDefinitionNames.add(beanName);
+        doReturn(this.beanDefinitionNames.toArray(new String[0])).when(this.factory).getBeanDefinitionNames();
+    }
+
     private void withUnknownTypeOfBean(String name) {
         doReturn(null).when(this.factory).getType(name);
     }
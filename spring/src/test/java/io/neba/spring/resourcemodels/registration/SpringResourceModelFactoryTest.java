@@ -14,6 +14,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @RunWith(MockitoJUnitRunner.class)
@@ -57,6 +58,21 @@ public class SpringResourceModelFactoryTest {
         assertResourceModelFactoryProvidesModelReturnedFromCallback();
     }
 
+    @Test
+    public void testModelsAreObtainedFromBeanFactoryIfTheyCannotBeCreatedDirectly() {
+        withFrozenBeanFactoryConfiguration();
+
+        provideModel();
+        provideModel();
+
+        verify(this.factory, times(2)).getBean(BEAN_NAME, getClass());
+        assertResourceModelFactoryProvidesModelReturnedFromCallback();
+    }
+
+    private void withFrozenBeanFactoryConfiguration() {
+        doReturn(true).when(this.factory).isConfigurationFrozen();
+    }
+
     private void verifyModelBeanIsObtainedFromBeanFactory() {
         verify(this.factory).getBean(BEAN_NAME, getClass());
     }